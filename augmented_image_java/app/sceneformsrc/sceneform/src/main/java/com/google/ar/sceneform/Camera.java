@@ -41,6 +41,17 @@ public class Camera extends Node implements CameraProvider {
   private final Matrix viewMatrix = new Matrix();
   private final Matrix projectionMatrix = new Matrix();
 
+  // The product of the projection and view matrices and its inverse, cached until either matrix
+  // changes, which is at most once per frame for an AR camera.
+  private final Matrix viewProjectionMatrix = new Matrix();
+  private final Matrix inverseViewProjectionMatrix = new Matrix();
+  private boolean isViewProjectionDirty = true;
+  private boolean isInverseViewProjectionDirty = true;
+
+  // Scratch values reused by screenPointToRay to avoid allocations.
+  private final Vector3 rayStartPoint = new Vector3();
+  private final Vector3 rayEndPoint = new Vector3();
+
   private static final float DEFAULT_NEAR_PLANE = 0.01f;
   private static final float DEFAULT_FAR_PLANE = 30.0f;
   private static final int FALLBACK_VIEW_WIDTH = 1920;
@@ -163,13 +174,24 @@ public class Camera extends Node implements CameraProvider {
     return farPlane;
   }
 
-  /** @hide Used internally (b/113516741) */
+  /**
+   * Returns the matrix owned by the camera, which the renderer reads every frame without copying.
+   * It must not be modified: the cached view-projection matrix would not be updated.
+   *
+   * @hide Used internally (b/113516741)
+   */
   @Override
   public Matrix getViewMatrix() {
     return viewMatrix;
   }
 
-  /** @hide Used internally (b/113516741) and within rendering package */
+  /**
+   * Returns the matrix owned by the camera, which the renderer reads every frame without copying.
+   * It must not be modified, use {@link #setProjectionMatrix(Matrix)} instead so that the cached
+   * view-projection matrix is updated.
+   *
+   * @hide Used internally (b/113516741) and within rendering package
+   */
   @Override
   public Matrix getProjectionMatrix() {
     return projectionMatrix;
@@ -198,12 +220,19 @@ public class Camera extends Node implements CameraProvider {
     super.setWorldRotation(rotation);
 
     areMatricesInitialized = true;
+    markViewProjectionDirty();
   }
 
   Ray motionEventToRay(MotionEvent motionEvent) {
+    Ray ray = new Ray();
+    motionEventToRay(motionEvent, ray);
+    return ray;
+  }
+
+  void motionEventToRay(MotionEvent motionEvent, Ray dest) {
     Preconditions.checkNotNull(motionEvent, "Parameter \"motionEvent\" was null.");
     int index = motionEvent.getActionIndex();
-    return screenPointToRay(motionEvent.getX(index), motionEvent.getY(index));
+    screenPointToRay(motionEvent.getX(index), motionEvent.getY(index), dest);
   }
 
   /**
@@ -216,15 +245,33 @@ public class Camera extends Node implements CameraProvider {
    * @param y Y position in device screen coordinates.
    */
   public Ray screenPointToRay(float x, float y) {
-    Vector3 startPoint = new Vector3();
-    Vector3 endPoint = new Vector3();
+    Ray ray = new Ray();
+    screenPointToRay(x, y, ray);
+    return ray;
+  }
 
-    unproject(x, y, 0.0f, startPoint);
-    unproject(x, y, 1.0f, endPoint);
+  /**
+   * Calculates a ray in world space going from the near-plane of the camera and going through a
+   * point in screen space, without allocating.
+   *
+   * @see #screenPointToRay(float, float)
+   * @param x X position in device screen coordinates.
+   * @param y Y position in device screen coordinates.
+   * @param dest The ray that receives the result.
+   */
+  public void screenPointToRay(float x, float y, Ray dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
 
-    Vector3 direction = Vector3.subtract(endPoint, startPoint);
+    Matrix inverseViewProjectionMatrix = getInverseViewProjectionMatrix();
+    unproject(x, y, 0.0f, inverseViewProjectionMatrix, rayStartPoint);
+    unproject(x, y, 1.0f, inverseViewProjectionMatrix, rayEndPoint);
 
-    return new Ray(startPoint, direction);
+    dest.setOrigin(rayStartPoint);
+    rayEndPoint.set(
+        rayEndPoint.x - rayStartPoint.x,
+        rayEndPoint.y - rayStartPoint.y,
+        rayEndPoint.z - rayStartPoint.z);
+    dest.setDirection(rayEndPoint);
   }
 
   /**
@@ -244,8 +291,24 @@ public class Camera extends Node implements CameraProvider {
    * @return a new vector that represents the point in screen-space.
    */
   public Vector3 worldToScreenPoint(Vector3 point) {
-    Matrix m = new Matrix();
-    Matrix.multiply(projectionMatrix, viewMatrix, m);
+    Vector3 screenPoint = new Vector3();
+    worldToScreenPoint(point, screenPoint);
+    return screenPoint;
+  }
+
+  /**
+   * Convert a point from world space into screen space without allocating. The destination may be
+   * the point itself.
+   *
+   * @see #worldToScreenPoint(Vector3)
+   * @param point the point in world space to convert
+   * @param dest the vector that receives the point in screen-space
+   */
+  public void worldToScreenPoint(Vector3 point, Vector3 dest) {
+    Preconditions.checkNotNull(point, "Parameter \"point\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    Matrix m = getViewProjectionMatrix();
 
     int viewWidth = getViewWidth();
     int viewHeight = getViewHeight();
@@ -255,23 +318,22 @@ public class Camera extends Node implements CameraProvider {
     float w = 1.0f;
 
     // Multiply the world point.
-    Vector3 screenPoint = new Vector3();
-    screenPoint.x = x * m.data[0] + y * m.data[4] + z * m.data[8] + w * m.data[12];
-    screenPoint.y = x * m.data[1] + y * m.data[5] + z * m.data[9] + w * m.data[13];
+    float screenX = x * m.data[0] + y * m.data[4] + z * m.data[8] + w * m.data[12];
+    float screenY = x * m.data[1] + y * m.data[5] + z * m.data[9] + w * m.data[13];
     w = x * m.data[3] + y * m.data[7] + z * m.data[11] + w * m.data[15];
 
     // To clipping space.
-    screenPoint.x = ((screenPoint.x / w) + 1.0f) * 0.5f;
-    screenPoint.y = ((screenPoint.y / w) + 1.0f) * 0.5f;
+    screenX = ((screenX / w) + 1.0f) * 0.5f;
+    screenY = ((screenY / w) + 1.0f) * 0.5f;
 
     // To screen space.
-    screenPoint.x = screenPoint.x * viewWidth;
-    screenPoint.y = screenPoint.y * viewHeight;
+    screenX = screenX * viewWidth;
+    screenY = screenY * viewHeight;
 
     // Invert Y because screen Y points down and Sceneform Y points up.
-    screenPoint.y = viewHeight - screenPoint.y;
+    screenY = viewHeight - screenY;
 
-    return screenPoint;
+    dest.set(screenX, screenY, 0.0f);
   }
 
   /** Unsupported operation. Camera's parent cannot be changed, it is always the scene. */
@@ -296,6 +358,7 @@ public class Camera extends Node implements CameraProvider {
     } else {
       super.setLocalPosition(position);
       Matrix.invert(getWorldModelMatrix(), viewMatrix);
+      markViewProjectionDirty();
     }
   }
 
@@ -314,6 +377,7 @@ public class Camera extends Node implements CameraProvider {
     } else {
       super.setLocalRotation(rotation);
       Matrix.invert(getWorldModelMatrix(), viewMatrix);
+      markViewProjectionDirty();
     }
   }
 
@@ -332,6 +396,7 @@ public class Camera extends Node implements CameraProvider {
     } else {
       super.setWorldPosition(position);
       Matrix.invert(getWorldModelMatrix(), viewMatrix);
+      markViewProjectionDirty();
     }
   }
 
@@ -350,6 +415,7 @@ public class Camera extends Node implements CameraProvider {
     } else {
       super.setWorldRotation(rotation);
       Matrix.invert(getWorldModelMatrix(), viewMatrix);
+      markViewProjectionDirty();
     }
   }
 
@@ -357,14 +423,37 @@ public class Camera extends Node implements CameraProvider {
   @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
   public void setProjectionMatrix(Matrix matrix) {
     projectionMatrix.set(matrix.data);
+    markViewProjectionDirty();
+  }
+
+  private Matrix getViewProjectionMatrix() {
+    if (isViewProjectionDirty) {
+      Matrix.multiply(projectionMatrix, viewMatrix, viewProjectionMatrix);
+      isViewProjectionDirty = false;
+    }
+
+    return viewProjectionMatrix;
+  }
+
+  private Matrix getInverseViewProjectionMatrix() {
+    if (isInverseViewProjectionDirty) {
+      Matrix.invert(getViewProjectionMatrix(), inverseViewProjectionMatrix);
+      isInverseViewProjectionDirty = false;
+    }
+
+    return inverseViewProjectionMatrix;
+  }
+
+  private void markViewProjectionDirty() {
+    isViewProjectionDirty = true;
+    isInverseViewProjectionDirty = true;
   }
 
-  private boolean unproject(float x, float y, float z, final Vector3 dest) {
+  private boolean unproject(
+      float x, float y, float z, Matrix inverseViewProjectionMatrix, final Vector3 dest) {
     Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
 
-    Matrix m = new Matrix();
-    Matrix.multiply(projectionMatrix, viewMatrix, m);
-    Matrix.invert(m, m);
+    Matrix m = inverseViewProjectionMatrix;
 
     int viewWidth = getViewWidth();
     int viewHeight = getViewHeight();
@@ -389,7 +478,7 @@ public class Camera extends Node implements CameraProvider {
     }
 
     w = 1.0f / w;
-    dest.set(dest.scaled(w));
+    dest.set(dest.x * w, dest.y * w, dest.z * w);
     return true;
   }
 
@@ -520,5 +609,6 @@ public class Camera extends Node implements CameraProvider {
     nearPlane = near;
     farPlane = far;
     areMatricesInitialized = true;
+    markViewProjectionDirty();
   }
 }
@@ -10,6 +10,7 @@ import com.google.ar.sceneform.collision.Ray;
 import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.Matrix;
 import com.google.ar.sceneform.math.Quaternion;
+import com.google.ar.sceneform.math.ScratchPool;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.Light;
 import com.google.ar.sceneform.rendering.LightInstance;
@@ -128,6 +129,28 @@ public class Node extends NodeParent implements TransformProvider {
     }
   }
 
+  /**
+   * Update interval of a node that is only updated on the frame after it calls {@link
+   * #requestUpdate()}.
+   *
+   * @see #setUpdateInterval(int)
+   */
+  public static final int UPDATE_ON_REQUEST = 0;
+
+  /**
+   * Update interval of a node that is updated every frame, which is the default.
+   *
+   * @see #setUpdateInterval(int)
+   */
+  public static final int UPDATE_EVERY_FRAME = 1;
+
+  /**
+   * Largest update interval accepted by {@link #setUpdateInterval(int)}, about a minute at 60
+   * frames per second. Nodes that need to be updated less often should use {@link
+   * #UPDATE_ON_REQUEST}.
+   */
+  public static final int MAX_UPDATE_INTERVAL = 3600;
+
   private static final float DIRECTION_UP_EPSILON = 0.99f;
 
   // This is the default from the ViewConfiguration class.
@@ -195,10 +218,25 @@ public class Node extends NodeParent implements TransformProvider {
   /** Determines when various aspects of the node's transform are dirty and must be recalculated. */
   private int dirtyTransformFlags = LOCAL_DIRTY_FLAGS;
 
+  // Updated whenever the world transform is marked dirty, so the renderer only pushes moved nodes.
+  private final ChangeId worldModelMatrixId = new ChangeId();
+
+  // Index of the node in the transform store of its scene, if the scene has one.
+  int transformStoreIndex = -1;
+
   // Status fields.
   private boolean enabled = true;
   private boolean active = false;
 
+  // Update scheduling fields, managed by the UpdateScheduler of the scene while the node is active.
+  private int updateInterval = UPDATE_EVERY_FRAME;
+  @Nullable UpdateScheduler updateScheduler;
+  @Nullable ArrayList<Node> updateBucket;
+  int updateSlot;
+  boolean isUpdateRequested;
+  // Frame time of nodes that aren't updated every frame, covering the time since their last update.
+  @Nullable FrameTime updateFrameTime;
+
   // Rendering fields.
   private int renderableId = ChangeId.EMPTY_ID;
   @Nullable private RenderableInstance renderableInstance;
@@ -239,8 +277,13 @@ public class Node extends NodeParent implements TransformProvider {
   public final void setName(String name) {
     Preconditions.checkNotNull(name, "Parameter \"name\" was null.");
 
+    String previousName = this.name;
     this.name = name;
     nameHash = name.hashCode();
+
+    if (scene != null) {
+      scene.nodeIndex.onNameChanged(this, previousName);
+    }
   }
 
   /** Returns the name of the node. The default value is "Node". */
@@ -390,7 +433,8 @@ public class Node extends NodeParent implements TransformProvider {
    * An active Node has the following behavior:
    *
    * <ul>
-   *   <li>The node's {@link #onUpdate(FrameTime)} function will be called every frame.
+   *   <li>The node's {@link #onUpdate(FrameTime)} function will be called every frame, or at the
+   *       interval set by {@link #setUpdateInterval(int)}.
    *   <li>The node's {@link #getRenderable()} will be rendered.
    *   <li>The node's {@link #getCollisionShape()} will be checked in calls to Scene.hitTest.
    *   <li>The node's {@link #onTouchEvent(HitTestResult, MotionEvent)} function will be called when
@@ -405,6 +449,81 @@ public class Node extends NodeParent implements TransformProvider {
     return active;
   }
 
+  /**
+   * Sets how often {@link #onUpdate(FrameTime)} is called while the node is active. By default a
+   * node is updated every frame.
+   *
+   * <p>With an interval of N, the node is updated once every N frames, and the {@link FrameTime}
+   * passed to it covers all the frames since its previous update. The nodes with the same interval
+   * are spread over the frames so that each frame updates a similar number of them.
+   *
+   * <p>With {@link #UPDATE_ON_REQUEST}, the node isn't updated until it calls {@link
+   * #requestUpdate()}, for example from a listener, and costs nothing per frame while asleep. Note
+   * that changes to the collision shape of the node's renderable are only picked up when the node
+   * is updated.
+   *
+   * @param frames the number of frames between updates, from {@link #UPDATE_EVERY_FRAME} to {@link
+   *     #MAX_UPDATE_INTERVAL}, or {@link #UPDATE_ON_REQUEST}
+   * @throws IllegalArgumentException if frames is negative or greater than {@link
+   *     #MAX_UPDATE_INTERVAL}
+   */
+  public final void setUpdateInterval(int frames) {
+    AndroidPreconditions.checkUiThread();
+
+    if (frames < 0) {
+      throw new IllegalArgumentException("Parameter \"frames\" was negative.");
+    }
+    if (frames > MAX_UPDATE_INTERVAL) {
+      throw new IllegalArgumentException(
+          "Parameter \"frames\" was greater than " + MAX_UPDATE_INTERVAL + ".");
+    }
+
+    if (frames == updateInterval) {
+      return;
+    }
+
+    UpdateScheduler scheduler = updateScheduler;
+    if (scheduler != null) {
+      scheduler.unregister(this);
+    }
+
+    updateInterval = frames;
+    if (frames == UPDATE_EVERY_FRAME) {
+      updateFrameTime = null;
+    } else if (updateFrameTime == null) {
+      updateFrameTime = new FrameTime();
+    }
+
+    if (scheduler != null) {
+      scheduler.register(this);
+    }
+  }
+
+  /**
+   * Returns the number of frames between calls to {@link #onUpdate(FrameTime)}.
+   *
+   * @see #setUpdateInterval(int)
+   */
+  public final int getUpdateInterval() {
+    return updateInterval;
+  }
+
+  /**
+   * Wakes a node whose update interval is {@link #UPDATE_ON_REQUEST}, so that it is updated on the
+   * next frame. Calling this again before then has no effect, and calling it from {@link
+   * #onUpdate(FrameTime)} keeps the node updating. Has no effect if the node isn't active or has a
+   * different update interval.
+   *
+   * @see #setUpdateInterval(int)
+   */
+  public final void requestUpdate() {
+    AndroidPreconditions.checkUiThread();
+
+    if (updateScheduler != null && updateInterval == UPDATE_ON_REQUEST) {
+      updateScheduler.requestUpdate(this);
+    }
+  }
+
   /**
    * Registers a callback to be invoked when a touch event is dispatched to this node. The way that
    * touch events are propagated mirrors the way touches are propagated to Android Views. This is
@@ -493,6 +612,9 @@ public class Node extends NodeParent implements TransformProvider {
   @Override
   protected final void onAddChild(Node child) {
     super.onAddChild(child);
+    if (scene != null) {
+      scene.onHierarchyChanged();
+    }
     child.parentAsNode = this;
     child.markTransformChangedRecursively(WORLD_DIRTY_FLAGS, child);
     child.setSceneRecursively(scene);
@@ -501,6 +623,9 @@ public class Node extends NodeParent implements TransformProvider {
   @Override
   protected final void onRemoveChild(Node child) {
     super.onRemoveChild(child);
+    if (scene != null) {
+      scene.onHierarchyChanged();
+    }
     child.parentAsNode = null;
     child.markTransformChangedRecursively(WORLD_DIRTY_FLAGS, child);
     child.setSceneRecursively(null);
@@ -509,12 +634,18 @@ public class Node extends NodeParent implements TransformProvider {
   private final void markTransformChangedRecursively(int flagsToMark, Node originatingNode) {
     boolean needsRecursion = false;
 
+    if (this == originatingNode && scene != null && scene.transformStore != null) {
+      scene.transformStore.markDirty(this);
+    }
+
     if ((dirtyTransformFlags & flagsToMark) != flagsToMark) {
       dirtyTransformFlags |= flagsToMark;
 
-      if ((dirtyTransformFlags & WORLD_TRANSFORM_DIRTY) == WORLD_TRANSFORM_DIRTY
-          && collider != null) {
-        collider.markWorldShapeDirty();
+      if ((dirtyTransformFlags & WORLD_TRANSFORM_DIRTY) == WORLD_TRANSFORM_DIRTY) {
+        worldModelMatrixId.update();
+        if (collider != null) {
+          collider.markWorldShapeDirty();
+        }
       }
 
       needsRecursion = true;
@@ -546,6 +677,17 @@ public class Node extends NodeParent implements TransformProvider {
     return new Vector3(localPosition);
   }
 
+  /**
+   * Gets the nodes local-space position without allocating.
+   *
+   * @see #getLocalPosition()
+   * @param dest the vector that receives the node's local-space position
+   */
+  public final void getLocalPosition(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(localPosition);
+  }
+
   /**
    * Gets a copy of the nodes rotation relative to its parent (local-space). If {@link
    * #isTopLevel()} is true, then this is the same as {@link #getWorldRotation()}.
@@ -557,6 +699,17 @@ public class Node extends NodeParent implements TransformProvider {
     return new Quaternion(localRotation);
   }
 
+  /**
+   * Gets the nodes local-space rotation without allocating.
+   *
+   * @see #getLocalRotation()
+   * @param dest the quaternion that receives the node's local-space rotation
+   */
+  public final void getLocalRotation(Quaternion dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(localRotation);
+  }
+
   /**
    * Gets a copy of the nodes scale relative to its parent (local-space). If {@link #isTopLevel()}
    * is true, then this is the same as {@link #getWorldScale()}.
@@ -568,6 +721,17 @@ public class Node extends NodeParent implements TransformProvider {
     return new Vector3(localScale);
   }
 
+  /**
+   * Gets the nodes local-space scale without allocating.
+   *
+   * @see #getLocalScale()
+   * @param dest the vector that receives the node's local-space scale
+   */
+  public final void getLocalScale(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(localScale);
+  }
+
   /**
    * Get a copy of the nodes world-space position.
    *
@@ -578,6 +742,17 @@ public class Node extends NodeParent implements TransformProvider {
     return new Vector3(getWorldPositionInternal());
   }
 
+  /**
+   * Gets the nodes world-space position without allocating.
+   *
+   * @see #getWorldPosition()
+   * @param dest the vector that receives the node's world-space position
+   */
+  public final void getWorldPosition(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(getWorldPositionInternal());
+  }
+
   /**
    * Gets a copy of the nodes world-space rotation.
    *
@@ -588,6 +763,17 @@ public class Node extends NodeParent implements TransformProvider {
     return new Quaternion(getWorldRotationInternal());
   }
 
+  /**
+   * Gets the nodes world-space rotation without allocating.
+   *
+   * @see #getWorldRotation()
+   * @param dest the quaternion that receives the node's world-space rotation
+   */
+  public final void getWorldRotation(Quaternion dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(getWorldRotationInternal());
+  }
+
   /**
    * Gets a copy of the nodes world-space scale. Some precision will be lost if the node is skewed.
    *
@@ -598,6 +784,17 @@ public class Node extends NodeParent implements TransformProvider {
     return new Vector3(getWorldScaleInternal());
   }
 
+  /**
+   * Gets the nodes world-space scale without allocating.
+   *
+   * @see #getWorldScale()
+   * @param dest the vector that receives the node's world-space scale
+   */
+  public final void getWorldScale(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(getWorldScaleInternal());
+  }
+
   /**
    * Sets the position of this node relative to its parent (local-space). If {@link #isTopLevel()}
    * is true, then this is the same as {@link #setWorldPosition(Vector3)}.
@@ -652,7 +849,7 @@ public class Node extends NodeParent implements TransformProvider {
     if (parentAsNode == null) {
       localPosition.set(position);
     } else {
-      localPosition.set(parentAsNode.worldToLocalPoint(position));
+      parentAsNode.getWorldModelMatrixInverseInternal().transformPoint(position, localPosition);
     }
 
     markTransformChangedRecursively(LOCAL_DIRTY_FLAGS, this);
@@ -675,8 +872,15 @@ public class Node extends NodeParent implements TransformProvider {
     if (parentAsNode == null) {
       localRotation.set(rotation);
     } else {
-      localRotation.set(
-          Quaternion.multiply(parentAsNode.getWorldRotationInternal().inverted(), rotation));
+      ScratchPool pool = ScratchPool.get();
+      pool.begin();
+      try {
+        Quaternion parentInverse = pool.quaternion();
+        parentAsNode.getWorldRotationInternal().inverted(parentInverse);
+        Quaternion.multiply(parentInverse, rotation, localRotation);
+      } finally {
+        pool.end();
+      }
     }
 
     markTransformChangedRecursively(LOCAL_DIRTY_FLAGS, this);
@@ -703,7 +907,15 @@ public class Node extends NodeParent implements TransformProvider {
       // Disallow dispatch transform changed here so we don't send the event multiple times
       // during setWorldScale.
       allowDispatchTransformChangedListeners = false;
-      setLocalScale(Vector3.one());
+      ScratchPool pool = ScratchPool.get();
+      pool.begin();
+      try {
+        Vector3 one = pool.vector3();
+        one.set(1.0f, 1.0f, 1.0f);
+        setLocalScale(one);
+      } finally {
+        pool.end();
+      }
       allowDispatchTransformChangedListeners = true;
       Matrix localModelMatrix = getLocalModelMatrixInternal();
 
@@ -737,9 +949,22 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the point in world-space
    */
   public final Vector3 localToWorldPoint(Vector3 point) {
+    Vector3 result = new Vector3();
+    localToWorldPoint(point, result);
+    return result;
+  }
+
+  /**
+   * Converts a point in the local-space of this node to world-space without allocating. The
+   * destination may be the point itself.
+   *
+   * @param point the point in local-space to convert
+   * @param dest the vector that receives the point in world-space
+   */
+  public final void localToWorldPoint(Vector3 point, Vector3 dest) {
     Preconditions.checkNotNull(point, "Parameter \"point\" was null.");
 
-    return getWorldModelMatrixInternal().transformPoint(point);
+    getWorldModelMatrixInternal().transformPoint(point, dest);
   }
 
   /**
@@ -749,9 +974,22 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the point in local-space
    */
   public final Vector3 worldToLocalPoint(Vector3 point) {
+    Vector3 result = new Vector3();
+    worldToLocalPoint(point, result);
+    return result;
+  }
+
+  /**
+   * Converts a point in world-space to the local-space of this node without allocating. The
+   * destination may be the point itself.
+   *
+   * @param point the point in world-space to convert
+   * @param dest the vector that receives the point in local-space
+   */
+  public final void worldToLocalPoint(Vector3 point, Vector3 dest) {
     Preconditions.checkNotNull(point, "Parameter \"point\" was null.");
 
-    return getWorldModelMatrixInverseInternal().transformPoint(point);
+    getWorldModelMatrixInverseInternal().transformPoint(point, dest);
   }
 
   /**
@@ -762,9 +1000,22 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the direction in world-space
    */
   public final Vector3 localToWorldDirection(Vector3 direction) {
+    Vector3 result = new Vector3();
+    localToWorldDirection(direction, result);
+    return result;
+  }
+
+  /**
+   * Converts a direction from local-space to world-space without allocating, see {@link
+   * #localToWorldDirection(Vector3)}. The destination may be the direction itself.
+   *
+   * @param direction the direction in local-space to convert
+   * @param dest the vector that receives the direction in world-space
+   */
+  public final void localToWorldDirection(Vector3 direction, Vector3 dest) {
     Preconditions.checkNotNull(direction, "Parameter \"direction\" was null.");
 
-    return Quaternion.rotateVector(getWorldRotationInternal(), direction);
+    Quaternion.rotateVector(getWorldRotationInternal(), direction, dest);
   }
 
   /**
@@ -775,9 +1026,22 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the direction in local-space
    */
   public final Vector3 worldToLocalDirection(Vector3 direction) {
+    Vector3 result = new Vector3();
+    worldToLocalDirection(direction, result);
+    return result;
+  }
+
+  /**
+   * Converts a direction from world-space to local-space without allocating, see {@link
+   * #worldToLocalDirection(Vector3)}. The destination may be the direction itself.
+   *
+   * @param direction the direction in world-space to convert
+   * @param dest the vector that receives the direction in local-space
+   */
+  public final void worldToLocalDirection(Vector3 direction, Vector3 dest) {
     Preconditions.checkNotNull(direction, "Parameter \"direction\" was null.");
 
-    return Quaternion.inverseRotateVector(getWorldRotationInternal(), direction);
+    Quaternion.inverseRotateVector(getWorldRotationInternal(), direction, dest);
   }
 
   /**
@@ -786,7 +1050,20 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's forward direction in world-space
    */
   public final Vector3 getForward() {
-    return localToWorldDirection(Vector3.forward());
+    Vector3 result = new Vector3();
+    getForward(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space forward vector of this node without allocating.
+   *
+   * @param dest the vector that receives the node's forward direction in world-space
+   */
+  public final void getForward(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(0.0f, 0.0f, -1.0f);
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -795,7 +1072,20 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's back direction in world-space
    */
   public final Vector3 getBack() {
-    return localToWorldDirection(Vector3.back());
+    Vector3 result = new Vector3();
+    getBack(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space back vector of this node without allocating.
+   *
+   * @param dest the vector that receives the node's back direction in world-space
+   */
+  public final void getBack(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(0.0f, 0.0f, 1.0f);
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -804,7 +1094,20 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's right direction in world-space
    */
   public final Vector3 getRight() {
-    return localToWorldDirection(Vector3.right());
+    Vector3 result = new Vector3();
+    getRight(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space right vector of this node without allocating.
+   *
+   * @param dest the vector that receives the node's right direction in world-space
+   */
+  public final void getRight(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(1.0f, 0.0f, 0.0f);
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -813,7 +1116,20 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's left direction in world-space
    */
   public final Vector3 getLeft() {
-    return localToWorldDirection(Vector3.left());
+    Vector3 result = new Vector3();
+    getLeft(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space left vector of this node without allocating.
+   *
+   * @param dest the vector that receives the node's left direction in world-space
+   */
+  public final void getLeft(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(-1.0f, 0.0f, 0.0f);
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -822,7 +1138,20 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's up direction in world-space
    */
   public final Vector3 getUp() {
-    return localToWorldDirection(Vector3.up());
+    Vector3 result = new Vector3();
+    getUp(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space up vector of this node without allocating.
+   *
+   * @param dest the vector that receives the node's up direction in world-space
+   */
+  public final void getUp(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(0.0f, 1.0f, 0.0f);
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -831,7 +1160,20 @@ public class Node extends NodeParent implements TransformProvider {
    * @return a new vector that represents the node's down direction in world-space
    */
   public final Vector3 getDown() {
-    return localToWorldDirection(Vector3.down());
+    Vector3 result = new Vector3();
+    getDown(result);
+    return result;
+  }
+
+  /**
+   * Gets the world-space down vector of this node without allocating.
+   *
+   * @param dest the vector that receives the node's down direction in world-space
+   */
+  public final void getDown(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(0.0f, -1.0f, 0.0f);
+    Quaternion.rotateVector(getWorldRotationInternal(), dest, dest);
   }
 
   /**
@@ -965,8 +1307,15 @@ public class Node extends NodeParent implements TransformProvider {
    * @param upDirection a vector representing a valid up vector to use, such as Vector3.up()
    */
   public final void setLookDirection(Vector3 lookDirection, Vector3 upDirection) {
-    final Quaternion rotation = Quaternion.lookRotation(lookDirection, upDirection);
-    setWorldRotation(rotation);
+    ScratchPool pool = ScratchPool.get();
+    pool.begin();
+    try {
+      final Quaternion rotation = pool.quaternion();
+      Quaternion.lookRotation(lookDirection, upDirection, rotation);
+      setWorldRotation(rotation);
+    } finally {
+      pool.end();
+    }
   }
 
   /**
@@ -977,19 +1326,26 @@ public class Node extends NodeParent implements TransformProvider {
    * @param lookDirection a vector representing the desired look direction in world-space
    */
   public final void setLookDirection(Vector3 lookDirection) {
-    // Default up direction
-    Vector3 upDirection = Vector3.up();
+    ScratchPool pool = ScratchPool.get();
+    pool.begin();
+    try {
+      // Default up direction
+      Vector3 upDirection = pool.vector3();
+      upDirection.set(0.0f, 1.0f, 0.0f);
+
+      // First determine if the look direction and default up direction are far enough apart to
+      // produce a numerically stable cross product.
+      final float directionUpMatch = Math.abs(Vector3.dot(lookDirection, upDirection));
+      if (directionUpMatch > DIRECTION_UP_EPSILON) {
+        // If the direction vector and up vector coincide choose a new up vector.
+        upDirection.set(0.0f, 0.0f, 1.0f);
+      }
 
-    // First determine if the look direction and default up direction are far enough apart to
-    // produce a numerically stable cross product.
-    final float directionUpMatch = Math.abs(Vector3.dot(lookDirection, upDirection));
-    if (directionUpMatch > DIRECTION_UP_EPSILON) {
-      // If the direction vector and up vector coincide choose a new up vector.
-      upDirection = new Vector3(0.0f, 0.0f, 1.0f);
+      // Finally build the rotation with the proper up vector.
+      setLookDirection(lookDirection, upDirection);
+    } finally {
+      pool.end();
     }
-
-    // Finally build the rotation with the proper up vector.
-    setLookDirection(lookDirection, upDirection);
   }
 
   /** @hide */
@@ -998,6 +1354,12 @@ public class Node extends NodeParent implements TransformProvider {
     return getWorldModelMatrixInternal();
   }
 
+  /** @hide */
+  @Override
+  public final ChangeId getWorldModelMatrixId() {
+    return worldModelMatrixId;
+  }
+
   /**
    * Handles when this node becomes active. A Node is active if it's enabled, part of a scene, and
    * its parent is active.
@@ -1108,8 +1470,10 @@ public class Node extends NodeParent implements TransformProvider {
 
         // Determine how much the touch has moved.
         float touchSlop = getScaledTouchSlop();
-        Vector3 upPosition = new Vector3(motionEvent.getX(), motionEvent.getY(), 0.0f);
-        float touchDelta = Vector3.subtract(tapTrackingData.downPosition, upPosition).length();
+        // Computed on scalars since this runs for every move event.
+        float deltaX = tapTrackingData.downPosition.x - motionEvent.getX();
+        float deltaY = tapTrackingData.downPosition.y - motionEvent.getY();
+        float touchDelta = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
 
         // Determine if this node or a child node is still being touched.
         hitNode = hitTestResult.getNode();
@@ -1200,8 +1564,15 @@ public class Node extends NodeParent implements TransformProvider {
     return nameHash;
   }
 
+  @Override
+  @Nullable
+  final NodeIndex getNodeIndex() {
+    return scene != null ? scene.nodeIndex : null;
+  }
+
   /**
-   * Calls onUpdate if the node is active. Used by SceneView to dispatch updates.
+   * Calls onUpdate if the node is active. Used by the UpdateScheduler of the scene to dispatch
+   * updates.
    *
    * @param frameTime provides time information for the current frame
    */
@@ -1219,6 +1590,11 @@ public class Node extends NodeParent implements TransformProvider {
       renderableId = renderable.getId().get();
     }
 
+    // Refit the collider if its shape was modified in place.
+    if (collider != null) {
+      collider.checkShapeChanged();
+    }
+
     onUpdate(frameTime);
 
     for (LifecycleListener lifecycleListener : lifecycleListeners) {
@@ -1313,6 +1689,15 @@ public class Node extends NodeParent implements TransformProvider {
     return cachedLocalModelMatrix;
   }
 
+  /**
+   * Sets the cached world model matrix to the one computed by the transform store. Only touches
+   * this node, so that the store can call it from worker threads while the UI thread waits.
+   */
+  void setWorldModelMatrixFromStore(float[] data, int offset) {
+    System.arraycopy(data, offset, cachedWorldModelMatrix.data, 0, 16);
+    dirtyTransformFlags &= ~WORLD_TRANSFORM_DIRTY;
+  }
+
   Matrix getWorldModelMatrixInverseInternal() {
     if ((dirtyTransformFlags & WORLD_INVERSE_TRANSFORM_DIRTY) == WORLD_INVERSE_TRANSFORM_DIRTY) {
       // Cache the inverse of the world model matrix.
@@ -1325,6 +1710,15 @@ public class Node extends NodeParent implements TransformProvider {
   }
 
   private void setSceneRecursivelyInternal(@Nullable Scene scene) {
+    if (this.scene != scene) {
+      if (this.scene != null) {
+        this.scene.nodeIndex.remove(this);
+      }
+      if (scene != null) {
+        scene.nodeIndex.add(this);
+      }
+    }
+
     this.scene = scene;
     for (Node node : getChildren()) {
       node.setSceneRecursively(scene);
@@ -1386,6 +1780,10 @@ public class Node extends NodeParent implements TransformProvider {
       collider.setAttachedCollisionSystem(scene.collisionSystem);
     }
 
+    if (scene != null) {
+      scene.updateScheduler.register(this);
+    }
+
     onActivate();
 
     for (LifecycleListener lifecycleListener : lifecycleListeners) {
@@ -1417,6 +1815,11 @@ public class Node extends NodeParent implements TransformProvider {
       collider.setAttachedCollisionSystem(null);
     }
 
+    // The scene may already be cleared, so the node unregisters from the scheduler it knows.
+    if (updateScheduler != null) {
+      updateScheduler.unregister(this);
+    }
+
     onDeactivate();
 
     for (LifecycleListener lifecycleListener : lifecycleListeners) {
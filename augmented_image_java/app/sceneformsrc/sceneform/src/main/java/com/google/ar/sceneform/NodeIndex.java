@@ -0,0 +1,152 @@
+package com.google.ar.sceneform;
+
+import android.support.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the nodes of a {@link Scene} by name and by class, so that {@link
+ * NodeParent#findByName(String)} and {@link NodeParent#findByType(Class)} don't walk the whole
+ * hierarchy.
+ *
+ * <p>Nodes are added when their scene is set and removed when it is cleared, which covers subtrees
+ * that move between scenes, and are re-indexed when they are renamed. The index doesn't track the
+ * order of the hierarchy, so when several nodes match, the first one in depth-first order is found
+ * by comparing their paths from the root.
+ */
+class NodeIndex {
+  private final HashMap<String, ArrayList<Node>> nodesByName = new HashMap<>();
+  private final HashMap<Class<?>, ArrayList<Node>> nodesByClass = new HashMap<>();
+
+  void add(Node node) {
+    add(nodesByName, node.getName(), node);
+    add(nodesByClass, node.getClass(), node);
+  }
+
+  void remove(Node node) {
+    remove(nodesByName, node.getName(), node);
+    remove(nodesByClass, node.getClass(), node);
+  }
+
+  void onNameChanged(Node node, String previousName) {
+    remove(nodesByName, previousName, node);
+    add(nodesByName, node.getName(), node);
+  }
+
+  /**
+   * Returns the first node with the given name in the depth-first traversal of root, which is
+   * either the scene or one of its nodes.
+   */
+  @Nullable
+  Node findByName(NodeParent root, String name) {
+    return findFirst(root, nodesByName.get(name), null);
+  }
+
+  /**
+   * Returns the first node that is an instance of the given type in the depth-first traversal of
+   * root, which is either the scene or one of its nodes.
+   */
+  @Nullable
+  <T extends Node> T findByType(NodeParent root, Class<T> type) {
+    Node found = null;
+    for (Map.Entry<Class<?>, ArrayList<Node>> entry : nodesByClass.entrySet()) {
+      if (type.isAssignableFrom(entry.getKey())) {
+        found = findFirst(root, entry.getValue(), found);
+      }
+    }
+    return type.cast(found);
+  }
+
+  @Nullable
+  private static Node findFirst(
+      NodeParent root, @Nullable List<Node> candidates, @Nullable Node found) {
+    if (candidates == null) {
+      return found;
+    }
+
+    for (int i = 0; i < candidates.size(); i++) {
+      Node candidate = candidates.get(i);
+      if (candidate != root && !candidate.isDescendantOf(root)) {
+        continue;
+      }
+      if (found == null || isBefore(candidate, found)) {
+        found = candidate;
+      }
+    }
+    return found;
+  }
+
+  /** Returns true if node comes before otherNode in a depth-first traversal of their scene. */
+  private static boolean isBefore(Node node, Node otherNode) {
+    int depth = getDepth(node);
+    int otherDepth = getDepth(otherNode);
+
+    // An ancestor comes before its descendants.
+    NodeParent ancestor = node;
+    NodeParent otherAncestor = otherNode;
+    while (depth > otherDepth) {
+      ancestor = ((Node) ancestor).getNodeParent();
+      depth--;
+    }
+    while (otherDepth > depth) {
+      otherAncestor = ((Node) otherAncestor).getNodeParent();
+      otherDepth--;
+    }
+    if (ancestor == otherAncestor) {
+      return ancestor == node;
+    }
+
+    // Otherwise the order is the one of the children of their closest common ancestor.
+    while (true) {
+      NodeParent parent = ((Node) ancestor).getNodeParent();
+      NodeParent otherParent = ((Node) otherAncestor).getNodeParent();
+      if (parent == otherParent) {
+        List<Node> siblings = parent.getChildren();
+        return siblings.indexOf(ancestor) < siblings.indexOf(otherAncestor);
+      }
+      ancestor = parent;
+      otherAncestor = otherParent;
+    }
+  }
+
+  /** Returns the number of nodes above the given node, up to the scene. */
+  private static int getDepth(Node node) {
+    int depth = 0;
+    NodeParent parent = node.getNodeParent();
+    while (parent instanceof Node) {
+      depth++;
+      parent = ((Node) parent).getNodeParent();
+    }
+    return depth;
+  }
+
+  private static <K> void add(HashMap<K, ArrayList<Node>> nodesByKey, K key, Node node) {
+    ArrayList<Node> nodes = nodesByKey.get(key);
+    if (nodes == null) {
+      nodes = new ArrayList<>(1);
+      nodesByKey.put(key, nodes);
+    }
+    nodes.add(node);
+  }
+
+  private static <K> void remove(HashMap<K, ArrayList<Node>> nodesByKey, K key, Node node) {
+    ArrayList<Node> nodes = nodesByKey.get(key);
+    if (nodes == null) {
+      return;
+    }
+
+    // Order doesn't matter, so the last node fills the gap.
+    int index = nodes.indexOf(node);
+    if (index < 0) {
+      return;
+    }
+    int lastIndex = nodes.size() - 1;
+    nodes.set(index, nodes.get(lastIndex));
+    nodes.remove(lastIndex);
+    if (nodes.isEmpty()) {
+      nodesByKey.remove(key);
+    }
+  }
+}
@@ -130,6 +130,9 @@ public abstract class NodeParent {
    * this NodeParent is a Node, traversal starts with this NodeParent, otherwise traversal starts
    * with its children.
    *
+   * <p>Within a scene the nodes are indexed by name, so this doesn't visit the rest of the
+   * hierarchy.
+   *
    * @param name The name of the node to find
    * @return the node if it's found, otherwise null
    */
@@ -140,6 +143,11 @@ public abstract class NodeParent {
       return null;
     }
 
+    NodeIndex nodeIndex = getNodeIndex();
+    if (nodeIndex != null) {
+      return nodeIndex.findByName(this, name);
+    }
+
     int hashToFind = name.hashCode();
     Node found =
         findInHierarchy(
@@ -152,6 +160,36 @@ public abstract class NodeParent {
     return found;
   }
 
+  /**
+   * Traverse the hierarchy to find the first node that is an instance of a given type. Traversal
+   * is depth first. If this NodeParent is a Node, traversal starts with this NodeParent, otherwise
+   * traversal starts with its children.
+   *
+   * <p>Within a scene the nodes are indexed by class, so this doesn't visit the rest of the
+   * hierarchy.
+   *
+   * @param type The class of the node to find, which may be a superclass of the node's class
+   * @return the node if it's found, otherwise null
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  @Nullable
+  public <T extends Node> T findByType(Class<T> type) {
+    Preconditions.checkNotNull(type, "Parameter \"type\" was null.");
+
+    NodeIndex nodeIndex = getNodeIndex();
+    if (nodeIndex != null) {
+      return nodeIndex.findByType(this, type);
+    }
+
+    return type.cast(findInHierarchy(type::isInstance));
+  }
+
+  /** Returns the index of the scene this NodeParent belongs to, or null if it isn't in a scene. */
+  @Nullable
+  NodeIndex getNodeIndex() {
+    return null;
+  }
+
   protected boolean canAddChild(Node child, StringBuilder failureReason) {
     Preconditions.checkNotNull(child, "Parameter \"child\" was null.");
     Preconditions.checkNotNull(failureReason, "Parameter \"failureReason\" was null.");
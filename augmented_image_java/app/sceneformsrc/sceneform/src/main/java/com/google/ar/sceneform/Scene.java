@@ -17,6 +17,7 @@ import com.google.ar.sceneform.utilities.EnvironmentalHdrParameters;
 import com.google.ar.sceneform.utilities.LoadHelper;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * The Sceneform Scene maintains the scene graph, a hierarchical organization of a scene's content.
@@ -79,6 +80,67 @@ public class Scene extends NodeParent {
     void onUpdate(FrameTime frameTime);
   }
 
+  /**
+   * Per-tier statistics of the node updates of the last frame.
+   *
+   * @see Node#setUpdateInterval(int)
+   * @see Scene#getUpdateStats()
+   */
+  public static final class UpdateStats {
+    /** Tier of the nodes updated every frame. */
+    public static final int TIER_EVERY_FRAME = 0;
+    /** Tier of the nodes updated every N frames, for any N greater than one. */
+    public static final int TIER_INTERVAL = 1;
+    /** Tier of the nodes updated on request. */
+    public static final int TIER_ON_REQUEST = 2;
+
+    private static final int TIER_COUNT = 3;
+
+    final int[] nodeCounts = new int[TIER_COUNT];
+    final int[] updateCounts = new int[TIER_COUNT];
+    final long[] updateTimeNanos = new long[TIER_COUNT];
+
+    UpdateStats() {}
+
+    /** Returns the number of active nodes in a tier. */
+    public int getNodeCount(int tier) {
+      return nodeCounts[tier];
+    }
+
+    /** Returns the number of nodes of a tier that were updated in the last frame. */
+    public int getUpdateCount(int tier) {
+      return updateCounts[tier];
+    }
+
+    /** Returns the time spent updating the nodes of a tier in the last frame, in nanoseconds. */
+    public long getUpdateTimeNanos(int tier) {
+      return updateTimeNanos[tier];
+    }
+
+    void clearFrame() {
+      Arrays.fill(updateCounts, 0);
+      Arrays.fill(updateTimeNanos, 0);
+    }
+  }
+
+  /**
+   * Interface definition for callbacks invoked by {@link Scene#findOverlappingPairs(int[],
+   * OnOverlapListener)} as pairs of nodes start, keep or stop overlapping.
+   */
+  public interface OnOverlapListener {
+    /** Called when two nodes overlap that did not overlap at the previous call. */
+    void onOverlapEnter(Node node, Node otherNode);
+
+    /** Called when two nodes still overlap since the previous call. */
+    void onOverlapStay(Node node, Node otherNode);
+
+    /**
+     * Called when two nodes that overlapped at the previous call no longer overlap, or one of them
+     * is no longer active.
+     */
+    void onOverlapExit(Node node, Node otherNode);
+  }
+
   private static final String TAG = Scene.class.getSimpleName();
   private static final String DEFAULT_LIGHTPROBE_ASSET_NAME = "small_empty_house_2k";
   private static final String DEFAULT_LIGHTPROBE_RESOURCE_NAME = "sceneform_default_light_probe";
@@ -96,6 +158,44 @@ public class Scene extends NodeParent {
   // Systems.
   final CollisionSystem collisionSystem = new CollisionSystem();
   private final TouchEventSystem touchEventSystem = new TouchEventSystem();
+  @Nullable TransformStore transformStore;
+  final UpdateScheduler updateScheduler = new UpdateScheduler();
+  final NodeIndex nodeIndex = new NodeIndex();
+
+  // Reused by hit tests that don't take a ray, so that touch events don't allocate one.
+  private final Ray hitTestRay = new Ray();
+
+  // Forwards collider overlap events to the listener passed to findOverlappingPairs.
+  @Nullable private OnOverlapListener overlapListener;
+  private final CollisionSystem.OverlapListener colliderOverlapListener =
+      new CollisionSystem.OverlapListener() {
+        @Override
+        public void onOverlapEnter(Collider collider, Collider otherCollider) {
+          if (overlapListener != null) {
+            overlapListener.onOverlapEnter(
+                (Node) collider.getTransformProvider(),
+                (Node) otherCollider.getTransformProvider());
+          }
+        }
+
+        @Override
+        public void onOverlapStay(Collider collider, Collider otherCollider) {
+          if (overlapListener != null) {
+            overlapListener.onOverlapStay(
+                (Node) collider.getTransformProvider(),
+                (Node) otherCollider.getTransformProvider());
+          }
+        }
+
+        @Override
+        public void onOverlapExit(Collider collider, Collider otherCollider) {
+          if (overlapListener != null) {
+            overlapListener.onOverlapExit(
+                (Node) collider.getTransformProvider(),
+                (Node) otherCollider.getTransformProvider());
+          }
+        }
+      };
 
   private final ArrayList<OnUpdateListener> onUpdateListeners = new ArrayList<>();
 
@@ -259,12 +359,14 @@ public class Scene extends NodeParent {
   @Override
   public void onAddChild(Node child) {
     super.onAddChild(child);
+    onHierarchyChanged();
     child.setSceneRecursively(this);
   }
 
   @Override
   public void onRemoveChild(Node child) {
     super.onRemoveChild(child);
+    onHierarchyChanged();
     child.setSceneRecursively(null);
   }
 
@@ -278,14 +380,31 @@ public class Scene extends NodeParent {
    *     information about where the motion event hit the node in world-space
    */
   public HitTestResult hitTest(MotionEvent motionEvent) {
+    HitTestResult result = new HitTestResult();
+    hitTest(motionEvent, result);
+    return result;
+  }
+
+  /**
+   * Tests to see if a motion event is touching any nodes within the scene, without allocating.
+   *
+   * @see #hitTest(MotionEvent)
+   * @param motionEvent the motion event to use for the test
+   * @param result receives the first node that was hit by the motion event (may be null), and
+   *     information about where the motion event hit the node in world-space
+   * @return true if a node was hit
+   */
+  public boolean hitTest(MotionEvent motionEvent, HitTestResult result) {
     Preconditions.checkNotNull(motionEvent, "Parameter \"motionEvent\" was null.");
+    Preconditions.checkNotNull(result, "Parameter \"result\" was null.");
 
     if (camera == null) {
-      return new HitTestResult();
+      result.reset();
+      return false;
     }
 
-    Ray ray = camera.motionEventToRay(motionEvent);
-    return hitTest(ray);
+    camera.motionEventToRay(motionEvent, hitTestRay);
+    return hitTest(hitTestRay, result);
   }
 
   /**
@@ -298,15 +417,31 @@ public class Scene extends NodeParent {
    *     information about where the ray hit the node in world-space
    */
   public HitTestResult hitTest(Ray ray) {
+    HitTestResult result = new HitTestResult();
+    hitTest(ray, result);
+    return result;
+  }
+
+  /**
+   * Tests to see if a ray is hitting any nodes within the scene, without allocating.
+   *
+   * @see #hitTest(Ray)
+   * @param ray the ray to use for the test
+   * @param result receives the first node that was hit by the ray (may be null), and information
+   *     about where the ray hit the node in world-space
+   * @return true if a node was hit
+   */
+  public boolean hitTest(Ray ray, HitTestResult result) {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
+    Preconditions.checkNotNull(result, "Parameter \"result\" was null.");
 
-    HitTestResult result = new HitTestResult();
     Collider collider = collisionSystem.raycast(ray, result);
-    if (collider != null) {
-      result.setNode((Node) collider.getTransformProvider());
+    if (collider == null) {
+      return false;
     }
 
-    return result;
+    result.setNode((Node) collider.getTransformProvider());
+    return true;
   }
 
   /**
@@ -318,13 +453,32 @@ public class Scene extends NodeParent {
    *     no nodes were hit.
    */
   public ArrayList<HitTestResult> hitTestAll(MotionEvent motionEvent) {
+    ArrayList<HitTestResult> results = new ArrayList<>();
+    hitTestAll(motionEvent, results);
+    return results;
+  }
+
+  /**
+   * Tests to see if a motion event is touching any nodes within the scene, reusing the results
+   * already in the buffer.
+   *
+   * @see #hitTestAll(Ray, ArrayList)
+   * @param motionEvent The motion event to use for the test.
+   * @param results Receives a HitTestResult for each node that was hit sorted by distance.
+   * @return The number of nodes that were hit.
+   */
+  public int hitTestAll(MotionEvent motionEvent, ArrayList<HitTestResult> results) {
     Preconditions.checkNotNull(motionEvent, "Parameter \"motionEvent\" was null.");
+    Preconditions.checkNotNull(results, "Parameter \"results\" was null.");
 
     if (camera == null) {
-      return new ArrayList<>();
+      for (int i = 0; i < results.size(); i++) {
+        results.get(i).reset();
+      }
+      return 0;
     }
-    Ray ray = camera.motionEventToRay(motionEvent);
-    return hitTestAll(ray);
+    camera.motionEventToRay(motionEvent, hitTestRay);
+    return hitTestAll(hitTestRay, results);
   }
 
   /**
@@ -337,17 +491,30 @@ public class Scene extends NodeParent {
    *     no nodes were hit.
    */
   public ArrayList<HitTestResult> hitTestAll(Ray ray) {
-    Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
-
     ArrayList<HitTestResult> results = new ArrayList<>();
+    hitTestAll(ray, results);
+    return results;
+  }
 
-    collisionSystem.raycastAll(
+  /**
+   * Tests to see if a ray is hitting any nodes within the scene, reusing the results already in the
+   * buffer. Only allocates when the buffer holds fewer results than the number of nodes hit.
+   *
+   * @see #hitTestAll(Ray)
+   * @param ray The ray to use for the test.
+   * @param results Receives a HitTestResult for each node that was hit sorted by distance. Results
+   *     in the buffer past the returned count are reset.
+   * @return The number of nodes that were hit.
+   */
+  public int hitTestAll(Ray ray, ArrayList<HitTestResult> results) {
+    Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
+    Preconditions.checkNotNull(results, "Parameter \"results\" was null.");
+
+    return collisionSystem.raycastAll(
         ray,
         results,
         (result, collider) -> result.setNode((Node) collider.getTransformProvider()),
         () -> new HitTestResult());
-
-    return results;
   }
 
   /**
@@ -410,6 +577,44 @@ public class Scene extends NodeParent {
     return isUnderTesting;
   }
 
+  /**
+   * Finds every pair of active nodes whose collision shapes overlap, in a single pass that scales
+   * to many more nodes than calling {@link #overlapTestAll(Node)} for each node.
+   *
+   * <p>Pairs are written as ids, see {@link #getOverlapPairNode(int)}. Enter, stay and exit events
+   * are relative to the previous call of this method, which is typically made once per frame from
+   * an {@link OnUpdateListener}. The listener must not call this method recursively.
+   *
+   * @param pairBuffer Receives the ids of the two nodes of each pair as consecutive elements. Pairs
+   *     that don't fit in the buffer are counted but not written.
+   * @param listener Receives overlap events, may be null.
+   * @return The number of overlapping pairs.
+   */
+  public int findOverlappingPairs(int[] pairBuffer, @Nullable OnOverlapListener listener) {
+    Preconditions.checkNotNull(pairBuffer, "Parameter \"pairBuffer\" was null.");
+
+    overlapListener = listener;
+    try {
+      return collisionSystem.findOverlappingPairs(
+          pairBuffer, listener != null ? colliderOverlapListener : null);
+    } finally {
+      overlapListener = null;
+    }
+  }
+
+  /**
+   * Returns the node with the given id, as written by {@link #findOverlappingPairs(int[],
+   * OnOverlapListener)}. Ids stay valid until the node is deactivated or loses its collision shape.
+   */
+  @Nullable
+  public Node getOverlapPairNode(int id) {
+    Collider collider = collisionSystem.getCollider(id);
+    if (collider == null) {
+      return null;
+    }
+    return (Node) collider.getTransformProvider();
+  }
+
   /**
    * Sets whether the Scene should expect to use an Hdr light estimate, so that Filament light
    * settings can be adjusted appropriately.
@@ -495,7 +700,9 @@ public class Scene extends NodeParent {
 
     // TODO: Investigate API for controlling what node's can be hit by the hitTest.
     // i.e. layers, disabling collision shapes.
-    HitTestResult hitTestResult = hitTest(motionEvent);
+    // Listeners may keep the result, so each event gets its own.
+    HitTestResult hitTestResult = new HitTestResult();
+    hitTest(motionEvent, hitTestResult);
     touchEventSystem.onTouchEvent(hitTestResult, motionEvent);
   }
 
@@ -504,7 +711,59 @@ public class Scene extends NodeParent {
       onUpdateListener.onUpdate(frameTime);
     }
 
-    callOnHierarchy(node -> node.dispatchUpdate(frameTime));
+    updateScheduler.dispatchUpdate(frameTime);
+
+    if (transformStore != null) {
+      transformStore.update();
+    }
+  }
+
+  /**
+   * Enables batched world transform updates for the nodes of this scene. Meant for scenes with
+   * thousands of nodes.
+   *
+   * <p>By default the world transform of a node is computed when it is read, by walking up its
+   * parents. When enabled, the scene keeps its nodes in a flat, depth-first list and recomputes
+   * the world transforms of every node whose transform changed in one pass after each update,
+   * splitting large batches across threads. The results are the same either way.
+   *
+   * @param enabled true to keep the world transforms updated in batches
+   */
+  public void setTransformStoreEnabled(boolean enabled) {
+    AndroidPreconditions.checkUiThread();
+
+    if (enabled && transformStore == null) {
+      transformStore = new TransformStore(this);
+    } else if (!enabled) {
+      transformStore = null;
+    }
+  }
+
+  /**
+   * Returns the statistics of the node updates of the last frame, per update tier. The returned
+   * object is updated in place every frame.
+   *
+   * @see Node#setUpdateInterval(int)
+   */
+  public UpdateStats getUpdateStats() {
+    return updateScheduler.getStats();
+  }
+
+  /** Returns true if batched world transform updates are enabled for this scene. */
+  public boolean isTransformStoreEnabled() {
+    return transformStore != null;
+  }
+
+  @Override
+  final NodeIndex getNodeIndex() {
+    return nodeIndex;
+  }
+
+  /** Called when a node is added to or removed from the hierarchy of this scene. */
+  void onHierarchyChanged() {
+    if (transformStore != null) {
+      transformStore.markStructureDirty();
+    }
   }
 
   @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"})
@@ -0,0 +1,266 @@
+package com.google.ar.sceneform;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the world transforms of every node of a {@link Scene} in batches, instead of lazily
+ * walking up the parent chain of each node.
+ *
+ * <p>The nodes are kept in depth-first order, so that every subtree is a contiguous range of
+ * indices that starts with its root, and a parent always comes before its children. The local and
+ * world matrices are kept in flat float arrays in the same order. Nodes report local transform
+ * changes with {@link #markDirty(Node)}, and {@link #update()} recomputes the world matrices of the
+ * dirty subtrees in a single linear pass over each range. Large batches are split by subtree into
+ * fork-join tasks.
+ *
+ * <p>Nodes keep their public transform API. The store only refreshes the cached matrices of each
+ * node, so that reads by the renderer and the collision system after an update don't recompute
+ * them.
+ */
+class TransformStore {
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int MATRIX_SIZE = 16;
+  private static final int NULL_INDEX = -1;
+
+  // Number of nodes to update before the work is split into fork-join tasks.
+  private static final int PARALLEL_THRESHOLD = 2048;
+  // Subtrees smaller than this are updated by the task that reaches them instead of being forked.
+  private static final int TASK_GRAIN_SIZE = 256;
+
+  private final Scene scene;
+
+  // Nodes in depth-first order, with the parent index and the end (exclusive) of the subtree of
+  // each node.
+  private Node[] nodes = new Node[INITIAL_CAPACITY];
+  private int[] parents = new int[INITIAL_CAPACITY];
+  private int[] subtreeEnds = new int[INITIAL_CAPACITY];
+  private float[] localMatrices = new float[INITIAL_CAPACITY * MATRIX_SIZE];
+  private float[] worldMatrices = new float[INITIAL_CAPACITY * MATRIX_SIZE];
+  private int nodeCount;
+
+  // Roots of the subtrees whose transforms changed since the last update.
+  private boolean[] isDirtyRoot = new boolean[INITIAL_CAPACITY];
+  private int[] dirtyRoots = new int[INITIAL_CAPACITY];
+  private int dirtyRootCount;
+
+  private boolean isStructureDirty = true;
+
+  TransformStore(Scene scene) {
+    this.scene = scene;
+  }
+
+  /** Returns the number of nodes in the store as of the last update. */
+  int getNodeCount() {
+    return nodeCount;
+  }
+
+  /** Called when a node is added to or removed from the scene hierarchy. */
+  void markStructureDirty() {
+    isStructureDirty = true;
+  }
+
+  /** Called when the local transform of a node changed, which affects its whole subtree. */
+  void markDirty(Node node) {
+    // A rebuild updates every node anyway.
+    if (isStructureDirty) {
+      return;
+    }
+
+    int index = node.transformStoreIndex;
+    if (index < 0 || index >= nodeCount || nodes[index] != node || isDirtyRoot[index]) {
+      return;
+    }
+
+    isDirtyRoot[index] = true;
+    dirtyRoots[dirtyRootCount++] = index;
+  }
+
+  /**
+   * Recomputes the world matrices of every dirty subtree and writes them to the nodes. Must be
+   * called on the UI thread.
+   */
+  void update() {
+    if (isStructureDirty) {
+      rebuild();
+      // Every top level node is the root of a dirty subtree.
+      updateRange(0, nodeCount, nodeCount);
+      return;
+    }
+
+    if (dirtyRootCount == 0) {
+      return;
+    }
+
+    // Roots inside the subtree of an earlier root are covered by it.
+    Arrays.sort(dirtyRoots, 0, dirtyRootCount);
+    int updateCount = 0;
+    int coveredEnd = 0;
+    for (int i = 0; i < dirtyRootCount; i++) {
+      int root = dirtyRoots[i];
+      isDirtyRoot[root] = false;
+      if (root < coveredEnd) {
+        continue;
+      }
+      coveredEnd = subtreeEnds[root];
+      dirtyRoots[updateCount++] = root;
+    }
+    dirtyRootCount = 0;
+
+    int totalCount = 0;
+    for (int i = 0; i < updateCount; i++) {
+      totalCount += subtreeEnds[dirtyRoots[i]] - dirtyRoots[i];
+    }
+    for (int i = 0; i < updateCount; i++) {
+      int root = dirtyRoots[i];
+      updateRange(root, subtreeEnds[root], totalCount);
+    }
+  }
+
+  private void updateRange(int start, int end, int totalCount) {
+    if (totalCount < PARALLEL_THRESHOLD) {
+      updateNodes(start, end);
+    } else {
+      // The tasks write to disjoint ranges of the arrays and to disjoint nodes. The UI thread
+      // waits for all of them, which publishes their writes to it.
+      ForkJoinPool.commonPool().invoke(new UpdateTask(start, end));
+    }
+  }
+
+  /**
+   * Updates the sibling subtrees in [start, end), whose parents are already up to date. Within a
+   * subtree the nodes are in depth-first order, so a single pass sees every parent before its
+   * children.
+   */
+  private void updateNodes(int start, int end) {
+    for (int i = start; i < end; i++) {
+      Node node = nodes[i];
+      int offset = i * MATRIX_SIZE;
+      System.arraycopy(
+          node.getLocalModelMatrixInternal().data, 0, localMatrices, offset, MATRIX_SIZE);
+
+      int parent = parents[i];
+      if (parent == NULL_INDEX) {
+        System.arraycopy(localMatrices, offset, worldMatrices, offset, MATRIX_SIZE);
+      } else {
+        multiply(worldMatrices, parent * MATRIX_SIZE, localMatrices, offset, worldMatrices, offset);
+      }
+
+      node.setWorldModelMatrixFromStore(worldMatrices, offset);
+    }
+  }
+
+  private void rebuild() {
+    nodeCount = 0;
+    List<Node> children = scene.getChildren();
+    for (int i = 0; i < children.size(); i++) {
+      addSubtree(children.get(i), NULL_INDEX);
+    }
+
+    // Drops references to nodes that were removed from the scene.
+    Arrays.fill(nodes, nodeCount, nodes.length, null);
+    for (int i = 0; i < dirtyRootCount; i++) {
+      isDirtyRoot[dirtyRoots[i]] = false;
+    }
+    dirtyRootCount = 0;
+    isStructureDirty = false;
+  }
+
+  private void addSubtree(Node node, int parent) {
+    ensureCapacity(nodeCount + 1);
+    int index = nodeCount++;
+    nodes[index] = node;
+    parents[index] = parent;
+    node.transformStoreIndex = index;
+
+    List<Node> children = node.getChildren();
+    for (int i = 0; i < children.size(); i++) {
+      addSubtree(children.get(i), index);
+    }
+
+    subtreeEnds[index] = nodeCount;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= nodes.length) {
+      return;
+    }
+
+    int newCapacity = Math.max(capacity, nodes.length * 2);
+    nodes = Arrays.copyOf(nodes, newCapacity);
+    parents = Arrays.copyOf(parents, newCapacity);
+    subtreeEnds = Arrays.copyOf(subtreeEnds, newCapacity);
+    localMatrices = Arrays.copyOf(localMatrices, newCapacity * MATRIX_SIZE);
+    worldMatrices = Arrays.copyOf(worldMatrices, newCapacity * MATRIX_SIZE);
+    isDirtyRoot = Arrays.copyOf(isDirtyRoot, newCapacity);
+    dirtyRoots = Arrays.copyOf(dirtyRoots, newCapacity);
+  }
+
+  /** Same as {@link com.google.ar.sceneform.math.Matrix#multiply}, on offsets into arrays. */
+  private static void multiply(
+      float[] lhs, int lhsOffset, float[] rhs, int rhsOffset, float[] dest, int destOffset) {
+    for (int column = 0; column < 4; column++) {
+      int rhsColumn = rhsOffset + column * 4;
+      float rhs0 = rhs[rhsColumn];
+      float rhs1 = rhs[rhsColumn + 1];
+      float rhs2 = rhs[rhsColumn + 2];
+      float rhs3 = rhs[rhsColumn + 3];
+      for (int row = 0; row < 4; row++) {
+        int lhsRow = lhsOffset + row;
+        dest[destOffset + column * 4 + row] =
+            lhs[lhsRow] * rhs0
+                + lhs[lhsRow + 4] * rhs1
+                + lhs[lhsRow + 8] * rhs2
+                + lhs[lhsRow + 12] * rhs3;
+      }
+    }
+  }
+
+  /**
+   * Updates the sibling subtrees in [start, end), forking the subtrees that are large enough and
+   * splitting the children of those that are too large to update in one task.
+   */
+  private class UpdateTask extends RecursiveAction {
+    private final int start;
+    private final int end;
+
+    UpdateTask(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= TASK_GRAIN_SIZE) {
+        updateNodes(start, end);
+        return;
+      }
+
+      UpdateTask[] tasks = null;
+      int taskCount = 0;
+      int subtree = start;
+      while (subtree < end) {
+        int subtreeEnd = subtreeEnds[subtree];
+        if (subtreeEnd - subtree <= TASK_GRAIN_SIZE) {
+          updateNodes(subtree, subtreeEnd);
+        } else {
+          // The root is updated before its children are forked.
+          updateNodes(subtree, subtree + 1);
+          if (tasks == null) {
+            tasks = new UpdateTask[4];
+          } else if (taskCount == tasks.length) {
+            tasks = Arrays.copyOf(tasks, taskCount * 2);
+          }
+          tasks[taskCount++] = new UpdateTask(subtree + 1, subtreeEnd);
+        }
+        subtree = subtreeEnd;
+      }
+
+      if (taskCount > 0) {
+        invokeAll(Arrays.asList(tasks).subList(0, taskCount));
+      }
+    }
+  }
+}
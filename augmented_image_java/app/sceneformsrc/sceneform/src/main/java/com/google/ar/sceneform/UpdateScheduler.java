@@ -0,0 +1,243 @@
+package com.google.ar.sceneform;
+
+import android.support.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches per-frame updates to the active nodes of a {@link Scene}, according to their {@link
+ * Node#setUpdateInterval(int) update interval}.
+ *
+ * <p>Nodes register when they are activated and unregister when they are deactivated, so inactive
+ * nodes are never visited. Nodes updated every N frames are spread over up to N buckets, one of
+ * which is dispatched each frame. Buckets are created as nodes are added, and a tier is dropped
+ * once its last node unregistered, so intervals no longer in use cost nothing. Nodes updated on
+ * request are only visited on the frame after they called {@link Node#requestUpdate()}, and
+ * otherwise cost nothing.
+ *
+ * <p>Within a bucket, nodes are updated in the order they were activated. Since a node is always
+ * activated after its parent, parents are still updated before their children.
+ */
+class UpdateScheduler {
+  private final Scene.UpdateStats stats = new Scene.UpdateStats();
+
+  // Tiers of nodes updated at a fixed interval, including the one of nodes updated every frame.
+  private final ArrayList<IntervalTier> intervalTiers = new ArrayList<>();
+
+  // Nodes that requested an update for the next frame, and the ones being updated this frame.
+  private ArrayList<Node> requestedNodes = new ArrayList<>();
+  private ArrayList<Node> dispatchingNodes = new ArrayList<>();
+
+  private long frameCount;
+  private long lastFrameNanos;
+
+  Scene.UpdateStats getStats() {
+    return stats;
+  }
+
+  void register(Node node) {
+    node.updateScheduler = this;
+
+    int updateInterval = node.getUpdateInterval();
+    if (updateInterval == Node.UPDATE_ON_REQUEST) {
+      stats.nodeCounts[Scene.UpdateStats.TIER_ON_REQUEST]++;
+    } else {
+      getIntervalTier(updateInterval).add(node);
+      stats.nodeCounts[getStatsTier(updateInterval)]++;
+    }
+
+    // The first update of a node that isn't updated every frame covers the time since now.
+    if (node.updateFrameTime != null && lastFrameNanos != 0) {
+      node.updateFrameTime.update(lastFrameNanos);
+    }
+  }
+
+  void unregister(Node node) {
+    if (node.updateScheduler != this) {
+      return;
+    }
+
+    int updateInterval = node.getUpdateInterval();
+    if (updateInterval == Node.UPDATE_ON_REQUEST) {
+      stats.nodeCounts[Scene.UpdateStats.TIER_ON_REQUEST]--;
+    } else {
+      // The slot is compacted away the next time its bucket is dispatched.
+      ArrayList<Node> bucket = node.updateBucket;
+      if (bucket != null) {
+        bucket.set(node.updateSlot, null);
+        IntervalTier tier = findIntervalTier(updateInterval);
+        if (tier != null) {
+          tier.nodeCount--;
+        }
+      }
+      node.updateBucket = null;
+      stats.nodeCounts[getStatsTier(updateInterval)]--;
+    }
+
+    node.updateScheduler = null;
+  }
+
+  void requestUpdate(Node node) {
+    if (node.isUpdateRequested) {
+      return;
+    }
+
+    node.isUpdateRequested = true;
+    requestedNodes.add(node);
+  }
+
+  void dispatchUpdate(FrameTime frameTime) {
+    stats.clearFrame();
+    lastFrameNanos = frameTime.getStartTime(TimeUnit.NANOSECONDS);
+
+    for (int i = 0; i < intervalTiers.size(); i++) {
+      IntervalTier tier = intervalTiers.get(i);
+      int statsTier = getStatsTier(tier.interval);
+      long startNanos = System.nanoTime();
+      int bucketIndex = (int) (frameCount % tier.interval);
+      if (bucketIndex < tier.buckets.size()) {
+        ArrayList<Node> bucket = tier.buckets.get(bucketIndex);
+        stats.updateCounts[statsTier] += dispatchBucket(bucket, frameTime);
+      }
+      stats.updateTimeNanos[statsTier] += System.nanoTime() - startNanos;
+
+      // Tiers are only dropped here, so that unregistering never changes the list being iterated.
+      if (tier.nodeCount == 0) {
+        intervalTiers.remove(i--);
+      }
+    }
+
+    dispatchRequested(frameTime);
+    frameCount++;
+  }
+
+  /**
+   * Updates the nodes of a bucket and compacts the slots of the nodes that unregistered. Nodes that
+   * register during the updates are kept for the next dispatch of the bucket.
+   */
+  private static int dispatchBucket(ArrayList<Node> bucket, FrameTime frameTime) {
+    int dispatchCount = bucket.size();
+    int updateCount = 0;
+    int writeIndex = 0;
+    for (int i = 0; i < bucket.size(); i++) {
+      Node node = bucket.get(i);
+      if (node == null) {
+        continue;
+      }
+
+      if (i != writeIndex) {
+        bucket.set(writeIndex, node);
+        bucket.set(i, null);
+        node.updateSlot = writeIndex;
+      }
+      writeIndex++;
+
+      if (i < dispatchCount) {
+        node.dispatchUpdate(getNodeFrameTime(node, frameTime));
+        updateCount++;
+      }
+    }
+
+    // Every node was moved before the write index. Nodes that unregistered during the updates may
+    // leave holes before it, which are compacted by the next dispatch.
+    bucket.subList(writeIndex, bucket.size()).clear();
+
+    return updateCount;
+  }
+
+  private void dispatchRequested(FrameTime frameTime) {
+    if (requestedNodes.isEmpty()) {
+      return;
+    }
+
+    // Nodes that request an update while being updated are updated on the next frame.
+    ArrayList<Node> nodes = requestedNodes;
+    requestedNodes = dispatchingNodes;
+    dispatchingNodes = nodes;
+
+    long startNanos = System.nanoTime();
+    int updateCount = 0;
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      node.isUpdateRequested = false;
+      if (node.updateScheduler == this && node.getUpdateInterval() == Node.UPDATE_ON_REQUEST) {
+        node.dispatchUpdate(getNodeFrameTime(node, frameTime));
+        updateCount++;
+      }
+    }
+    nodes.clear();
+
+    stats.updateCounts[Scene.UpdateStats.TIER_ON_REQUEST] += updateCount;
+    stats.updateTimeNanos[Scene.UpdateStats.TIER_ON_REQUEST] += System.nanoTime() - startNanos;
+  }
+
+  /**
+   * Nodes that aren't updated every frame get their own frame time, whose delta covers all the
+   * frames since their last update.
+   */
+  private static FrameTime getNodeFrameTime(Node node, FrameTime frameTime) {
+    FrameTime nodeFrameTime = node.updateFrameTime;
+    if (nodeFrameTime == null) {
+      return frameTime;
+    }
+
+    nodeFrameTime.update(frameTime.getStartTime(TimeUnit.NANOSECONDS));
+    return nodeFrameTime;
+  }
+
+  private IntervalTier getIntervalTier(int interval) {
+    IntervalTier tier = findIntervalTier(interval);
+    if (tier == null) {
+      tier = new IntervalTier(interval);
+      intervalTiers.add(tier);
+    }
+    return tier;
+  }
+
+  @Nullable
+  private IntervalTier findIntervalTier(int interval) {
+    for (int i = 0; i < intervalTiers.size(); i++) {
+      IntervalTier tier = intervalTiers.get(i);
+      if (tier.interval == interval) {
+        return tier;
+      }
+    }
+    return null;
+  }
+
+  private static int getStatsTier(int interval) {
+    return interval == Node.UPDATE_EVERY_FRAME
+        ? Scene.UpdateStats.TIER_EVERY_FRAME
+        : Scene.UpdateStats.TIER_INTERVAL;
+  }
+
+  /**
+   * Nodes updated every {@code interval} frames, spread over up to as many buckets. Bucket i is
+   * dispatched on the frames where the frame count modulo the interval is i.
+   */
+  private static class IntervalTier {
+    private final int interval;
+    private final ArrayList<ArrayList<Node>> buckets = new ArrayList<>();
+    private int nextBucket;
+    private int nodeCount;
+
+    IntervalTier(int interval) {
+      this.interval = interval;
+    }
+
+    void add(Node node) {
+      // New nodes are spread round robin so that each frame updates a similar number of them. The
+      // round robin reaches the buckets in order, so each is created the first time it is reached.
+      if (nextBucket == buckets.size()) {
+        buckets.add(new ArrayList<>());
+      }
+      ArrayList<Node> bucket = buckets.get(nextBucket);
+      nextBucket = (nextBucket + 1) % interval;
+      nodeCount++;
+
+      node.updateBucket = bucket;
+      node.updateSlot = bucket.size();
+      bucket.add(node);
+    }
+  }
+}
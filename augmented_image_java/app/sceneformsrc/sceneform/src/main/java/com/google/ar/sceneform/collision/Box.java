@@ -5,6 +5,7 @@ import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.MathHelper;
 import com.google.ar.sceneform.math.Matrix;
 import com.google.ar.sceneform.math.Quaternion;
+import com.google.ar.sceneform.math.ScratchPool;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.Preconditions;
 
@@ -96,7 +97,7 @@ public class Box extends CollisionShape {
    * @return a new vector that represents the box's extents
    */
   public Vector3 getExtents() {
-    return getSize().scaled(0.5f);
+    return size.scaled(0.5f);
   }
 
   /**
@@ -128,6 +129,24 @@ public class Box extends CollisionShape {
     return new Box(getSize(), getCenter());
   }
 
+  /**
+   * Get the raw center of the box. Do not modify directly. Instead, use setCenter.
+   *
+   * @return a reference to the box's center
+   */
+  Vector3 getRawCenter() {
+    return center;
+  }
+
+  /**
+   * Get the raw size of the box. Do not modify directly. Instead, use setSize.
+   *
+   * @return a reference to the box's size
+   */
+  Vector3 getRawSize() {
+    return size;
+  }
+
   /**
    * Get the raw rotation matrix representing the box's orientation. Do not modify directly.
    * Instead, use setRotation.
@@ -144,10 +163,9 @@ public class Box extends CollisionShape {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
     Preconditions.checkNotNull(result, "Parameter \"result\" was null.");
 
-    Vector3 rayDirection = ray.getDirection();
-    Vector3 rayOrigin = ray.getOrigin();
-    Vector3 max = getExtents();
-    Vector3 min = max.negated();
+    // Reads the ray in place and works on scalars to avoid allocations.
+    Vector3 rayDirection = ray.getRawDirection();
+    Vector3 rayOrigin = ray.getRawOrigin();
 
     // tMin is the farthest "near" intersection (amongst the X,Y and Z planes pairs)
     float tMin = Float.MIN_VALUE;
@@ -155,89 +173,46 @@ public class Box extends CollisionShape {
     // tMax is the nearest "far" intersection (amongst the X,Y and Z planes pairs)
     float tMax = Float.MAX_VALUE;
 
-    Vector3 delta = Vector3.subtract(center, rayOrigin);
+    float deltaX = center.x - rayOrigin.x;
+    float deltaY = center.y - rayOrigin.y;
+    float deltaZ = center.z - rayOrigin.z;
 
-    // Test intersection with the 2 planes perpendicular to the OBB's x axis.
+    // Test intersection with the 2 planes perpendicular to each of the OBB's axes.
     float[] axes = rotationMatrix.data;
-    Vector3 axis = new Vector3(axes[0], axes[1], axes[2]);
-    float e = Vector3.dot(axis, delta);
-    float f = Vector3.dot(rayDirection, axis);
-
-    if (!MathHelper.almostEqualRelativeAndAbs(f, 0.0f)) {
-      float t1 = (e + min.x) / f;
-      float t2 = (e + max.x) / f;
-
-      if (t1 > t2) {
-        float temp = t1;
-        t1 = t2;
-        t2 = temp;
-      }
-
-      tMax = Math.min(t2, tMax);
-      tMin = Math.max(t1, tMin);
-
-      if (tMax < tMin) {
+    for (int i = 0; i < 3; i++) {
+      int offset = i * 4;
+      float axisX = axes[offset];
+      float axisY = axes[offset + 1];
+      float axisZ = axes[offset + 2];
+      float max = (i == 0 ? size.x : i == 1 ? size.y : size.z) * 0.5f;
+      float min = -max;
+
+      float e = axisX * deltaX + axisY * deltaY + axisZ * deltaZ;
+      float f = rayDirection.x * axisX + rayDirection.y * axisY + rayDirection.z * axisZ;
+
+      if (!MathHelper.almostEqualRelativeAndAbs(f, 0.0f)) {
+        float t1 = (e + min) / f;
+        float t2 = (e + max) / f;
+
+        if (t1 > t2) {
+          float temp = t1;
+          t1 = t2;
+          t2 = temp;
+        }
+
+        tMax = Math.min(t2, tMax);
+        tMin = Math.max(t1, tMin);
+
+        if (tMax < tMin) {
+          return false;
+        }
+      } else if (-e + min > 0.0f || -e + max < 0.0f) {
+        // Ray is almost parallel to one of the planes.
         return false;
       }
-    } else if (-e + min.x > 0.0f || -e + max.x < 0.0f) {
-      // Ray is almost parallel to one of the planes.
-      return false;
     }
 
-    // Test intersection with the 2 planes perpendicular to the OBB's y axis.
-    axis = new Vector3(axes[4], axes[5], axes[6]);
-    e = Vector3.dot(axis, delta);
-    f = Vector3.dot(rayDirection, axis);
-
-    if (!MathHelper.almostEqualRelativeAndAbs(f, 0.0f)) {
-      float t1 = (e + min.y) / f;
-      float t2 = (e + max.y) / f;
-
-      if (t1 > t2) {
-        float temp = t1;
-        t1 = t2;
-        t2 = temp;
-      }
-
-      tMax = Math.min(t2, tMax);
-      tMin = Math.max(t1, tMin);
-
-      if (tMax < tMin) {
-        return false;
-      }
-    } else if (-e + min.y > 0.0f || -e + max.y < 0.0f) {
-      // Ray is almost parallel to one of the planes.
-      return false;
-    }
-
-    // Test intersection with the 2 planes perpendicular to the OBB's z axis.
-    axis = new Vector3(axes[8], axes[9], axes[10]);
-    e = Vector3.dot(axis, delta);
-    f = Vector3.dot(rayDirection, axis);
-
-    if (!MathHelper.almostEqualRelativeAndAbs(f, 0.0f)) {
-      float t1 = (e + min.z) / f;
-      float t2 = (e + max.z) / f;
-
-      if (t1 > t2) {
-        float temp = t1;
-        t1 = t2;
-        t2 = temp;
-      }
-
-      tMax = Math.min(t2, tMax);
-      tMin = Math.max(t1, tMin);
-
-      if (tMax < tMin) {
-        return false;
-      }
-    } else if (-e + min.z > 0.0f || -e + max.z < 0.0f) {
-      // Ray is almost parallel to one of the planes.
-      return false;
-    }
-
-    result.setDistance(tMin);
-    result.setPoint(ray.getPoint(result.getDistance()));
+    result.setDistanceAlongRay(ray, tMin);
     return true;
   }
 
@@ -288,17 +263,46 @@ public class Box extends CollisionShape {
     Matrix modelMatrix = transformProvider.getWorldModelMatrix();
 
     // Transform the center of the box.
-    resultBox.center.set(modelMatrix.transformPoint(center));
-
-    // Transform the size of the box.
-    Vector3 worldScale = new Vector3();
-    modelMatrix.decomposeScale(worldScale);
-    resultBox.size.x = size.x * worldScale.x;
-    resultBox.size.y = size.y * worldScale.y;
-    resultBox.size.z = size.z * worldScale.z;
-
-    // Transform the rotation of the box.
-    modelMatrix.decomposeRotation(worldScale, resultBox.rotationMatrix);
-    Matrix.multiply(rotationMatrix, resultBox.rotationMatrix, resultBox.rotationMatrix);
+    modelMatrix.transformPoint(center, resultBox.center);
+
+    ScratchPool pool = ScratchPool.get();
+    pool.begin();
+    try {
+      // Transform the size of the box.
+      Vector3 worldScale = pool.vector3();
+      modelMatrix.decomposeScale(worldScale);
+      resultBox.size.x = size.x * worldScale.x;
+      resultBox.size.y = size.y * worldScale.y;
+      resultBox.size.z = size.z * worldScale.z;
+
+      // Transform the rotation of the box.
+      modelMatrix.decomposeRotation(worldScale, resultBox.rotationMatrix);
+      Matrix.multiply(rotationMatrix, resultBox.rotationMatrix, resultBox.rotationMatrix);
+    } finally {
+      pool.end();
+    }
+  }
+
+  @Override
+  void getAabb(float[] result) {
+    float extentX = Math.abs(size.x) * 0.5f;
+    float extentY = Math.abs(size.y) * 0.5f;
+    float extentZ = Math.abs(size.z) * 0.5f;
+
+    // Project the extents of the rotated axes onto the world axes.
+    float[] axes = rotationMatrix.data;
+    float halfX =
+        Math.abs(axes[0]) * extentX + Math.abs(axes[4]) * extentY + Math.abs(axes[8]) * extentZ;
+    float halfY =
+        Math.abs(axes[1]) * extentX + Math.abs(axes[5]) * extentY + Math.abs(axes[9]) * extentZ;
+    float halfZ =
+        Math.abs(axes[2]) * extentX + Math.abs(axes[6]) * extentY + Math.abs(axes[10]) * extentZ;
+
+    result[0] = center.x - halfX;
+    result[1] = center.y - halfY;
+    result[2] = center.z - halfZ;
+    result[3] = center.x + halfX;
+    result[4] = center.y + halfY;
+    result[5] = center.z + halfZ;
   }
 }
@@ -21,6 +21,11 @@ public class Collider {
   private boolean isWorldShapeDirty;
   private int shapeId = ChangeId.EMPTY_ID;
 
+  // Broadphase state, owned by the attached collision system.
+  int proxyId = DynamicAabbTree.NULL_NODE;
+  // The system whose next query refits the proxy, or null if the proxy is up to date.
+  @Nullable CollisionSystem proxyDirtySystem;
+
   /** @hide */
   @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
   public Collider(TransformProvider transformProvider, CollisionShape localCollisionShape) {
@@ -37,6 +42,7 @@ public class Collider {
 
     localShape = localCollisionShape;
     cachedWorldShape = null;
+    markWorldShapeDirty();
   }
 
   /** @hide */
@@ -71,6 +77,22 @@ public class Collider {
   /** @hide */
   public void markWorldShapeDirty() {
     isWorldShapeDirty = true;
+
+    if (attachedCollisionSystem != null) {
+      attachedCollisionSystem.markColliderDirty(this);
+    }
+  }
+
+  /**
+   * Marks the world shape dirty if the local shape was modified in place since the world shape was
+   * last updated, so that the collision system refits the collider.
+   *
+   * @hide
+   */
+  public void checkShapeChanged() {
+    if (localShape != null && localShape.getId().checkChanged(shapeId)) {
+      markWorldShapeDirty();
+    }
   }
 
   private boolean doesCachedWorldShapeNeedUpdate() {
@@ -95,5 +117,6 @@ public class Collider {
 
     ChangeId changeId = localShape.getId();
     shapeId = changeId.get();
+    isWorldShapeDirty = false;
   }
 }
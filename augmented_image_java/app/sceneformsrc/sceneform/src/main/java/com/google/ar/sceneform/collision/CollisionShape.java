@@ -42,4 +42,12 @@ public abstract class CollisionShape {
   abstract CollisionShape transform(TransformProvider transformProvider);
 
   abstract void transform(TransformProvider transformProvider, CollisionShape result);
+
+  /**
+   * Computes the axis aligned bounding box of the shape, used by the broadphase of the {@link
+   * CollisionSystem}.
+   *
+   * @param result a float[6] that receives {minX, minY, minZ, maxX, maxY, maxZ}
+   */
+  abstract void getAabb(float[] result);
 }
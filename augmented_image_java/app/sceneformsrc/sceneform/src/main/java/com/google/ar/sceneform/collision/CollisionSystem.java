@@ -1,6 +1,7 @@
 package com.google.ar.sceneform.collision;
 
 import android.support.annotation.Nullable;
+import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -11,46 +12,178 @@ import java.util.function.Supplier;
 /**
  * Manages all of the colliders within a scene.
  *
+ * <p>Colliders are stored in a {@link DynamicAabbTree} broadphase, so that queries only run the
+ * narrow-phase test against colliders whose bounds are hit. Colliders that are added or marked
+ * dirty are refit lazily, before the next query. Queries are not reentrant.
+ *
  * @hide
  */
 public class CollisionSystem {
+  /** Receives the overlap events reported by {@link #findOverlappingPairs}. */
+  public interface OverlapListener {
+    /** Called when two colliders overlap that did not overlap at the previous call. */
+    void onOverlapEnter(Collider collider, Collider otherCollider);
+
+    /** Called when two colliders still overlap since the previous call. */
+    void onOverlapStay(Collider collider, Collider otherCollider);
+
+    /**
+     * Called when two colliders that overlapped at the previous call no longer overlap, or one of
+     * them was removed.
+     */
+    void onOverlapExit(Collider collider, Collider otherCollider);
+  }
+
   private static final String TAG = CollisionSystem.class.getSimpleName();
 
-  // TODO: Store things in some spatial partition or another.
-  private final ArrayList<Collider> colliders = new ArrayList<>();
+  private final DynamicAabbTree tree = new DynamicAabbTree();
+  private final SweepAndPrune sweepAndPrune = new SweepAndPrune();
+
+  // Colliders added or marked dirty since the last query, whose proxy must be updated. Colliders
+  // removed since are left in the list and skipped, as their dirty flag no longer points here.
+  private final ArrayList<Collider> dirtyColliders = new ArrayList<>();
+
+  // Query state, reused between queries to avoid allocations.
+  private final float[] aabb = new float[6];
+  private final RayHit tempResult = new RayHit();
+  private final ArrayList<Collider> candidates = new ArrayList<>();
+  private final DynamicAabbTree.QueryCallback collectCandidate =
+      proxyId -> {
+        candidates.add((Collider) tree.getUserData(proxyId));
+        return true;
+      };
+  private final DynamicAabbTree.RaycastCallback collectRayCandidate =
+      (proxyId, maxDistance) -> {
+        candidates.add((Collider) tree.getUserData(proxyId));
+        return maxDistance;
+      };
+  @Nullable private Ray closestRay;
+  @Nullable private RayHit closestHit;
+  @Nullable private Collider closestCollider;
+  private final DynamicAabbTree.RaycastCallback findClosestHit = this::testClosestHit;
 
   public void addCollider(Collider collider) {
     Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
-    colliders.add(collider);
+    markColliderDirty(collider);
   }
 
   public void removeCollider(Collider collider) {
     Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
-    colliders.remove(collider);
+
+    if (collider.proxyDirtySystem == this) {
+      collider.proxyDirtySystem = null;
+    }
+
+    destroyProxy(collider);
   }
 
-  @Nullable
-  public Collider raycast(Ray ray, RayHit resultHit) {
-    Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
-    Preconditions.checkNotNull(resultHit, "Parameter \"resultHit\" was null.");
+  /** Schedules the proxy of a collider to be refit before the next query. */
+  void markColliderDirty(Collider collider) {
+    if (collider.proxyDirtySystem != this) {
+      collider.proxyDirtySystem = this;
+      dirtyColliders.add(collider);
+    }
+  }
+
+  private void updateProxies() {
+    // Uses for instead of foreach to avoid unecessary allocations.
+    for (int i = 0; i < dirtyColliders.size(); i++) {
+      Collider collider = dirtyColliders.get(i);
+      if (collider.proxyDirtySystem != this) {
+        // Removed after it was marked dirty, or listed again after being re-added.
+        continue;
+      }
+      collider.proxyDirtySystem = null;
 
-    resultHit.reset();
-    Collider result = null;
-    RayHit tempResult = new RayHit();
-    for (Collider collider : colliders) {
       CollisionShape collisionShape = collider.getTransformedShape();
       if (collisionShape == null) {
+        destroyProxy(collider);
         continue;
       }
 
-      if (collisionShape.rayIntersection(ray, tempResult)) {
-        if (tempResult.getDistance() < resultHit.getDistance()) {
-          resultHit.set(tempResult);
-          result = collider;
-        }
+      collisionShape.getAabb(aabb);
+      if (collider.proxyId == DynamicAabbTree.NULL_NODE) {
+        collider.proxyId = tree.createProxy(aabb, collider);
+        sweepAndPrune.addProxy(collider.proxyId);
+      } else {
+        tree.moveProxy(collider.proxyId, aabb);
       }
     }
+    dirtyColliders.clear();
+  }
+
+  private void destroyProxy(Collider collider) {
+    if (collider.proxyId != DynamicAabbTree.NULL_NODE) {
+      sweepAndPrune.removeProxy(collider.proxyId);
+      tree.destroyProxy(collider.proxyId);
+      collider.proxyId = DynamicAabbTree.NULL_NODE;
+    }
+  }
 
+  private void collectRayCandidates(Ray ray) {
+    candidates.clear();
+    Vector3 origin = ray.getRawOrigin();
+    Vector3 direction = ray.getRawDirection();
+    tree.raycast(
+        origin.x,
+        origin.y,
+        origin.z,
+        direction.x,
+        direction.y,
+        direction.z,
+        Float.MAX_VALUE,
+        collectRayCandidate);
+  }
+
+  private void collectOverlapCandidates(CollisionShape collisionShape) {
+    candidates.clear();
+    collisionShape.getAabb(aabb);
+    tree.query(aabb, collectCandidate);
+  }
+
+  private float testClosestHit(int proxyId, float maxDistance) {
+    Collider collider = (Collider) tree.getUserData(proxyId);
+    CollisionShape collisionShape = collider.getTransformedShape();
+    if (collisionShape == null || !collisionShape.rayIntersection(closestRay, tempResult)) {
+      return maxDistance;
+    }
+
+    if (tempResult.getDistance() < closestHit.getDistance()) {
+      closestHit.set(tempResult);
+      closestCollider = collider;
+      // Bounds further away than this hit can no longer contain a closer one.
+      return Math.min(maxDistance, tempResult.getDistance());
+    }
+    return maxDistance;
+  }
+
+  @Nullable
+  public Collider raycast(Ray ray, RayHit resultHit) {
+    Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
+    Preconditions.checkNotNull(resultHit, "Parameter \"resultHit\" was null.");
+
+    resultHit.reset();
+    updateProxies();
+
+    closestRay = ray;
+    closestHit = resultHit;
+    closestCollider = null;
+    Vector3 origin = ray.getRawOrigin();
+    Vector3 direction = ray.getRawDirection();
+    tree.raycast(
+        origin.x,
+        origin.y,
+        origin.z,
+        direction.x,
+        direction.y,
+        direction.z,
+        Float.MAX_VALUE,
+        findClosestHit);
+
+    Collider result = closestCollider;
+    closestRay = null;
+    closestHit = null;
+    closestCollider = null;
     return result;
   }
 
@@ -64,11 +197,13 @@ public class CollisionSystem {
     Preconditions.checkNotNull(resultBuffer, "Parameter \"resultBuffer\" was null.");
     Preconditions.checkNotNull(allocateResult, "Parameter \"allocateResult\" was null.");
 
-    RayHit tempResult = new RayHit();
     int hitCount = 0;
 
-    // Check the ray against all the colliders.
-    for (Collider collider : colliders) {
+    // Check the ray against the colliders whose bounds it crosses.
+    updateProxies();
+    collectRayCandidates(ray);
+    for (int i = 0; i < candidates.size(); i++) {
+      Collider collider = candidates.get(i);
       CollisionShape collisionShape = collider.getTransformedShape();
       if (collisionShape == null) {
         continue;
@@ -92,6 +227,7 @@ public class CollisionSystem {
         }
       }
     }
+    candidates.clear();
 
     // Reset extra hits in the buffer.
     for (int i = hitCount; i < resultBuffer.size(); i++) {
@@ -113,7 +249,11 @@ public class CollisionSystem {
       return null;
     }
 
-    for (Collider otherCollider : colliders) {
+    updateProxies();
+    collectOverlapCandidates(collisionShape);
+    Collider result = null;
+    for (int i = 0; i < candidates.size(); i++) {
+      Collider otherCollider = candidates.get(i);
       if (otherCollider == collider) {
         continue;
       }
@@ -124,11 +264,13 @@ public class CollisionSystem {
       }
 
       if (collisionShape.shapeIntersection(otherCollisionShape)) {
-        return otherCollider;
+        result = otherCollider;
+        break;
       }
     }
+    candidates.clear();
 
-    return null;
+    return result;
   }
 
   @SuppressWarnings("AndroidApiChecker")
@@ -141,7 +283,10 @@ public class CollisionSystem {
       return;
     }
 
-    for (Collider otherCollider : colliders) {
+    updateProxies();
+    collectOverlapCandidates(collisionShape);
+    for (int i = 0; i < candidates.size(); i++) {
+      Collider otherCollider = candidates.get(i);
       if (otherCollider == collider) {
         continue;
       }
@@ -155,5 +300,32 @@ public class CollisionSystem {
         processResult.accept(otherCollider);
       }
     }
+    candidates.clear();
+  }
+
+  /**
+   * Finds every pair of overlapping colliders at once, which is much cheaper than calling {@link
+   * #intersectsAll} for each collider. Pairs are reported as collider ids, see {@link
+   * #getCollider(int)}.
+   *
+   * @param pairBuffer receives the ids of the two colliders of each pair as consecutive elements,
+   *     sorted by pair. Pairs that don't fit in the buffer are counted but not written.
+   * @param listener receives enter, stay and exit events relative to the previous call, may be null
+   * @return the number of overlapping pairs
+   */
+  public int findOverlappingPairs(int[] pairBuffer, @Nullable OverlapListener listener) {
+    Preconditions.checkNotNull(pairBuffer, "Parameter \"pairBuffer\" was null.");
+
+    updateProxies();
+    return sweepAndPrune.findPairs(tree, pairBuffer, listener);
+  }
+
+  /**
+   * Returns the collider with the given id, as reported by {@link #findOverlappingPairs}. Ids are
+   * valid until the collider is removed and may then be reused.
+   */
+  @Nullable
+  public Collider getCollider(int colliderId) {
+    return (Collider) tree.getUserData(colliderId);
   }
 }
@@ -0,0 +1,549 @@
+package com.google.ar.sceneform.collision;
+
+import android.support.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * A dynamic bounding volume hierarchy of axis aligned bounding boxes, used by {@link
+ * CollisionSystem} as a broadphase.
+ *
+ * <p>Each proxy is a leaf storing a fattened AABB, so a proxy that moves by less than the margin
+ * does not have to be re-inserted. Internal nodes are refit and rebalanced with tree rotations as
+ * leaves are inserted and removed. Nodes are stored in primitive arrays and recycled through a free list,
+ * so steady state updates and queries do not allocate.
+ *
+ * <p>AABBs are passed as float[6] arrays laid out as {minX, minY, minZ, maxX, maxY, maxZ}. The tree
+ * is not thread safe and must not be modified from within a query callback.
+ */
+class DynamicAabbTree {
+  static final int NULL_NODE = -1;
+
+  /** Receives the proxies overlapping an AABB. */
+  interface QueryCallback {
+    /** @return false to stop the query. */
+    boolean onProxy(int proxyId);
+  }
+
+  /** Receives the proxies whose AABB is crossed by a ray. */
+  interface RaycastCallback {
+    /**
+     * @param maxDistance the current maximum distance along the ray
+     * @return the new maximum distance along the ray, used to clip the rest of the traversal.
+     *     Return maxDistance to keep searching, or a value less than or equal to zero to stop.
+     */
+    float onProxy(int proxyId, float maxDistance);
+  }
+
+  // Distance added to each side of a proxy AABB, in meters.
+  private static final float AABB_MARGIN = 0.05f;
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int INITIAL_STACK_SIZE = 64;
+  private static final int AABB_SIZE = 6;
+
+  private float[] bounds;
+  // For free nodes, parents holds the next free node.
+  private int[] parents;
+  private int[] child1s;
+  private int[] child2s;
+  // Leaves have a height of 0, free nodes a height of -1.
+  private int[] heights;
+  private Object[] userData;
+
+  private int root = NULL_NODE;
+  private int freeList;
+  private int nodeCount;
+
+  private int[] stack = new int[INITIAL_STACK_SIZE];
+
+  DynamicAabbTree() {
+    allocateStorage(INITIAL_CAPACITY);
+    freeList = 0;
+    linkFreeNodes(0, INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates a proxy for the given AABB. The stored AABB is fattened by a margin.
+   *
+   * @return the id of the proxy
+   */
+  int createProxy(float[] aabb, Object data) {
+    int proxyId = allocateNode();
+    setFatAabb(proxyId, aabb);
+    userData[proxyId] = data;
+    heights[proxyId] = 0;
+    insertLeaf(proxyId);
+    return proxyId;
+  }
+
+  void destroyProxy(int proxyId) {
+    checkLeaf(proxyId);
+    removeLeaf(proxyId);
+    freeNode(proxyId);
+  }
+
+  /**
+   * Updates the AABB of a proxy. The proxy is only re-inserted when the new AABB is no longer
+   * contained by the fattened AABB stored in the tree.
+   *
+   * @return true if the proxy was re-inserted
+   */
+  boolean moveProxy(int proxyId, float[] aabb) {
+    checkLeaf(proxyId);
+    if (contains(proxyId, aabb)) {
+      return false;
+    }
+
+    removeLeaf(proxyId);
+    setFatAabb(proxyId, aabb);
+    insertLeaf(proxyId);
+    return true;
+  }
+
+  /** Returns the data of a proxy, or null if the id is not a proxy of this tree. */
+  @Nullable
+  Object getUserData(int proxyId) {
+    if (proxyId < 0 || proxyId >= userData.length) {
+      return null;
+    }
+    return userData[proxyId];
+  }
+
+  /** Copies the fattened AABB stored for a proxy into result. */
+  void getFatAabb(int proxyId, float[] result) {
+    System.arraycopy(bounds, proxyId * AABB_SIZE, result, 0, AABB_SIZE);
+  }
+
+  int getProxyCount() {
+    // A tree with n leaves has n - 1 internal nodes.
+    return nodeCount == 0 ? 0 : (nodeCount + 1) / 2;
+  }
+
+  /** Returns the height of the tree, 0 for a single leaf and -1 if the tree is empty. */
+  int getHeight() {
+    return root == NULL_NODE ? -1 : heights[root];
+  }
+
+  /** Calls the callback for every proxy whose fattened AABB overlaps the given AABB. */
+  void query(float[] aabb, QueryCallback callback) {
+    if (root == NULL_NODE) {
+      return;
+    }
+
+    int stackSize = 0;
+    stack[stackSize++] = root;
+    while (stackSize > 0) {
+      int node = stack[--stackSize];
+      if (!overlaps(node, aabb)) {
+        continue;
+      }
+
+      if (isLeaf(node)) {
+        if (!callback.onProxy(node)) {
+          return;
+        }
+      } else {
+        stackSize = push(stackSize, child1s[node], child2s[node]);
+      }
+    }
+  }
+
+  /**
+   * Calls the callback for every proxy whose fattened AABB is crossed by the ray within
+   * maxDistance. The direction does not need to be normalized, distances are expressed in multiples
+   * of it.
+   */
+  void raycast(
+      float originX,
+      float originY,
+      float originZ,
+      float directionX,
+      float directionY,
+      float directionZ,
+      float maxDistance,
+      RaycastCallback callback) {
+    if (root == NULL_NODE) {
+      return;
+    }
+
+    // Division by zero yields infinities, which the slab test handles.
+    float invDirectionX = 1.0f / directionX;
+    float invDirectionY = 1.0f / directionY;
+    float invDirectionZ = 1.0f / directionZ;
+
+    int stackSize = 0;
+    stack[stackSize++] = root;
+    while (stackSize > 0) {
+      int node = stack[--stackSize];
+      int offset = node * AABB_SIZE;
+
+      // Slab test against the node's AABB, clipped to [0, maxDistance].
+      float tMin = 0.0f;
+      float tMax = maxDistance;
+      float t1 = (bounds[offset] - originX) * invDirectionX;
+      float t2 = (bounds[offset + 3] - originX) * invDirectionX;
+      // Comparisons are written so that NaNs, from a zero direction on a slab boundary, are
+      // ignored.
+      if (Math.min(t1, t2) > tMin) {
+        tMin = Math.min(t1, t2);
+      }
+      if (Math.max(t1, t2) < tMax) {
+        tMax = Math.max(t1, t2);
+      }
+      t1 = (bounds[offset + 1] - originY) * invDirectionY;
+      t2 = (bounds[offset + 4] - originY) * invDirectionY;
+      if (Math.min(t1, t2) > tMin) {
+        tMin = Math.min(t1, t2);
+      }
+      if (Math.max(t1, t2) < tMax) {
+        tMax = Math.max(t1, t2);
+      }
+      t1 = (bounds[offset + 2] - originZ) * invDirectionZ;
+      t2 = (bounds[offset + 5] - originZ) * invDirectionZ;
+      if (Math.min(t1, t2) > tMin) {
+        tMin = Math.min(t1, t2);
+      }
+      if (Math.max(t1, t2) < tMax) {
+        tMax = Math.max(t1, t2);
+      }
+      if (tMin > tMax) {
+        continue;
+      }
+
+      if (isLeaf(node)) {
+        maxDistance = callback.onProxy(node, maxDistance);
+        if (maxDistance <= 0.0f) {
+          return;
+        }
+      } else {
+        stackSize = push(stackSize, child1s[node], child2s[node]);
+      }
+    }
+  }
+
+  private int push(int stackSize, int first, int second) {
+    if (stackSize + 2 > stack.length) {
+      stack = Arrays.copyOf(stack, stack.length * 2);
+    }
+    stack[stackSize++] = first;
+    stack[stackSize++] = second;
+    return stackSize;
+  }
+
+  private void insertLeaf(int leaf) {
+    if (root == NULL_NODE) {
+      root = leaf;
+      parents[root] = NULL_NODE;
+      return;
+    }
+
+    // Find the best sibling for the leaf, using the surface area heuristic.
+    int index = root;
+    while (!isLeaf(index)) {
+      int child1 = child1s[index];
+      int child2 = child2s[index];
+
+      float area = surfaceArea(index);
+      float combinedArea = unionSurfaceArea(index, leaf);
+
+      // Cost of creating a new parent for this node and the new leaf.
+      float cost = 2.0f * combinedArea;
+
+      // Minimum cost of pushing the leaf further down the tree.
+      float inheritanceCost = 2.0f * (combinedArea - area);
+
+      float cost1 = descendCost(child1, leaf) + inheritanceCost;
+      float cost2 = descendCost(child2, leaf) + inheritanceCost;
+
+      if (cost < cost1 && cost < cost2) {
+        break;
+      }
+
+      index = cost1 < cost2 ? child1 : child2;
+    }
+
+    int sibling = index;
+    int oldParent = parents[sibling];
+    int newParent = allocateNode();
+    parents[newParent] = oldParent;
+    userData[newParent] = null;
+    union(newParent, leaf, sibling);
+    heights[newParent] = heights[sibling] + 1;
+
+    if (oldParent != NULL_NODE) {
+      if (child1s[oldParent] == sibling) {
+        child1s[oldParent] = newParent;
+      } else {
+        child2s[oldParent] = newParent;
+      }
+    } else {
+      root = newParent;
+    }
+    child1s[newParent] = sibling;
+    child2s[newParent] = leaf;
+    parents[sibling] = newParent;
+    parents[leaf] = newParent;
+
+    refitAncestors(parents[leaf]);
+  }
+
+  private float descendCost(int child, int leaf) {
+    if (isLeaf(child)) {
+      return unionSurfaceArea(child, leaf);
+    }
+    return unionSurfaceArea(child, leaf) - surfaceArea(child);
+  }
+
+  private void removeLeaf(int leaf) {
+    if (leaf == root) {
+      root = NULL_NODE;
+      return;
+    }
+
+    int parent = parents[leaf];
+    int grandParent = parents[parent];
+    int sibling = child1s[parent] == leaf ? child2s[parent] : child1s[parent];
+
+    if (grandParent != NULL_NODE) {
+      // Destroy the parent and connect the sibling to the grand parent.
+      if (child1s[grandParent] == parent) {
+        child1s[grandParent] = sibling;
+      } else {
+        child2s[grandParent] = sibling;
+      }
+      parents[sibling] = grandParent;
+      freeNode(parent);
+      refitAncestors(grandParent);
+    } else {
+      root = sibling;
+      parents[sibling] = NULL_NODE;
+      freeNode(parent);
+    }
+  }
+
+  /** Walks back up the tree from index, rebalancing and refitting every node. */
+  private void refitAncestors(int index) {
+    while (index != NULL_NODE) {
+      index = balance(index);
+
+      int child1 = child1s[index];
+      int child2 = child2s[index];
+      heights[index] = 1 + Math.max(heights[child1], heights[child2]);
+      union(index, child1, child2);
+
+      index = parents[index];
+    }
+  }
+
+  /**
+   * Performs a left or right rotation if node A is imbalanced.
+   *
+   * @return the new root of the subtree
+   */
+  private int balance(int iA) {
+    if (isLeaf(iA) || heights[iA] < 2) {
+      return iA;
+    }
+
+    int iB = child1s[iA];
+    int iC = child2s[iA];
+    int balance = heights[iC] - heights[iB];
+
+    // Rotate C up.
+    if (balance > 1) {
+      int iF = child1s[iC];
+      int iG = child2s[iC];
+
+      child1s[iC] = iA;
+      parents[iC] = parents[iA];
+      parents[iA] = iC;
+      replaceChild(parents[iC], iA, iC);
+
+      if (heights[iF] > heights[iG]) {
+        child2s[iC] = iF;
+        child2s[iA] = iG;
+        parents[iG] = iA;
+        union(iA, iB, iG);
+        union(iC, iA, iF);
+        heights[iA] = 1 + Math.max(heights[iB], heights[iG]);
+        heights[iC] = 1 + Math.max(heights[iA], heights[iF]);
+      } else {
+        child2s[iC] = iG;
+        child2s[iA] = iF;
+        parents[iF] = iA;
+        union(iA, iB, iF);
+        union(iC, iA, iG);
+        heights[iA] = 1 + Math.max(heights[iB], heights[iF]);
+        heights[iC] = 1 + Math.max(heights[iA], heights[iG]);
+      }
+      return iC;
+    }
+
+    // Rotate B up.
+    if (balance < -1) {
+      int iD = child1s[iB];
+      int iE = child2s[iB];
+
+      child1s[iB] = iA;
+      parents[iB] = parents[iA];
+      parents[iA] = iB;
+      replaceChild(parents[iB], iA, iB);
+
+      if (heights[iD] > heights[iE]) {
+        child2s[iB] = iD;
+        child1s[iA] = iE;
+        parents[iE] = iA;
+        union(iA, iC, iE);
+        union(iB, iA, iD);
+        heights[iA] = 1 + Math.max(heights[iC], heights[iE]);
+        heights[iB] = 1 + Math.max(heights[iA], heights[iD]);
+      } else {
+        child2s[iB] = iE;
+        child1s[iA] = iD;
+        parents[iD] = iA;
+        union(iA, iC, iD);
+        union(iB, iA, iE);
+        heights[iA] = 1 + Math.max(heights[iC], heights[iD]);
+        heights[iB] = 1 + Math.max(heights[iA], heights[iE]);
+      }
+      return iB;
+    }
+
+    return iA;
+  }
+
+  private void replaceChild(int parent, int oldChild, int newChild) {
+    if (parent == NULL_NODE) {
+      root = newChild;
+    } else if (child1s[parent] == oldChild) {
+      child1s[parent] = newChild;
+    } else {
+      child2s[parent] = newChild;
+    }
+  }
+
+  private boolean isLeaf(int node) {
+    return child1s[node] == NULL_NODE;
+  }
+
+  private void checkLeaf(int proxyId) {
+    if (proxyId < 0 || proxyId >= heights.length || heights[proxyId] != 0) {
+      throw new IllegalArgumentException("Invalid proxy id: " + proxyId);
+    }
+  }
+
+  private void setFatAabb(int node, float[] aabb) {
+    int offset = node * AABB_SIZE;
+    for (int i = 0; i < 3; i++) {
+      bounds[offset + i] = aabb[i] - AABB_MARGIN;
+      bounds[offset + 3 + i] = aabb[3 + i] + AABB_MARGIN;
+    }
+  }
+
+  private boolean contains(int node, float[] aabb) {
+    int offset = node * AABB_SIZE;
+    return bounds[offset] <= aabb[0]
+        && bounds[offset + 1] <= aabb[1]
+        && bounds[offset + 2] <= aabb[2]
+        && aabb[3] <= bounds[offset + 3]
+        && aabb[4] <= bounds[offset + 4]
+        && aabb[5] <= bounds[offset + 5];
+  }
+
+  private boolean overlaps(int node, float[] aabb) {
+    int offset = node * AABB_SIZE;
+    return bounds[offset] <= aabb[3]
+        && bounds[offset + 1] <= aabb[4]
+        && bounds[offset + 2] <= aabb[5]
+        && aabb[0] <= bounds[offset + 3]
+        && aabb[1] <= bounds[offset + 4]
+        && aabb[2] <= bounds[offset + 5];
+  }
+
+  /** Sets the AABB of node to the union of the AABBs of a and b. */
+  private void union(int node, int a, int b) {
+    int offset = node * AABB_SIZE;
+    int offsetA = a * AABB_SIZE;
+    int offsetB = b * AABB_SIZE;
+    for (int i = 0; i < 3; i++) {
+      bounds[offset + i] = Math.min(bounds[offsetA + i], bounds[offsetB + i]);
+      bounds[offset + 3 + i] = Math.max(bounds[offsetA + 3 + i], bounds[offsetB + 3 + i]);
+    }
+  }
+
+  private float surfaceArea(int node) {
+    int offset = node * AABB_SIZE;
+    float dx = bounds[offset + 3] - bounds[offset];
+    float dy = bounds[offset + 4] - bounds[offset + 1];
+    float dz = bounds[offset + 5] - bounds[offset + 2];
+    return 2.0f * (dx * dy + dy * dz + dz * dx);
+  }
+
+  private float unionSurfaceArea(int a, int b) {
+    int offsetA = a * AABB_SIZE;
+    int offsetB = b * AABB_SIZE;
+    float dx =
+        Math.max(bounds[offsetA + 3], bounds[offsetB + 3])
+            - Math.min(bounds[offsetA], bounds[offsetB]);
+    float dy =
+        Math.max(bounds[offsetA + 4], bounds[offsetB + 4])
+            - Math.min(bounds[offsetA + 1], bounds[offsetB + 1]);
+    float dz =
+        Math.max(bounds[offsetA + 5], bounds[offsetB + 5])
+            - Math.min(bounds[offsetA + 2], bounds[offsetB + 2]);
+    return 2.0f * (dx * dy + dy * dz + dz * dx);
+  }
+
+  private int allocateNode() {
+    if (freeList == NULL_NODE) {
+      int oldCapacity = heights.length;
+      allocateStorage(oldCapacity * 2);
+      freeList = oldCapacity;
+      linkFreeNodes(oldCapacity, heights.length);
+    }
+
+    int node = freeList;
+    freeList = parents[node];
+    parents[node] = NULL_NODE;
+    child1s[node] = NULL_NODE;
+    child2s[node] = NULL_NODE;
+    heights[node] = 0;
+    userData[node] = null;
+    nodeCount++;
+    return node;
+  }
+
+  private void freeNode(int node) {
+    parents[node] = freeList;
+    heights[node] = -1;
+    userData[node] = null;
+    freeList = node;
+    nodeCount--;
+  }
+
+  private void allocateStorage(int capacity) {
+    if (heights == null) {
+      bounds = new float[capacity * AABB_SIZE];
+      parents = new int[capacity];
+      child1s = new int[capacity];
+      child2s = new int[capacity];
+      heights = new int[capacity];
+      userData = new Object[capacity];
+    } else {
+      bounds = Arrays.copyOf(bounds, capacity * AABB_SIZE);
+      parents = Arrays.copyOf(parents, capacity);
+      child1s = Arrays.copyOf(child1s, capacity);
+      child2s = Arrays.copyOf(child2s, capacity);
+      heights = Arrays.copyOf(heights, capacity);
+      userData = Arrays.copyOf(userData, capacity);
+    }
+  }
+
+  private void linkFreeNodes(int start, int end) {
+    for (int i = start; i < end - 1; i++) {
+      parents[i] = i + 1;
+      heights[i] = -1;
+    }
+    parents[end - 1] = NULL_NODE;
+    heights[end - 1] = -1;
+  }
+}
@@ -1,19 +1,21 @@
 package com.google.ar.sceneform.collision;
 
-import static com.google.ar.sceneform.math.Vector3.add;
-import static com.google.ar.sceneform.math.Vector3.subtract;
-
 import com.google.ar.sceneform.math.MathHelper;
-import com.google.ar.sceneform.math.Matrix;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.Preconditions;
-import java.util.ArrayList;
-import java.util.List;
 
-/** Implementation of common intersection tests used for collision detection. */
+/**
+ * Implementation of common intersection tests used for collision detection.
+ *
+ * <p>The tests read the shapes in place and work on scalars, so that they don't allocate. The axes
+ * of a box are the columns of its rotation matrix: (data[0], data[1], data[2]) for x, (data[4],
+ * data[5], data[6]) for y and (data[8], data[9], data[10]) for z.
+ */
 class Intersections {
-  private static final int NUM_VERTICES_PER_BOX = 8;
-  private static final int NUM_TEST_AXES = 15;
+  // Cross products of nearly parallel edges whose squared length is below this are not tested,
+  // since their direction is numerically meaningless. For unit axes the squared length of the cross
+  // product is one minus the squared dot product.
+  private static final float DEGENERATE_AXIS_LENGTH_SQUARED = 1.0e-6f;
 
   /** Determine if two spheres intersect with each other. */
   static boolean sphereSphereIntersection(Sphere sphere1, Sphere sphere2) {
@@ -22,44 +24,105 @@ class Intersections {
 
     float combinedRadius = sphere1.getRadius() + sphere2.getRadius();
     float combinedRadiusSquared = combinedRadius * combinedRadius;
-    Vector3 difference = Vector3.subtract(sphere2.getCenter(), sphere1.getCenter());
-    float differenceLengthSquared = Vector3.dot(difference, difference);
+    Vector3 center1 = sphere1.getRawCenter();
+    Vector3 center2 = sphere2.getRawCenter();
+    float differenceX = center2.x - center1.x;
+    float differenceY = center2.y - center1.y;
+    float differenceZ = center2.z - center1.z;
+    float differenceLengthSquared =
+        differenceX * differenceX + differenceY * differenceY + differenceZ * differenceZ;
 
     return differenceLengthSquared - combinedRadiusSquared <= 0.0f
         && differenceLengthSquared != 0.0f;
   }
 
-  /** Determine if two boxes intersect with each other. */
+  /**
+   * Determine if two boxes intersect with each other, using the separating axis theorem.
+   *
+   * <p>All 15 candidate axes are tested in the frame of box1, reusing the dot products between the
+   * axes of both boxes. The face normals are tested first since they are the most likely to
+   * separate the boxes, followed by the cross products of their edges.
+   */
   static boolean boxBoxIntersection(Box box1, Box box2) {
     Preconditions.checkNotNull(box1, "Parameter \"box1\" was null.");
     Preconditions.checkNotNull(box2, "Parameter \"box2\" was null.");
 
-    // Get the vertices of the boxes.
-    List<Vector3> box1Vertices = getVerticesFromBox(box1);
-    List<Vector3> box2Vertices = getVerticesFromBox(box2);
-
-    // Determine the test axes
-    Matrix box1Rotation = box1.getRawRotationMatrix();
-    Matrix box2Rotation = box2.getRawRotationMatrix();
-    ArrayList<Vector3> testAxes = new ArrayList<>(NUM_TEST_AXES);
-    testAxes.add(extractXAxisFromRotationMatrix(box1Rotation));
-    testAxes.add(extractYAxisFromRotationMatrix(box1Rotation));
-    testAxes.add(extractZAxisFromRotationMatrix(box1Rotation));
-    testAxes.add(extractXAxisFromRotationMatrix(box2Rotation));
-    testAxes.add(extractYAxisFromRotationMatrix(box2Rotation));
-    testAxes.add(extractZAxisFromRotationMatrix(box2Rotation));
-
-    for (int i = 0; i < 3; i++) {
-      testAxes.add(Vector3.cross(testAxes.get(i), testAxes.get(0)));
-      testAxes.add(Vector3.cross(testAxes.get(i), testAxes.get(1)));
-      testAxes.add(Vector3.cross(testAxes.get(i), testAxes.get(2)));
+    float[] a = box1.getRawRotationMatrix().data;
+    float[] b = box2.getRawRotationMatrix().data;
+    Vector3 size1 = box1.getRawSize();
+    Vector3 size2 = box2.getRawSize();
+    float ea0 = Math.abs(size1.x) * 0.5f;
+    float ea1 = Math.abs(size1.y) * 0.5f;
+    float ea2 = Math.abs(size1.z) * 0.5f;
+    float eb0 = Math.abs(size2.x) * 0.5f;
+    float eb1 = Math.abs(size2.y) * 0.5f;
+    float eb2 = Math.abs(size2.z) * 0.5f;
+
+    // rij is the dot product of axis i of box1 and axis j of box2.
+    float r00 = a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    float r01 = a[0] * b[4] + a[1] * b[5] + a[2] * b[6];
+    float r02 = a[0] * b[8] + a[1] * b[9] + a[2] * b[10];
+    float r10 = a[4] * b[0] + a[5] * b[1] + a[6] * b[2];
+    float r11 = a[4] * b[4] + a[5] * b[5] + a[6] * b[6];
+    float r12 = a[4] * b[8] + a[5] * b[9] + a[6] * b[10];
+    float r20 = a[8] * b[0] + a[9] * b[1] + a[10] * b[2];
+    float r21 = a[8] * b[4] + a[9] * b[5] + a[10] * b[6];
+    float r22 = a[8] * b[8] + a[9] * b[9] + a[10] * b[10];
+    float ar00 = Math.abs(r00);
+    float ar01 = Math.abs(r01);
+    float ar02 = Math.abs(r02);
+    float ar10 = Math.abs(r10);
+    float ar11 = Math.abs(r11);
+    float ar12 = Math.abs(r12);
+    float ar20 = Math.abs(r20);
+    float ar21 = Math.abs(r21);
+    float ar22 = Math.abs(r22);
+
+    // Translation between the centers, in the frame of box1.
+    Vector3 center1 = box1.getRawCenter();
+    Vector3 center2 = box2.getRawCenter();
+    float dx = center2.x - center1.x;
+    float dy = center2.y - center1.y;
+    float dz = center2.z - center1.z;
+    float t0 = dx * a[0] + dy * a[1] + dz * a[2];
+    float t1 = dx * a[4] + dy * a[5] + dz * a[6];
+    float t2 = dx * a[8] + dy * a[9] + dz * a[10];
+
+    // Face normals of box1.
+    if (Math.abs(t0) > ea0 + eb0 * ar00 + eb1 * ar01 + eb2 * ar02
+        || Math.abs(t1) > ea1 + eb0 * ar10 + eb1 * ar11 + eb2 * ar12
+        || Math.abs(t2) > ea2 + eb0 * ar20 + eb1 * ar21 + eb2 * ar22) {
+      return false;
     }
 
-    // Attempt to find a separating axis.
-    for (int i = 0; i < testAxes.size(); i++) {
-      if (!testSeparatingAxis(box1Vertices, box2Vertices, testAxes.get(i))) {
-        return false;
-      }
+    // Face normals of box2.
+    if (Math.abs(t0 * r00 + t1 * r10 + t2 * r20) > ea0 * ar00 + ea1 * ar10 + ea2 * ar20 + eb0
+        || Math.abs(t0 * r01 + t1 * r11 + t2 * r21) > ea0 * ar01 + ea1 * ar11 + ea2 * ar21 + eb1
+        || Math.abs(t0 * r02 + t1 * r12 + t2 * r22) > ea0 * ar02 + ea1 * ar12 + ea2 * ar22 + eb2) {
+      return false;
+    }
+
+    // Cross products of the edges of box1 and box2. Parallel edges give a degenerate axis, which is
+    // skipped since the face normals already cover that direction.
+    if ((!isDegenerateAxis(r00)
+            && Math.abs(t2 * r10 - t1 * r20) > ea1 * ar20 + ea2 * ar10 + eb1 * ar02 + eb2 * ar01)
+        || (!isDegenerateAxis(r01)
+            && Math.abs(t2 * r11 - t1 * r21) > ea1 * ar21 + ea2 * ar11 + eb0 * ar02 + eb2 * ar00)
+        || (!isDegenerateAxis(r02)
+            && Math.abs(t2 * r12 - t1 * r22) > ea1 * ar22 + ea2 * ar12 + eb0 * ar01 + eb1 * ar00)
+        || (!isDegenerateAxis(r10)
+            && Math.abs(t0 * r20 - t2 * r00) > ea0 * ar20 + ea2 * ar00 + eb1 * ar12 + eb2 * ar11)
+        || (!isDegenerateAxis(r11)
+            && Math.abs(t0 * r21 - t2 * r01) > ea0 * ar21 + ea2 * ar01 + eb0 * ar12 + eb2 * ar10)
+        || (!isDegenerateAxis(r12)
+            && Math.abs(t0 * r22 - t2 * r02) > ea0 * ar22 + ea2 * ar02 + eb0 * ar11 + eb1 * ar10)
+        || (!isDegenerateAxis(r20)
+            && Math.abs(t1 * r00 - t0 * r10) > ea0 * ar10 + ea1 * ar00 + eb1 * ar22 + eb2 * ar21)
+        || (!isDegenerateAxis(r21)
+            && Math.abs(t1 * r01 - t0 * r11) > ea0 * ar11 + ea1 * ar01 + eb0 * ar22 + eb2 * ar20)
+        || (!isDegenerateAxis(r22)
+            && Math.abs(t1 * r02 - t0 * r12) > ea0 * ar12 + ea1 * ar02 + eb0 * ar21 + eb1 * ar20)) {
+      return false;
     }
 
     return true;
@@ -70,17 +133,37 @@ class Intersections {
     Preconditions.checkNotNull(sphere, "Parameter \"sphere\" was null.");
     Preconditions.checkNotNull(box, "Parameter \"box\" was null.");
 
-    Vector3 point = closestPointOnBox(sphere.getCenter(), box);
-    Vector3 sphereDiff = Vector3.subtract(point, sphere.getCenter());
-    float sphereDiffLengthSquared = Vector3.dot(sphereDiff, sphereDiff);
-
-    if (sphereDiffLengthSquared > sphere.getRadius() * sphere.getRadius()) {
+    Vector3 sphereCenter = sphere.getRawCenter();
+    Vector3 boxCenter = box.getRawCenter();
+    Vector3 boxSize = box.getRawSize();
+    float[] axes = box.getRawRotationMatrix().data;
+
+    float diffX = sphereCenter.x - boxCenter.x;
+    float diffY = sphereCenter.y - boxCenter.y;
+    float diffZ = sphereCenter.z - boxCenter.z;
+
+    // Find the closest point on the box to the sphere center, as an offset from the box center, by
+    // clamping the projection of the sphere center onto each axis of the box.
+    float distanceX = clamp(diffX * axes[0] + diffY * axes[1] + diffZ * axes[2], boxSize.x);
+    float distanceY = clamp(diffX * axes[4] + diffY * axes[5] + diffZ * axes[6], boxSize.y);
+    float distanceZ = clamp(diffX * axes[8] + diffY * axes[9] + diffZ * axes[10], boxSize.z);
+    float offsetX = axes[0] * distanceX + axes[4] * distanceY + axes[8] * distanceZ;
+    float offsetY = axes[1] * distanceX + axes[5] * distanceY + axes[9] * distanceZ;
+    float offsetZ = axes[2] * distanceX + axes[6] * distanceY + axes[10] * distanceZ;
+
+    float sphereDiffX = offsetX - diffX;
+    float sphereDiffY = offsetY - diffY;
+    float sphereDiffZ = offsetZ - diffZ;
+    float sphereDiffLengthSquared =
+        sphereDiffX * sphereDiffX + sphereDiffY * sphereDiffY + sphereDiffZ * sphereDiffZ;
+
+    float radius = sphere.getRadius();
+    if (sphereDiffLengthSquared > radius * radius) {
       return false;
     }
 
     if (MathHelper.almostEqualRelativeAndAbs(sphereDiffLengthSquared, 0.0f)) {
-      Vector3 boxDiff = Vector3.subtract(point, box.getCenter());
-      float boxDiffLengthSquared = Vector3.dot(boxDiff, boxDiff);
+      float boxDiffLengthSquared = offsetX * offsetX + offsetY * offsetY + offsetZ * offsetZ;
       if (MathHelper.almostEqualRelativeAndAbs(boxDiffLengthSquared, 0.0f)) {
         return false;
       }
@@ -89,120 +172,22 @@ class Intersections {
     return true;
   }
 
-  private static Vector3 closestPointOnBox(Vector3 point, Box box) {
-    Vector3 result = new Vector3(box.getCenter());
-    Vector3 diff = Vector3.subtract(point, box.getCenter());
-    Matrix boxRotation = box.getRawRotationMatrix();
-    Vector3 boxExtents = box.getExtents();
-
-    // x-axis
-    {
-      Vector3 axis = extractXAxisFromRotationMatrix(boxRotation);
-      float distance = Vector3.dot(diff, axis);
-
-      if (distance > boxExtents.x) {
-        distance = boxExtents.x;
-      } else if (distance < -boxExtents.x) {
-        distance = -boxExtents.x;
-      }
-
-      result = Vector3.add(result, axis.scaled(distance));
-    }
-
-    // y-axis
-    {
-      Vector3 axis = extractYAxisFromRotationMatrix(boxRotation);
-      float distance = Vector3.dot(diff, axis);
-
-      if (distance > boxExtents.y) {
-        distance = boxExtents.y;
-      } else if (distance < -boxExtents.y) {
-        distance = -boxExtents.y;
-      }
-
-      result = Vector3.add(result, axis.scaled(distance));
-    }
-
-    // z-axis
-    {
-      Vector3 axis = extractZAxisFromRotationMatrix(boxRotation);
-      float distance = Vector3.dot(diff, axis);
-
-      if (distance > boxExtents.z) {
-        distance = boxExtents.z;
-      } else if (distance < -boxExtents.z) {
-        distance = -boxExtents.z;
-      }
-
-      result = Vector3.add(result, axis.scaled(distance));
-    }
-
-    return result;
-  }
-
-  private static boolean testSeparatingAxis(
-      List<Vector3> vertices1, List<Vector3> vertices2, Vector3 axis) {
-    float min1 = Float.MAX_VALUE;
-    float max1 = Float.MIN_VALUE;
-    for (int i = 0; i < vertices1.size(); ++i) {
-      float projection = Vector3.dot(axis, vertices1.get(i));
-      min1 = Math.min(projection, min1);
-      max1 = Math.max(projection, max1);
-    }
-
-    float min2 = Float.MAX_VALUE;
-    float max2 = Float.MIN_VALUE;
-    for (int i = 0; i < vertices2.size(); i++) {
-      float projection = Vector3.dot(axis, vertices2.get(i));
-      min2 = Math.min(projection, min2);
-      max2 = Math.max(projection, max2);
+  /** Clamps a distance along an axis of a box to the extent of the box along that axis. */
+  private static float clamp(float distance, float size) {
+    float extent = Math.abs(size) * 0.5f;
+    if (distance > extent) {
+      return extent;
+    } else if (distance < -extent) {
+      return -extent;
     }
-
-    return min2 <= max1 && min1 <= max2;
-  }
-
-  /** Converts a box into an array of 8 vertices that represent the corners of the box. */
-  private static List<Vector3> getVerticesFromBox(Box box) {
-    Preconditions.checkNotNull(box, "Parameter \"box\" was null.");
-
-    // Get the properties of the box.
-    Vector3 center = box.getCenter();
-    Vector3 extents = box.getExtents();
-    Matrix rotation = box.getRawRotationMatrix();
-
-    // Get the rotation axes of the box.
-    Vector3 xAxis = extractXAxisFromRotationMatrix(rotation);
-    Vector3 yAxis = extractYAxisFromRotationMatrix(rotation);
-    Vector3 zAxis = extractZAxisFromRotationMatrix(rotation);
-
-    // Scale the rotation axes by the extents.
-    Vector3 xScaled = xAxis.scaled(extents.x);
-    Vector3 yScaled = yAxis.scaled(extents.y);
-    Vector3 zScaled = zAxis.scaled(extents.z);
-
-    // Calculate the 8 vertices of the box.
-    ArrayList<Vector3> vertices = new ArrayList<>(NUM_VERTICES_PER_BOX);
-    vertices.add(add(add(add(center, xScaled), yScaled), zScaled));
-    vertices.add(add(add(subtract(center, xScaled), yScaled), zScaled));
-    vertices.add(add(subtract(add(center, xScaled), yScaled), zScaled));
-    vertices.add(subtract(add(add(center, xScaled), yScaled), zScaled));
-    vertices.add(subtract(subtract(subtract(center, xScaled), yScaled), zScaled));
-    vertices.add(subtract(subtract(add(center, xScaled), yScaled), zScaled));
-    vertices.add(subtract(add(subtract(center, xScaled), yScaled), zScaled));
-    vertices.add(add(subtract(subtract(center, xScaled), yScaled), zScaled));
-
-    return vertices;
-  }
-
-  private static Vector3 extractXAxisFromRotationMatrix(Matrix matrix) {
-    return new Vector3(matrix.data[0], matrix.data[4], matrix.data[8]);
-  }
-
-  private static Vector3 extractYAxisFromRotationMatrix(Matrix matrix) {
-    return new Vector3(matrix.data[1], matrix.data[5], matrix.data[9]);
+    return distance;
   }
 
-  private static Vector3 extractZAxisFromRotationMatrix(Matrix matrix) {
-    return new Vector3(matrix.data[2], matrix.data[6], matrix.data[10]);
+  /**
+   * Returns true if the cross product of two unit axes whose dot product is given is too short to
+   * be used as a separating axis.
+   */
+  private static boolean isDegenerateAxis(float dotProduct) {
+    return 1.0f - dotProduct * dotProduct < DEGENERATE_AXIS_LENGTH_SQUARED;
   }
 }
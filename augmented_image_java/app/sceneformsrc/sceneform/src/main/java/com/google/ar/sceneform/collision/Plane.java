@@ -33,7 +33,7 @@ public class Plane {
 
   public void setNormal(Vector3 normal) {
     Preconditions.checkNotNull(normal, "Parameter \"normal\" was null.");
-    this.normal.set(normal.normalized());
+    normal.normalized(this.normal);
   }
 
   public Vector3 getNormal() {
@@ -44,16 +44,18 @@ public class Plane {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
     Preconditions.checkNotNull(result, "Parameter \"result\" was null.");
 
-    Vector3 rayDirection = ray.getDirection();
-    Vector3 rayOrigin = ray.getOrigin();
+    Vector3 rayDirection = ray.getRawDirection();
+    Vector3 rayOrigin = ray.getRawOrigin();
 
     float denominator = Vector3.dot(normal, rayDirection);
     if (Math.abs(denominator) > NEAR_ZERO_THRESHOLD) {
-      Vector3 delta = Vector3.subtract(center, rayOrigin);
-      float distance = Vector3.dot(delta, normal) / denominator;
+      float distance =
+          ((center.x - rayOrigin.x) * normal.x
+                  + (center.y - rayOrigin.y) * normal.y
+                  + (center.z - rayOrigin.z) * normal.z)
+              / denominator;
       if (distance >= 0) {
-        result.setDistance(distance);
-        result.setPoint(ray.getPoint(result.getDistance()));
+        result.setDistanceAlongRay(ray, distance);
         return true;
       }
     }
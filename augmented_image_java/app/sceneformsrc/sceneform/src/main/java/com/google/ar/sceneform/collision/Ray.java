@@ -46,6 +46,16 @@ public class Ray {
     return new Vector3(origin);
   }
 
+  /**
+   * Get the origin of the ray without allocating.
+   *
+   * @param dest the vector that receives the ray's origin
+   */
+  public void getOrigin(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(origin);
+  }
+
   /**
    * Set the direction of the ray. The direction will automatically be normalized.
    *
@@ -54,7 +64,7 @@ public class Ray {
   public void setDirection(Vector3 direction) {
     Preconditions.checkNotNull(direction, "Parameter \"direction\" was null.");
 
-    this.direction.set(direction.normalized());
+    direction.normalized(this.direction);
   }
 
   /**
@@ -66,6 +76,34 @@ public class Ray {
     return new Vector3(direction);
   }
 
+  /**
+   * Get the direction of the ray without allocating.
+   *
+   * @param dest the vector that receives the ray's direction
+   */
+  public void getDirection(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(direction);
+  }
+
+  /**
+   * Get the raw origin of the ray. Do not modify directly. Instead, use setOrigin.
+   *
+   * @return a reference to the ray's origin
+   */
+  Vector3 getRawOrigin() {
+    return origin;
+  }
+
+  /**
+   * Get the raw normalized direction of the ray. Do not modify directly. Instead, use setDirection.
+   *
+   * @return a reference to the ray's direction
+   */
+  Vector3 getRawDirection() {
+    return direction;
+  }
+
   /**
    * Get a point at a distance along the ray.
    *
@@ -73,7 +111,23 @@ public class Ray {
    * @return a new vector that represents a point at a distance along the ray.
    */
   public Vector3 getPoint(float distance) {
-    return Vector3.add(origin, direction.scaled(distance));
+    Vector3 result = new Vector3();
+    getPoint(distance, result);
+    return result;
+  }
+
+  /**
+   * Get a point at a distance along the ray without allocating.
+   *
+   * @param distance distance along the ray of the point
+   * @param dest the vector that receives the point
+   */
+  public void getPoint(float distance, Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(
+        origin.x + direction.x * distance,
+        origin.y + direction.y * distance,
+        origin.z + direction.z * distance);
   }
 
   @Override
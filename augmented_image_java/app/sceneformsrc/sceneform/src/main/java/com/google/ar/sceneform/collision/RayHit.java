@@ -41,6 +41,22 @@ public class RayHit {
     return new Vector3(point);
   }
 
+  /**
+   * Get the position in world-space where the ray hit the collision shape without allocating.
+   *
+   * @param dest the vector that receives the position in world-space that the hit occurred at
+   */
+  public void getPoint(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(point);
+  }
+
+  /** Sets the distance of the hit and the point at that distance along the ray. */
+  void setDistanceAlongRay(Ray ray, float distance) {
+    this.distance = distance;
+    ray.getPoint(distance, point);
+  }
+
   /** @hide */
   public void set(RayHit other) {
     Preconditions.checkNotNull(other, "Parameter \"other\" was null.");
@@ -3,6 +3,7 @@ package com.google.ar.sceneform.collision;
 import android.util.Log;
 import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.math.ScratchPool;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.Preconditions;
 
@@ -65,6 +66,15 @@ public class Sphere extends CollisionShape {
     return new Vector3(center);
   }
 
+  /**
+   * Get the raw center of the sphere. Do not modify directly. Instead, use setCenter.
+   *
+   * @return a reference to the sphere's center
+   */
+  Vector3 getRawCenter() {
+    return center;
+  }
+
   /**
    * Set the radius of the sphere.
    *
@@ -97,12 +107,23 @@ public class Sphere extends CollisionShape {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
     Preconditions.checkNotNull(result, "Parameter \"result\" was null.");
 
-    Vector3 rayDirection = ray.getDirection();
-    Vector3 rayOrigin = ray.getOrigin();
-
-    Vector3 difference = Vector3.subtract(rayOrigin, center);
-    float b = 2.0f * Vector3.dot(difference, rayDirection);
-    float c = Vector3.dot(difference, difference) - radius * radius;
+    // Reads the ray in place and works on scalars to avoid allocations.
+    Vector3 rayDirection = ray.getRawDirection();
+    Vector3 rayOrigin = ray.getRawOrigin();
+
+    float differenceX = rayOrigin.x - center.x;
+    float differenceY = rayOrigin.y - center.y;
+    float differenceZ = rayOrigin.z - center.z;
+    float b =
+        2.0f
+            * (differenceX * rayDirection.x
+                + differenceY * rayDirection.y
+                + differenceZ * rayDirection.z);
+    float c =
+        differenceX * differenceX
+            + differenceY * differenceY
+            + differenceZ * differenceZ
+            - radius * radius;
     float discriminant = b * b - 4.0f * c;
 
     if (discriminant < 0.0f) {
@@ -118,12 +139,11 @@ public class Sphere extends CollisionShape {
     }
 
     if (tMinus < 0 && tPlus > 0) {
-      result.setDistance(tPlus);
+      result.setDistanceAlongRay(ray, tPlus);
     } else {
-      result.setDistance(tMinus);
+      result.setDistanceAlongRay(ray, tMinus);
     }
 
-    result.setPoint(ray.getPoint(result.getDistance()));
     return true;
   }
 
@@ -169,17 +189,36 @@ public class Sphere extends CollisionShape {
 
     Matrix modelMatrix = transformProvider.getWorldModelMatrix();
 
-    // Transform the center of the sphere.
-    resultSphere.setCenter(modelMatrix.transformPoint(center));
-
-    // Transform the radius of the sphere.
-    Vector3 worldScale = new Vector3();
-    modelMatrix.decomposeScale(worldScale);
-    // Find the max component scale, ignoring sign.
-    float maxScale =
-        Math.max(
-            Math.abs(Math.min(Math.min(worldScale.x, worldScale.y), worldScale.z)),
-            Math.max(Math.max(worldScale.x, worldScale.y), worldScale.z));
-    resultSphere.radius = radius * maxScale;
+    ScratchPool pool = ScratchPool.get();
+    pool.begin();
+    try {
+      // Transform the center of the sphere.
+      Vector3 worldCenter = pool.vector3();
+      modelMatrix.transformPoint(center, worldCenter);
+      resultSphere.setCenter(worldCenter);
+
+      // Transform the radius of the sphere.
+      Vector3 worldScale = pool.vector3();
+      modelMatrix.decomposeScale(worldScale);
+      // Find the max component scale, ignoring sign.
+      float maxScale =
+          Math.max(
+              Math.abs(Math.min(Math.min(worldScale.x, worldScale.y), worldScale.z)),
+              Math.max(Math.max(worldScale.x, worldScale.y), worldScale.z));
+      resultSphere.radius = radius * maxScale;
+    } finally {
+      pool.end();
+    }
+  }
+
+  @Override
+  void getAabb(float[] result) {
+    float absRadius = Math.abs(radius);
+    result[0] = center.x - absRadius;
+    result[1] = center.y - absRadius;
+    result[2] = center.z - absRadius;
+    result[3] = center.x + absRadius;
+    result[4] = center.y + absRadius;
+    result[5] = center.z + absRadius;
   }
 }
@@ -0,0 +1,291 @@
+package com.google.ar.sceneform.collision;
+
+import android.support.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Finds all pairs of overlapping colliders of a {@link CollisionSystem} with sweep and prune.
+ *
+ * <p>The min and max x coordinates of every proxy are kept in an endpoint list that stays sorted
+ * between calls. Since colliders move little from one frame to the next, re-sorting it with an
+ * insertion sort is close to linear. A sweep over the sorted endpoints then yields the pairs whose
+ * AABBs overlap, which are confirmed with the narrow-phase test. Pairs are compared with the pairs
+ * found by the previous call to report enter, stay and exit events.
+ */
+class SweepAndPrune {
+  private static final int INITIAL_CAPACITY = 32;
+  private static final int AABB_SIZE = 6;
+
+  // Endpoints on the x axis, each packed as (proxyId << 1) | isMax, sorted by endpointValues.
+  private int[] endpoints = new int[INITIAL_CAPACITY];
+  private float[] endpointValues = new float[INITIAL_CAPACITY];
+  private int endpointCount;
+
+  // Proxies whose endpoints are left in the list until the next call compacts it, by proxy id.
+  private boolean[] removedProxies = new boolean[INITIAL_CAPACITY];
+  private int removedProxyCount;
+
+  // Tight world AABBs, indexed by proxy id.
+  private float[] aabbs = new float[INITIAL_CAPACITY * AABB_SIZE];
+  private final float[] aabb = new float[AABB_SIZE];
+
+  // Proxies whose min endpoint has been swept but not their max endpoint.
+  private int[] active = new int[INITIAL_CAPACITY];
+  private int activeCount;
+
+  // Pairs packed as (smallerProxyId << 32) | largerProxyId, with the colliders of each pair.
+  private long[] pairs = new long[INITIAL_CAPACITY];
+  private Collider[] pairColliders = new Collider[INITIAL_CAPACITY * 2];
+  private int pairCount;
+  private long[] previousPairs = new long[INITIAL_CAPACITY];
+  private Collider[] previousPairColliders = new Collider[INITIAL_CAPACITY * 2];
+  private int previousPairCount;
+
+  void addProxy(int proxyId) {
+    if (proxyId < removedProxies.length && removedProxies[proxyId]) {
+      // The id was recycled before the endpoints of its previous proxy were compacted. They are
+      // reused as they are refreshed and moved into place by the next sort anyway.
+      removedProxies[proxyId] = false;
+      removedProxyCount--;
+      return;
+    }
+
+    if (endpointCount + 2 > endpoints.length) {
+      endpoints = Arrays.copyOf(endpoints, endpoints.length * 2);
+      endpointValues = Arrays.copyOf(endpointValues, endpoints.length);
+    }
+
+    // Values are refreshed and the endpoints moved into place by the next sort.
+    endpoints[endpointCount] = proxyId << 1;
+    endpointValues[endpointCount++] = Float.MAX_VALUE;
+    endpoints[endpointCount] = (proxyId << 1) | 1;
+    endpointValues[endpointCount++] = Float.MAX_VALUE;
+  }
+
+  void removeProxy(int proxyId) {
+    // Removing the endpoints right away would scan the list for every removed proxy.
+    if (proxyId >= removedProxies.length) {
+      removedProxies =
+          Arrays.copyOf(removedProxies, Math.max(removedProxies.length * 2, proxyId + 1));
+    }
+    removedProxies[proxyId] = true;
+    removedProxyCount++;
+  }
+
+  /**
+   * Finds all pairs of overlapping colliders.
+   *
+   * @param tree the broadphase holding the proxies, which must be up to date
+   * @param pairBuffer receives the proxy ids of each pair, as consecutive elements. Pairs that
+   *     don't fit are not written.
+   * @param listener receives overlap events relative to the previous call, may be null
+   * @return the number of overlapping pairs
+   */
+  int findPairs(
+      DynamicAabbTree tree,
+      @Nullable int[] pairBuffer,
+      @Nullable CollisionSystem.OverlapListener listener) {
+    compactEndpoints();
+    updateEndpoints(tree);
+    sortEndpoints();
+    sweep(tree);
+
+    if (pairBuffer != null) {
+      int writeCount = Math.min(pairCount, pairBuffer.length / 2);
+      for (int i = 0; i < writeCount; i++) {
+        pairBuffer[i * 2] = (int) (pairs[i] >>> 32);
+        pairBuffer[i * 2 + 1] = (int) pairs[i];
+      }
+    }
+
+    if (listener != null) {
+      dispatchEvents(listener);
+    }
+
+    // The current pairs become the previous pairs of the next call.
+    Arrays.fill(previousPairColliders, 0, previousPairCount * 2, null);
+    long[] swapPairs = previousPairs;
+    previousPairs = pairs;
+    pairs = swapPairs;
+    Collider[] swapColliders = previousPairColliders;
+    previousPairColliders = pairColliders;
+    pairColliders = swapColliders;
+    previousPairCount = pairCount;
+    pairCount = 0;
+
+    return previousPairCount;
+  }
+
+  /** Drops the endpoints of the removed proxies in a single pass, which keeps them sorted. */
+  private void compactEndpoints() {
+    if (removedProxyCount == 0) {
+      return;
+    }
+
+    int count = 0;
+    for (int i = 0; i < endpointCount; i++) {
+      int endpoint = endpoints[i];
+      int proxyId = endpoint >>> 1;
+      if (!removedProxies[proxyId]) {
+        endpoints[count] = endpoint;
+        endpointValues[count++] = endpointValues[i];
+      } else if ((endpoint & 1) == 1) {
+        // Each proxy has a single max endpoint, after which the id may be reused.
+        removedProxies[proxyId] = false;
+      }
+    }
+    endpointCount = count;
+    removedProxyCount = 0;
+  }
+
+  private void updateEndpoints(DynamicAabbTree tree) {
+    for (int i = 0; i < endpointCount; i++) {
+      int proxyId = endpoints[i] >>> 1;
+      if ((endpoints[i] & 1) == 0) {
+        Collider collider = (Collider) tree.getUserData(proxyId);
+        CollisionShape collisionShape = collider.getTransformedShape();
+        if (collisionShape != null) {
+          collisionShape.getAabb(aabb);
+        }
+        if ((proxyId + 1) * AABB_SIZE > aabbs.length) {
+          aabbs = Arrays.copyOf(aabbs, Math.max(aabbs.length * 2, (proxyId + 1) * AABB_SIZE));
+        }
+        System.arraycopy(aabb, 0, aabbs, proxyId * AABB_SIZE, AABB_SIZE);
+      }
+    }
+
+    // Every AABB is known once all min endpoints have been visited.
+    for (int i = 0; i < endpointCount; i++) {
+      int endpoint = endpoints[i];
+      int offset = (endpoint >>> 1) * AABB_SIZE;
+      endpointValues[i] = (endpoint & 1) == 0 ? aabbs[offset] : aabbs[offset + 3];
+    }
+  }
+
+  /** Insertion sort, which is close to linear when the order barely changed since the last call. */
+  private void sortEndpoints() {
+    for (int i = 1; i < endpointCount; i++) {
+      int endpoint = endpoints[i];
+      float value = endpointValues[i];
+      int j = i - 1;
+      while (j >= 0 && isAfter(endpoints[j], endpointValues[j], endpoint, value)) {
+        endpoints[j + 1] = endpoints[j];
+        endpointValues[j + 1] = endpointValues[j];
+        j--;
+      }
+      endpoints[j + 1] = endpoint;
+      endpointValues[j + 1] = value;
+    }
+  }
+
+  private static boolean isAfter(int endpoint, float value, int otherEndpoint, float otherValue) {
+    if (value != otherValue) {
+      return value > otherValue;
+    }
+    // Min endpoints go first on ties so that touching AABBs are reported as overlapping.
+    return (endpoint & 1) > (otherEndpoint & 1);
+  }
+
+  private void sweep(DynamicAabbTree tree) {
+    activeCount = 0;
+    pairCount = 0;
+
+    for (int i = 0; i < endpointCount; i++) {
+      int endpoint = endpoints[i];
+      int proxyId = endpoint >>> 1;
+
+      if ((endpoint & 1) == 1) {
+        removeActive(proxyId);
+        continue;
+      }
+
+      for (int j = 0; j < activeCount; j++) {
+        int otherProxyId = active[j];
+        if (overlapsYz(proxyId, otherProxyId)) {
+          testPair(tree, proxyId, otherProxyId);
+        }
+      }
+
+      if (activeCount == active.length) {
+        active = Arrays.copyOf(active, active.length * 2);
+      }
+      active[activeCount++] = proxyId;
+    }
+
+    Arrays.sort(pairs, 0, pairCount);
+    for (int i = 0; i < pairCount; i++) {
+      pairColliders[i * 2] = (Collider) tree.getUserData((int) (pairs[i] >>> 32));
+      pairColliders[i * 2 + 1] = (Collider) tree.getUserData((int) pairs[i]);
+    }
+  }
+
+  private void removeActive(int proxyId) {
+    for (int j = activeCount - 1; j >= 0; j--) {
+      if (active[j] == proxyId) {
+        active[j] = active[--activeCount];
+        return;
+      }
+    }
+  }
+
+  private boolean overlapsYz(int proxyId, int otherProxyId) {
+    int offset = proxyId * AABB_SIZE;
+    int otherOffset = otherProxyId * AABB_SIZE;
+    return aabbs[offset + 1] <= aabbs[otherOffset + 4]
+        && aabbs[otherOffset + 1] <= aabbs[offset + 4]
+        && aabbs[offset + 2] <= aabbs[otherOffset + 5]
+        && aabbs[otherOffset + 2] <= aabbs[offset + 5];
+  }
+
+  private void testPair(DynamicAabbTree tree, int proxyId, int otherProxyId) {
+    CollisionShape collisionShape = ((Collider) tree.getUserData(proxyId)).getTransformedShape();
+    CollisionShape otherCollisionShape =
+        ((Collider) tree.getUserData(otherProxyId)).getTransformedShape();
+    if (collisionShape == null
+        || otherCollisionShape == null
+        || !collisionShape.shapeIntersection(otherCollisionShape)) {
+      return;
+    }
+
+    if (pairCount == pairs.length) {
+      pairs = Arrays.copyOf(pairs, pairs.length * 2);
+      pairColliders = Arrays.copyOf(pairColliders, pairs.length * 2);
+    }
+    long low = Math.min(proxyId, otherProxyId);
+    long high = Math.max(proxyId, otherProxyId);
+    pairs[pairCount++] = (low << 32) | high;
+  }
+
+  /**
+   * Merges the sorted current and previous pairs. A pair whose ids were recycled by different
+   * colliders since the previous call is reported as an exit followed by an enter.
+   */
+  private void dispatchEvents(CollisionSystem.OverlapListener listener) {
+    int i = 0;
+    int j = 0;
+    while (i < pairCount || j < previousPairCount) {
+      long pair = i < pairCount ? pairs[i] : Long.MAX_VALUE;
+      long previousPair = j < previousPairCount ? previousPairs[j] : Long.MAX_VALUE;
+
+      if (pair < previousPair) {
+        listener.onOverlapEnter(pairColliders[i * 2], pairColliders[i * 2 + 1]);
+        i++;
+      } else if (previousPair < pair) {
+        listener.onOverlapExit(previousPairColliders[j * 2], previousPairColliders[j * 2 + 1]);
+        j++;
+      } else {
+        Collider collider = pairColliders[i * 2];
+        Collider otherCollider = pairColliders[i * 2 + 1];
+        if (collider == previousPairColliders[j * 2]
+            && otherCollider == previousPairColliders[j * 2 + 1]) {
+          listener.onOverlapStay(collider, otherCollider);
+        } else {
+          listener.onOverlapExit(previousPairColliders[j * 2], previousPairColliders[j * 2 + 1]);
+          listener.onOverlapEnter(collider, otherCollider);
+        }
+        i++;
+        j++;
+      }
+    }
+  }
+}
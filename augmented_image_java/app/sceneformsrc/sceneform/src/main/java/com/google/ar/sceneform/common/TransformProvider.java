@@ -1,6 +1,7 @@
 package com.google.ar.sceneform.common;
 
 import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.utilities.ChangeId;
 
 /**
  * Interface for providing information about a 3D transformation. See {@link
@@ -10,4 +11,10 @@ import com.google.ar.sceneform.math.Matrix;
  */
 public interface TransformProvider {
   Matrix getWorldModelMatrix();
+
+  /**
+   * Returns an id that is updated whenever the matrix returned by {@link #getWorldModelMatrix()}
+   * changes, so that consumers can skip reading it when it hasn't.
+   */
+  ChangeId getWorldModelMatrixId();
 }
@@ -140,6 +140,17 @@ public class Quaternion {
     return new Quaternion(-this.x, -this.y, -this.z, this.w);
   }
 
+  /**
+   * Get a Quaternion with the opposite rotation without allocating. The destination may be this
+   * Quaternion.
+   *
+   * @param dest the quaternion that receives the opposite rotation
+   */
+  public void inverted(Quaternion dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(-this.x, -this.y, -this.z, this.w);
+  }
+
   /**
    * Flips the sign of the Quaternion, but represents the same rotation.
    *
@@ -160,9 +171,20 @@ public class Quaternion {
    * @return The rotated vector
    */
   public static Vector3 rotateVector(Quaternion q, Vector3 src) {
+    Vector3 result = new Vector3();
+    rotateVector(q, src, result);
+    return result;
+  }
+
+  /**
+   * Rotates a Vector3 by a Quaternion without allocating. The destination may be the source.
+   *
+   * @param dest the vector that receives the rotated vector
+   */
+  public static void rotateVector(Quaternion q, Vector3 src, Vector3 dest) {
     Preconditions.checkNotNull(q, "Parameter \"q\" was null.");
     Preconditions.checkNotNull(src, "Parameter \"src\" was null.");
-    Vector3 result = new Vector3();
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
     float w2 = q.w * q.w;
     float x2 = q.x * q.x;
     float y2 = q.y * q.y;
@@ -185,16 +207,27 @@ public class Quaternion {
     float sx = src.x;
     float sy = src.y;
     float sz = src.z;
-    result.x = m00 * sx + m10 * sy + m20 * sz;
-    result.y = m01 * sx + m11 * sy + m21 * sz;
-    result.z = m02 * sx + m12 * sy + m22 * sz;
-    return result;
+    dest.x = m00 * sx + m10 * sy + m20 * sz;
+    dest.y = m01 * sx + m11 * sy + m21 * sz;
+    dest.z = m02 * sx + m12 * sy + m22 * sz;
   }
 
   public static Vector3 inverseRotateVector(Quaternion q, Vector3 src) {
+    Vector3 result = new Vector3();
+    inverseRotateVector(q, src, result);
+    return result;
+  }
+
+  /**
+   * Rotates a Vector3 by the inverse of a Quaternion without allocating. The destination may be the
+   * source.
+   *
+   * @param dest the vector that receives the rotated vector
+   */
+  public static void inverseRotateVector(Quaternion q, Vector3 src, Vector3 dest) {
     Preconditions.checkNotNull(q, "Parameter \"q\" was null.");
     Preconditions.checkNotNull(src, "Parameter \"src\" was null.");
-    Vector3 result = new Vector3();
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
     float w2 = q.w * q.w;
     float x2 = -q.x * -q.x;
     float y2 = -q.y * -q.y;
@@ -218,10 +251,9 @@ public class Quaternion {
     float sx = src.x;
     float sy = src.y;
     float sz = src.z;
-    result.x = m00 * sx + m10 * sy + m20 * sz;
-    result.y = m01 * sx + m11 * sy + m21 * sz;
-    result.z = m02 * sx + m12 * sy + m22 * sz;
-    return result;
+    dest.x = m00 * sx + m10 * sy + m20 * sz;
+    dest.y = m01 * sx + m11 * sy + m21 * sz;
+    dest.z = m02 * sx + m12 * sy + m22 * sz;
   }
 
   /**
@@ -231,8 +263,21 @@ public class Quaternion {
    * @return The combined rotation
    */
   public static Quaternion multiply(Quaternion lhs, Quaternion rhs) {
+    Quaternion result = new Quaternion();
+    multiply(lhs, rhs, result);
+    return result;
+  }
+
+  /**
+   * Combine two Quaternions without allocating, see {@link #multiply(Quaternion, Quaternion)}. The
+   * destination may be either of the operands.
+   *
+   * @param dest the quaternion that receives the combined rotation
+   */
+  public static void multiply(Quaternion lhs, Quaternion rhs, Quaternion dest) {
     Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
     Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
     float lx = lhs.x;
     float ly = lhs.y;
     float lz = lhs.z;
@@ -242,13 +287,11 @@ public class Quaternion {
     float rz = rhs.z;
     float rw = rhs.w;
 
-    Quaternion result =
-        new Quaternion(
-            lw * rx + lx * rw + ly * rz - lz * ry,
-            lw * ry - lx * rz + ly * rw + lz * rx,
-            lw * rz + lx * ry - ly * rx + lz * rw,
-            lw * rw - lx * rx - ly * ry - lz * rz);
-    return result;
+    dest.set(
+        lw * rx + lx * rw + ly * rz - lz * ry,
+        lw * ry - lx * rz + ly * rw + lz * rx,
+        lw * rz + lx * ry - ly * rx + lz * rw,
+        lw * rw - lx * rx - ly * ry - lz * rz);
   }
 
   /**
@@ -316,23 +359,77 @@ public class Quaternion {
    * @return interpolated value between the two floats
    */
   public static Quaternion slerp(final Quaternion start, final Quaternion end, float t) {
+    Quaternion result = new Quaternion();
+    slerp(start, end, t, result);
+    return result;
+  }
+
+  /**
+   * Returns the spherical linear interpolation between two given orientations without allocating,
+   * see {@link #slerp(Quaternion, Quaternion, float)}. The destination may be either of the
+   * orientations.
+   *
+   * @param dest the quaternion that receives the interpolated value
+   */
+  public static void slerp(
+      final Quaternion start, final Quaternion end, float t, final Quaternion dest) {
     Preconditions.checkNotNull(start, "Parameter \"start\" was null.");
     Preconditions.checkNotNull(end, "Parameter \"end\" was null.");
-    Quaternion orientation0 = start.normalized();
-    Quaternion orientation1 = end.normalized();
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    // Normalize both orientations into locals, so that dest may alias either of them.
+    float x0 = start.x;
+    float y0 = start.y;
+    float z0 = start.z;
+    float w0 = start.w;
+    float normSquared0 = x0 * x0 + y0 * y0 + z0 * z0 + w0 * w0;
+    if (MathHelper.almostEqualRelativeAndAbs(normSquared0, 0.0f)) {
+      x0 = y0 = z0 = 0.0f;
+      w0 = 1.0f;
+    } else if (normSquared0 != 1) {
+      float norm = (float) (1.0 / Math.sqrt(normSquared0));
+      x0 *= norm;
+      y0 *= norm;
+      z0 *= norm;
+      w0 *= norm;
+    }
+
+    float x1 = end.x;
+    float y1 = end.y;
+    float z1 = end.z;
+    float w1 = end.w;
+    float normSquared1 = x1 * x1 + y1 * y1 + z1 * z1 + w1 * w1;
+    if (MathHelper.almostEqualRelativeAndAbs(normSquared1, 0.0f)) {
+      x1 = y1 = z1 = 0.0f;
+      w1 = 1.0f;
+    } else if (normSquared1 != 1) {
+      float norm = (float) (1.0 / Math.sqrt(normSquared1));
+      x1 *= norm;
+      y1 *= norm;
+      z1 *= norm;
+      w1 *= norm;
+    }
 
     // cosTheta0 provides the angle between the rotations at t=0
-    double cosTheta0 = Quaternion.dot(orientation0, orientation1);
+    double cosTheta0 = x0 * x1 + y0 * y1 + z0 * z1 + w0 * w1;
 
     // Flip end rotation to get shortest path if needed
     if (cosTheta0 < 0.0f) {
-      orientation1 = orientation1.negated();
+      x1 = -x1;
+      y1 = -y1;
+      z1 = -z1;
+      w1 = -w1;
       cosTheta0 = -cosTheta0;
     }
 
     // Small rotations should just use lerp
     if (cosTheta0 > SLERP_THRESHOLD) {
-      return lerp(orientation0, orientation1, t);
+      dest.set(
+          MathHelper.lerp(x0, x1, t),
+          MathHelper.lerp(y0, y1, t),
+          MathHelper.lerp(z0, z1, t),
+          MathHelper.lerp(w0, w1, t));
+      return;
     }
 
     // Cosine function range is -1,1. Clamp larger rotations.
@@ -342,12 +439,10 @@ public class Quaternion {
     double thetaT = theta0 * t; // theta0 scaled to current t
 
     // s0 = sin(theta0 - thetaT) / sin(theta0)
-    double s0 = (Math.cos(thetaT) - cosTheta0 * Math.sin(thetaT) / Math.sin(theta0));
-    double s1 = (Math.sin(thetaT) / Math.sin(theta0));
-    // result = s0*start + s1*end
-    Quaternion result =
-        Quaternion.add(orientation0.scaled((float) s0), orientation1.scaled((float) s1));
-    return result.normalized();
+    float s0 = (float) (Math.cos(thetaT) - cosTheta0 * Math.sin(thetaT) / Math.sin(theta0));
+    float s1 = (float) (Math.sin(thetaT) / Math.sin(theta0));
+    // result = s0*start + s1*end, normalized by set
+    dest.set(x0 * s0 + x1 * s1, y0 * s0 + y1 * s1, z0 * s0 + z1 * s1, w0 * s0 + w1 * s1);
   }
 
   /**
@@ -359,15 +454,33 @@ public class Quaternion {
   public static Quaternion axisAngle(Vector3 axis, float degrees) {
     Preconditions.checkNotNull(axis, "Parameter \"axis\" was null.");
     Quaternion dest = new Quaternion();
+    axisAngle(axis.x, axis.y, axis.z, degrees, dest);
+    return dest;
+  }
+
+  /**
+   * Set a Quaternion using an axis/angle to define the rotation, without allocating.
+   *
+   * @param axis Sets rotation direction
+   * @param degrees Angle size in degrees
+   * @param dest the quaternion that receives the rotation
+   */
+  public static void axisAngle(Vector3 axis, float degrees, Quaternion dest) {
+    Preconditions.checkNotNull(axis, "Parameter \"axis\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    axisAngle(axis.x, axis.y, axis.z, degrees, dest);
+  }
+
+  private static void axisAngle(
+      float axisX, float axisY, float axisZ, float degrees, Quaternion dest) {
     double angle = Math.toRadians(degrees);
     double factor = Math.sin(angle / 2.0);
 
-    dest.x = (float) (axis.x * factor);
-    dest.y = (float) (axis.y * factor);
-    dest.z = (float) (axis.z * factor);
-    dest.w = (float) Math.cos(angle / 2.0);
-    dest.normalize();
-    return dest;
+    dest.set(
+        (float) (axisX * factor),
+        (float) (axisY * factor),
+        (float) (axisZ * factor),
+        (float) Math.cos(angle / 2.0));
   }
 
   /**
@@ -390,38 +503,62 @@ public class Quaternion {
 
   /** Get a new Quaternion representing the rotation from one vector to another. */
   public static Quaternion rotationBetweenVectors(Vector3 start, Vector3 end) {
+    Quaternion result = new Quaternion();
+    rotationBetweenVectors(start, end, result);
+    return result;
+  }
+
+  /**
+   * Get a Quaternion representing the rotation from one vector to another, without allocating.
+   *
+   * @param dest the quaternion that receives the rotation
+   */
+  public static void rotationBetweenVectors(Vector3 start, Vector3 end, Quaternion dest) {
     Preconditions.checkNotNull(start, "Parameter \"start\" was null.");
     Preconditions.checkNotNull(end, "Parameter \"end\" was null.");
-
-    start = start.normalized();
-    end = end.normalized();
-
-    float cosTheta = Vector3.dot(start, end);
-    Vector3 rotationAxis;
-
-    if (cosTheta < -1.0f + 0.001f) {
-      // special case when vectors in opposite directions:
-      // there is no "ideal" rotation axis
-      // So guess one; any will do as long as it's perpendicular to start
-      rotationAxis = Vector3.cross(Vector3.back(), start);
-      if (rotationAxis.lengthSquared() < 0.01f) { // bad luck, they were parallel, try again!
-        rotationAxis = Vector3.cross(Vector3.right(), start);
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    ScratchPool pool = ScratchPool.get();
+    pool.begin();
+    try {
+      Vector3 normalizedStart = pool.vector3();
+      Vector3 normalizedEnd = pool.vector3();
+      start.normalized(normalizedStart);
+      end.normalized(normalizedEnd);
+
+      float cosTheta = Vector3.dot(normalizedStart, normalizedEnd);
+      Vector3 rotationAxis = pool.vector3();
+
+      if (cosTheta < -1.0f + 0.001f) {
+        // special case when vectors in opposite directions:
+        // there is no "ideal" rotation axis
+        // So guess one; any will do as long as it's perpendicular to start
+        Vector3 guess = pool.vector3();
+        guess.setBack();
+        Vector3.cross(guess, normalizedStart, rotationAxis);
+        if (rotationAxis.lengthSquared() < 0.01f) { // bad luck, they were parallel, try again!
+          guess.setRight();
+          Vector3.cross(guess, normalizedStart, rotationAxis);
+        }
+
+        rotationAxis.normalized(rotationAxis);
+        axisAngle(rotationAxis.x, rotationAxis.y, rotationAxis.z, 180.0f, dest);
+        return;
       }
 
-      rotationAxis = rotationAxis.normalized();
-      return axisAngle(rotationAxis, 180.0f);
-    }
-
-    rotationAxis = Vector3.cross(start, end);
+      Vector3.cross(normalizedStart, normalizedEnd, rotationAxis);
 
-    float squareLength = (float) Math.sqrt((1.0 + cosTheta) * 2.0);
-    float inverseSquareLength = 1.0f / squareLength;
+      float squareLength = (float) Math.sqrt((1.0 + cosTheta) * 2.0);
+      float inverseSquareLength = 1.0f / squareLength;
 
-    return new Quaternion(
-        rotationAxis.x * inverseSquareLength,
-        rotationAxis.y * inverseSquareLength,
-        rotationAxis.z * inverseSquareLength,
-        squareLength * 0.5f);
+      dest.set(
+          rotationAxis.x * inverseSquareLength,
+          rotationAxis.y * inverseSquareLength,
+          rotationAxis.z * inverseSquareLength,
+          squareLength * 0.5f);
+    } finally {
+      pool.end();
+    }
   }
 
   /**
@@ -429,22 +566,47 @@ public class Quaternion {
    * upInWorld is orthogonal to forwardInWorld, then the Y axis is aligned with desiredUpInWorld.
    */
   public static Quaternion lookRotation(Vector3 forwardInWorld, Vector3 desiredUpInWorld) {
+    Quaternion result = new Quaternion();
+    lookRotation(forwardInWorld, desiredUpInWorld, result);
+    return result;
+  }
+
+  /**
+   * Get a Quaternion representing a rotation towards a specified forward direction, without
+   * allocating. See {@link #lookRotation(Vector3, Vector3)}.
+   *
+   * @param dest the quaternion that receives the rotation
+   */
+  public static void lookRotation(
+      Vector3 forwardInWorld, Vector3 desiredUpInWorld, Quaternion dest) {
     Preconditions.checkNotNull(forwardInWorld, "Parameter \"forwardInWorld\" was null.");
     Preconditions.checkNotNull(desiredUpInWorld, "Parameter \"desiredUpInWorld\" was null.");
-
-    // Find the rotation between the world forward and the forward to look at.
-    Quaternion rotateForwardToDesiredForward =
-        rotationBetweenVectors(Vector3.forward(), forwardInWorld);
-
-    // Recompute upwards so that it's perpendicular to the direction
-    Vector3 rightInWorld = Vector3.cross(forwardInWorld, desiredUpInWorld);
-    desiredUpInWorld = Vector3.cross(rightInWorld, forwardInWorld);
-
-    // Find the rotation between the "up" of the rotated object, and the desired up
-    Vector3 newUp = Quaternion.rotateVector(rotateForwardToDesiredForward, Vector3.up());
-    Quaternion rotateNewUpToUpwards = rotationBetweenVectors(newUp, desiredUpInWorld);
-
-    return Quaternion.multiply(rotateNewUpToUpwards, rotateForwardToDesiredForward);
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+
+    ScratchPool pool = ScratchPool.get();
+    pool.begin();
+    try {
+      // Find the rotation between the world forward and the forward to look at.
+      Vector3 axis = pool.vector3();
+      axis.setForward();
+      Quaternion rotateForwardToDesiredForward = pool.quaternion();
+      rotationBetweenVectors(axis, forwardInWorld, rotateForwardToDesiredForward);
+
+      // Recompute upwards so that it's perpendicular to the direction
+      Vector3 rightInWorld = pool.vector3();
+      Vector3 upInWorld = pool.vector3();
+      Vector3.cross(forwardInWorld, desiredUpInWorld, rightInWorld);
+      Vector3.cross(rightInWorld, forwardInWorld, upInWorld);
+
+      // Find the rotation between the "up" of the rotated object, and the desired up
+      axis.setUp();
+      Quaternion.rotateVector(rotateForwardToDesiredForward, axis, axis);
+      rotationBetweenVectors(axis, upInWorld, dest);
+
+      Quaternion.multiply(dest, rotateForwardToDesiredForward, dest);
+    } finally {
+      pool.end();
+    }
   }
 
   /**
@@ -0,0 +1,109 @@
+package com.google.ar.sceneform.math;
+
+import java.util.ArrayList;
+
+/**
+ * A per-thread pool of temporary vectors, quaternions and matrices, for intermediate values of math
+ * code that runs every frame and should not allocate.
+ *
+ * <p>Objects are borrowed between a call to {@link #begin()} and the matching call to {@link
+ * #end()}, which returns every object borrowed since. Calls nest, so a method using the pool can
+ * call another one that also does. The values of a borrowed object are undefined until set.
+ *
+ * <pre>{@code
+ * ScratchPool pool = ScratchPool.get();
+ * pool.begin();
+ * try {
+ *   Vector3 temp = pool.vector3();
+ *   ...
+ * } finally {
+ *   pool.end();
+ * }
+ * }</pre>
+ *
+ * @hide
+ */
+public final class ScratchPool {
+  private static final ThreadLocal<ScratchPool> pools =
+      new ThreadLocal<ScratchPool>() {
+        @Override
+        protected ScratchPool initialValue() {
+          return new ScratchPool();
+        }
+      };
+
+  private final ArrayList<Vector3> vectors = new ArrayList<>();
+  private final ArrayList<Quaternion> quaternions = new ArrayList<>();
+  private final ArrayList<Matrix> matrices = new ArrayList<>();
+  private int vectorCount;
+  private int quaternionCount;
+  private int matrixCount;
+
+  // The counts at each nested call to begin, three ints per level.
+  private int[] marks = new int[3 * 8];
+  private int depth;
+
+  private ScratchPool() {}
+
+  /** Gets the pool of the calling thread. */
+  public static ScratchPool get() {
+    return pools.get();
+  }
+
+  /** Starts borrowing objects, which are all returned by the matching call to {@link #end()}. */
+  public void begin() {
+    if ((depth + 1) * 3 > marks.length) {
+      int[] newMarks = new int[marks.length * 2];
+      System.arraycopy(marks, 0, newMarks, 0, marks.length);
+      marks = newMarks;
+    }
+    marks[depth * 3] = vectorCount;
+    marks[depth * 3 + 1] = quaternionCount;
+    marks[depth * 3 + 2] = matrixCount;
+    depth++;
+  }
+
+  /** Returns every object borrowed since the matching call to {@link #begin()}. */
+  public void end() {
+    if (depth == 0) {
+      throw new IllegalStateException("ScratchPool.end() called without begin().");
+    }
+    depth--;
+    vectorCount = marks[depth * 3];
+    quaternionCount = marks[depth * 3 + 1];
+    matrixCount = marks[depth * 3 + 2];
+  }
+
+  /** Borrows a vector, with undefined values. */
+  public Vector3 vector3() {
+    checkBorrowing();
+    if (vectorCount == vectors.size()) {
+      vectors.add(new Vector3());
+    }
+    return vectors.get(vectorCount++);
+  }
+
+  /** Borrows a quaternion, with undefined values. */
+  public Quaternion quaternion() {
+    checkBorrowing();
+    if (quaternionCount == quaternions.size()) {
+      quaternions.add(new Quaternion());
+    }
+    return quaternions.get(quaternionCount++);
+  }
+
+  /** Borrows a matrix, with undefined values. */
+  public Matrix matrix() {
+    checkBorrowing();
+    if (matrixCount == matrices.size()) {
+      matrices.add(new Matrix());
+    }
+    return matrices.get(matrixCount++);
+  }
+
+  private void checkBorrowing() {
+    if (depth == 0) {
+      throw new IllegalStateException("ScratchPool objects must be borrowed after begin().");
+    }
+  }
+}
@@ -101,16 +101,28 @@ public class Vector3 {
 
   /** Scales the Vector3 to the unit length */
   public Vector3 normalized() {
-    Vector3 result = new Vector3(this);
-    float normSquared = Vector3.dot(this, this);
+    Vector3 result = new Vector3();
+    normalized(result);
+    return result;
+  }
+
+  /**
+   * Scales the Vector3 to the unit length without allocating. The destination may be this Vector3.
+   *
+   * @param dest the vector that receives the normalized Vector3, or zero if it has no length
+   */
+  public void normalized(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    float normSquared = lengthSquared();
 
     if (MathHelper.almostEqualRelativeAndAbs(normSquared, 0.0f)) {
-      result.setZero();
+      dest.setZero();
     } else if (normSquared != 1) {
       float norm = (float) (1.0 / Math.sqrt(normSquared));
-      result.set(this.scaled(norm));
+      dest.set(x * norm, y * norm, z * norm);
+    } else {
+      dest.set(this);
     }
-    return result;
   }
 
   /**
@@ -122,6 +134,16 @@ public class Vector3 {
     return new Vector3(x * a, y * a, z * a);
   }
 
+  /**
+   * Uniformly scales a Vector3 without allocating. The destination may be this Vector3.
+   *
+   * @param dest the vector that receives the Vector3 multiplied by a scalar amount
+   */
+  public void scaled(float a, Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(x * a, y * a, z * a);
+  }
+
   /**
    * Negates a Vector3
    *
@@ -131,15 +153,37 @@ public class Vector3 {
     return new Vector3(-x, -y, -z);
   }
 
+  /**
+   * Negates a Vector3 without allocating. The destination may be this Vector3.
+   *
+   * @param dest the vector that receives the Vector3 with opposite direction
+   */
+  public void negated(Vector3 dest) {
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(-x, -y, -z);
+  }
+
   /**
    * Adds two Vector3's
    *
    * @return The combined Vector3
    */
   public static Vector3 add(Vector3 lhs, Vector3 rhs) {
+    Vector3 result = new Vector3();
+    add(lhs, rhs, result);
+    return result;
+  }
+
+  /**
+   * Adds two Vector3's without allocating. The destination may be either of the operands.
+   *
+   * @param dest the vector that receives the combined Vector3
+   */
+  public static void add(Vector3 lhs, Vector3 rhs, Vector3 dest) {
     Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
     Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.");
-    return new Vector3(lhs.x + rhs.x, lhs.y + rhs.y, lhs.z + rhs.z);
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(lhs.x + rhs.x, lhs.y + rhs.y, lhs.z + rhs.z);
   }
 
   /**
@@ -148,9 +192,21 @@ public class Vector3 {
    * @return The combined Vector3
    */
   public static Vector3 subtract(Vector3 lhs, Vector3 rhs) {
+    Vector3 result = new Vector3();
+    subtract(lhs, rhs, result);
+    return result;
+  }
+
+  /**
+   * Subtract two Vector3 without allocating. The destination may be either of the operands.
+   *
+   * @param dest the vector that receives the combined Vector3
+   */
+  public static void subtract(Vector3 lhs, Vector3 rhs, Vector3 dest) {
     Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
     Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.");
-    return new Vector3(lhs.x - rhs.x, lhs.y - rhs.y, lhs.z - rhs.z);
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(lhs.x - rhs.x, lhs.y - rhs.y, lhs.z - rhs.z);
   }
 
   /**
@@ -170,16 +226,28 @@ public class Vector3 {
    * @return A Vector3 perpendicular to Vector3's
    */
   public static Vector3 cross(Vector3 lhs, Vector3 rhs) {
+    Vector3 result = new Vector3();
+    cross(lhs, rhs, result);
+    return result;
+  }
+
+  /**
+   * Get cross product of two Vector3's without allocating. The destination may be either of the
+   * operands.
+   *
+   * @param dest the vector that receives a Vector3 perpendicular to Vector3's
+   */
+  public static void cross(Vector3 lhs, Vector3 rhs, Vector3 dest) {
     Preconditions.checkNotNull(lhs, "Parameter \"lhs\" was null.");
     Preconditions.checkNotNull(rhs, "Parameter \"rhs\" was null.");
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
     float lhsX = lhs.x;
     float lhsY = lhs.y;
     float lhsZ = lhs.z;
     float rhsX = rhs.x;
     float rhsY = rhs.y;
     float rhsZ = rhs.z;
-    return new Vector3(
-        lhsY * rhsZ - lhsZ * rhsY, lhsZ * rhsX - lhsX * rhsZ, lhsX * rhsY - lhsY * rhsX);
+    dest.set(lhsY * rhsZ - lhsZ * rhsY, lhsZ * rhsX - lhsX * rhsZ, lhsX * rhsY - lhsY * rhsX);
   }
 
   /** Get a Vector3 with each value set to the element wise minimum of two Vector3's values */
@@ -217,9 +285,25 @@ public class Vector3 {
    * @return interpolated value between the two floats
    */
   public static Vector3 lerp(Vector3 a, Vector3 b, float t) {
+    Vector3 result = new Vector3();
+    lerp(a, b, t, result);
+    return result;
+  }
+
+  /**
+   * Linearly interpolates between a and b without allocating. The destination may be either of
+   * the values.
+   *
+   * @param a the beginning value
+   * @param b the ending value
+   * @param t ratio between the two floats.
+   * @param dest the vector that receives the interpolated value between the two floats
+   */
+  public static void lerp(Vector3 a, Vector3 b, float t, Vector3 dest) {
     Preconditions.checkNotNull(a, "Parameter \"a\" was null.");
     Preconditions.checkNotNull(b, "Parameter \"b\" was null.");
-    return new Vector3(
+    Preconditions.checkNotNull(dest, "Parameter \"dest\" was null.");
+    dest.set(
         MathHelper.lerp(a.x, b.x, t), MathHelper.lerp(a.y, b.y, t), MathHelper.lerp(a.z, b.z, t));
   }
 
@@ -0,0 +1,235 @@
+package com.google.ar.sceneform.rendering;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.Nullable;
+import com.google.ar.sceneform.utilities.SceneformBufferUtils;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+
+/**
+ * Decodes texture images into {@link Bitmap.Config#ARGB_8888} bitmaps for upload to Filament.
+ *
+ * <p>The size of the image is read first. Images larger than the maximum dimension are
+ * downsampled by a power of two while decoding, and the number of bytes decoded at once across
+ * loads is limited by the {@link LoaderExecutor}. Pixels are decoded into a bitmap from the {@link
+ * BitmapPool} when one is large enough, and bitmaps are given back to it once uploaded.
+ */
+final class BitmapDecoder {
+  private static final int BYTES_PER_PIXEL = 4;
+  // Bytes kept by the stream while the size of the bitmap is read, so that it can be rewound.
+  private static final int BOUNDS_MARK_LIMIT = 1024 * 1024;
+
+  private static final BitmapPool bitmapPool = new BitmapPool();
+
+  private BitmapDecoder() {}
+
+  static BitmapPool getBitmapPool() {
+    return bitmapPool;
+  }
+
+  /**
+   * Decodes an image from a stream. The stream is opened again if its header doesn't fit in the
+   * mark limit, or if decoding into a pooled bitmap failed.
+   *
+   * @return the decoded bitmap, or null if the stream isn't a valid image
+   */
+  @Nullable
+  static Bitmap decode(
+      Callable<InputStream> inputStreamCreator, boolean inPremultiplied, int maxDimension)
+      throws Exception {
+    BitmapFactory.Options options = newOptions(inPremultiplied);
+    InputStream inputStream = null;
+    try {
+      inputStream = openMarkable(inputStreamCreator);
+      inputStream.mark(BOUNDS_MARK_LIMIT);
+      options.inJustDecodeBounds = true;
+      BitmapFactory.decodeStream(inputStream, null, options);
+      options.inJustDecodeBounds = false;
+      try {
+        inputStream.reset();
+      } catch (IOException e) {
+        // The header was larger than the mark limit, so the file is opened again.
+        inputStream.close();
+        inputStream = inputStreamCreator.call();
+      }
+
+      if (!prepareDecode(options, maxDimension)) {
+        return null;
+      }
+
+      long decodeBytes = getDecodeBytes(options);
+      LoaderExecutor loaderExecutor = ThreadPools.getLoaderExecutor();
+      loaderExecutor.acquireDecodeBytes(decodeBytes);
+      try {
+        Bitmap bitmap;
+        try {
+          bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+        } catch (IllegalArgumentException e) {
+          // The pooled bitmap can't hold this image.
+          releaseInBitmap(options);
+          inputStream.close();
+          inputStream = inputStreamCreator.call();
+          bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+        }
+        return finishDecode(bitmap, options);
+      } finally {
+        loaderExecutor.releaseDecodeBytes(decodeBytes);
+      }
+    } finally {
+      closeQuietly(inputStream);
+    }
+  }
+
+  /**
+   * Decodes an image from the remaining bytes of a buffer, in place. The position of the buffer
+   * isn't changed.
+   *
+   * @return the decoded bitmap, or null if the buffer isn't a valid image
+   */
+  @Nullable
+  static Bitmap decode(ByteBuffer buffer, boolean inPremultiplied, int maxDimension)
+      throws InterruptedException {
+    BitmapFactory.Options options = newOptions(inPremultiplied);
+    options.inJustDecodeBounds = true;
+    decodeBuffer(buffer, options);
+    options.inJustDecodeBounds = false;
+
+    if (!prepareDecode(options, maxDimension)) {
+      return null;
+    }
+
+    long decodeBytes = getDecodeBytes(options);
+    LoaderExecutor loaderExecutor = ThreadPools.getLoaderExecutor();
+    loaderExecutor.acquireDecodeBytes(decodeBytes);
+    try {
+      Bitmap bitmap;
+      try {
+        bitmap = decodeBuffer(buffer, options);
+      } catch (IllegalArgumentException e) {
+        // The pooled bitmap can't hold this image.
+        releaseInBitmap(options);
+        bitmap = decodeBuffer(buffer, options);
+      }
+      return finishDecode(bitmap, options);
+    } finally {
+      loaderExecutor.releaseDecodeBytes(decodeBytes);
+    }
+  }
+
+  /** Gives back a bitmap returned by one of the decode methods once it is no longer used. */
+  static void release(Bitmap bitmap) {
+    bitmapPool.release(bitmap);
+  }
+
+  /** Returns the power of two to downsample an image by so that it fits the maximum dimension. */
+  static int getSampleSize(int width, int height, int maxDimension) {
+    int sampleSize = 1;
+    while (divideRoundingUp(width, sampleSize) > maxDimension
+        || divideRoundingUp(height, sampleSize) > maxDimension) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
+
+  private static BitmapFactory.Options newOptions(boolean inPremultiplied) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inScaled = false;
+    options.inPremultiplied = inPremultiplied;
+    options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+    return options;
+  }
+
+  /**
+   * Sets the sample size and the pooled bitmap to decode into from the size read into options.
+   * Returns false if no size was read, in which case the source isn't a valid image.
+   */
+  private static boolean prepareDecode(BitmapFactory.Options options, int maxDimension) {
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      return false;
+    }
+
+    options.inSampleSize = getSampleSize(options.outWidth, options.outHeight, maxDimension);
+    options.inMutable = true;
+    options.inBitmap = bitmapPool.acquire(getDecodeBytes(options));
+    return true;
+  }
+
+  /** Returns the size of the decoded bitmap, rounded up in case the decoder does. */
+  private static long getDecodeBytes(BitmapFactory.Options options) {
+    int sampleSize = Math.max(1, options.inSampleSize);
+    return (long) divideRoundingUp(options.outWidth, sampleSize)
+        * divideRoundingUp(options.outHeight, sampleSize)
+        * BYTES_PER_PIXEL;
+  }
+
+  @Nullable
+  private static Bitmap finishDecode(@Nullable Bitmap bitmap, BitmapFactory.Options options) {
+    if (bitmap == null) {
+      releaseInBitmap(options);
+      return null;
+    }
+
+    // Images with more precision or fewer channels may be decoded to another config, such as
+    // RGBA_F16 for 16 bit PNGs.
+    if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+      Bitmap converted = bitmap.copy(Bitmap.Config.ARGB_8888, true);
+      if (bitmap == options.inBitmap) {
+        release(bitmap);
+      }
+      bitmap = converted;
+    }
+    return bitmap;
+  }
+
+  private static void releaseInBitmap(BitmapFactory.Options options) {
+    if (options.inBitmap != null) {
+      release(options.inBitmap);
+      options.inBitmap = null;
+    }
+  }
+
+  @Nullable
+  private static Bitmap decodeBuffer(ByteBuffer buffer, BitmapFactory.Options options) {
+    if (buffer.hasArray()) {
+      // BUG(b/74619992): Array-backed images are streamed instead of being passed to
+      // decodeByteArray at an offset into the bundle's array, which is known to crash in JNI.
+      return BitmapFactory.decodeStream(
+          new ByteArrayInputStream(
+              buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()),
+          null,
+          options);
+    }
+
+    // Buffers that were mapped or read into direct memory have no array, so the image is streamed
+    // from the buffer in place.
+    return BitmapFactory.decodeStream(
+        SceneformBufferUtils.byteBufferToInputStream(buffer.duplicate()), null, options);
+  }
+
+  private static InputStream openMarkable(Callable<InputStream> inputStreamCreator)
+      throws Exception {
+    InputStream inputStream = inputStreamCreator.call();
+    return inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+  }
+
+  private static int divideRoundingUp(int value, int divisor) {
+    return (value + divisor - 1) / divisor;
+  }
+
+  private static void closeQuietly(@Nullable InputStream inputStream) {
+    if (inputStream == null) {
+      return;
+    }
+
+    try {
+      inputStream.close();
+    } catch (IOException e) {
+      // Nothing else to do, the bitmap was already decoded or failed.
+    }
+  }
+}
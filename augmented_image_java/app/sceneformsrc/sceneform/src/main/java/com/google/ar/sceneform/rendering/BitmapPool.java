@@ -0,0 +1,111 @@
+package com.google.ar.sceneform.rendering;
+
+import android.graphics.Bitmap;
+import android.support.annotation.GuardedBy;
+import android.support.annotation.Nullable;
+import java.util.ArrayList;
+
+/**
+ * Mutable bitmaps kept for {@link android.graphics.BitmapFactory.Options#inBitmap}, so that
+ * decoding the textures of a model reuses the pixels of the ones already uploaded to Filament
+ * instead of allocating new ones.
+ */
+class BitmapPool {
+  // Default pool size of 16MB.
+  private static final long DEFAULT_MAX_POOLED_BYTES = 16L << 20;
+
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private final ArrayList<Bitmap> freeBitmaps = new ArrayList<>();
+
+  @GuardedBy("lock")
+  private long maxPooledBytes = DEFAULT_MAX_POOLED_BYTES;
+
+  @GuardedBy("lock")
+  private long pooledBytes;
+
+  @GuardedBy("lock")
+  private long reuseCount;
+
+  /**
+   * Removes and returns the smallest free bitmap whose allocation can hold the given number of
+   * bytes, or null if there is none.
+   */
+  @Nullable
+  Bitmap acquire(long byteCount) {
+    synchronized (lock) {
+      int bestIndex = -1;
+      int bestByteCount = Integer.MAX_VALUE;
+      for (int i = 0; i < freeBitmaps.size(); i++) {
+        int allocationByteCount = freeBitmaps.get(i).getAllocationByteCount();
+        if (allocationByteCount >= byteCount && allocationByteCount < bestByteCount) {
+          bestIndex = i;
+          bestByteCount = allocationByteCount;
+        }
+      }
+
+      if (bestIndex < 0) {
+        return null;
+      }
+
+      // Order doesn't matter, so the last bitmap fills the gap.
+      int lastIndex = freeBitmaps.size() - 1;
+      Bitmap bitmap = freeBitmaps.get(bestIndex);
+      freeBitmaps.set(bestIndex, freeBitmaps.get(lastIndex));
+      freeBitmaps.remove(lastIndex);
+      pooledBytes -= bestByteCount;
+      reuseCount++;
+      return bitmap;
+    }
+  }
+
+  /**
+   * Gives back a bitmap that is no longer used. It is kept for reuse if it is mutable and the pool
+   * isn't full.
+   */
+  void release(Bitmap bitmap) {
+    if (!bitmap.isMutable() || bitmap.isRecycled()) {
+      return;
+    }
+
+    synchronized (lock) {
+      int allocationByteCount = bitmap.getAllocationByteCount();
+      if (pooledBytes + allocationByteCount > maxPooledBytes) {
+        return;
+      }
+      freeBitmaps.add(bitmap);
+      pooledBytes += allocationByteCount;
+    }
+  }
+
+  void setMaxPooledBytes(long maxPooledBytes) {
+    synchronized (lock) {
+      this.maxPooledBytes = maxPooledBytes;
+      if (pooledBytes > maxPooledBytes) {
+        clear();
+      }
+    }
+  }
+
+  /** Drops every free bitmap. */
+  void clear() {
+    synchronized (lock) {
+      freeBitmaps.clear();
+      pooledBytes = 0;
+    }
+  }
+
+  long getPooledBytes() {
+    synchronized (lock) {
+      return pooledBytes;
+    }
+  }
+
+  /** Returns the number of decodes that reused a free bitmap instead of allocating one. */
+  long getReuseCount() {
+    synchronized (lock) {
+      return reuseCount;
+    }
+  }
+}
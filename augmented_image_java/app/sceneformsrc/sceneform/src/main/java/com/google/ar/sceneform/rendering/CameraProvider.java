@@ -15,8 +15,10 @@ public interface CameraProvider extends TransformProvider {
 
   float getFarClipPlane();
 
+  /** Returns the view matrix of the camera, which must not be modified. */
   Matrix getViewMatrix();
 
+  /** Returns the projection matrix of the camera, which must not be modified. */
   Matrix getProjectionMatrix();
 
   void updateTrackedPose(com.google.ar.core.Camera camera);
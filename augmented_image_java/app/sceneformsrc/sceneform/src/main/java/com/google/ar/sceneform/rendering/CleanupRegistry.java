@@ -1,7 +1,9 @@
 package com.google.ar.sceneform.rendering;
 
+import com.google.ar.sceneform.resources.ReclaimBudget;
 import com.google.ar.sceneform.resources.ResourceHolder;
 import java.lang.ref.ReferenceQueue;
+import java.util.ArrayDeque;
 import java.util.HashSet;
 import java.util.Iterator;
 
@@ -14,6 +16,10 @@ public class CleanupRegistry<T> implements ResourceHolder {
   private final java.util.HashSet<CleanupItem<T>> cleanupItemHashSet;
   private final ReferenceQueue<T> referenceQueue;
 
+  // Items polled from the reference queue whose callbacks have not run yet. Polling is cheap, so
+  // the queue is always drained, which makes the backlog known.
+  private final ArrayDeque<CleanupItem<T>> pendingItems = new ArrayDeque<>();
+
   public CleanupRegistry() {
     this(new HashSet<>(), new ReferenceQueue<>());
   }
@@ -41,16 +47,29 @@ public class CleanupRegistry<T> implements ResourceHolder {
    * @return count of resources remaining.
    */
   @Override
-  @SuppressWarnings("unchecked") // safe cast from Reference to a CleanupItem
   public long reclaimReleasedResources() {
-    CleanupItem<T> ref = (CleanupItem<T>) referenceQueue.poll();
-    while (ref != null) {
-      if (cleanupItemHashSet.contains(ref)) {
-        ref.run();
-        cleanupItemHashSet.remove(ref);
+    pollReferenceQueue();
+    while (!pendingItems.isEmpty()) {
+      runCleanup(pendingItems.poll());
+    }
+    return cleanupItemHashSet.size();
+  }
+
+  /**
+   * Polls the {@link ReferenceQueue} for garbage collected objects and runs the associated {@link
+   * Runnable} until the budget is spent. The rest run on later calls.
+   *
+   * @return count of resources remaining.
+   */
+  @Override
+  public long reclaimReleasedResources(ReclaimBudget budget) {
+    pollReferenceQueue();
+    while (!pendingItems.isEmpty() && budget.canReclaim()) {
+      if (runCleanup(pendingItems.poll())) {
+        budget.onReclaimed();
       }
-      ref = (CleanupItem<T>) referenceQueue.poll();
     }
+    budget.addBacklog(pendingItems.size());
     return cleanupItemHashSet.size();
   }
 
@@ -63,5 +82,25 @@ public class CleanupRegistry<T> implements ResourceHolder {
       iterator.remove();
       ref.run();
     }
+    pendingItems.clear();
+  }
+
+  @SuppressWarnings("unchecked") // safe cast from Reference to a CleanupItem
+  private void pollReferenceQueue() {
+    CleanupItem<T> ref = (CleanupItem<T>) referenceQueue.poll();
+    while (ref != null) {
+      pendingItems.add(ref);
+      ref = (CleanupItem<T>) referenceQueue.poll();
+    }
+  }
+
+  private boolean runCleanup(CleanupItem<T> ref) {
+    if (!cleanupItemHashSet.contains(ref)) {
+      return false;
+    }
+
+    ref.run();
+    cleanupItemHashSet.remove(ref);
+    return true;
   }
 }
@@ -1,6 +1,7 @@
 package com.google.ar.sceneform.rendering;
 
 import android.util.Log;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
@@ -11,7 +12,8 @@ class FutureHelper {
 
 
   /**
-   * Outputs a log message if input completes exceptionally.
+   * Outputs a log message if input completes exceptionally, unless the load it belongs to was
+   * cancelled.
    *
    * <p>Does not remove the exception from input. If some later handler is able to do more with the
    * exception it is still possible.
@@ -25,9 +27,21 @@ class FutureHelper {
       final String tag, final CompletableFuture<T> input, final String errorMsg) {
     input.exceptionally(
         throwable -> {
-          Log.e(tag, errorMsg, throwable);
+          if (!isCancellation(throwable)) {
+            Log.e(tag, errorMsg, throwable);
+          }
           throw new CompletionException(throwable);
         });
     return input;
   }
+
+  /** Returns true if the throwable, or one of its causes, is a {@link CancellationException}. */
+  static boolean isCancellation(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      if (cause instanceof CancellationException) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
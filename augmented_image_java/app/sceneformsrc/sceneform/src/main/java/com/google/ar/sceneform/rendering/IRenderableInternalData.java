@@ -9,9 +9,8 @@ import com.google.android.filament.VertexBuffer;
 
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.RenderableInternalData.MeshData;
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 
 
@@ -49,30 +48,16 @@ interface IRenderableInternalData {
   @Nullable
   VertexBuffer getVertexBuffer();
 
-  void setRawIndexBuffer(@Nullable IntBuffer rawIndexBuffer);
+  /** Sets the number of bytes of vertex and index data uploaded to the geometry buffers. */
+  void setGeometrySizeInBytes(long geometrySizeInBytes);
 
-  @Nullable
-  IntBuffer getRawIndexBuffer();
-
-  void setRawPositionBuffer(@Nullable FloatBuffer rawPositionBuffer);
-
-  @Nullable
-  FloatBuffer getRawPositionBuffer();
-
-  void setRawTangentsBuffer(@Nullable FloatBuffer rawTangentsBuffer);
-
-  @Nullable
-  FloatBuffer getRawTangentsBuffer();
-
-  void setRawUvBuffer(@Nullable FloatBuffer rawUvBuffer);
-
-  @Nullable
-  FloatBuffer getRawUvBuffer();
+  long getGeometrySizeInBytes();
 
-  void setRawColorBuffer(@Nullable FloatBuffer rawColorBuffer);
+  /** Sets the vertex attributes the vertex buffer was created with. */
+  void setVertexAttributes(@Nullable EnumSet<VertexBuffer.VertexAttribute> vertexAttributes);
 
   @Nullable
-  FloatBuffer getRawColorBuffer();
+  EnumSet<VertexBuffer.VertexAttribute> getVertexAttributes();
 
   void setAnimationNames(@NonNull List<String> animationNames);
 
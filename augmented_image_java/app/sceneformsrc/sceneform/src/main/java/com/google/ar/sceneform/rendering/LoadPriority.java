@@ -0,0 +1,15 @@
+package com.google.ar.sceneform.rendering;
+
+/**
+ * Order in which the background work of {@link Renderable} and {@link Texture} loads is run. Loads
+ * of a higher priority are started before any queued load of a lower priority, and loads of the
+ * same priority are started in the order they were built.
+ */
+public enum LoadPriority {
+  /** The asset is needed for what is on screen now. This is the default. */
+  VISIBLE,
+  /** The asset is expected to be needed soon, for example the next object the user may place. */
+  PREFETCH,
+  /** The asset is loaded ahead of time and nothing is waiting for it. */
+  BACKGROUND
+}
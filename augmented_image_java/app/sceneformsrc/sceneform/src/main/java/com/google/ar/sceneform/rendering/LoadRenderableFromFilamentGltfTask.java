@@ -5,14 +5,13 @@ import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import com.google.android.filament.gltfio.ResourceLoader;
+import com.google.ar.sceneform.utilities.AssetDiskCache;
 import com.google.ar.sceneform.utilities.Preconditions;
 import com.google.ar.sceneform.utilities.SceneformBufferUtils;
 import java.io.InputStream;
 import java.net.URI;
-import java.nio.ByteBuffer;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 
 /** Task for initializing a renderable with glTF data loaded with gltfio. */
@@ -21,10 +20,17 @@ public class LoadRenderableFromFilamentGltfTask<T extends Renderable> {
   private static final String TAG = LoadRenderableFromFilamentGltfTask.class.getSimpleName();
   private final T renderable;
   private final RenderableInternalFilamentAssetData renderableData;
+  private final LoadRequest loadRequest;
 
   LoadRenderableFromFilamentGltfTask(
-      T renderable, Context context, Uri sourceUri, @Nullable Function<String, Uri> urlResolver) {
+      T renderable,
+      Context context,
+      Uri sourceUri,
+      @Nullable Function<String, Uri> urlResolver,
+      @Nullable AssetDiskCache diskCache,
+      LoadRequest loadRequest) {
     this.renderable = renderable;
+    this.loadRequest = loadRequest;
     IRenderableInternalData data = renderable.getRenderableData();
     if (data instanceof RenderableInternalFilamentAssetData) {
       this.renderableData =
@@ -37,6 +43,7 @@ public class LoadRenderableFromFilamentGltfTask<T extends Renderable> {
     this.renderableData.urlResolver =
         missingPath -> getUriFromMissingResource(sourceUri, missingPath, urlResolver);
     this.renderableData.context = context.getApplicationContext();
+    this.renderableData.diskCache = diskCache;
     this.renderable.getId().update();
   }
 
@@ -46,23 +53,22 @@ public class LoadRenderableFromFilamentGltfTask<T extends Renderable> {
       Callable<InputStream> inputStreamCreator) {
 
     return CompletableFuture.supplyAsync(
-            // Download byte buffer via thread pool
+            // Map or download byte buffer via thread pool. gltfio reads it in place.
             () -> {
-              try {
-                return SceneformBufferUtils.inputStreamCallableToByteArray(inputStreamCreator);
-              } catch (Exception e) {
-                throw new CompletionException(e);
-              }
+              loadRequest.throwIfCancelled();
+              return SceneformBufferUtils.readAsset(inputStreamCreator);
             },
-            ThreadPools.getThreadPoolExecutor())
+            loadRequest.getExecutor())
         .thenApplyAsync(
             gltfByteBuffer -> {
+              loadRequest.throwIfCancelled();
               // Check for glb header
-              this.renderableData.isGltfBinary = gltfByteBuffer[0] == 0x67
-                      && gltfByteBuffer[1] == 0x6C
-                      && gltfByteBuffer[2] == 0x54
-                      && gltfByteBuffer[3] == 0x46;
-              this.renderableData.gltfByteBuffer = ByteBuffer.wrap(gltfByteBuffer);
+              this.renderableData.isGltfBinary = gltfByteBuffer.limit() >= 4
+                      && gltfByteBuffer.get(0) == 0x67
+                      && gltfByteBuffer.get(1) == 0x6C
+                      && gltfByteBuffer.get(2) == 0x54
+                      && gltfByteBuffer.get(3) == 0x46;
+              this.renderableData.gltfByteBuffer = gltfByteBuffer;
               return renderable;
             },
             ThreadPools.getMainExecutor());
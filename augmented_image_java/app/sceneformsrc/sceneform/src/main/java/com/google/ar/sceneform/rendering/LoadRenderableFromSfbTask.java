@@ -9,6 +9,7 @@ import com.google.android.filament.VertexBuffer;
 
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.SceneformBundle.VersionException;
+import com.google.ar.sceneform.utilities.BufferPool;
 import com.google.ar.sceneform.utilities.Preconditions;
 import com.google.ar.sceneform.utilities.SceneformBufferUtils;
 import com.google.ar.schemas.lull.ModelDef;
@@ -39,7 +40,6 @@ import com.google.ar.schemas.sceneform.TransformDef;
 import com.google.ar.schemas.sceneform.Vec2Init;
 import com.google.ar.schemas.sceneform.Vec3Init;
 import com.google.ar.schemas.sceneform.Vec4Init;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -66,6 +66,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
   private final T renderable;
   private final RenderableInternalData renderableData;
   @Nullable private final Uri renderableUri;
+  private final LoadRequest loadRequest;
 
   private ModelDef modelDef;
   private ModelInstanceDef modelInstanceDef;
@@ -79,8 +80,9 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
 
   private int indexCount;
   private IndexBuffer.Builder.IndexType indexType;
-  private ByteBuffer vertexBufferData;
-  private ByteBuffer indexBufferData;
+  // Staging buffers from the BufferPool, until they are handed to Filament.
+  @Nullable private ByteBuffer vertexBufferData;
+  @Nullable private ByteBuffer indexBufferData;
 
   private final ArrayList<ModelTexture> textures = new ArrayList<>();
   private final ArrayList<Material> compiledMaterials = new ArrayList<>();
@@ -92,7 +94,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
   private static final int BYTES_PER_SHORT = 2;
   private static final int BYTES_PER_INT = 4;
 
-  LoadRenderableFromSfbTask(T renderable, @Nullable Uri renderableUri) {
+  LoadRenderableFromSfbTask(T renderable, @Nullable Uri renderableUri, LoadRequest loadRequest) {
     this.renderable = renderable;
     IRenderableInternalData data = renderable.getRenderableData();
     if (data instanceof RenderableInternalData) {
@@ -101,6 +103,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
       throw new IllegalStateException("Expected task type " + TAG);
     }
     this.renderableUri = renderableUri;
+    this.loadRequest = loadRequest;
   }
 
   /**
@@ -114,19 +117,37 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
         CompletableFuture.supplyAsync(
                 // Download byte buffer via thread pool
                 () -> {
-                  ByteBuffer assetData =
-                      SceneformBufferUtils.inputStreamToByteBuffer(inputStreamCreator);
-
-                  // Parse byte buffer via thread pool
-                  SceneformBundleDef sfb = byteBufferToSfb(assetData);
-                  setCollisionShape(sfb);
-                  // Create sub-assets including material parameters, textures and geometry
-                  loadModel(sfb);
-                  return sfb;
+                  loadRequest.throwIfCancelled();
+                  // Mapped or read into a direct buffer, the bundle is parsed in place.
+                  ByteBuffer assetData = SceneformBufferUtils.readAsset(inputStreamCreator);
+                  loadRequest.throwIfCancelled();
+
+                  // Parsing copies the geometry out of the asset, so the number of assets parsed
+                  // at once is limited by their size.
+                  LoaderExecutor loaderExecutor = ThreadPools.getLoaderExecutor();
+                  long decodeBytes = assetData.capacity();
+                  try {
+                    loaderExecutor.acquireDecodeBytes(decodeBytes);
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                  }
+
+                  try {
+                    // Parse byte buffer via thread pool
+                    SceneformBundleDef sfb = byteBufferToSfb(assetData);
+                    setCollisionShape(sfb);
+                    // Create sub-assets including material parameters, textures and geometry
+                    loadModel(sfb);
+                    return sfb;
+                  } finally {
+                    loaderExecutor.releaseDecodeBytes(decodeBytes);
+                  }
                 },
-                ThreadPools.getThreadPoolExecutor())
+                loadRequest.getExecutor())
             .thenComposeAsync(
                 sfb -> {
+                  loadRequest.throwIfCancelled();
                   loadAnimations(sfb);
 
                   // Load textures and wait for them to finish.
@@ -135,6 +156,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
                 ThreadPools.getMainExecutor())
             .thenApplyAsync(
                 sfb -> {
+                  loadRequest.throwIfCancelled();
                   // Fill in the material parameters. could be done on another thread, but kept here
                   // to reduce switching.
                   buildMaterialParameters(sfb);
@@ -142,6 +164,9 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
                 },
                 ThreadPools.getMainExecutor());
 
+    // Gives back the staging buffers of a load that failed or was cancelled before uploading them.
+    result.whenComplete((unusedRenderable, unusedThrowable) -> releaseStagingBuffers());
+
     result.exceptionally(
         // Log Exception if there was one.
         throwable -> {
@@ -177,6 +202,18 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
 
 
 
+
+  private void releaseStagingBuffers() {
+    BufferPool bufferPool = BufferPool.getInstance();
+    if (indexBufferData != null) {
+      bufferPool.release(indexBufferData);
+      indexBufferData = null;
+    }
+    if (vertexBufferData != null) {
+      bufferPool.release(vertexBufferData);
+      vertexBufferData = null;
+    }
+  }
 
   private SceneformBundleDef byteBufferToSfb(ByteBuffer assetData) {
     try {
@@ -232,7 +269,16 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
             .indexCount(indexCount)
             .bufferType(indexType)
             .build(engine.getFilamentEngine());
-    indexBuffer.setBuffer(engine.getFilamentEngine(), indexBufferData);
+    // The staging buffers go back to the pool once Filament has uploaded them.
+    BufferPool bufferPool = BufferPool.getInstance();
+    indexBuffer.setBuffer(
+        engine.getFilamentEngine(),
+        indexBufferData,
+        0,
+        indexBufferData.remaining(),
+        ThreadPools.getMainHandler(),
+        bufferPool.releaseCallback(indexBufferData));
+    indexBufferData = null;
     renderableData.setIndexBuffer(indexBuffer);
 
     VertexBuffer.Builder vertexBufferBuilder =
@@ -260,9 +306,22 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
     }
 
     VertexBuffer vertexBuffer = vertexBufferBuilder.build(engine.getFilamentEngine());
-    vertexBuffer.setBufferAt(engine.getFilamentEngine(), 0, vertexBufferData);
+    vertexBuffer.setBufferAt(
+        engine.getFilamentEngine(),
+        0,
+        vertexBufferData,
+        0,
+        vertexBufferData.remaining(),
+        ThreadPools.getMainHandler(),
+        bufferPool.releaseCallback(vertexBufferData));
+    vertexBufferData = null;
     renderableData.setVertexBuffer(vertexBuffer);
 
+    int bytesPerIndex =
+        indexType == IndexBuffer.Builder.IndexType.UINT ? BYTES_PER_INT : BYTES_PER_SHORT;
+    renderableData.setGeometrySizeInBytes(
+        (long) indexCount * bytesPerIndex + (long) vertexCount * vertexStride);
+
     setupAnimation();
   }
 
@@ -287,17 +346,19 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
       // only load it into graphics memory once.
       int materialId = compiledMaterial.compiledMaterialAsByteBuffer().hashCode();
 
-      // use the registry to get the material or create it if needed
-      ByteBuffer copy;
+      // use the registry to get the material or create it if needed. Filament parses the copy
+      // while the material is built, so it goes back to the pool right after.
+      BufferPool bufferPool = BufferPool.getInstance();
+      ByteBuffer copy =
+          SceneformBufferUtils.copyToPooledBuffer(
+              compiledMaterial.compiledMaterialAsByteBuffer(), bufferPool);
+      CompletableFuture<Material> materialFuture;
       try {
-        copy = SceneformBufferUtils.copyByteBuffer(compiledMaterial.compiledMaterialAsByteBuffer());
-      } catch (IOException e) {
-        throw new CompletionException("Failed to create material", e);
+        materialFuture = Material.builder().setSource(copy).setRegistryId(materialId).build();
+      } finally {
+        bufferPool.release(copy);
       }
 
-      CompletableFuture<Material> materialFuture =
-          Material.builder().setSource(copy).setRegistryId(materialId).build();
-
       @SuppressWarnings("nullness")
       Material material = materialFuture.getNow(null);
 
@@ -368,13 +429,13 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
       // 32 bit indices
       indexCount = modelInstanceDef.indices32Length();
       indexType = IndexBuffer.Builder.IndexType.UINT;
-      indexBufferData = ByteBuffer.allocateDirect(indexCount * BYTES_PER_INT);
+      indexBufferData = BufferPool.getInstance().acquire(indexCount * BYTES_PER_INT);
       indexBufferData.put(modelInstanceDef.indices32AsByteBuffer());
     } else if (modelInstanceDef.indices16Length() > 0) {
       // 16 bit indices
       indexCount = modelInstanceDef.indices16Length();
       indexType = IndexBuffer.Builder.IndexType.USHORT;
-      indexBufferData = ByteBuffer.allocateDirect(indexCount * BYTES_PER_SHORT);
+      indexBufferData = BufferPool.getInstance().acquire(indexCount * BYTES_PER_SHORT);
       indexBufferData.put(modelInstanceDef.indices16AsByteBuffer());
     } else {
       throw new AssertionError(
@@ -382,7 +443,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
     }
     indexBufferData.flip();
 
-    vertexBufferData = ByteBuffer.allocateDirect(vertexData.remaining());
+    vertexBufferData = BufferPool.getInstance().acquire(vertexData.remaining());
     Preconditions.checkNotNull(vertexBufferData, "Failed to allocate geometry for FilamentModel.");
 
     vertexBufferData.put(vertexData);
@@ -420,14 +481,10 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
       Texture.Usage usage = usageValues[rawUsage];
 
       if (samplerDef.dataLength() != 0) {
-        // loading texture from RCB
-        ByteBuffer data = samplerDef.dataAsByteBuffer();
-        // BUG(b/74619992): An extra copy to input stream is made here to avoid a JNI crash
-        ByteArrayInputStream wrappedInputStream =
-            new ByteArrayInputStream(data.array(), data.arrayOffset(), data.capacity());
-        // position the stream to the image buffer
+        // loading texture from RCB. The image is read in place from the bundle, which may be mapped
+        // or read into direct memory. Array-backed bundles are streamed, see BitmapDecoder.
+        ByteBuffer data = samplerDef.dataAsByteBuffer().slice();
         boolean premultiplyAlpha = (usage == Texture.Usage.COLOR);
-        wrappedInputStream.skip(data.position());
         // TODO: The registryId should be populated with a sha1sum
 
         textureFuture =
@@ -435,11 +492,8 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
                 .setUsage(usage)
                 .setSampler(samplerDefToSampler(samplerDef))
                 .setPremultiplied(premultiplyAlpha)
-                .setSource(
-                    () -> {
-                      Preconditions.checkNotNull(wrappedInputStream);
-                      return wrappedInputStream;
-                    })
+                .setLoadRequest(loadRequest)
+                .setSource(data)
                 .build();
       } else {
         throw new IllegalStateException("Unable to load texture, no sampler definition.");
@@ -0,0 +1,88 @@
+package com.google.ar.sceneform.rendering;
+
+import android.support.annotation.Nullable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A load started by a {@link Renderable.Builder} or a {@link Texture.Builder}.
+ *
+ * <p>The background stages of the load run on the {@link LoaderExecutor} at the priority of the
+ * request. Every future returned to a caller for the load is a consumer of the request; once all
+ * of them were cancelled, the request is cancelled too and the remaining stages of the load throw
+ * a {@link CancellationException} instead of running. Work already in progress is not interrupted.
+ */
+@SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"}) // CompletableFuture
+class LoadRequest {
+  // Requests of the loads that are in progress, so that a builder that reuses a load through a
+  // registry can become one of its consumers.
+  private static final ConcurrentHashMap<CompletableFuture<?>, LoadRequest> pendingRequests =
+      new ConcurrentHashMap<>();
+
+  private volatile LoadPriority priority;
+  private volatile boolean isCancelled;
+  private final AtomicInteger consumerCount = new AtomicInteger();
+  private final Executor executor =
+      runnable -> ThreadPools.getLoaderExecutor(priority).execute(runnable);
+
+  LoadRequest(LoadPriority priority) {
+    this.priority = priority;
+  }
+
+  /** Returns the request of a load that is in progress, or null if there is none. */
+  @Nullable
+  static LoadRequest forLoad(CompletableFuture<?> load) {
+    return pendingRequests.get(load);
+  }
+
+  LoadPriority getPriority() {
+    return priority;
+  }
+
+  /**
+   * Raises the priority of the stages of the load that aren't queued yet, when a builder with a
+   * higher priority reuses it.
+   */
+  void raisePriority(LoadPriority priority) {
+    if (priority.compareTo(this.priority) < 0) {
+      this.priority = priority;
+    }
+  }
+
+  /** Returns the {@link Executor} for the background stages of the load. */
+  Executor getExecutor() {
+    return executor;
+  }
+
+  boolean isCancelled() {
+    return isCancelled;
+  }
+
+  /** Called at the start of each stage of the load, to skip the stages of a cancelled load. */
+  void throwIfCancelled() {
+    if (isCancelled) {
+      throw new CancellationException("The load was cancelled.");
+    }
+  }
+
+  /** Makes the request findable by {@link #forLoad(CompletableFuture)} until the load completes. */
+  void track(CompletableFuture<?> load) {
+    pendingRequests.put(load, this);
+    load.whenComplete((result, throwable) -> pendingRequests.remove(load));
+  }
+
+  /** Adds a future returned to a caller, whose cancellation may cancel the request. */
+  void addConsumer(CompletableFuture<?> consumer) {
+    consumerCount.incrementAndGet();
+    consumer.whenComplete(
+        (result, throwable) -> {
+          if (consumerCount.decrementAndGet() == 0 && consumer.isCancelled() && !isCancelled) {
+            isCancelled = true;
+            ThreadPools.getLoaderExecutor().recordCancelled(priority);
+          }
+        });
+  }
+}
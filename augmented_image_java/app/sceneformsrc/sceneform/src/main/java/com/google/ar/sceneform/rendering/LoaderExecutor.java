@@ -0,0 +1,256 @@
+package com.google.ar.sceneform.rendering;
+
+import android.os.Process;
+import android.support.annotation.GuardedBy;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background {@link Executor} for loading assets, which replaces {@code
+ * AsyncTask.THREAD_POOL_EXECUTOR} as the default of {@link ThreadPools#getThreadPoolExecutor()}.
+ *
+ * <p>Queued tasks are started by {@link LoadPriority}, and in the order they were submitted within
+ * a priority. Tasks submitted through {@link #execute(Runnable)} are {@link LoadPriority#VISIBLE}.
+ *
+ * <p>Tasks that decode large assets reserve their estimated size with {@link
+ * #acquireDecodeBytes(long)}, so that the memory used by the decodes running at once stays under
+ * {@link #setMaxDecodeBytes(long) a limit}. A decode larger than the limit runs alone.
+ *
+ * @hide
+ */
+public class LoaderExecutor implements Executor {
+  // Same number of threads as AsyncTask.THREAD_POOL_EXECUTOR.
+  private static final int THREAD_COUNT =
+      Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+  private static final long KEEP_ALIVE_SECONDS = 30;
+  private static final long DEFAULT_MAX_DECODE_BYTES = 64L * 1024 * 1024;
+
+  private final ThreadPoolExecutor threadPool;
+  private final AtomicLong nextSequence = new AtomicLong();
+  private final Executor[] priorityExecutors = new Executor[LoadPriority.values().length];
+  private final PriorityStats[] priorityStats = new PriorityStats[LoadPriority.values().length];
+
+  private final Object decodeLock = new Object();
+
+  @GuardedBy("decodeLock")
+  private long maxDecodeBytes = DEFAULT_MAX_DECODE_BYTES;
+
+  @GuardedBy("decodeLock")
+  private long decodeBytesInFlight;
+
+  @GuardedBy("decodeLock")
+  private long peakDecodeBytesInFlight;
+
+  private final AtomicLong decodeWaitCount = new AtomicLong();
+
+  public LoaderExecutor() {
+    ThreadFactory threadFactory =
+        new ThreadFactory() {
+          private final AtomicInteger threadCount = new AtomicInteger();
+
+          @Override
+          public Thread newThread(Runnable runnable) {
+            return new Thread(
+                () -> {
+                  Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                  runnable.run();
+                },
+                "Sceneform Loader #" + threadCount.incrementAndGet());
+          }
+        };
+
+    threadPool =
+        new ThreadPoolExecutor(
+            THREAD_COUNT,
+            THREAD_COUNT,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(),
+            threadFactory);
+    threadPool.allowCoreThreadTimeOut(true);
+
+    for (LoadPriority priority : LoadPriority.values()) {
+      priorityExecutors[priority.ordinal()] = runnable -> execute(runnable, priority);
+      priorityStats[priority.ordinal()] = new PriorityStats();
+    }
+  }
+
+  @Override
+  public void execute(Runnable runnable) {
+    execute(runnable, LoadPriority.VISIBLE);
+  }
+
+  /** Queues a task to run on a loader thread, after the queued tasks of a higher priority. */
+  public void execute(Runnable runnable, LoadPriority priority) {
+    Preconditions.checkNotNull(runnable, "Parameter \"runnable\" was null.");
+    Preconditions.checkNotNull(priority, "Parameter \"priority\" was null.");
+
+    priorityStats[priority.ordinal()].queuedCount.incrementAndGet();
+    threadPool.execute(new Task(runnable, priority, nextSequence.getAndIncrement()));
+  }
+
+  /** Returns an {@link Executor} that queues its tasks with the given priority. */
+  public Executor getExecutor(LoadPriority priority) {
+    return priorityExecutors[priority.ordinal()];
+  }
+
+  /**
+   * Waits until the given number of bytes can be decoded without going over the limit, then
+   * reserves them. Every call must be followed by a call to {@link #releaseDecodeBytes(long)} with
+   * the same number of bytes.
+   */
+  public void acquireDecodeBytes(long bytes) throws InterruptedException {
+    synchronized (decodeLock) {
+      if (decodeBytesInFlight > 0 && decodeBytesInFlight + bytes > maxDecodeBytes) {
+        decodeWaitCount.incrementAndGet();
+        do {
+          decodeLock.wait();
+        } while (decodeBytesInFlight > 0 && decodeBytesInFlight + bytes > maxDecodeBytes);
+      }
+
+      decodeBytesInFlight += bytes;
+      peakDecodeBytesInFlight = Math.max(peakDecodeBytesInFlight, decodeBytesInFlight);
+    }
+  }
+
+  /** Releases bytes reserved by {@link #acquireDecodeBytes(long)}. */
+  public void releaseDecodeBytes(long bytes) {
+    synchronized (decodeLock) {
+      decodeBytesInFlight -= bytes;
+      decodeLock.notifyAll();
+    }
+  }
+
+  /** Sets the estimated number of bytes that may be decoded at once. The default is 64 MB. */
+  public void setMaxDecodeBytes(long maxDecodeBytes) {
+    if (maxDecodeBytes <= 0) {
+      throw new IllegalArgumentException("Parameter \"maxDecodeBytes\" must be positive.");
+    }
+
+    synchronized (decodeLock) {
+      this.maxDecodeBytes = maxDecodeBytes;
+      decodeLock.notifyAll();
+    }
+  }
+
+  public long getMaxDecodeBytes() {
+    synchronized (decodeLock) {
+      return maxDecodeBytes;
+    }
+  }
+
+  /** Returns the estimated number of bytes being decoded. */
+  public long getDecodeBytesInFlight() {
+    synchronized (decodeLock) {
+      return decodeBytesInFlight;
+    }
+  }
+
+  /** Returns the largest estimated number of bytes that were decoded at once. */
+  public long getPeakDecodeBytesInFlight() {
+    synchronized (decodeLock) {
+      return peakDecodeBytesInFlight;
+    }
+  }
+
+  /** Returns the number of decodes that had to wait for others to finish. */
+  public long getDecodeWaitCount() {
+    return decodeWaitCount.get();
+  }
+
+  /** Returns the number of tasks of the given priority waiting for a thread. */
+  public int getQueuedCount(LoadPriority priority) {
+    return priorityStats[priority.ordinal()].queuedCount.get();
+  }
+
+  /** Returns the number of tasks of the given priority that were started. */
+  public long getStartedCount(LoadPriority priority) {
+    return priorityStats[priority.ordinal()].startedCount.get();
+  }
+
+  /** Returns the number of loads of the given priority that were cancelled before completing. */
+  public long getCancelledCount(LoadPriority priority) {
+    return priorityStats[priority.ordinal()].cancelledCount.get();
+  }
+
+  /** Returns the average time tasks of the given priority waited in the queue, in nanoseconds. */
+  public long getAverageWaitNanos(LoadPriority priority) {
+    PriorityStats stats = priorityStats[priority.ordinal()];
+    return average(stats.totalWaitNanos.get(), stats.startedCount.get());
+  }
+
+  /** Returns the longest time a task of the given priority waited in the queue, in nanoseconds. */
+  public long getMaxWaitNanos(LoadPriority priority) {
+    return priorityStats[priority.ordinal()].maxWaitNanos.get();
+  }
+
+  /** Returns the average time tasks of the given priority took to run, in nanoseconds. */
+  public long getAverageRunNanos(LoadPriority priority) {
+    PriorityStats stats = priorityStats[priority.ordinal()];
+    return average(stats.totalRunNanos.get(), stats.completedCount.get());
+  }
+
+  void recordCancelled(LoadPriority priority) {
+    priorityStats[priority.ordinal()].cancelledCount.incrementAndGet();
+  }
+
+  private static long average(long total, long count) {
+    return count == 0 ? 0 : total / count;
+  }
+
+  private static class PriorityStats {
+    final AtomicInteger queuedCount = new AtomicInteger();
+    final AtomicLong startedCount = new AtomicLong();
+    final AtomicLong completedCount = new AtomicLong();
+    final AtomicLong cancelledCount = new AtomicLong();
+    final AtomicLong totalWaitNanos = new AtomicLong();
+    final AtomicLong maxWaitNanos = new AtomicLong();
+    final AtomicLong totalRunNanos = new AtomicLong();
+  }
+
+  /** A queued task, ordered by priority and then by submission. */
+  private class Task implements Runnable, Comparable<Task> {
+    private final Runnable runnable;
+    private final LoadPriority priority;
+    private final long sequence;
+    private final long queuedNanos = System.nanoTime();
+
+    Task(Runnable runnable, LoadPriority priority, long sequence) {
+      this.runnable = runnable;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public void run() {
+      PriorityStats stats = priorityStats[priority.ordinal()];
+      long startNanos = System.nanoTime();
+      long waitNanos = startNanos - queuedNanos;
+      stats.queuedCount.decrementAndGet();
+      stats.startedCount.incrementAndGet();
+      stats.totalWaitNanos.addAndGet(waitNanos);
+      stats.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+      try {
+        runnable.run();
+      } finally {
+        stats.totalRunNanos.addAndGet(System.nanoTime() - startNanos);
+        stats.completedCount.incrementAndGet();
+      }
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      if (priority != other.priority) {
+        return priority.compareTo(other.priority);
+      }
+      return Long.compare(sequence, other.sequence);
+    }
+  }
+}
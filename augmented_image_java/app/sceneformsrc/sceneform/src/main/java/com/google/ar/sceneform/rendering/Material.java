@@ -11,23 +11,38 @@ import com.google.android.filament.MaterialInstance;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.resources.ResourceRegistry;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import com.google.ar.sceneform.utilities.BufferPool;
 import com.google.ar.sceneform.utilities.LoadHelper;
 import com.google.ar.sceneform.utilities.Preconditions;
 import com.google.ar.sceneform.utilities.SceneformBufferUtils;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
-/** Represents a reference to a material. */
+/**
+ * Represents a reference to a material.
+ *
+ * <p>Parameters set on a material are applied to Filament by the renderer before its next frame,
+ * once per material however many times they were set. Parameters set while no renderer is drawing
+ * are not applied until a frame runs, and the material stays referenced until then.
+ */
 @RequiresApi(api = Build.VERSION_CODES.N)
 public class Material {
   private static final String TAG = Material.class.getSimpleName();
 
+  // Materials whose parameters changed since the last frame, in the order they first changed.
+  private static final ArrayList<Material> dirtyMaterials = new ArrayList<>();
+  private static long parameterWriteCount;
+  private static long parameterFlushCount;
+  private static long materialFlushCount;
+
   private final MaterialParameters materialParameters = new MaterialParameters();
   @Nullable private final MaterialInternalData materialData;
   private final IMaterialInstance internalMaterialInstance;
+  private boolean isQueuedForFlush;
 
   /**
    * Creates a new instance of this Material.
@@ -47,9 +62,7 @@ public class Material {
 
   public void setBoolean(String name, boolean x) {
     materialParameters.setBoolean(name, x);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -59,9 +72,7 @@ public class Material {
 
   public void setBoolean2(String name, boolean x, boolean y) {
     materialParameters.setBoolean2(name, x, y);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -72,9 +83,7 @@ public class Material {
 
   public void setBoolean3(String name, boolean x, boolean y, boolean z) {
     materialParameters.setBoolean3(name, x, y, z);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -85,9 +94,7 @@ public class Material {
 
   public void setBoolean4(String name, boolean x, boolean y, boolean z, boolean w) {
     materialParameters.setBoolean4(name, x, y, z, w);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -98,9 +105,7 @@ public class Material {
 
   public void setFloat(String name, float x) {
     materialParameters.setFloat(name, x);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -110,9 +115,7 @@ public class Material {
 
   public void setFloat2(String name, float x, float y) {
     materialParameters.setFloat2(name, x, y);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -123,23 +126,17 @@ public class Material {
 
   public void setFloat3(String name, float x, float y, float z) {
     materialParameters.setFloat3(name, x, y, z);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   public void setFloat3(String name, Vector3 value) {
     materialParameters.setFloat3(name, value);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   public void setFloat3(String name, Color color) {
     materialParameters.setFloat3(name, color.r, color.g, color.b);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -150,16 +147,12 @@ public class Material {
 
   public void setFloat4(String name, float x, float y, float z, float w) {
     materialParameters.setFloat4(name, x, y, z, w);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   public void setFloat4(String name, Color color) {
     materialParameters.setFloat4(name, color.r, color.g, color.b, color.a);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -170,9 +163,7 @@ public class Material {
 
   public void setInt(String name, int x) {
     materialParameters.setInt(name, x);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -182,9 +173,7 @@ public class Material {
 
   public void setInt2(String name, int x, int y) {
     materialParameters.setInt2(name, x, y);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -195,9 +184,7 @@ public class Material {
 
   public void setInt3(String name, int x, int y, int z) {
     materialParameters.setInt3(name, x, y, z);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -208,9 +195,7 @@ public class Material {
 
   public void setInt4(String name, int x, int y, int z, int w) {
     materialParameters.setInt4(name, x, y, z, w);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -221,9 +206,7 @@ public class Material {
 
   public void setTexture(String name, Texture texture) {
     materialParameters.setTexture(name, texture);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   
@@ -240,9 +223,7 @@ public class Material {
    */
   public void setExternalTexture(String name, ExternalTexture externalTexture) {
     materialParameters.setExternalTexture(name, externalTexture);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    markParametersDirty();
   }
 
   @Nullable
@@ -250,6 +231,143 @@ public class Material {
     return materialParameters.getExternalTexture(name);
   }
 
+  /**
+   * Returns a handle to the parameter with the given name, to pass to the setters that take one
+   * instead of a name. Resolving the handle once avoids looking up the name each time the parameter
+   * is set, such as every frame. A handle is valid for every material. As with the setters taking
+   * a name, the value is applied by the renderer before its next frame.
+   *
+   * @param name the name of the parameter in the material
+   */
+  public static int getParameterHandle(String name) {
+    Preconditions.checkNotNull(name, "Parameter \"name\" was null.");
+    return MaterialParameters.getHandle(name);
+  }
+
+  /** Sets a parameter of type 'float' from a handle returned by {@link #getParameterHandle}. */
+  public void setFloat(int handle, float x) {
+    materialParameters.setFloat(handle, x);
+    markParametersDirty();
+  }
+
+  /** Sets a parameter of type 'float2' from a handle returned by {@link #getParameterHandle}. */
+  public void setFloat2(int handle, float x, float y) {
+    materialParameters.setFloat2(handle, x, y);
+    markParametersDirty();
+  }
+
+  /** Sets a parameter of type 'float3' from a handle returned by {@link #getParameterHandle}. */
+  public void setFloat3(int handle, float x, float y, float z) {
+    materialParameters.setFloat3(handle, x, y, z);
+    markParametersDirty();
+  }
+
+  public void setFloat3(int handle, Vector3 value) {
+    materialParameters.setFloat3(handle, value.x, value.y, value.z);
+    markParametersDirty();
+  }
+
+  public void setFloat3(int handle, Color color) {
+    materialParameters.setFloat3(handle, color.r, color.g, color.b);
+    markParametersDirty();
+  }
+
+  /** Sets a parameter of type 'float4' from a handle returned by {@link #getParameterHandle}. */
+  public void setFloat4(int handle, float x, float y, float z, float w) {
+    materialParameters.setFloat4(handle, x, y, z, w);
+    markParametersDirty();
+  }
+
+  public void setFloat4(int handle, Color color) {
+    materialParameters.setFloat4(handle, color.r, color.g, color.b, color.a);
+    markParametersDirty();
+  }
+
+  /** Sets a parameter of type 'int' from a handle returned by {@link #getParameterHandle}. */
+  public void setInt(int handle, int x) {
+    materialParameters.setInt(handle, x);
+    markParametersDirty();
+  }
+
+  /** Sets a parameter of type 'sampler2d' from a handle returned by {@link #getParameterHandle}. */
+  public void setTexture(int handle, Texture texture) {
+    materialParameters.setTexture(handle, texture);
+    markParametersDirty();
+  }
+
+  /**
+   * Applies the parameters changed since the last frame to the Filament material instances, once
+   * per material however many times they were set. Called by the renderer before each frame.
+   */
+  static void flushDirtyMaterials() {
+    for (int i = 0; i < dirtyMaterials.size(); i++) {
+      Material material = dirtyMaterials.get(i);
+      material.isQueuedForFlush = false;
+      material.flushParameters();
+    }
+    dirtyMaterials.clear();
+  }
+
+  /**
+   * Drops the parameter changes waiting to be applied, once the Filament resources they would be
+   * applied to were destroyed. Releases the materials held until the next frame.
+   */
+  static void clearDirtyMaterials() {
+    for (int i = 0; i < dirtyMaterials.size(); i++) {
+      Material material = dirtyMaterials.get(i);
+      material.isQueuedForFlush = false;
+      material.materialParameters.clearDirty();
+    }
+    dirtyMaterials.clear();
+  }
+
+  /**
+   * Returns the number of material parameters set since the process started.
+   *
+   * @hide
+   */
+  public static long getParameterWriteCount() {
+    return parameterWriteCount;
+  }
+
+  /**
+   * Returns the number of material parameters applied to Filament since the process started. Each
+   * is applied once per frame at most, however many times it was set.
+   *
+   * @hide
+   */
+  public static long getParameterFlushCount() {
+    return parameterFlushCount;
+  }
+
+  /**
+   * Returns the number of times the changed parameters of a material were applied to Filament.
+   *
+   * @hide
+   */
+  public static long getMaterialFlushCount() {
+    return materialFlushCount;
+  }
+
+  private void markParametersDirty() {
+    parameterWriteCount++;
+    if (!isQueuedForFlush) {
+      isQueuedForFlush = true;
+      dirtyMaterials.add(this);
+    }
+  }
+
+  private void flushParameters() {
+    if (!internalMaterialInstance.isValidInstance()) {
+      // glTF instances get every parameter applied once they are set.
+      materialParameters.clearDirty();
+      return;
+    }
+
+    parameterFlushCount += materialParameters.applyDirtyTo(internalMaterialInstance.getInstance());
+    materialFlushCount++;
+  }
+
   /**
    * Constructs a {@link Material}
    *
@@ -510,27 +628,26 @@ public class Material {
       CompletableFuture<Material> result =
           CompletableFuture.supplyAsync(
                   () -> {
-                    @Nullable ByteBuffer byteBuffer;
-                    // Open and read the material file.
+                    // Open and read the material file into a pooled buffer, which is released
+                    // once Filament has parsed it.
                     try (InputStream inputStream = inputStreamCallable.call()) {
-                      byteBuffer = SceneformBufferUtils.readStream(inputStream);
+                      return SceneformBufferUtils.readStreamToPooledBuffer(
+                          inputStream, BufferPool.getInstance());
                     } catch (Exception e) {
                       throw new CompletionException(e);
                     }
-
-                    if (byteBuffer == null) {
-                      throw new IllegalStateException("Unable to read data from input stream.");
-                    }
-
-                    return byteBuffer;
                   },
                   ThreadPools.getThreadPoolExecutor())
               .thenApplyAsync(
                   byteBuffer -> {
-                    MaterialInternalDataImpl materialData =
-                        new MaterialInternalDataImpl(createFilamentMaterial(byteBuffer));
-                    Material material = new Material(materialData);
-                    return material;
+                    try {
+                      MaterialInternalDataImpl materialData =
+                          new MaterialInternalDataImpl(createFilamentMaterial(byteBuffer));
+                      Material material = new Material(materialData);
+                      return material;
+                    } finally {
+                      BufferPool.getInstance().release(byteBuffer);
+                    }
                   },
                   ThreadPools.getMainExecutor());
 
@@ -6,12 +6,49 @@ import com.google.android.filament.TextureSampler;
 
 import com.google.ar.core.annotations.UsedByNative;
 import com.google.ar.sceneform.math.Vector3;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
-/** Material property store. */
+/**
+ * Material property store.
+ *
+ * <p>Parameters can also be set by a handle resolved once from their name with {@link
+ * #getHandle(String)}, which updates the stored value in place instead of looking up the name and
+ * allocating a new parameter. Changed parameters are marked dirty, so that only those are applied
+ * to the Filament material instance by {@link #applyDirtyTo(MaterialInstance)}.
+ */
 @UsedByNative("material_java_wrappers.h")
 final class MaterialParameters {
+  // Handles are shared by all materials, so that a handle resolved once is valid for any of them.
+  private static final HashMap<String, Integer> handlesByName = new HashMap<>();
+  private static final ArrayList<String> handleNames = new ArrayList<>();
+
   private final HashMap<String, MaterialParameters.Parameter> namedParameters = new HashMap<>();
+  private MaterialParameters.Parameter[] handleParameters = new MaterialParameters.Parameter[0];
+  private final ArrayList<MaterialParameters.Parameter> dirtyParameters = new ArrayList<>();
+
+  /** Returns the handle of a parameter name, which stays the same for the life of the process. */
+  static int getHandle(String name) {
+    synchronized (handlesByName) {
+      Integer handle = handlesByName.get(name);
+      if (handle == null) {
+        handle = handleNames.size();
+        handlesByName.put(name, handle);
+        handleNames.add(name);
+      }
+      return handle;
+    }
+  }
+
+  private static String getHandleName(int handle) {
+    synchronized (handlesByName) {
+      if (handle < 0 || handle >= handleNames.size()) {
+        throw new IllegalArgumentException("Invalid material parameter handle " + handle + ".");
+      }
+      return handleNames.get(handle);
+    }
+  }
 
   
 
@@ -20,7 +57,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setBoolean(String name, boolean x) {
-    namedParameters.put(name, new MaterialParameters.BooleanParameter(name, x));
+    put(new MaterialParameters.BooleanParameter(name, x));
   }
 
   boolean getBoolean(String name) {
@@ -35,7 +72,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setBoolean2(String name, boolean x, boolean y) {
-    namedParameters.put(name, new MaterialParameters.Boolean2Parameter(name, x, y));
+    put(new MaterialParameters.Boolean2Parameter(name, x, y));
   }
 
   @Nullable
@@ -51,7 +88,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setBoolean3(String name, boolean x, boolean y, boolean z) {
-    namedParameters.put(name, new MaterialParameters.Boolean3Parameter(name, x, y, z));
+    put(new MaterialParameters.Boolean3Parameter(name, x, y, z));
   }
 
   @Nullable
@@ -67,7 +104,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setBoolean4(String name, boolean x, boolean y, boolean z, boolean w) {
-    namedParameters.put(name, new MaterialParameters.Boolean4Parameter(name, x, y, z, w));
+    put(new MaterialParameters.Boolean4Parameter(name, x, y, z, w));
   }
 
   @Nullable
@@ -83,7 +120,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setFloat(String name, float x) {
-    namedParameters.put(name, new MaterialParameters.FloatParameter(name, x));
+    put(new MaterialParameters.FloatParameter(name, x));
   }
 
   float getFloat(String name) {
@@ -98,7 +135,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setFloat2(String name, float x, float y) {
-    namedParameters.put(name, new MaterialParameters.Float2Parameter(name, x, y));
+    put(new MaterialParameters.Float2Parameter(name, x, y));
   }
 
   @Nullable
@@ -114,12 +151,11 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setFloat3(String name, float x, float y, float z) {
-    namedParameters.put(name, new MaterialParameters.Float3Parameter(name, x, y, z));
+    put(new MaterialParameters.Float3Parameter(name, x, y, z));
   }
 
   void setFloat3(String name, Vector3 value) {
-    namedParameters.put(
-        name, new MaterialParameters.Float3Parameter(name, value.x, value.y, value.z));
+    put(new MaterialParameters.Float3Parameter(name, value.x, value.y, value.z));
   }
 
   @Nullable
@@ -135,7 +171,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setFloat4(String name, float x, float y, float z, float w) {
-    namedParameters.put(name, new MaterialParameters.Float4Parameter(name, x, y, z, w));
+    put(new MaterialParameters.Float4Parameter(name, x, y, z, w));
   }
 
   @Nullable
@@ -151,7 +187,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setInt(String name, int x) {
-    namedParameters.put(name, new MaterialParameters.IntParameter(name, x));
+    put(new MaterialParameters.IntParameter(name, x));
   }
 
   int getInt(String name) {
@@ -166,7 +202,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setInt2(String name, int x, int y) {
-    namedParameters.put(name, new MaterialParameters.Int2Parameter(name, x, y));
+    put(new MaterialParameters.Int2Parameter(name, x, y));
   }
 
   @Nullable
@@ -182,7 +218,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setInt3(String name, int x, int y, int z) {
-    namedParameters.put(name, new MaterialParameters.Int3Parameter(name, x, y, z));
+    put(new MaterialParameters.Int3Parameter(name, x, y, z));
   }
 
   @Nullable
@@ -198,7 +234,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setInt4(String name, int x, int y, int z, int w) {
-    namedParameters.put(name, new MaterialParameters.Int4Parameter(name, x, y, z, w));
+    put(new MaterialParameters.Int4Parameter(name, x, y, z, w));
   }
 
   @Nullable
@@ -214,7 +250,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setTexture(String name, Texture texture) {
-    namedParameters.put(name, new MaterialParameters.TextureParameter(name, texture));
+    put(new MaterialParameters.TextureParameter(name, texture));
   }
 
   @Nullable
@@ -228,8 +264,7 @@ final class MaterialParameters {
   }
 
   void setExternalTexture(String name, ExternalTexture externalTexture) {
-    namedParameters.put(
-        name, new MaterialParameters.ExternalTextureParameter(name, externalTexture));
+    put(new MaterialParameters.ExternalTextureParameter(name, externalTexture));
   }
 
   @Nullable
@@ -242,6 +277,77 @@ final class MaterialParameters {
     return null;
   }
 
+  void setFloat(int handle, float x) {
+    Parameter param = getParameter(handle);
+    if (param instanceof FloatParameter) {
+      FloatParameter floatParam = (FloatParameter) param;
+      floatParam.x = x;
+      markDirty(floatParam);
+    } else {
+      put(new MaterialParameters.FloatParameter(getHandleName(handle), x));
+    }
+  }
+
+  void setFloat2(int handle, float x, float y) {
+    Parameter param = getParameter(handle);
+    if (param instanceof Float2Parameter) {
+      Float2Parameter float2 = (Float2Parameter) param;
+      float2.x = x;
+      float2.y = y;
+      markDirty(float2);
+    } else {
+      put(new MaterialParameters.Float2Parameter(getHandleName(handle), x, y));
+    }
+  }
+
+  void setFloat3(int handle, float x, float y, float z) {
+    Parameter param = getParameter(handle);
+    if (param instanceof Float3Parameter) {
+      Float3Parameter float3 = (Float3Parameter) param;
+      float3.x = x;
+      float3.y = y;
+      float3.z = z;
+      markDirty(float3);
+    } else {
+      put(new MaterialParameters.Float3Parameter(getHandleName(handle), x, y, z));
+    }
+  }
+
+  void setFloat4(int handle, float x, float y, float z, float w) {
+    Parameter param = getParameter(handle);
+    if (param instanceof Float4Parameter) {
+      Float4Parameter float4 = (Float4Parameter) param;
+      float4.x = x;
+      float4.y = y;
+      float4.z = z;
+      float4.w = w;
+      markDirty(float4);
+    } else {
+      put(new MaterialParameters.Float4Parameter(getHandleName(handle), x, y, z, w));
+    }
+  }
+
+  void setInt(int handle, int x) {
+    Parameter param = getParameter(handle);
+    if (param instanceof IntParameter) {
+      IntParameter intParam = (IntParameter) param;
+      intParam.x = x;
+      markDirty(intParam);
+    } else {
+      put(new MaterialParameters.IntParameter(getHandleName(handle), x));
+    }
+  }
+
+  void setTexture(int handle, Texture texture) {
+    Parameter param = getParameter(handle);
+    if (param instanceof TextureParameter && ((TextureParameter) param).texture == texture) {
+      markDirty(param);
+    } else {
+      put(new MaterialParameters.TextureParameter(getHandleName(handle), texture));
+    }
+  }
+
+  /** Applies every parameter to the material instance, and clears the dirty parameters. */
   void applyTo(MaterialInstance materialInstance) {
     com.google.android.filament.Material material = materialInstance.getMaterial();
 
@@ -250,31 +356,96 @@ final class MaterialParameters {
         value.applyTo(materialInstance);
       }
     }
+    clearDirty();
+  }
+
+  /**
+   * Applies the parameters changed since the last call to the material instance.
+   *
+   * @return the number of parameters applied
+   */
+  int applyDirtyTo(MaterialInstance materialInstance) {
+    if (dirtyParameters.isEmpty()) {
+      return 0;
+    }
+
+    com.google.android.filament.Material material = materialInstance.getMaterial();
+    int appliedCount = 0;
+    for (int i = 0; i < dirtyParameters.size(); i++) {
+      MaterialParameters.Parameter value = dirtyParameters.get(i);
+      value.dirty = false;
+      // Parameters replaced by one of another type since they were marked are skipped.
+      if (handleParameters[value.handle] == value && material.hasParameter(value.name)) {
+        value.applyTo(materialInstance);
+        appliedCount++;
+      }
+    }
+    dirtyParameters.clear();
+    return appliedCount;
+  }
+
+  /** Forgets the changed parameters, for when they won't be applied to a material instance. */
+  void clearDirty() {
+    for (int i = 0; i < dirtyParameters.size(); i++) {
+      dirtyParameters.get(i).dirty = false;
+    }
+    dirtyParameters.clear();
+  }
+
+  boolean isDirty() {
+    return !dirtyParameters.isEmpty();
   }
 
   void copyFrom(MaterialParameters other) {
     namedParameters.clear();
+    handleParameters = new MaterialParameters.Parameter[0];
+    clearDirty();
     merge(other);
   }
 
   void merge(MaterialParameters other) {
     for (MaterialParameters.Parameter value : other.namedParameters.values()) {
-      MaterialParameters.Parameter clonedValue = value.clone();
-      namedParameters.put(clonedValue.name, clonedValue);
+      put(value.clone());
     }
   }
 
   void mergeIfAbsent(MaterialParameters other) {
     for (MaterialParameters.Parameter value : other.namedParameters.values()) {
       if (!namedParameters.containsKey(value.name)) {
-        MaterialParameters.Parameter clonedValue = value.clone();
-        namedParameters.put(clonedValue.name, clonedValue);
+        put(value.clone());
       }
     }
   }
 
+  /** Stores a parameter under its name and handle, replacing the previous one, and marks it. */
+  private void put(MaterialParameters.Parameter param) {
+    param.handle = getHandle(param.name);
+    param.dirty = false;
+    namedParameters.put(param.name, param);
+    if (param.handle >= handleParameters.length) {
+      handleParameters =
+          Arrays.copyOf(handleParameters, Math.max(param.handle + 1, handleParameters.length * 2));
+    }
+    handleParameters[param.handle] = param;
+    markDirty(param);
+  }
+
+  @Nullable
+  private MaterialParameters.Parameter getParameter(int handle) {
+    return handle >= 0 && handle < handleParameters.length ? handleParameters[handle] : null;
+  }
+
+  private void markDirty(MaterialParameters.Parameter param) {
+    if (!param.dirty) {
+      param.dirty = true;
+      dirtyParameters.add(param);
+    }
+  }
+
   abstract static class Parameter implements Cloneable {
     String name;
+    int handle;
+    boolean dirty;
 
     abstract void applyTo(MaterialInstance materialInstance);
 
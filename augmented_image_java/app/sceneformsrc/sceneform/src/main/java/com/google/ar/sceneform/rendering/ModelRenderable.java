@@ -38,6 +38,13 @@ public class ModelRenderable extends Renderable {
     copyAnimationFrom(other);
   }
 
+  @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
+  private ModelRenderable(ModelRenderable other, Material material) {
+    super(other, material);
+
+    copyAnimationFrom(other);
+  }
+
   
 
 
@@ -102,6 +109,14 @@ public class ModelRenderable extends Renderable {
     return new ModelRenderable(this);
   }
 
+  /**
+   * Creates a new instance of this ModelRenderable that shares its geometry, with the given
+   * material bound to every submesh instead of instances of its own materials.
+   */
+  ModelRenderable makeCopyWithMaterial(Material material) {
+    return new ModelRenderable(this, material);
+  }
+
   /** Constructs a {@link ModelRenderable}. */
   public static Builder builder() {
     AndroidPreconditions.checkMinAndroidApiLevel();
@@ -44,6 +44,12 @@ public class PlaneRenderer {
   /** Float3 material parameter to control the grid visualization point. */
   private static final String MATERIAL_SPOTLIGHT_FOCUS_POINT = "focusPoint";
 
+  // Handles of the parameters set every frame.
+  private static final int SPOTLIGHT_FOCUS_POINT_HANDLE =
+      Material.getParameterHandle(MATERIAL_SPOTLIGHT_FOCUS_POINT);
+  private static final int SPOTLIGHT_RADIUS_HANDLE =
+      Material.getParameterHandle(MATERIAL_SPOTLIGHT_RADIUS);
+
   /** Used to control the UV Scale for the default texture. */
   private static final float BASE_UV_SCALE = 8.0f;
 
@@ -176,8 +182,8 @@ public class PlaneRenderer {
     @Nullable
     Material planeMaterial = planeMaterialFuture.getNow(null);
     if (planeMaterial != null) {
-      planeMaterial.setFloat3(MATERIAL_SPOTLIGHT_FOCUS_POINT, focusPoint);
-      planeMaterial.setFloat(MATERIAL_SPOTLIGHT_RADIUS, SPOTLIGHT_RADIUS);
+      planeMaterial.setFloat3(SPOTLIGHT_FOCUS_POINT_HANDLE, focusPoint);
+      planeMaterial.setFloat(SPOTLIGHT_RADIUS_HANDLE, SPOTLIGHT_RADIUS);
     }
 
     for (Plane plane : updatedPlanes) {
@@ -7,8 +7,10 @@ import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.Matrix;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
+import com.google.ar.sceneform.utilities.ChangeId;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
@@ -20,6 +22,8 @@ class PlaneVisualizer implements TransformProvider {
   private final Renderer renderer;
 
   private final Matrix planeMatrix = new Matrix();
+  private final float[] newPlaneMatrixData = new float[16];
+  private final ChangeId planeMatrixId = new ChangeId();
 
   private boolean isPlaneAddedToScene = false;
   private boolean isEnabled = false;
@@ -106,6 +110,11 @@ class PlaneVisualizer implements TransformProvider {
     return planeMatrix;
   }
 
+  @Override
+  public ChangeId getWorldModelMatrixId() {
+    return planeMatrixId;
+  }
+
   void updatePlane() {
     if (!isEnabled || (!isVisible && !isShadowReceiver)) {
       removePlaneFromScene();
@@ -117,8 +126,13 @@ class PlaneVisualizer implements TransformProvider {
       return;
     }
 
-    // Set the transformation matrix to the pose of the plane.
-    plane.getCenterPose().toMatrix(planeMatrix.data, 0);
+    // Set the transformation matrix to the pose of the plane. Planes that haven't moved keep their
+    // id, so that the renderer doesn't push their transform again.
+    plane.getCenterPose().toMatrix(newPlaneMatrixData, 0);
+    if (!Arrays.equals(newPlaneMatrixData, planeMatrix.data)) {
+      planeMatrix.set(newPlaneMatrixData);
+      planeMatrixId.update();
+    }
 
     // Calculate the mesh for the plane.
     boolean success = updateRenderableDefinitionForPlane();
@@ -13,6 +13,7 @@ import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.Matrix;
 import com.google.ar.sceneform.resources.ResourceRegistry;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import com.google.ar.sceneform.utilities.AssetDiskCache;
 import com.google.ar.sceneform.utilities.ChangeId;
 import com.google.ar.sceneform.utilities.LoadHelper;
 import com.google.ar.sceneform.utilities.Preconditions;
@@ -69,6 +70,15 @@ public abstract class Renderable {
 
   @SuppressWarnings("initialization")
   protected Renderable(Renderable other) {
+    this(other, null);
+  }
+
+  /**
+   * Shares the geometry of another renderable. If a material is given, it is bound to every
+   * submesh instead of copies of the materials of the other renderable.
+   */
+  @SuppressWarnings("initialization")
+  Renderable(Renderable other, @Nullable Material material) {
     if (other.getId().isEmpty()) {
       throw new AssertionError("Cannot copy uninitialized Renderable.");
     }
@@ -80,7 +90,7 @@ public abstract class Renderable {
     Preconditions.checkState(other.materialNames.size() == other.materialBindings.size());
     for (int i = 0; i < other.materialBindings.size(); i++) {
       Material otherMaterial = other.materialBindings.get(i);
-      materialBindings.add(otherMaterial.makeCopy());
+      materialBindings.add(material != null ? material : otherMaterial.makeCopy());
       materialNames.add(other.materialNames.get(i));
     }
 
@@ -218,6 +228,47 @@ public abstract class Renderable {
     collisionShape = new Box(renderableData.getSizeAabb(), renderableData.getCenterAabb());
   }
 
+  /**
+   * Uploads a range of the vertices of the definition, after they were modified in place. Falls
+   * back to {@link #updateFromDefinition(RenderableDefinition)} if the vertex layout or the number
+   * of vertices changed since the definition was last applied.
+   *
+   * @param definition the definition this renderable was created or last updated from
+   * @param firstVertex the index of the first modified vertex
+   * @param vertexCount the number of modified vertices
+   */
+  public void updateVerticesFromDefinition(
+      RenderableDefinition definition, int firstVertex, int vertexCount) {
+    Preconditions.checkState(!definition.getSubmeshes().isEmpty());
+
+    if (!definition.applyVertexRangeToData(renderableData, firstVertex, vertexCount)) {
+      updateFromDefinition(definition);
+      return;
+    }
+
+    changeId.update();
+    collisionShape = new Box(renderableData.getSizeAabb(), renderableData.getCenterAabb());
+  }
+
+  /**
+   * Uploads a range of the triangle indices of the definition, after they were modified in place.
+   * The range is counted across all submeshes, starting with the first index of the first one.
+   * Falls back to {@link #updateFromDefinition(RenderableDefinition)} if the number of indices of
+   * any submesh changed since the definition was last applied.
+   *
+   * @param definition the definition this renderable was created or last updated from
+   * @param firstIndex the first modified index
+   * @param indexCount the number of modified indices
+   */
+  public void updateIndicesFromDefinition(
+      RenderableDefinition definition, int firstIndex, int indexCount) {
+    Preconditions.checkState(!definition.getSubmeshes().isEmpty());
+
+    if (!definition.applyIndexRangeToData(renderableData, firstIndex, indexCount)) {
+      updateFromDefinition(definition);
+    }
+  }
+
   /**
    * Creates a new instance of this Renderable.
    *
@@ -226,6 +277,11 @@ public abstract class Renderable {
    */
   public abstract Renderable makeCopy();
 
+  /** Estimates the memory used by the geometry of the renderable, for the resource cache. */
+  long getSizeInBytes() {
+    return renderableData.getGeometrySizeInBytes();
+  }
+
   IRenderableInternalData getRenderableData() {
     return renderableData;
   }
@@ -263,6 +319,15 @@ public abstract class Renderable {
     return originalMatrix;
   }
 
+  /**
+   * Returns an id that changes whenever {@link #getFinalModelMatrix(Matrix)} may return a different
+   * matrix for the same original matrix. Subclasses that override it must override this too, so
+   * that their instances push the new matrix even if the node didn't move.
+   */
+  int getFinalModelMatrixId() {
+    return ChangeId.EMPTY_ID;
+  }
+
   private IllegalArgumentException makeSubmeshOutOfRangeException(int submeshIndex) {
     return new IllegalArgumentException(
         "submeshIndex ("
@@ -303,12 +368,14 @@ public abstract class Renderable {
 
     @Nullable private Uri sourceUri = null;
     @Nullable private Callable<InputStream> inputStreamCreator = null;
+    @Nullable private AssetDiskCache diskCache = null;
     @Nullable private RenderableDefinition definition = null;
     private boolean isGltf = false;
     private boolean isFilamentAsset = false;
     @Nullable private LoadGltfListener loadGltfListener;
     @Nullable private Function<String, Uri> uriResolver = null;
     @Nullable private byte[] materialsBytes = null;
+    private LoadPriority loadPriority = LoadPriority.VISIBLE;
 
     /** Used to programmatically construct a {@link Renderable}. */
     protected Builder() {}
@@ -325,8 +392,15 @@ public abstract class Renderable {
       return setRemoteSourceHelper(context, sourceUri, true);
     }
 
-    
-    public B setSource(Context context, Uri sourceUri, boolean enableCaching) {return null;}
+    /**
+     * Sets the source of the renderable to a Uri. When caching is enabled, remote content is kept
+     * in a disk cache shared by the app and only downloaded again when it changed on the server.
+     * The server is asked once per call to this method: building the same builder again reuses the
+     * content it resolved, so call it again to pick up changes made on the server since.
+     */
+    public B setSource(Context context, Uri sourceUri, boolean enableCaching) {
+      return setRemoteSourceHelper(context, sourceUri, enableCaching);
+    }
 
 
 
@@ -372,6 +446,19 @@ public abstract class Renderable {
 
 
 
+    /**
+     * Sets the priority of the background work of the load, relative to the other loads. The
+     * default is {@link LoadPriority#VISIBLE}.
+     *
+     * <p>Cancelling the future returned by {@link #build()} stops the remaining stages of the load,
+     * unless another build of the same registry id is still waiting for it.
+     */
+    public B setLoadPriority(LoadPriority loadPriority) {
+      Preconditions.checkNotNull(loadPriority, "Parameter \"loadPriority\" was null.");
+      this.loadPriority = loadPriority;
+      return getSelf();
+    }
+
     /**
      * True if a source function will be called during build
      *
@@ -405,9 +492,18 @@ public abstract class Renderable {
         // See if a renderable has already been registered by this id, if so re-use it.
         ResourceRegistry<T> registry = getRenderableRegistry();
         CompletableFuture<T> renderableFuture = registry.get(registryId);
-        if (renderableFuture != null) {
-          return renderableFuture.thenApply(
-              renderable -> getRenderableClass().cast(renderable.makeCopy()));
+        // A load that was cancelled is about to fail, so it is started again instead.
+        LoadRequest pendingRequest =
+            renderableFuture != null ? LoadRequest.forLoad(renderableFuture) : null;
+        if (renderableFuture != null && (pendingRequest == null || !pendingRequest.isCancelled())) {
+          CompletableFuture<T> result =
+              renderableFuture.thenApply(
+                  renderable -> getRenderableClass().cast(renderable.makeCopy()));
+          if (pendingRequest != null) {
+            pendingRequest.raisePriority(loadPriority);
+            pendingRequest.addConsumer(result);
+          }
+          return result;
         }
       }
 
@@ -429,10 +525,11 @@ public abstract class Renderable {
         return result;
       }
 
+      LoadRequest loadRequest = new LoadRequest(loadPriority);
       CompletableFuture<T> result = null;
       if (isFilamentAsset) {
         if (context != null) {
-          result = loadRenderableFromFilamentGltf(context, renderable);
+          result = loadRenderableFromFilamentGltf(context, renderable, loadRequest);
         } else {
           throw new AssertionError("Gltf Renderable.Builder must have a valid context.");
         }
@@ -444,10 +541,11 @@ public abstract class Renderable {
         }
       } else {
         LoadRenderableFromSfbTask<T> loader =
-            new LoadRenderableFromSfbTask<>(renderable, sourceUri);
+            new LoadRenderableFromSfbTask<>(renderable, sourceUri, loadRequest);
         result = loader.downloadAndProcessRenderable(inputStreamCreator);
       }
 
+      loadRequest.track(result);
       if (registryId != null) {
         ResourceRegistry<T> registry = getRenderableRegistry();
         registry.register(registryId, result);
@@ -457,8 +555,11 @@ public abstract class Renderable {
           getRenderableClass().getSimpleName(),
           result,
           "Unable to load Renderable registryId='" + registryId + "'");
-      return result.thenApply(
-          resultRenderable -> getRenderableClass().cast(resultRenderable.makeCopy()));
+      CompletableFuture<T> copyResult =
+          result.thenApply(
+              resultRenderable -> getRenderableClass().cast(resultRenderable.makeCopy()));
+      loadRequest.addConsumer(copyResult);
+      return copyResult;
     }
 
     protected void checkPreconditions() {
@@ -477,6 +578,8 @@ public abstract class Renderable {
       // Configure caching.
       if (enableCaching) {
         this.setCachingEnabled(context);
+      } else {
+        this.diskCache = null;
       }
 
       Map<String, String> connectionProperties = new HashMap<>();
@@ -487,7 +590,7 @@ public abstract class Renderable {
       }
       this.inputStreamCreator =
           LoadHelper.fromUri(
-              context, Preconditions.checkNotNull(this.sourceUri), connectionProperties);
+              context, Preconditions.checkNotNull(this.sourceUri), connectionProperties, diskCache);
       return getSelf();
     }
 
@@ -502,15 +605,21 @@ public abstract class Renderable {
 
 
     private CompletableFuture<T> loadRenderableFromFilamentGltf(
-        @NonNull Context context, T renderable) {
+        @NonNull Context context, T renderable, LoadRequest loadRequest) {
       LoadRenderableFromFilamentGltfTask<T> loader =
           new LoadRenderableFromFilamentGltfTask<>(
-              renderable, context, Preconditions.checkNotNull(sourceUri), uriResolver);
+              renderable,
+              context,
+              Preconditions.checkNotNull(sourceUri),
+              uriResolver,
+              diskCache,
+              loadRequest);
       return loader.downloadAndProcessRenderable(Preconditions.checkNotNull(inputStreamCreator));
     }
 
-    
-    private void setCachingEnabled(Context context) {return ;}
+    private void setCachingEnabled(Context context) {
+      this.diskCache = AssetDiskCache.getInstance(context);
+    }
 
 
 
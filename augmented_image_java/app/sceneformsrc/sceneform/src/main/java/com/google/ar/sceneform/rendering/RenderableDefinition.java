@@ -11,9 +11,12 @@ import com.google.ar.sceneform.math.Quaternion;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.Vertex.UvCoordinate;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import com.google.ar.sceneform.utilities.BufferPool;
 import com.google.ar.sceneform.utilities.Preconditions;
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
@@ -22,27 +25,66 @@ import java.util.List;
  * Represents the visual information of a {@link Renderable}. Can be used to construct and modify
  * renderables dynamically.
  *
+ * <p>The vertices are either a list of {@link Vertex} objects, or packed buffers with one run of
+ * floats per vertex attribute, set with {@link Builder#setPositions(FloatBuffer)} and the related
+ * methods. Packed buffers and the triangle indices of a {@link Submesh} set from a buffer are
+ * copied to Filament in bulk. After modifying them in place, {@link
+ * Renderable#updateVerticesFromDefinition(RenderableDefinition, int, int)} and {@link
+ * Renderable#updateIndicesFromDefinition(RenderableDefinition, int, int)} upload only the modified
+ * range, which suits meshes that change every frame.
+ *
  * @see ModelRenderable.Builder
  * @see ViewRenderable.Builder
  */
 public class RenderableDefinition {
   private static final Matrix scratchMatrix = new Matrix();
+  private static final Vector3 scratchNormal = new Vector3();
+  private static final Vector3 scratchTangent = new Vector3();
+  private static final Vector3 scratchBitangent = new Vector3();
+  private static final Quaternion scratchQuaternion = new Quaternion();
+  private static final Vector3 UP = Vector3.up();
+  private static final Vector3 RIGHT = Vector3.right();
 
   /**
    * Represents a Submesh for a RenderableDefinition. Each RenderableDefinition may have multiple
    * Submeshes.
    */
   public static class Submesh {
-    private List<Integer> triangleIndices;
+    @Nullable private List<Integer> triangleIndices;
+    @Nullable private IntBuffer triangleIndexBuffer;
     private Material material;
     @Nullable private String name;
 
     public void setTriangleIndices(List<Integer> triangleIndices) {
       this.triangleIndices = triangleIndices;
+      triangleIndexBuffer = null;
+    }
+
+    /**
+     * Sets the triangle indices to the remaining ints of a buffer. The buffer is read when the
+     * definition is applied to a renderable, and may be modified in place between updates.
+     */
+    public void setTriangleIndices(IntBuffer triangleIndices) {
+      triangleIndexBuffer = triangleIndices;
+      this.triangleIndices = null;
     }
 
+    public void setTriangleIndices(int[] triangleIndices) {
+      setTriangleIndices(IntBuffer.wrap(triangleIndices));
+    }
+
+    /** Returns the triangle indices. Indices set from a buffer are returned as a view of it. */
     public List<Integer> getTriangleIndices() {
-      return triangleIndices;
+      if (triangleIndexBuffer != null) {
+        return new IntBufferList(triangleIndexBuffer);
+      }
+      return Preconditions.checkNotNull(triangleIndices);
+    }
+
+    /** Returns the buffer the triangle indices were set from, or null if set from a list. */
+    @Nullable
+    public IntBuffer getTriangleIndexBuffer() {
+      return triangleIndexBuffer;
     }
 
     public void setMaterial(Material material) {
@@ -62,8 +104,18 @@ public class RenderableDefinition {
       return name;
     }
 
+    int getTriangleIndexCount() {
+      return triangleIndexBuffer != null
+          ? triangleIndexBuffer.remaining()
+          : Preconditions.checkNotNull(triangleIndices).size();
+    }
+
     private Submesh(Builder builder) {
-      triangleIndices = Preconditions.checkNotNull(builder.triangleIndices);
+      if (builder.triangleIndexBuffer != null) {
+        triangleIndexBuffer = builder.triangleIndexBuffer;
+      } else {
+        triangleIndices = Preconditions.checkNotNull(builder.triangleIndices);
+      }
       material = Preconditions.checkNotNull(builder.material);
       name = builder.name;
     }
@@ -75,14 +127,27 @@ public class RenderableDefinition {
     /** Factory class for {@link Submesh}. */
     public static final class Builder {
       @Nullable private List<Integer> triangleIndices;
+      @Nullable private IntBuffer triangleIndexBuffer;
       @Nullable private Material material;
       @Nullable private String name;
 
       public Builder setTriangleIndices(List<Integer> triangleIndices) {
         this.triangleIndices = triangleIndices;
+        triangleIndexBuffer = null;
+        return this;
+      }
+
+      /** Sets the triangle indices to the remaining ints of a buffer, which is read in place. */
+      public Builder setTriangleIndices(IntBuffer triangleIndices) {
+        triangleIndexBuffer = triangleIndices;
+        this.triangleIndices = null;
         return this;
       }
 
+      public Builder setTriangleIndices(int[] triangleIndices) {
+        return setTriangleIndices(IntBuffer.wrap(triangleIndices));
+      }
+
       public Builder setName(String name) {
         this.name = name;
         return this;
@@ -102,20 +167,71 @@ public class RenderableDefinition {
   private List<Vertex> vertices;
   private List<Submesh> submeshes;
 
+  // Packed vertex attributes, used instead of the vertices when the positions are set. Tangents
+  // and normals are exclusive.
+  @Nullable private FloatBuffer positions;
+  @Nullable private FloatBuffer tangents;
+  @Nullable private FloatBuffer normals;
+  @Nullable private FloatBuffer uvs;
+  @Nullable private FloatBuffer colors;
+
   private static final int BYTES_PER_FLOAT = Float.SIZE / 8;
+  private static final int BYTES_PER_INT = Integer.SIZE / 8;
   private static final int POSITION_SIZE = 3; // x, y, z
+  private static final int NORMAL_SIZE = 3; // x, y, z
   private static final int UV_SIZE = 2;
   private static final int TANGENTS_SIZE = 4; // quaternion
   private static final int COLOR_SIZE = 4; // RGBA
 
   public void setVertices(List<Vertex> vertices) {
     this.vertices = vertices;
+    positions = null;
+    tangents = null;
+    normals = null;
+    uvs = null;
+    colors = null;
   }
 
   List<Vertex> getVertices() {
     return vertices;
   }
 
+  /**
+   * Sets the positions of the vertices to the remaining floats of a buffer, three per vertex. The
+   * packed attributes are used instead of the list of vertices.
+   */
+  public void setPositions(FloatBuffer positions) {
+    this.positions = Preconditions.checkNotNull(positions, "Parameter \"positions\" was null.");
+  }
+
+  /**
+   * Sets the tangent frames of the vertices to the remaining floats of a buffer, as one quaternion
+   * (x, y, z, w) per vertex. This is what the normals of vertices are converted to.
+   */
+  public void setTangents(@Nullable FloatBuffer tangents) {
+    this.tangents = tangents;
+    normals = null;
+  }
+
+  /**
+   * Sets the normals of the vertices to the remaining floats of a buffer, three per vertex. They
+   * are converted to tangent frames when uploaded, which {@link #setTangents(FloatBuffer)} avoids.
+   */
+  public void setNormals(@Nullable FloatBuffer normals) {
+    this.normals = normals;
+    tangents = null;
+  }
+
+  /** Sets the texture coordinates of the vertices to the remaining floats of a buffer, two each. */
+  public void setUvs(@Nullable FloatBuffer uvs) {
+    this.uvs = uvs;
+  }
+
+  /** Sets the colors of the vertices to the remaining floats of a buffer, as RGBA. */
+  public void setColors(@Nullable FloatBuffer colors) {
+    this.colors = colors;
+  }
+
   public void setSubmeshes(List<Submesh> submeshes) {
     this.submeshes = submeshes;
   }
@@ -150,7 +266,7 @@ public class RenderableDefinition {
       }
 
       meshData.indexStart = indexStart;
-      meshData.indexEnd = indexStart + submesh.getTriangleIndices().size();
+      meshData.indexEnd = indexStart + submesh.getTriangleIndexCount();
       indexStart = meshData.indexEnd;
       materialBindings.add(submesh.getMaterial());
       final String name = submesh.getName();
@@ -161,34 +277,89 @@ public class RenderableDefinition {
     while (data.getMeshes().size() > submeshes.size()) {
       data.getMeshes().remove(data.getMeshes().size() - 1);
     }
+
+    // indexStart is now the total number of indices.
+    data.setGeometrySizeInBytes(getGeometrySizeInBytes(indexStart));
   }
 
-  private void applyDefinitionToDataIndexBuffer(IRenderableInternalData data) {
-    // Determine how many indices there are.
-    int numIndices = 0;
-    for (int i = 0; i < submeshes.size(); i++) {
-      Submesh submesh = submeshes.get(i);
-      numIndices += submesh.getTriangleIndices().size();
+  /**
+   * Uploads a range of the vertices, and updates the bounds of the data. Returns false without
+   * uploading anything if the vertex buffer of the data doesn't have the layout of this definition.
+   */
+  boolean applyVertexRangeToData(IRenderableInternalData data, int firstVertex, int vertexCount) {
+    AndroidPreconditions.checkUiThread();
+
+    int numVertices = getVertexCount();
+    checkRange(firstVertex, vertexCount, numVertices, "vertices");
+    VertexBuffer vertexBuffer = data.getVertexBuffer();
+    EnumSet<VertexAttribute> descriptionAttributes = getVertexAttributes();
+    if (vertexBuffer == null
+        || !descriptionAttributes.equals(data.getVertexAttributes())
+        || vertexBuffer.getVertexCount() < numVertices) {
+      return false;
     }
 
-    // Create the raw index buffer if needed.
-    IntBuffer rawIndexBuffer = data.getRawIndexBuffer();
-    if (rawIndexBuffer == null || rawIndexBuffer.capacity() < numIndices) {
-      rawIndexBuffer = IntBuffer.allocate(numIndices);
-      data.setRawIndexBuffer(rawIndexBuffer);
-    } else {
-      rawIndexBuffer.rewind();
+    checkPackedAttributes(numVertices);
+    if (vertexCount > 0) {
+      uploadVertexRange(vertexBuffer, descriptionAttributes, firstVertex, vertexCount);
     }
+    updateAabb(data, numVertices);
+    return true;
+  }
 
-    // Fill the index buffer with the data.
-    for (int i = 0; i < submeshes.size(); i++) {
-      Submesh submesh = submeshes.get(i);
-      List<Integer> triangleIndices = submesh.getTriangleIndices();
-      for (int j = 0; j < triangleIndices.size(); j++) {
-        rawIndexBuffer.put(triangleIndices.get(j));
-      }
+  /**
+   * Uploads a range of the triangle indices of all submeshes, counted from the first index of the
+   * first submesh. Returns false without uploading anything if the meshes of the data don't have
+   * the same number of indices as the submeshes.
+   */
+  boolean applyIndexRangeToData(IRenderableInternalData data, int firstIndex, int indexCount) {
+    AndroidPreconditions.checkUiThread();
+
+    checkRange(firstIndex, indexCount, getIndexCount(), "indices");
+    IndexBuffer indexBuffer = data.getIndexBuffer();
+    if (indexBuffer == null || !hasSameMeshes(data)) {
+      return false;
     }
-    rawIndexBuffer.rewind();
+
+    if (indexCount > 0) {
+      ByteBuffer indexData = BufferPool.getInstance().acquire(indexCount * BYTES_PER_INT);
+      putIndexRange(indexData.asIntBuffer(), firstIndex, indexCount);
+      indexBuffer.setBuffer(
+          EngineInstance.getEngine().getFilamentEngine(),
+          indexData,
+          firstIndex * BYTES_PER_INT,
+          indexData.remaining(),
+          ThreadPools.getMainHandler(),
+          BufferPool.getInstance().releaseCallback(indexData));
+    }
+    return true;
+  }
+
+  /** Returns the size of the index and vertex data uploaded by applyDefinitionToData. */
+  private long getGeometrySizeInBytes(int numIndices) {
+    EnumSet<VertexAttribute> attributes = getVertexAttributes();
+    int floatsPerVertex = POSITION_SIZE;
+    if (attributes.contains(VertexAttribute.TANGENTS)) {
+      floatsPerVertex += TANGENTS_SIZE;
+    }
+    if (attributes.contains(VertexAttribute.UV0)) {
+      floatsPerVertex += UV_SIZE;
+    }
+    if (attributes.contains(VertexAttribute.COLOR)) {
+      floatsPerVertex += COLOR_SIZE;
+    }
+
+    long indexBytes = (long) numIndices * Integer.BYTES;
+    long vertexBytes = (long) getVertexCount() * floatsPerVertex * Float.BYTES;
+    return indexBytes + vertexBytes;
+  }
+
+  private void applyDefinitionToDataIndexBuffer(IRenderableInternalData data) {
+    int numIndices = getIndexCount();
+
+    // Stage the indices in a pooled direct buffer, which Filament reads without another copy.
+    ByteBuffer indexData = BufferPool.getInstance().acquire(numIndices * BYTES_PER_INT);
+    putIndexRange(indexData.asIntBuffer(), 0, numIndices);
 
     // Create the filament index buffer if needed.
     IndexBuffer indexBuffer = data.getIndexBuffer();
@@ -206,46 +377,31 @@ public class RenderableDefinition {
       data.setIndexBuffer(indexBuffer);
     }
 
-    indexBuffer.setBuffer(engine.getFilamentEngine(), rawIndexBuffer, 0, numIndices);
+    indexBuffer.setBuffer(
+        engine.getFilamentEngine(),
+        indexData,
+        0,
+        indexData.remaining(),
+        ThreadPools.getMainHandler(),
+        BufferPool.getInstance().releaseCallback(indexData));
   }
 
   private void applyDefinitionToDataVertexBuffer(IRenderableInternalData data) {
-    if (vertices.isEmpty()) {
+    int numVertices = getVertexCount();
+    if (numVertices == 0) {
       throw new IllegalArgumentException("RenderableDescription must have at least one vertex.");
     }
-
-    int numVertices = vertices.size();
-    Vertex firstVertex = vertices.get(0);
+    checkPackedAttributes(numVertices);
 
     // Determine which attributes this VertexBuffer needs.
-    EnumSet<VertexAttribute> descriptionAttributes = EnumSet.of(VertexAttribute.POSITION);
-    if (firstVertex.getNormal() != null) {
-      descriptionAttributes.add(VertexAttribute.TANGENTS);
-    }
-    if (firstVertex.getUvCoordinate() != null) {
-      descriptionAttributes.add(VertexAttribute.UV0);
-    }
-    if (firstVertex.getColor() != null) {
-      descriptionAttributes.add(VertexAttribute.COLOR);
-    }
+    EnumSet<VertexAttribute> descriptionAttributes = getVertexAttributes();
 
     // Determine if the filament vertex buffer needs to be re-created.
     VertexBuffer vertexBuffer = data.getVertexBuffer();
     boolean createVertexBuffer = true;
     if (vertexBuffer != null) {
-      EnumSet<VertexAttribute> oldAttributes = EnumSet.of(VertexAttribute.POSITION);
-      if (data.getRawTangentsBuffer() != null) {
-        oldAttributes.add(VertexAttribute.TANGENTS);
-      }
-      if (data.getRawUvBuffer() != null) {
-        oldAttributes.add(VertexAttribute.UV0);
-      }
-      if (data.getRawColorBuffer() != null) {
-        oldAttributes.add(VertexAttribute.COLOR);
-      }
-
       createVertexBuffer =
-          !oldAttributes.equals(descriptionAttributes)
+          !descriptionAttributes.equals(data.getVertexAttributes())
               || vertexBuffer.getVertexCount() < numVertices;
 
       if (createVertexBuffer) {
@@ -256,65 +412,87 @@ public class RenderableDefinition {
     if (createVertexBuffer) {
       vertexBuffer = createVertexBuffer(numVertices, descriptionAttributes);
       data.setVertexBuffer(vertexBuffer);
+      data.setVertexAttributes(descriptionAttributes);
     }
 
-    // Create position Buffer if needed.
-    FloatBuffer positionBuffer = data.getRawPositionBuffer();
-    if (positionBuffer == null || positionBuffer.capacity() < numVertices * POSITION_SIZE) {
-      positionBuffer = FloatBuffer.allocate(numVertices * POSITION_SIZE);
-      data.setRawPositionBuffer(positionBuffer);
-    } else {
-      positionBuffer.rewind();
-    }
-
-    // Create tangents Buffer if needed.
-    FloatBuffer tangentsBuffer = data.getRawTangentsBuffer();
-    if (descriptionAttributes.contains(VertexAttribute.TANGENTS)
-        && (tangentsBuffer == null || tangentsBuffer.capacity() < numVertices * TANGENTS_SIZE)) {
-      tangentsBuffer = FloatBuffer.allocate(numVertices * TANGENTS_SIZE);
-      data.setRawTangentsBuffer(tangentsBuffer);
-    } else if (tangentsBuffer != null) {
-      tangentsBuffer.rewind();
-    }
-
-    // Create uv Buffer if needed.
-    FloatBuffer uvBuffer = data.getRawUvBuffer();
-    if (descriptionAttributes.contains(VertexAttribute.UV0)
-        && (uvBuffer == null || uvBuffer.capacity() < numVertices * UV_SIZE)) {
-      uvBuffer = FloatBuffer.allocate(numVertices * UV_SIZE);
-      data.setRawUvBuffer(uvBuffer);
-    } else if (uvBuffer != null) {
-      uvBuffer.rewind();
-    }
-
-    // Create color Buffer if needed.
-    FloatBuffer colorBuffer = data.getRawColorBuffer();
-    if (descriptionAttributes.contains(VertexAttribute.COLOR)
-        && (colorBuffer == null || colorBuffer.capacity() < numVertices * COLOR_SIZE)) {
-      colorBuffer = FloatBuffer.allocate(numVertices * COLOR_SIZE);
-      data.setRawColorBuffer(colorBuffer);
-    } else if (colorBuffer != null) {
-      colorBuffer.rewind();
-    }
-
-    // Variables for calculating the Aabb of the renderable.
-    Vector3 minAabb = new Vector3();
-    Vector3 maxAabb = new Vector3();
-    Vector3 firstPosition = firstVertex.getPosition();
-    minAabb.set(firstPosition);
-    maxAabb.set(firstPosition);
-
-    // Update the raw buffers and calculate the Aabb in one pass through the vertices.
-    for (int i = 0; i < vertices.size(); i++) {
-      Vertex vertex = vertices.get(i);
+    if (vertexBuffer == null) {
+      throw new AssertionError("VertexBuffer is null.");
+    }
+
+    uploadVertexRange(vertexBuffer, descriptionAttributes, 0, numVertices);
+    updateAabb(data, numVertices);
+  }
 
-      // Aabb.
-      Vector3 position = vertex.getPosition();
-      minAabb.set(Vector3.min(minAabb, position));
-      maxAabb.set(Vector3.max(maxAabb, position));
+  /**
+   * Stages a range of vertices in pooled direct buffers, one per attribute, and uploads them to
+   * the same range of the vertex buffer. Filament gives each buffer back to the pool once uploaded.
+   */
+  private void uploadVertexRange(
+      VertexBuffer vertexBuffer,
+      EnumSet<VertexAttribute> attributes,
+      int firstVertex,
+      int vertexCount) {
+    BufferPool bufferPool = BufferPool.getInstance();
+    ByteBuffer positionData = bufferPool.acquire(vertexCount * POSITION_SIZE * BYTES_PER_FLOAT);
+    ByteBuffer tangentsData =
+        attributes.contains(VertexAttribute.TANGENTS)
+            ? bufferPool.acquire(vertexCount * TANGENTS_SIZE * BYTES_PER_FLOAT)
+            : null;
+    ByteBuffer uvData =
+        attributes.contains(VertexAttribute.UV0)
+            ? bufferPool.acquire(vertexCount * UV_SIZE * BYTES_PER_FLOAT)
+            : null;
+    ByteBuffer colorData =
+        attributes.contains(VertexAttribute.COLOR)
+            ? bufferPool.acquire(vertexCount * COLOR_SIZE * BYTES_PER_FLOAT)
+            : null;
+
+    try {
+      if (positions != null) {
+        fillPackedVertexData(
+            positionData, tangentsData, uvData, colorData, firstVertex, vertexCount);
+      } else {
+        fillVertexData(positionData, tangentsData, uvData, colorData, firstVertex, vertexCount);
+      }
+    } catch (RuntimeException e) {
+      releaseIfNotNull(bufferPool, positionData);
+      releaseIfNotNull(bufferPool, tangentsData);
+      releaseIfNotNull(bufferPool, uvData);
+      releaseIfNotNull(bufferPool, colorData);
+      throw e;
+    }
+
+    int bufferIndex = 0;
+    uploadVertexData(vertexBuffer, bufferIndex, positionData, firstVertex * POSITION_SIZE);
+    if (tangentsData != null) {
+      uploadVertexData(vertexBuffer, ++bufferIndex, tangentsData, firstVertex * TANGENTS_SIZE);
+    }
+    if (uvData != null) {
+      uploadVertexData(vertexBuffer, ++bufferIndex, uvData, firstVertex * UV_SIZE);
+    }
+    if (colorData != null) {
+      uploadVertexData(vertexBuffer, ++bufferIndex, colorData, firstVertex * COLOR_SIZE);
+    }
+  }
+
+  /** Writes a range of the vertex list into the staging buffers. */
+  private void fillVertexData(
+      ByteBuffer positionData,
+      @Nullable ByteBuffer tangentsData,
+      @Nullable ByteBuffer uvData,
+      @Nullable ByteBuffer colorData,
+      int firstVertex,
+      int vertexCount) {
+    FloatBuffer positionBuffer = positionData.asFloatBuffer();
+    FloatBuffer tangentsBuffer = tangentsData != null ? tangentsData.asFloatBuffer() : null;
+    FloatBuffer uvBuffer = uvData != null ? uvData.asFloatBuffer() : null;
+    FloatBuffer colorBuffer = colorData != null ? colorData.asFloatBuffer() : null;
+
+    for (int i = firstVertex; i < firstVertex + vertexCount; i++) {
+      Vertex vertex = vertices.get(i);
 
       // Position attribute.
-      addVector3ToBuffer(position, positionBuffer);
+      addVector3ToBuffer(vertex.getPosition(), positionBuffer);
 
       // Tangents attribute.
       if (tangentsBuffer != null) {
@@ -325,8 +503,7 @@ public class RenderableDefinition {
                   + "RenderableDescription has a normal, all vertices must have one.");
         }
 
-        Quaternion tangent = normalToTangent(normal);
-        addQuaternionToBuffer(tangent, tangentsBuffer);
+        addTangentToBuffer(normal.x, normal.y, normal.z, tangentsBuffer);
       }
 
       // Uv attribute.
@@ -353,47 +530,279 @@ public class RenderableDefinition {
         addColorToBuffer(color, colorBuffer);
       }
     }
+  }
+
+  /** Copies a range of the packed attributes into the staging buffers. */
+  private void fillPackedVertexData(
+      ByteBuffer positionData,
+      @Nullable ByteBuffer tangentsData,
+      @Nullable ByteBuffer uvData,
+      @Nullable ByteBuffer colorData,
+      int firstVertex,
+      int vertexCount) {
+    putRange(
+        positionData.asFloatBuffer(),
+        Preconditions.checkNotNull(positions),
+        firstVertex * POSITION_SIZE,
+        vertexCount * POSITION_SIZE);
+
+    if (tangentsData != null) {
+      FloatBuffer tangentsBuffer = tangentsData.asFloatBuffer();
+      if (tangents != null) {
+        putRange(
+            tangentsBuffer, tangents, firstVertex * TANGENTS_SIZE, vertexCount * TANGENTS_SIZE);
+      } else {
+        FloatBuffer normals = Preconditions.checkNotNull(this.normals);
+        int offset = normals.position() + firstVertex * NORMAL_SIZE;
+        for (int i = 0; i < vertexCount; i++) {
+          int index = offset + i * NORMAL_SIZE;
+          addTangentToBuffer(
+              normals.get(index), normals.get(index + 1), normals.get(index + 2), tangentsBuffer);
+        }
+      }
+    }
+
+    if (uvData != null) {
+      putRange(
+          uvData.asFloatBuffer(),
+          Preconditions.checkNotNull(uvs),
+          firstVertex * UV_SIZE,
+          vertexCount * UV_SIZE);
+    }
+
+    if (colorData != null) {
+      putRange(
+          colorData.asFloatBuffer(),
+          Preconditions.checkNotNull(colors),
+          firstVertex * COLOR_SIZE,
+          vertexCount * COLOR_SIZE);
+    }
+  }
+
+  /** Computes the bounds of all the vertices and sets them in the data. */
+  private void updateAabb(IRenderableInternalData data, int numVertices) {
+    float minX = Float.POSITIVE_INFINITY;
+    float minY = Float.POSITIVE_INFINITY;
+    float minZ = Float.POSITIVE_INFINITY;
+    float maxX = Float.NEGATIVE_INFINITY;
+    float maxY = Float.NEGATIVE_INFINITY;
+    float maxZ = Float.NEGATIVE_INFINITY;
+
+    FloatBuffer positions = this.positions;
+    int offset = positions != null ? positions.position() : 0;
+    for (int i = 0; i < numVertices; i++) {
+      float x;
+      float y;
+      float z;
+      if (positions != null) {
+        int index = offset + i * POSITION_SIZE;
+        x = positions.get(index);
+        y = positions.get(index + 1);
+        z = positions.get(index + 2);
+      } else {
+        Vector3 position = vertices.get(i).getPosition();
+        x = position.x;
+        y = position.y;
+        z = position.z;
+      }
+      minX = Math.min(minX, x);
+      minY = Math.min(minY, y);
+      minZ = Math.min(minZ, z);
+      maxX = Math.max(maxX, x);
+      maxY = Math.max(maxY, y);
+      maxZ = Math.max(maxZ, z);
+    }
 
     // Set the Aabb in the renderable data.
-    Vector3 extentsAabb = Vector3.subtract(maxAabb, minAabb).scaled(0.5f);
-    Vector3 centerAabb = Vector3.add(minAabb, extentsAabb);
+    Vector3 extentsAabb =
+        new Vector3((maxX - minX) * 0.5f, (maxY - minY) * 0.5f, (maxZ - minZ) * 0.5f);
+    Vector3 centerAabb =
+        new Vector3(minX + extentsAabb.x, minY + extentsAabb.y, minZ + extentsAabb.z);
     data.setExtentsAabb(extentsAabb);
     data.setCenterAabb(centerAabb);
+  }
 
-    if (vertexBuffer == null) {
-      throw new AssertionError("VertexBuffer is null.");
+  /** Writes a range of the triangle indices of all submeshes into the destination. */
+  private void putIndexRange(IntBuffer dest, int firstIndex, int indexCount) {
+    int submeshStart = 0;
+    int end = firstIndex + indexCount;
+    for (int i = 0; i < submeshes.size() && submeshStart < end; i++) {
+      Submesh submesh = submeshes.get(i);
+      int submeshCount = submesh.getTriangleIndexCount();
+      int start = Math.max(firstIndex, submeshStart) - submeshStart;
+      int count = Math.min(end, submeshStart + submeshCount) - submeshStart - start;
+      submeshStart += submeshCount;
+      if (count <= 0) {
+        continue;
+      }
+
+      IntBuffer triangleIndexBuffer = submesh.getTriangleIndexBuffer();
+      if (triangleIndexBuffer != null) {
+        putRange(dest, triangleIndexBuffer, start, count);
+      } else {
+        List<Integer> triangleIndices = submesh.getTriangleIndices();
+        for (int j = start; j < start + count; j++) {
+          dest.put(triangleIndices.get(j));
+        }
+      }
     }
+  }
 
-    IEngine engine = EngineInstance.getEngine();
-    positionBuffer.rewind();
-    int bufferIndex = 0;
+  private int getIndexCount() {
+    int numIndices = 0;
+    for (int i = 0; i < submeshes.size(); i++) {
+      numIndices += submeshes.get(i).getTriangleIndexCount();
+    }
+    return numIndices;
+  }
+
+  private int getVertexCount() {
+    return positions != null ? positions.remaining() / POSITION_SIZE : vertices.size();
+  }
+
+  /** Returns the attributes of the packed buffers that are set, or of the first vertex. */
+  private EnumSet<VertexAttribute> getVertexAttributes() {
+    EnumSet<VertexAttribute> attributes = EnumSet.of(VertexAttribute.POSITION);
+    if (positions != null) {
+      if (tangents != null || normals != null) {
+        attributes.add(VertexAttribute.TANGENTS);
+      }
+      if (uvs != null) {
+        attributes.add(VertexAttribute.UV0);
+      }
+      if (colors != null) {
+        attributes.add(VertexAttribute.COLOR);
+      }
+      return attributes;
+    }
+
+    if (vertices.isEmpty()) {
+      return attributes;
+    }
+    Vertex firstVertex = vertices.get(0);
+    if (firstVertex.getNormal() != null) {
+      attributes.add(VertexAttribute.TANGENTS);
+    }
+    if (firstVertex.getUvCoordinate() != null) {
+      attributes.add(VertexAttribute.UV0);
+    }
+    if (firstVertex.getColor() != null) {
+      attributes.add(VertexAttribute.COLOR);
+    }
+    return attributes;
+  }
+
+  /** Checks that each packed attribute has the floats of every vertex. */
+  private void checkPackedAttributes(int numVertices) {
+    if (positions == null) {
+      return;
+    }
+
+    if (positions.remaining() % POSITION_SIZE != 0) {
+      throw new IllegalArgumentException("Positions must have 3 floats per vertex.");
+    }
+    checkPackedAttribute(tangents, TANGENTS_SIZE, numVertices, "Tangents");
+    checkPackedAttribute(normals, NORMAL_SIZE, numVertices, "Normals");
+    checkPackedAttribute(uvs, UV_SIZE, numVertices, "Uvs");
+    checkPackedAttribute(colors, COLOR_SIZE, numVertices, "Colors");
+  }
+
+  private static void checkPackedAttribute(
+      @Nullable FloatBuffer attribute, int size, int numVertices, String name) {
+    if (attribute != null && attribute.remaining() < numVertices * size) {
+      throw new IllegalArgumentException(
+          name + " must have " + size + " floats for each of the " + numVertices + " vertices.");
+    }
+  }
+
+  private static void checkRange(int first, int count, int size, String name) {
+    if (first < 0 || count < 0 || first + count > size) {
+      throw new IllegalArgumentException(
+          "The range of "
+              + name
+              + " ["
+              + first
+              + ", "
+              + (first + count)
+              + ") is out of bounds for "
+              + size
+              + " "
+              + name
+              + ".");
+    }
+  }
+
+  /** Returns true if the meshes of the data were created for the same index counts. */
+  private boolean hasSameMeshes(IRenderableInternalData data) {
+    ArrayList<RenderableInternalData.MeshData> meshes = data.getMeshes();
+    if (meshes.size() != submeshes.size()) {
+      return false;
+    }
+
+    for (int i = 0; i < meshes.size(); i++) {
+      RenderableInternalData.MeshData meshData = meshes.get(i);
+      if (meshData.indexEnd - meshData.indexStart != submeshes.get(i).getTriangleIndexCount()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void uploadVertexData(
+      VertexBuffer vertexBuffer, int bufferIndex, ByteBuffer data, int destOffsetInFloats) {
     vertexBuffer.setBufferAt(
-        engine.getFilamentEngine(), bufferIndex, positionBuffer, 0, numVertices * POSITION_SIZE);
+        EngineInstance.getEngine().getFilamentEngine(),
+        bufferIndex,
+        data,
+        destOffsetInFloats * BYTES_PER_FLOAT,
+        data.remaining(),
+        ThreadPools.getMainHandler(),
+        BufferPool.getInstance().releaseCallback(data));
+  }
 
-    if (tangentsBuffer != null) {
-      tangentsBuffer.rewind();
-      bufferIndex++;
-      vertexBuffer.setBufferAt(
-          engine.getFilamentEngine(), bufferIndex, tangentsBuffer, 0, numVertices * TANGENTS_SIZE);
+  private static void releaseIfNotNull(BufferPool bufferPool, @Nullable ByteBuffer buffer) {
+    if (buffer != null) {
+      bufferPool.release(buffer);
     }
+  }
 
-    if (uvBuffer != null) {
-      uvBuffer.rewind();
-      bufferIndex++;
-      vertexBuffer.setBufferAt(
-          engine.getFilamentEngine(), bufferIndex, uvBuffer, 0, numVertices * UV_SIZE);
+  /** Copies floats from a range of the remaining floats of the source, in bulk when possible. */
+  private static void putRange(FloatBuffer dest, FloatBuffer source, int offset, int length) {
+    int start = source.position() + offset;
+    if (source.hasArray()) {
+      dest.put(source.array(), source.arrayOffset() + start, length);
+    } else {
+      FloatBuffer range = source.duplicate();
+      range.limit(start + length);
+      range.position(start);
+      dest.put(range);
     }
+  }
 
-    if (colorBuffer != null) {
-      colorBuffer.rewind();
-      bufferIndex++;
-      vertexBuffer.setBufferAt(
-          engine.getFilamentEngine(), bufferIndex, colorBuffer, 0, numVertices * COLOR_SIZE);
+  /** Copies ints from a range of the remaining ints of the source, in bulk when possible. */
+  private static void putRange(IntBuffer dest, IntBuffer source, int offset, int length) {
+    int start = source.position() + offset;
+    if (source.hasArray()) {
+      dest.put(source.array(), source.arrayOffset() + start, length);
+    } else {
+      IntBuffer range = source.duplicate();
+      range.limit(start + length);
+      range.position(start);
+      dest.put(range);
     }
   }
 
   private RenderableDefinition(Builder builder) {
-    vertices = Preconditions.checkNotNull(builder.vertices);
+    if (builder.positions != null) {
+      vertices = new ArrayList<>();
+      positions = builder.positions;
+      tangents = builder.tangents;
+      normals = builder.normals;
+      uvs = builder.uvs;
+      colors = builder.colors;
+    } else {
+      vertices = Preconditions.checkNotNull(builder.vertices);
+    }
     submeshes = Preconditions.checkNotNull(builder.submeshes);
   }
 
@@ -463,13 +872,6 @@ public class RenderableDefinition {
     buffer.put(uvCoordinate.y);
   }
 
-  private static void addQuaternionToBuffer(Quaternion quaternion, FloatBuffer buffer) {
-    buffer.put(quaternion.x);
-    buffer.put(quaternion.y);
-    buffer.put(quaternion.z);
-    buffer.put(quaternion.w);
-  }
-
   private static void addColorToBuffer(Color color, FloatBuffer buffer) {
     buffer.put(color.r);
     buffer.put(color.g);
@@ -477,20 +879,30 @@ public class RenderableDefinition {
     buffer.put(color.a);
   }
 
-  private static Quaternion normalToTangent(Vector3 normal) {
-    Vector3 tangent;
-    Vector3 bitangent;
+  /**
+   * Writes the tangent frame of a normal as a quaternion. Uses scratch objects instead of
+   * allocating, since it runs for every vertex on the UI thread.
+   */
+  private static void addTangentToBuffer(
+      float normalX, float normalY, float normalZ, FloatBuffer buffer) {
+    Vector3 normal = scratchNormal;
+    Vector3 tangent = scratchTangent;
+    Vector3 bitangent = scratchBitangent;
+    normal.set(normalX, normalY, normalZ);
 
     // Calculate basis vectors (+x = tangent, +y = bitangent, +z = normal).
-    tangent = Vector3.cross(Vector3.up(), normal);
+    Vector3.cross(UP, normal, tangent);
 
     // Uses almostEqualRelativeAndAbs for equality checks that account for float inaccuracy.
     if (MathHelper.almostEqualRelativeAndAbs(Vector3.dot(tangent, tangent), 0.0f)) {
-      bitangent = Vector3.cross(normal, Vector3.right()).normalized();
-      tangent = Vector3.cross(bitangent, normal).normalized();
+      Vector3.cross(normal, RIGHT, bitangent);
+      bitangent.normalized(bitangent);
+      Vector3.cross(bitangent, normal, tangent);
+      tangent.normalized(tangent);
     } else {
-      tangent.set(tangent.normalized());
-      bitangent = Vector3.cross(normal, tangent).normalized();
+      tangent.normalized(tangent);
+      Vector3.cross(normal, tangent, bitangent);
+      bitangent.normalized(bitangent);
     }
 
     // Rotation of a 4x4 Transformation Matrix is represented by the top-left 3x3 elements.
@@ -509,21 +921,106 @@ public class RenderableDefinition {
     scratchMatrix.data[rowThree + 1] = normal.y;
     scratchMatrix.data[rowThree + 2] = normal.z;
 
-    Quaternion orientationQuaternion = new Quaternion();
+    Quaternion orientationQuaternion = scratchQuaternion;
     scratchMatrix.extractQuaternion(orientationQuaternion);
-    return orientationQuaternion;
+    buffer.put(orientationQuaternion.x);
+    buffer.put(orientationQuaternion.y);
+    buffer.put(orientationQuaternion.z);
+    buffer.put(orientationQuaternion.w);
+  }
+
+  /** Read-only list view of the remaining ints of a buffer. */
+  private static class IntBufferList extends AbstractList<Integer> {
+    private final IntBuffer buffer;
+
+    IntBufferList(IntBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public Integer get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("Index " + index + " out of bounds.");
+      }
+      return buffer.get(buffer.position() + index);
+    }
+
+    @Override
+    public int size() {
+      return buffer.remaining();
+    }
   }
 
   /** Factory class for {@link RenderableDefinition}. */
   public static final class Builder {
     @Nullable private List<Vertex> vertices;
     @Nullable private List<Submesh> submeshes = new ArrayList<>();
+    @Nullable private FloatBuffer positions;
+    @Nullable private FloatBuffer tangents;
+    @Nullable private FloatBuffer normals;
+    @Nullable private FloatBuffer uvs;
+    @Nullable private FloatBuffer colors;
 
     public Builder setVertices(List<Vertex> vertices) {
       this.vertices = vertices;
       return this;
     }
 
+    /**
+     * Sets the positions of the vertices to the remaining floats of a buffer, three per vertex.
+     * The packed attributes are used instead of the list of vertices, and are read in place.
+     */
+    public Builder setPositions(FloatBuffer positions) {
+      this.positions = Preconditions.checkNotNull(positions, "Parameter \"positions\" was null.");
+      return this;
+    }
+
+    public Builder setPositions(float[] positions) {
+      return setPositions(FloatBuffer.wrap(positions));
+    }
+
+    /** Sets the tangent frames of the vertices, as one quaternion (x, y, z, w) per vertex. */
+    public Builder setTangents(@Nullable FloatBuffer tangents) {
+      this.tangents = tangents;
+      normals = null;
+      return this;
+    }
+
+    public Builder setTangents(float[] tangents) {
+      return setTangents(FloatBuffer.wrap(tangents));
+    }
+
+    /** Sets the normals of the vertices, three floats per vertex, converted to tangent frames. */
+    public Builder setNormals(@Nullable FloatBuffer normals) {
+      this.normals = normals;
+      tangents = null;
+      return this;
+    }
+
+    public Builder setNormals(float[] normals) {
+      return setNormals(FloatBuffer.wrap(normals));
+    }
+
+    /** Sets the texture coordinates of the vertices, two floats per vertex. */
+    public Builder setUvs(@Nullable FloatBuffer uvs) {
+      this.uvs = uvs;
+      return this;
+    }
+
+    public Builder setUvs(float[] uvs) {
+      return setUvs(FloatBuffer.wrap(uvs));
+    }
+
+    /** Sets the colors of the vertices, four floats (RGBA) per vertex. */
+    public Builder setColors(@Nullable FloatBuffer colors) {
+      this.colors = colors;
+      return this;
+    }
+
+    public Builder setColors(float[] colors) {
+      return setColors(FloatBuffer.wrap(colors));
+    }
+
     public Builder setSubmeshes(List<Submesh> submeshes) {
       this.submeshes = submeshes;
       return this;
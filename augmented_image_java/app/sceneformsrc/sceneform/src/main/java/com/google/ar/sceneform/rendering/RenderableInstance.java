@@ -69,6 +69,12 @@ public class RenderableInstance {
   @Entity private int childEntity = 0;
   int renderableId = ChangeId.EMPTY_ID;
 
+  // Ids of the world transform and of the renderable's adjustment of it last pushed to the
+  // transform manager.
+  private int pushedTransformId = ChangeId.EMPTY_ID;
+  private int pushedFinalModelMatrixId = ChangeId.EMPTY_ID;
+  private boolean isTransformPushed = false;
+
   
 
 
@@ -148,7 +154,8 @@ public class RenderableInstance {
         }
         Uri dataUri = urlResolver.apply(uri);
         try {
-          Callable<InputStream> callable = LoadHelper.fromUri(renderableData.context, dataUri);
+          Callable<InputStream> callable =
+              LoadHelper.fromUri(renderableData.context, dataUri, null, renderableData.diskCache);
           renderableData.resourceLoader.addResourceData(
               uri, ByteBuffer.wrap(SceneformBufferUtils.inputStreamCallableToByteArray(callable)));
         } catch (Exception e) {
@@ -240,6 +247,24 @@ public class RenderableInstance {
     return renderable.getFinalModelMatrix(transformProvider.getWorldModelMatrix());
   }
 
+  /**
+   * Returns true if the world transform, or the renderable's adjustment of it, changed since it was
+   * last pushed by pushTransform.
+   */
+  boolean isTransformDirty() {
+    return !isTransformPushed
+        || transformProvider.getWorldModelMatrixId().get() != pushedTransformId
+        || renderable.getFinalModelMatrixId() != pushedFinalModelMatrixId;
+  }
+
+  /** Pushes the world transform to the transform manager, within an open transaction. */
+  void pushTransform(TransformManager transformManager) {
+    setModelMatrix(transformManager, getWorldModelMatrix().data);
+    pushedTransformId = transformProvider.getWorldModelMatrixId().get();
+    pushedFinalModelMatrixId = renderable.getFinalModelMatrixId();
+    isTransformPushed = true;
+  }
+
   public void setSkinningModifier(@Nullable SkinningModifier skinningModifier) {
     this.skinningModifier = skinningModifier;
   }
@@ -299,6 +324,7 @@ public class RenderableInstance {
 
   /** @hide */
   public void attachToRenderer(Renderer renderer) {
+    isTransformPushed = false;
     renderer.addInstance(this);
     attachedRenderer = renderer;
     renderable.attachToRenderer(renderer);
@@ -13,10 +13,9 @@ import com.google.android.filament.VertexBuffer;
 
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 
 
@@ -44,16 +43,11 @@ class RenderableInternalData implements IRenderableInternalData {
   private float transformScale = 1f;
   private final Vector3 transformOffset = Vector3.zero();
 
-  // Raw buffers.
-  @Nullable private IntBuffer rawIndexBuffer;
-  @Nullable private FloatBuffer rawPositionBuffer;
-  @Nullable private FloatBuffer rawTangentsBuffer;
-  @Nullable private FloatBuffer rawUvBuffer;
-  @Nullable private FloatBuffer rawColorBuffer;
-
   // Filament Geometry buffers.
   @Nullable private IndexBuffer indexBuffer;
   @Nullable private VertexBuffer vertexBuffer;
+  @Nullable private EnumSet<VertexBuffer.VertexAttribute> vertexAttributes;
+  private long geometrySizeInBytes;
 
   // Represents the set of meshes to render.
   private final ArrayList<MeshData> meshes = new ArrayList<>();
@@ -135,58 +129,25 @@ class RenderableInternalData implements IRenderableInternalData {
   }
 
   @Override
-  public void setRawIndexBuffer(@Nullable IntBuffer rawIndexBuffer) {
-    this.rawIndexBuffer = rawIndexBuffer;
-  }
-
-  @Override
-  @Nullable
-  public IntBuffer getRawIndexBuffer() {
-    return rawIndexBuffer;
-  }
-
-  @Override
-  public void setRawPositionBuffer(@Nullable FloatBuffer rawPositionBuffer) {
-    this.rawPositionBuffer = rawPositionBuffer;
-  }
-
-  @Override
-  @Nullable
-  public FloatBuffer getRawPositionBuffer() {
-    return rawPositionBuffer;
+  public void setGeometrySizeInBytes(long geometrySizeInBytes) {
+    this.geometrySizeInBytes = geometrySizeInBytes;
   }
 
   @Override
-  public void setRawTangentsBuffer(@Nullable FloatBuffer rawTangentsBuffer) {
-    this.rawTangentsBuffer = rawTangentsBuffer;
-  }
-
-  @Override
-  @Nullable
-  public FloatBuffer getRawTangentsBuffer() {
-    return rawTangentsBuffer;
-  }
-
-  @Override
-  public void setRawUvBuffer(@Nullable FloatBuffer rawUvBuffer) {
-    this.rawUvBuffer = rawUvBuffer;
-  }
-
-  @Override
-  @Nullable
-  public FloatBuffer getRawUvBuffer() {
-    return rawUvBuffer;
+  public long getGeometrySizeInBytes() {
+    return geometrySizeInBytes;
   }
 
   @Override
-  public void setRawColorBuffer(@Nullable FloatBuffer rawColorBuffer) {
-    this.rawColorBuffer = rawColorBuffer;
+  public void setVertexAttributes(
+      @Nullable EnumSet<VertexBuffer.VertexAttribute> vertexAttributes) {
+    this.vertexAttributes = vertexAttributes;
   }
 
   @Override
   @Nullable
-  public FloatBuffer getRawColorBuffer() {
-    return rawColorBuffer;
+  public EnumSet<VertexBuffer.VertexAttribute> getVertexAttributes() {
+    return vertexAttributes;
   }
 
   
@@ -12,10 +12,10 @@ import com.google.android.filament.gltfio.ResourceLoader;
 
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.RenderableInternalData.MeshData;
+import com.google.ar.sceneform.utilities.AssetDiskCache;
 import java.nio.Buffer;
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.EnumSet;
 
 import java.util.List;
 
@@ -30,6 +30,8 @@ public class RenderableInternalFilamentAssetData implements IRenderableInternalD
   boolean isGltfBinary;
   ResourceLoader resourceLoader;
   @Nullable Function<String, Uri> urlResolver;
+  // Caches the remote resources of the asset, if caching was enabled for it.
+  @Nullable AssetDiskCache diskCache;
   static MaterialProvider materialProvider;
 
   static MaterialProvider getMaterialProvider() {
@@ -124,61 +126,25 @@ public class RenderableInternalFilamentAssetData implements IRenderableInternalD
   }
 
   @Override
-  public void setRawIndexBuffer(@Nullable IntBuffer rawIndexBuffer) {
+  public void setGeometrySizeInBytes(long geometrySizeInBytes) {
     // Not Implemented
   }
 
-  @Nullable
   @Override
-  public IntBuffer getRawIndexBuffer() {
-    // Not Implemented
-    return null;
-  }
-
-  @Override
-  public void setRawPositionBuffer(@Nullable FloatBuffer rawPositionBuffer) {
-    // Not Implemented
-  }
-
-  @Nullable
-  @Override
-  public FloatBuffer getRawPositionBuffer() {
-    // Not Implemented
-    return null;
-  }
-
-  @Override
-  public void setRawTangentsBuffer(@Nullable FloatBuffer rawTangentsBuffer) {
-    // Not Implemented
-  }
-
-  @Nullable
-  @Override
-  public FloatBuffer getRawTangentsBuffer() {
-    // Not Implemented
-    return null;
-  }
-
-  @Override
-  public void setRawUvBuffer(@Nullable FloatBuffer rawUvBuffer) {
-    // Not Implemented
-  }
-
-  @Nullable
-  @Override
-  public FloatBuffer getRawUvBuffer() {
-    // Not Implemented
-    return null;
+  public long getGeometrySizeInBytes() {
+    // The geometry is uploaded from the glTF buffer by the asset loader.
+    return gltfByteBuffer != null ? gltfByteBuffer.capacity() : 0;
   }
 
   @Override
-  public void setRawColorBuffer(@Nullable FloatBuffer rawColorBuffer) {
+  public void setVertexAttributes(
+      @Nullable EnumSet<VertexBuffer.VertexAttribute> vertexAttributes) {
     // Not Implemented
   }
 
   @Nullable
   @Override
-  public FloatBuffer getRawColorBuffer() {
+  public EnumSet<VertexBuffer.VertexAttribute> getVertexAttributes() {
     // Not Implemented
     return null;
   }
@@ -54,6 +54,10 @@ public class Renderer implements UiHelper.RendererCallback {
   private final ViewAttachmentManager viewAttachmentManager;
 
   private final ArrayList<RenderableInstance> renderableInstances = new ArrayList<>();
+  // Instances whose world transform changed since it was last pushed, collected every frame.
+  private final ArrayList<RenderableInstance> dirtyTransformInstances = new ArrayList<>();
+  private int pushedTransformCount;
+  private int skippedTransformCount;
   private final ArrayList<LightInstance> lightInstances = new ArrayList<>();
 
   private Surface surface;
@@ -257,6 +261,8 @@ public class Renderer implements UiHelper.RendererCallback {
     if (filamentHelper.isReadyToRender() || EngineInstance.isHeadlessMode()) {
       updateInstances();
       updateLights();
+      // After the instances, which may set material parameters while preparing to draw.
+      Material.flushDirtyMaterials();
 
       CameraProvider cameraProvider = this.cameraProvider;
       if (cameraProvider != null) {
@@ -310,7 +316,8 @@ public class Renderer implements UiHelper.RendererCallback {
           renderer.endFrame();
         }
 
-        reclaimReleasedResources();
+        // Spread the disposal of released resources over frames to avoid spikes.
+        ResourceManager.getInstance().reclaimReleasedResourcesWithinBudget();
       }
     }
   }
@@ -587,16 +594,50 @@ public class Renderer implements UiHelper.RendererCallback {
   private void updateInstances() {
     final IEngine engine = EngineInstance.getEngine();
     final TransformManager transformManager = engine.getTransformManager();
-    transformManager.openLocalTransformTransaction();
 
-    for (RenderableInstance renderableInstance : renderableInstances) {
+    for (int i = 0; i < renderableInstances.size(); i++) {
+      RenderableInstance renderableInstance = renderableInstances.get(i);
       renderableInstance.prepareForDraw();
 
-      float[] transform = renderableInstance.getWorldModelMatrix().data;
-      renderableInstance.setModelMatrix(transformManager, transform);
+      if (renderableInstance.isTransformDirty()) {
+        dirtyTransformInstances.add(renderableInstance);
+      }
     }
 
+    pushedTransformCount = dirtyTransformInstances.size();
+    skippedTransformCount = renderableInstances.size() - pushedTransformCount;
+    if (dirtyTransformInstances.isEmpty()) {
+      return;
+    }
+
+    // Only the instances that moved go through JNI.
+    transformManager.openLocalTransformTransaction();
+    for (int i = 0; i < dirtyTransformInstances.size(); i++) {
+      dirtyTransformInstances.get(i).pushTransform(transformManager);
+    }
     transformManager.commitLocalTransformTransaction();
+
+    dirtyTransformInstances.clear();
+  }
+
+  /**
+   * Returns the number of renderable instances whose transform was pushed to Filament in the last
+   * frame, because it changed since the previous push.
+   *
+   * @hide
+   */
+  public int getPushedTransformCount() {
+    return pushedTransformCount;
+  }
+
+  /**
+   * Returns the number of renderable instances whose transform was skipped in the last frame,
+   * because it didn't change since the previous push.
+   *
+   * @hide
+   */
+  public int getSkippedTransformCount() {
+    return skippedTransformCount;
   }
 
   private void updateLights() {
@@ -2,6 +2,8 @@ package com.google.ar.sceneform.rendering;
 
 import android.support.annotation.Nullable;
 
+import com.google.ar.sceneform.resources.ReclaimBudget;
+import com.google.ar.sceneform.resources.ResourceCache;
 import com.google.ar.sceneform.resources.ResourceHolder;
 import com.google.ar.sceneform.resources.ResourceRegistry;
 import java.util.ArrayList;
@@ -16,7 +18,21 @@ import java.util.ArrayList;
 public class ResourceManager {
   @Nullable private static ResourceManager instance = null;
 
+  // Materials hold no geometry or texels of their own, their textures are accounted separately.
+  private static final long MATERIAL_SIZE_IN_BYTES = 1024;
+
+  // Default per-frame budget of reclaimReleasedResourcesWithinBudget.
+  private static final long DEFAULT_RECLAIM_TIME_BUDGET_NANOS = 1_000_000;
+  private static final int DEFAULT_RECLAIM_COUNT_BUDGET = Integer.MAX_VALUE;
+
   private final ArrayList<ResourceHolder> resourceHolders = new ArrayList<>();
+  private final ReclaimBudget reclaimBudget = new ReclaimBudget();
+  private long reclaimTimeBudgetNanos = DEFAULT_RECLAIM_TIME_BUDGET_NANOS;
+  private int reclaimCountBudget = DEFAULT_RECLAIM_COUNT_BUDGET;
+  // Holder reclaimed first by the next budgeted call, rotated so that no holder starves.
+  private int nextReclaimHolder;
+  private long lastReclaimTimeNanos;
+  private final ResourceCache resourceCache = new ResourceCache();
   private final ResourceRegistry<Texture> textureRegistry = new ResourceRegistry<>();
   private final ResourceRegistry<Material> materialRegistry = new ResourceRegistry<>();
   private final ResourceRegistry<ModelRenderable> modelRenderableRegistry =
@@ -32,6 +48,7 @@ public class ResourceManager {
   private final CleanupRegistry<RenderableInstance> renderableInstanceCleanupRegistry =
       new CleanupRegistry<>();
   private final CleanupRegistry<Texture> textureCleanupRegistry = new CleanupRegistry<>();
+  private final ShapeGeometryCache shapeGeometryCache = new ShapeGeometryCache();
 
   ResourceRegistry<Texture> getTextureRegistry() {
     return textureRegistry;
@@ -70,6 +87,43 @@ public class ResourceManager {
     return textureCleanupRegistry;
   }
 
+  ShapeGeometryCache getShapeGeometryCache() {
+    return shapeGeometryCache;
+  }
+
+  /**
+   * Sets the total estimated size of the models, textures and materials kept loaded after they are
+   * no longer used, so that building them again with the same registry id doesn't reload them.
+   * The least recently used ones are released first. Zero disables this, which is the default.
+   */
+  public void setCacheBudgetBytes(long budgetBytes) {
+    resourceCache.setBudgetBytes(budgetBytes);
+  }
+
+  public long getCacheBudgetBytes() {
+    return resourceCache.getBudgetBytes();
+  }
+
+  /** Returns the total estimated size of the resources currently kept loaded by the cache. */
+  public long getCacheSizeBytes() {
+    return resourceCache.getSizeBytes();
+  }
+
+  /** Returns the number of registry lookups that found a loaded or loading resource. */
+  public long getCacheHitCount() {
+    return resourceCache.getHitCount();
+  }
+
+  /** Returns the number of registry lookups that found nothing, so the resource was loaded. */
+  public long getCacheMissCount() {
+    return resourceCache.getMissCount();
+  }
+
+  /** Returns the number of resources released by the cache to stay within its budget. */
+  public long getCacheEvictionCount() {
+    return resourceCache.getEvictionCount();
+  }
+
   public long reclaimReleasedResources() {
     long resourcesInUse = 0;
     for (ResourceHolder registry : resourceHolders) {
@@ -78,11 +132,63 @@ public class ResourceManager {
     return resourcesInUse;
   }
 
+  /**
+   * Like {@link #reclaimReleasedResources()}, but stops disposing resources once the per-frame
+   * budget set by {@link #setReclaimBudget(long, int)} is spent. The rest are disposed by the next
+   * calls, so that releasing a large scene doesn't stall a single frame.
+   *
+   * @return Count of resources in use
+   */
+  public long reclaimReleasedResourcesWithinBudget() {
+    long startNanos = System.nanoTime();
+    reclaimBudget.reset(reclaimTimeBudgetNanos, reclaimCountBudget);
+
+    long resourcesInUse = 0;
+    int holderCount = resourceHolders.size();
+    for (int i = 0; i < holderCount; i++) {
+      ResourceHolder resourceHolder = resourceHolders.get((nextReclaimHolder + i) % holderCount);
+      resourcesInUse += resourceHolder.reclaimReleasedResources(reclaimBudget);
+    }
+    nextReclaimHolder = holderCount == 0 ? 0 : (nextReclaimHolder + 1) % holderCount;
+
+    lastReclaimTimeNanos = System.nanoTime() - startNanos;
+    return resourcesInUse;
+  }
+
+  /**
+   * Sets the budget of each call to {@link #reclaimReleasedResourcesWithinBudget()}. At least one
+   * resource is disposed per call whatever the budget.
+   *
+   * @param timeBudgetNanos the time after which no more resources are disposed
+   * @param maxCount the maximum number of resources disposed
+   */
+  public void setReclaimBudget(long timeBudgetNanos, int maxCount) {
+    reclaimTimeBudgetNanos = timeBudgetNanos;
+    reclaimCountBudget = maxCount;
+  }
+
+  /** Returns the number of released resources left for later by the last budgeted reclaim. */
+  public long getReclaimBacklog() {
+    return reclaimBudget.getBacklog();
+  }
+
+  /** Returns the number of resources disposed by the last budgeted reclaim. */
+  public int getLastReclaimCount() {
+    return reclaimBudget.getReclaimedCount();
+  }
+
+  /** Returns the time spent by the last budgeted reclaim, in nanoseconds. */
+  public long getLastReclaimTimeNanos() {
+    return lastReclaimTimeNanos;
+  }
+
   /** Forcibly deletes all tracked references */
   public void destroyAllResources() {
     for (ResourceHolder resourceHolder : resourceHolders) {
       resourceHolder.destroyAllResources();
     }
+    Material.clearDirtyMaterials();
+    BitmapDecoder.getBitmapPool().clear();
   }
 
   public void addResourceHolder(ResourceHolder resource) {
@@ -98,6 +204,9 @@ public class ResourceManager {
   }
 
   private ResourceManager() {
+    textureRegistry.setCache(resourceCache, Texture::getSizeInBytes);
+    materialRegistry.setCache(resourceCache, material -> MATERIAL_SIZE_IN_BYTES);
+    modelRenderableRegistry.setCache(resourceCache, ModelRenderable::getSizeInBytes);
     addResourceHolder(textureRegistry);
     addResourceHolder(materialRegistry);
     addResourceHolder(modelRenderableRegistry);
@@ -107,6 +216,7 @@ public class ResourceManager {
     addResourceHolder(materialCleanupRegistry);
     addResourceHolder(renderableInstanceCleanupRegistry);
     addResourceHolder(textureCleanupRegistry);
+    addResourceHolder(shapeGeometryCache);
   }
 
   
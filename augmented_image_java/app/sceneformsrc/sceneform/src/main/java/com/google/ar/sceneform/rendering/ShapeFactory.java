@@ -5,6 +5,7 @@ import android.support.annotation.Nullable;
 import android.support.annotation.RequiresApi;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
+import com.google.ar.sceneform.rendering.ShapeGeometryCache.Shape;
 import com.google.ar.sceneform.rendering.Vertex.UvCoordinate;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
 import java.util.ArrayList;
@@ -12,11 +13,20 @@ import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
-/** Utility class used to dynamically construct {@link ModelRenderable}s for various shapes. */
+/**
+ * Utility class used to dynamically construct {@link ModelRenderable}s for various shapes.
+ *
+ * <p>Shapes made with the same parameters share their vertex and index buffers, and only have
+ * their own material. The buffers are released once all the shapes sharing them are garbage
+ * collected. Since the geometry is shared, use {@link RenderableDefinition} instead to build a
+ * renderable whose geometry is later updated.
+ */
 @RequiresApi(api = Build.VERSION_CODES.N)
 public final class ShapeFactory {
   private static final String TAG = ShapeFactory.class.getSimpleName();
   private static final int COORDS_PER_TRIANGLE = 3;
+  private static final int SPHERE_SEGMENTS = 24;
+  private static final int CYLINDER_SIDES = 24;
 
   /**
    * Creates a {@link ModelRenderable} in the shape of a cube with the give specifications.
@@ -31,6 +41,15 @@ public final class ShapeFactory {
   public static ModelRenderable makeCube(Vector3 size, Vector3 center, Material material) {
     AndroidPreconditions.checkMinAndroidApiLevel();
 
+    ShapeGeometryCache.Key key =
+        new ShapeGeometryCache.Key(
+            Shape.CUBE, 0, size.x, size.y, size.z, center.x, center.y, center.z);
+    return ResourceManager.getInstance()
+        .getShapeGeometryCache()
+        .get(key, material, () -> buildCube(size, center, material));
+  }
+
+  private static ModelRenderable buildCube(Vector3 size, Vector3 center, Material material) {
     Vector3 extents = size.scaled(0.5f);
 
     Vector3 p0 = Vector3.add(center, new Vector3(-extents.x, -extents.y, extents.z));
@@ -115,21 +134,7 @@ public final class ShapeFactory {
             .setSubmeshes(Arrays.asList(submesh))
             .build();
 
-    CompletableFuture<ModelRenderable> future =
-        ModelRenderable.builder().setSource(renderableDefinition).build();
-
-    @Nullable ModelRenderable result;
-    try {
-      result = future.get();
-    } catch (ExecutionException | InterruptedException ex) {
-      throw new AssertionError("Error creating renderable.", ex);
-    }
-
-    if (result == null) {
-      throw new AssertionError("Error creating renderable.");
-    }
-
-    return result;
+    return build(renderableDefinition);
   }
 
   /**
@@ -145,8 +150,17 @@ public final class ShapeFactory {
   public static ModelRenderable makeSphere(float radius, Vector3 center, Material material) {
     AndroidPreconditions.checkMinAndroidApiLevel();
 
-    final int stacks = 24;
-    final int slices = 24;
+    ShapeGeometryCache.Key key =
+        new ShapeGeometryCache.Key(
+            Shape.SPHERE, SPHERE_SEGMENTS, radius, center.x, center.y, center.z);
+    return ResourceManager.getInstance()
+        .getShapeGeometryCache()
+        .get(key, material, () -> buildSphere(radius, center, material));
+  }
+
+  private static ModelRenderable buildSphere(float radius, Vector3 center, Material material) {
+    final int stacks = SPHERE_SEGMENTS;
+    final int slices = SPHERE_SEGMENTS;
 
     // Create Vertices.
     ArrayList<Vertex> vertices = new ArrayList<>((slices + 1) * stacks + 2);
@@ -219,21 +233,7 @@ public final class ShapeFactory {
             .setSubmeshes(Arrays.asList(submesh))
             .build();
 
-    CompletableFuture<ModelRenderable> future =
-        ModelRenderable.builder().setSource(renderableDefinition).build();
-
-    @Nullable ModelRenderable result;
-    try {
-      result = future.get();
-    } catch (ExecutionException | InterruptedException ex) {
-      throw new AssertionError("Error creating renderable.", ex);
-    }
-
-    if (result == null) {
-      throw new AssertionError("Error creating renderable.");
-    }
-
-    return result;
+    return build(renderableDefinition);
   }
 
   /**
@@ -251,7 +251,17 @@ public final class ShapeFactory {
       float radius, float height, Vector3 center, Material material) {
     AndroidPreconditions.checkMinAndroidApiLevel();
 
-    final int numberOfSides = 24;
+    ShapeGeometryCache.Key key =
+        new ShapeGeometryCache.Key(
+            Shape.CYLINDER, CYLINDER_SIDES, radius, height, center.x, center.y, center.z);
+    return ResourceManager.getInstance()
+        .getShapeGeometryCache()
+        .get(key, material, () -> buildCylinder(radius, height, center, material));
+  }
+
+  private static ModelRenderable buildCylinder(
+      float radius, float height, Vector3 center, Material material) {
+    final int numberOfSides = CYLINDER_SIDES;
     final float halfHeight = height / 2;
     final float thetaIncrement = (float) (2 * Math.PI) / numberOfSides;
 
@@ -376,6 +386,12 @@ public final class ShapeFactory {
             .setSubmeshes(Arrays.asList(submesh))
             .build();
 
+    return build(renderableDefinition);
+  }
+
+  @SuppressWarnings("AndroidApiChecker")
+  // CompletableFuture requires api level 24
+  private static ModelRenderable build(RenderableDefinition renderableDefinition) {
     CompletableFuture<ModelRenderable> future =
         ModelRenderable.builder().setSource(renderableDefinition).build();
 
@@ -0,0 +1,153 @@
+package com.google.ar.sceneform.rendering;
+
+import com.google.ar.sceneform.resources.ReclaimBudget;
+import com.google.ar.sceneform.resources.ResourceHolder;
+import com.google.ar.sceneform.resources.SharedReference;
+import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares the geometry of the shapes built by {@link ShapeFactory} between all the renderables
+ * built with the same parameters. Each renderable shares the vertex and index buffers of the first
+ * one built, but binds its own material.
+ *
+ * <p>Each entry counts the renderables handed out for it, and is removed once they were all
+ * garbage collected. The buffers are then disposed with the last renderable that used them.
+ */
+class ShapeGeometryCache implements ResourceHolder {
+  /** The kinds of shapes built by {@link ShapeFactory}. */
+  enum Shape {
+    CUBE,
+    SPHERE,
+    CYLINDER
+  }
+
+  /** Identifies the geometry of a shape by its kind, tessellation and dimensions. */
+  static final class Key {
+    private final Shape shape;
+    private final int tessellation;
+    private final float[] dimensions;
+
+    Key(Shape shape, int tessellation, float... dimensions) {
+      this.shape = shape;
+      this.tessellation = tessellation;
+      this.dimensions = dimensions;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+      if (!(object instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) object;
+      return shape == other.shape
+          && tessellation == other.tessellation
+          && Arrays.equals(dimensions, other.dimensions);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = shape.hashCode();
+      result = 31 * result + tessellation;
+      result = 31 * result + Arrays.hashCode(dimensions);
+      return result;
+    }
+  }
+
+  /** Cached geometry, counting the renderables that share it. */
+  private final class Entry extends SharedReference {
+    private final Key key;
+    private final ModelRenderable prototype;
+
+    Entry(Key key, ModelRenderable prototype) {
+      this.key = key;
+      this.prototype = prototype;
+    }
+
+    @Override
+    protected void onDispose() {
+      if (entries.get(key) == this) {
+        entries.remove(key);
+      }
+    }
+  }
+
+  private final HashMap<Key, Entry> entries = new HashMap<>();
+  private final CleanupRegistry<ModelRenderable> cleanupRegistry = new CleanupRegistry<>();
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * Returns a renderable with the geometry cached for the key, bound to the material. If nothing is
+   * cached for the key, the geometry is taken from a renderable built by the supplier.
+   */
+  ModelRenderable get(Key key, Material material, Supplier<ModelRenderable> renderableSupplier) {
+    AndroidPreconditions.checkUiThread();
+
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      missCount++;
+      entry = new Entry(key, renderableSupplier.get());
+      entries.put(key, entry);
+    } else {
+      hitCount++;
+    }
+
+    ModelRenderable renderable = entry.prototype.makeCopyWithMaterial(material);
+    entry.retain();
+    cleanupRegistry.register(renderable, new CleanupCallback(entry));
+    return renderable;
+  }
+
+  /** Returns the number of shapes built with geometry that was already cached. */
+  long getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of shapes whose geometry had to be built. */
+  long getMissCount() {
+    return missCount;
+  }
+
+  /** Returns the number of distinct geometries in use. */
+  int getEntryCount() {
+    return entries.size();
+  }
+
+  @Override
+  public long reclaimReleasedResources() {
+    return cleanupRegistry.reclaimReleasedResources();
+  }
+
+  @Override
+  public long reclaimReleasedResources(ReclaimBudget budget) {
+    return cleanupRegistry.reclaimReleasedResources(budget);
+  }
+
+  @Override
+  public void destroyAllResources() {
+    cleanupRegistry.destroyAllResources();
+    entries.clear();
+  }
+
+  /** Releases the cached geometry after a renderable sharing it is garbage collected. */
+  private static final class CleanupCallback implements Runnable {
+    private final SharedReference entry;
+
+    CleanupCallback(SharedReference entry) {
+      this.entry = entry;
+    }
+
+    @Override
+    public void run() {
+      AndroidPreconditions.checkUiThread();
+      entry.release();
+    }
+  }
+}
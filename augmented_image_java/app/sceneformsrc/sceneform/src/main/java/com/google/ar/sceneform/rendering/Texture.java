@@ -15,7 +15,10 @@ import com.google.ar.sceneform.utilities.AndroidPreconditions;
 import com.google.ar.sceneform.utilities.LoadHelper;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 
 /** Represents a reference to a texture. */
@@ -36,6 +39,19 @@ public class Texture {
     DATA
   }
 
+  // Every internal format used by getInternalFormatForUsage has four bytes per pixel.
+  private static final int BYTES_PER_PIXEL = 4;
+
+  // Largest width or height of a texture, in pixels.
+  private static final int MAX_BITMAP_SIZE = 4096;
+
+  // Maximum width or height of decoded images for each usage. Larger images are downsampled.
+  private static final int[] maxDimensions = new int[Usage.values().length];
+
+  static {
+    Arrays.fill(maxDimensions, MAX_BITMAP_SIZE);
+  }
+
   // Set mipCount to the maximum number of levels, Filament will clamp it as required.
   // This will make sure that all the mip levels are filled out, down to 1x1.
   private static final int MIP_LEVELS_TO_GENERATE = 0xff;
@@ -49,6 +65,34 @@ public class Texture {
     return new Builder();
   }
 
+  /**
+   * Sets the maximum width and height of the textures of the given usage that are decoded from
+   * images, including the textures of models. Larger images are downsampled by a power of two
+   * while they are decoded, which saves both decoding time and memory. The default is 4096 pixels,
+   * the largest supported size.
+   *
+   * @param usage the usage of the textures affected
+   * @param maxDimension the maximum width and height, in pixels
+   */
+  public static void setMaxDimension(Usage usage, int maxDimension) {
+    Preconditions.checkNotNull(usage, "Parameter \"usage\" was null.");
+    if (maxDimension <= 0 || maxDimension > MAX_BITMAP_SIZE) {
+      throw new IllegalArgumentException(
+          "Parameter \"maxDimension\" must be between 1 and " + MAX_BITMAP_SIZE + ".");
+    }
+
+    synchronized (maxDimensions) {
+      maxDimensions[usage.ordinal()] = maxDimension;
+    }
+  }
+
+  /** Returns the maximum width and height of decoded textures of the given usage, in pixels. */
+  public static int getMaxDimension(Usage usage) {
+    synchronized (maxDimensions) {
+      return maxDimensions[usage.ordinal()];
+    }
+  }
+
   @SuppressWarnings({"initialization"})
   @UsedByNative("material_java_wrappers.h")
   private Texture(TextureInternalData textureData) {
@@ -72,6 +116,17 @@ public class Texture {
     return Preconditions.checkNotNull(textureData).getFilamentTexture();
   }
 
+  /** Estimates the memory used by the texture and its mip levels, for the resource cache. */
+  long getSizeInBytes() {
+    com.google.android.filament.Texture filamentTexture = getFilamentTexture();
+    long sizeInBytes = 0;
+    for (int level = 0; level < filamentTexture.getLevels(); level++) {
+      long pixelCount = (long) filamentTexture.getWidth(level) * filamentTexture.getHeight(level);
+      sizeInBytes += pixelCount * BYTES_PER_PIXEL;
+    }
+    return sizeInBytes;
+  }
+
   private static com.google.android.filament.Texture.InternalFormat getInternalFormatForUsage(
       Usage usage) {
     com.google.android.filament.Texture.InternalFormat format;
@@ -93,6 +148,8 @@ public class Texture {
   public static final class Builder {
     /** The {@link Texture} will be constructed from the contents of this callable */
     @Nullable private Callable<InputStream> inputStreamCreator = null;
+    /** The {@link Texture} will be decoded in place from the remaining bytes of this buffer */
+    @Nullable private ByteBuffer sourceBuffer = null;
 
     @Nullable private Bitmap bitmap = null;
     @Nullable private TextureInternalData textureInternalData = null;
@@ -104,8 +161,12 @@ public class Texture {
     private boolean inPremultiplied = true;
 
     private Sampler sampler = Sampler.builder().build();
+    // Zero when the maximum dimension of the usage applies.
+    private int maxDimension = 0;
 
-    private static final int MAX_BITMAP_SIZE = 4096;
+    private LoadPriority loadPriority = LoadPriority.VISIBLE;
+    /** Set when the texture is loaded as part of another load, such as a model. */
+    @Nullable private LoadRequest loadRequest = null;
 
     /** Constructor for asynchronous building. The sourceBuffer will be read later. */
     private Builder() {}
@@ -137,6 +198,21 @@ public class Texture {
       Preconditions.checkNotNull(inputStreamCreator, "Parameter \"inputStreamCreator\" was null.");
 
       this.inputStreamCreator = inputStreamCreator;
+      sourceBuffer = null;
+      bitmap = null;
+      return this;
+    }
+
+    /**
+     * Allows a {@link Texture} to be decoded from the remaining bytes of a buffer without copying
+     * them, such as an image embedded in a model. The buffer must not change until the texture is
+     * built.
+     */
+    Builder setSource(ByteBuffer sourceBuffer) {
+      Preconditions.checkNotNull(sourceBuffer, "Parameter \"sourceBuffer\" was null.");
+
+      this.sourceBuffer = sourceBuffer;
+      inputStreamCreator = null;
       bitmap = null;
       return this;
     }
@@ -198,6 +274,7 @@ public class Texture {
       // TODO: don't overwrite calls to setRegistryId
       registryId = null;
       inputStreamCreator = null;
+      sourceBuffer = null;
       return this;
     }
 
@@ -248,6 +325,24 @@ public class Texture {
       return this;
     }
 
+    /**
+     * Sets the maximum width and height of the {@link Texture} when it is decoded from an image,
+     * instead of the one set for its usage with {@link Texture#setMaxDimension(Usage, int)}. Larger
+     * images are downsampled by a power of two.
+     *
+     * @param maxDimension the maximum width and height, in pixels
+     * @return {@link Builder} for chaining setup calls.
+     */
+    public Builder setMaxDimension(int maxDimension) {
+      if (maxDimension <= 0 || maxDimension > MAX_BITMAP_SIZE) {
+        throw new IllegalArgumentException(
+            "Parameter \"maxDimension\" must be between 1 and " + MAX_BITMAP_SIZE + ".");
+      }
+
+      this.maxDimension = maxDimension;
+      return this;
+    }
+
     /**
      * Sets the {@link Sampler}to control rendering parameters on the {@link Texture}.
      *
@@ -259,6 +354,28 @@ public class Texture {
       return this;
     }
 
+    /**
+     * Sets the priority of the background work of the load, relative to the other loads. The
+     * default is {@link LoadPriority#VISIBLE}.
+     *
+     * <p>Cancelling the future returned by {@link #build()} stops the remaining stages of the load,
+     * unless another build of the same registry id is still waiting for it.
+     *
+     * @param loadPriority the priority of the load
+     * @return {@link Builder} for chaining setup calls.
+     */
+    public Builder setLoadPriority(LoadPriority loadPriority) {
+      Preconditions.checkNotNull(loadPriority, "Parameter \"loadPriority\" was null.");
+      this.loadPriority = loadPriority;
+      return this;
+    }
+
+    /** Makes the texture part of another load, which it shares the priority and cancellation of. */
+    Builder setLoadRequest(LoadRequest loadRequest) {
+      this.loadRequest = loadRequest;
+      return this;
+    }
+
     /**
      * Creates a new {@link Texture} based on the parameters set previously
      *
@@ -271,7 +388,16 @@ public class Texture {
         // See if a texture has already been registered by this id, if so re-use it.
         ResourceRegistry<Texture> registry = ResourceManager.getInstance().getTextureRegistry();
         @Nullable CompletableFuture<Texture> textureFuture = registry.get(registryId);
-        if (textureFuture != null) {
+        // A load that was cancelled is about to fail, so it is started again instead.
+        LoadRequest pendingRequest =
+            textureFuture != null ? LoadRequest.forLoad(textureFuture) : null;
+        if (pendingRequest != null && !pendingRequest.isCancelled()) {
+          // Each caller gets its own future, so that cancelling it doesn't fail the others.
+          CompletableFuture<Texture> result = textureFuture.thenApply(texture -> texture);
+          pendingRequest.raisePriority(loadPriority);
+          pendingRequest.addConsumer(result);
+          return result;
+        } else if (textureFuture != null && pendingRequest == null) {
           return textureFuture;
         }
       }
@@ -280,24 +406,43 @@ public class Texture {
         throw new IllegalStateException("Builder must not set both a bitmap and filament texture");
       }
 
+      // Textures loaded on their own own their request. Those loaded as part of a model share the
+      // request of the model, which is cancelled through the model.
+      boolean ownsLoadRequest = this.loadRequest == null;
+      LoadRequest loadRequest =
+          ownsLoadRequest ? new LoadRequest(loadPriority) : this.loadRequest;
+
       CompletableFuture<Texture> result;
       if (this.textureInternalData != null) {
         result = CompletableFuture.completedFuture(new Texture(this.textureInternalData));
       } else {
+        int maxDimension = this.maxDimension != 0 ? this.maxDimension : getMaxDimension(usage);
         CompletableFuture<Bitmap> bitmapFuture;
-        if (inputStreamCreator != null) {
-          bitmapFuture = makeBitmap(inputStreamCreator, inPremultiplied);
+        if (inputStreamCreator != null || sourceBuffer != null) {
+          bitmapFuture =
+              makeBitmap(
+                  inputStreamCreator, sourceBuffer, inPremultiplied, maxDimension, loadRequest);
         } else if (bitmap != null) {
           bitmapFuture = CompletableFuture.completedFuture(bitmap);
         } else {
           throw new IllegalStateException("Texture must have a source.");
         }
 
+        // Bitmaps decoded here are given back to the pool once uploaded. Those set by the caller
+        // remain theirs.
+        boolean isDecodedBitmap = bitmap == null;
         result =
             bitmapFuture.thenApplyAsync(
                 loadedBitmap -> {
+                  if (loadRequest.isCancelled()) {
+                    if (isDecodedBitmap) {
+                      BitmapDecoder.release(loadedBitmap);
+                    }
+                    loadRequest.throwIfCancelled();
+                  }
                   TextureInternalData textureData =
-                      makeTextureData(loadedBitmap, sampler, usage, MIP_LEVELS_TO_GENERATE);
+                      makeTextureData(
+                          loadedBitmap, isDecodedBitmap, sampler, usage, MIP_LEVELS_TO_GENERATE);
                   return new Texture(textureData);
                 },
                 ThreadPools.getMainExecutor());
@@ -310,22 +455,39 @@ public class Texture {
 
       FutureHelper.logOnException(
           TAG, result, "Unable to load Texture registryId='" + registryId + "'");
-      return result;
+      if (!ownsLoadRequest || result.isDone()) {
+        return result;
+      }
+
+      loadRequest.track(result);
+      CompletableFuture<Texture> consumerResult = result.thenApply(texture -> texture);
+      loadRequest.addConsumer(consumerResult);
+      return consumerResult;
     }
 
     private static CompletableFuture<Bitmap> makeBitmap(
-        Callable<InputStream> inputStreamCreator, boolean inPremultiplied) {
+        @Nullable Callable<InputStream> inputStreamCreator,
+        @Nullable ByteBuffer sourceBuffer,
+        boolean inPremultiplied,
+        int maxDimension,
+        LoadRequest loadRequest) {
       return CompletableFuture.supplyAsync(
           () -> {
-            // Read the texture file.
-            final BitmapFactory.Options options = new BitmapFactory.Options();
-            options.inScaled = false;
-            options.inPremultiplied = inPremultiplied;
-            Bitmap bitmap;
+            loadRequest.throwIfCancelled();
 
-            // Open and read the texture file.
-            try (InputStream inputStream = inputStreamCreator.call()) {
-              bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+            Bitmap bitmap;
+            try {
+              if (sourceBuffer != null) {
+                bitmap = BitmapDecoder.decode(sourceBuffer, inPremultiplied, maxDimension);
+              } else {
+                bitmap =
+                    BitmapDecoder.decode(
+                        Preconditions.checkNotNull(inputStreamCreator),
+                        inPremultiplied,
+                        maxDimension);
+              }
+            } catch (CancellationException e) {
+              throw e;
             } catch (Exception e) {
               throw new IllegalStateException(e);
             }
@@ -335,17 +497,13 @@ public class Texture {
                   "Failed to decode the texture bitmap. The InputStream was not a valid bitmap.");
             }
 
-            if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
-              throw new IllegalStateException("Texture must use ARGB8 format.");
-            }
-
             return bitmap;
           },
-          ThreadPools.getThreadPoolExecutor());
+          loadRequest.getExecutor());
     }
 
     private static TextureInternalData makeTextureData(
-        Bitmap bitmap, Sampler sampler, Usage usage, int mipLevels) {
+        Bitmap bitmap, boolean isDecodedBitmap, Sampler sampler, Usage usage, int mipLevels) {
       IEngine engine = EngineInstance.getEngine();
 
       // Due to fun ambiguities between Texture (RenderCore) and Texture (Filament)
@@ -366,7 +524,17 @@ public class Texture {
               .format(textureInternalFormat)
               .build(engine.getFilamentEngine());
 
-      TextureHelper.setBitmap(engine.getFilamentEngine(), filamentTexture, 0, bitmap);
+      if (isDecodedBitmap) {
+        TextureHelper.setBitmap(
+            engine.getFilamentEngine(),
+            filamentTexture,
+            0,
+            bitmap,
+            ThreadPools.getMainHandler(),
+            () -> BitmapDecoder.release(bitmap));
+      } else {
+        TextureHelper.setBitmap(engine.getFilamentEngine(), filamentTexture, 0, bitmap);
+      }
 
       if (mipLevels > 1) {
         filamentTexture.generateMipmaps(engine.getFilamentEngine());
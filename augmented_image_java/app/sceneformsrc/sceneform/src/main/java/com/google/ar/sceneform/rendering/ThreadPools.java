@@ -1,6 +1,5 @@
 package com.google.ar.sceneform.rendering;
 
-import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Looper;
 import java.util.concurrent.Executor;
@@ -12,7 +11,9 @@ import java.util.concurrent.Executor;
  */
 public class ThreadPools {
   private static Executor mainExecutor;
+  private static Handler mainHandler;
   private static Executor threadPoolExecutor;
+  private static volatile LoaderExecutor loaderExecutor;
 
   private ThreadPools() {}
 
@@ -21,7 +22,7 @@ public class ThreadPools {
     if (mainExecutor == null) {
       mainExecutor =
           new Executor() {
-            private final Handler handler = new Handler(Looper.getMainLooper());
+            private final Handler handler = getMainHandler();
 
             @Override
             public void execute(Runnable runnable) {
@@ -32,19 +33,56 @@ public class ThreadPools {
     return mainExecutor;
   }
 
+  /** {@link Handler} of the main thread, for the callbacks of Filament uploads. */
+  public static Handler getMainHandler() {
+    if (mainHandler == null) {
+      mainHandler = new Handler(Looper.getMainLooper());
+    }
+    return mainHandler;
+  }
+
   /** @param executor provides access to the main thread. */
   public static void setMainExecutor(Executor executor) {
     mainExecutor = executor;
   }
 
-  /** Default background {@link Executor} for async operations including file reading. */
+  /**
+   * Default background {@link Executor} for async operations including file reading. Unless set,
+   * this is the {@link LoaderExecutor}, with tasks of {@link LoadPriority#VISIBLE} priority.
+   */
   public static Executor getThreadPoolExecutor() {
     if (threadPoolExecutor == null) {
-      return AsyncTask.THREAD_POOL_EXECUTOR;
+      return getLoaderExecutor();
     }
     return threadPoolExecutor;
   }
 
+  /**
+   * Background {@link Executor} for the loading tasks of the given priority. The priority is
+   * ignored if another executor was set with {@link #setThreadPoolExecutor(Executor)}.
+   */
+  public static Executor getLoaderExecutor(LoadPriority priority) {
+    if (threadPoolExecutor == null) {
+      return getLoaderExecutor().getExecutor(priority);
+    }
+    return threadPoolExecutor;
+  }
+
+  /** Returns the {@link LoaderExecutor}, for its limits and statistics. */
+  public static LoaderExecutor getLoaderExecutor() {
+    LoaderExecutor executor = loaderExecutor;
+    if (executor == null) {
+      synchronized (ThreadPools.class) {
+        executor = loaderExecutor;
+        if (executor == null) {
+          executor = new LoaderExecutor();
+          loaderExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
   /**
    * Sets the default background {@link Executor}.
    *
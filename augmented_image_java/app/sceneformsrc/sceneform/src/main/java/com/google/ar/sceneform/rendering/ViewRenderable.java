@@ -16,6 +16,7 @@ import com.google.ar.sceneform.math.Matrix;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.resources.ResourceRegistry;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import com.google.ar.sceneform.utilities.ChangeId;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.util.OptionalInt;
 import java.util.concurrent.CompletableFuture;
@@ -36,6 +37,8 @@ import java.util.concurrent.CompletableFuture;
 
 public class ViewRenderable extends Renderable {
   private static final String TAG = ViewRenderable.class.getSimpleName();
+  // Handle of the parameter set every frame when the front face winding is inverted.
+  private static final int OFFSET_UV_HANDLE = Material.getParameterHandle("offsetUv");
 
   /**
    * Controls the horizontal alignment of the {@link ViewRenderable} relative to the {@link
@@ -67,6 +70,8 @@ public class ViewRenderable extends Renderable {
   private ViewSizer viewSizer;
   private VerticalAlignment verticalAlignment = VerticalAlignment.BOTTOM;
   private HorizontalAlignment horizontalAlignment = HorizontalAlignment.CENTER;
+  // Updated when the size or alignment used by getFinalModelMatrix changes.
+  private final ChangeId finalModelMatrixId = new ChangeId();
 
   @Nullable private Renderer renderer;
   private boolean isInitialized;
@@ -74,6 +79,7 @@ public class ViewRenderable extends Renderable {
   @SuppressWarnings({"initialization"})
   private final RenderViewToExternalTexture.OnViewSizeChangedListener onViewSizeChangedListener =
       (int width, int height) -> {
+        finalModelMatrixId.update();
         if (isInitialized) {
           updateSuggestedCollisionShapeAsync();
         }
@@ -147,6 +153,7 @@ public class ViewRenderable extends Renderable {
   public void setSizer(ViewSizer viewSizer) {
     Preconditions.checkNotNull(viewSizer, "Parameter \"viewSizer\" was null.");
     this.viewSizer = viewSizer;
+    finalModelMatrixId.update();
     updateSuggestedCollisionShape();
   }
 
@@ -166,6 +173,7 @@ public class ViewRenderable extends Renderable {
    */
   public void setHorizontalAlignment(HorizontalAlignment horizontalAlignment) {
     this.horizontalAlignment = horizontalAlignment;
+    finalModelMatrixId.update();
     updateSuggestedCollisionShape();
   }
 
@@ -185,6 +193,7 @@ public class ViewRenderable extends Renderable {
    */
   public void setVerticalAlignment(VerticalAlignment verticalAlignment) {
     this.verticalAlignment = verticalAlignment;
+    finalModelMatrixId.update();
     updateSuggestedCollisionShape();
   }
 
@@ -219,6 +228,11 @@ public class ViewRenderable extends Renderable {
     return viewScaleMatrix;
   }
 
+  @Override
+  int getFinalModelMatrixId() {
+    return finalModelMatrixId.get();
+  }
+
   /** @hide */
   @Override
   @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"}) // CompletableFuture
@@ -252,7 +266,7 @@ public class ViewRenderable extends Renderable {
     }
 
     if (renderer != null && renderer.isFrontFaceWindingInverted()) {
-      getMaterial().setFloat2("offsetUv", 1, 0);
+      getMaterial().setFloat2(OFFSET_UV_HANDLE, 1, 0);
     }
 
     super.prepareForDraw();
@@ -0,0 +1,57 @@
+package com.google.ar.sceneform.resources;
+
+/**
+ * Limits the time spent and the number of resources disposed by a call to {@link
+ * ResourceHolder#reclaimReleasedResources(ReclaimBudget)}, so that disposing of a large scene is
+ * spread over several frames. One budget is shared by all the holders reclaimed in a frame.
+ *
+ * @hide
+ */
+public class ReclaimBudget {
+  private long deadlineNanos;
+  private int maxCount;
+  private int reclaimedCount;
+  private long backlog;
+
+  /**
+   * Starts a new budget, and clears the counts of the previous one.
+   *
+   * @param timeBudgetNanos the time after which no more resources are disposed
+   * @param maxCount the maximum number of resources to dispose
+   */
+  public void reset(long timeBudgetNanos, int maxCount) {
+    deadlineNanos = System.nanoTime() + timeBudgetNanos;
+    this.maxCount = maxCount;
+    reclaimedCount = 0;
+    backlog = 0;
+  }
+
+  /**
+   * Returns true if another resource may be disposed. The first one always may, so that the
+   * backlog keeps shrinking however small the budget is.
+   */
+  public boolean canReclaim() {
+    return reclaimedCount == 0
+        || (reclaimedCount < maxCount && System.nanoTime() < deadlineNanos);
+  }
+
+  /** Called by a holder after it disposed a resource. */
+  public void onReclaimed() {
+    reclaimedCount++;
+  }
+
+  /** Called by a holder with the number of released resources it left for a later call. */
+  public void addBacklog(int count) {
+    backlog += count;
+  }
+
+  /** Returns the number of resources disposed within this budget. */
+  public int getReclaimedCount() {
+    return reclaimedCount;
+  }
+
+  /** Returns the number of released resources left for a later call. */
+  public long getBacklog() {
+    return backlog;
+  }
+}
@@ -0,0 +1,116 @@
+package com.google.ar.sceneform.resources;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte budget shared by the strong tiers of a set of {@link ResourceRegistry}s.
+ *
+ * <p>A registry only holds weak references to the resources it tracks, so a resource that is no
+ * longer used is collected and has to be loaded again. When the budget is greater than zero, the
+ * registries also hold strong references to recently used resources until their estimated sizes
+ * add up to the budget, evicting the least recently used ones first. Lookups don't take the
+ * eviction lock; recency is kept as a timestamp per entry, and the eviction scans for the oldest
+ * one.
+ *
+ * @hide
+ */
+public class ResourceCache {
+  private final Object evictionLock = new Object();
+  private final CopyOnWriteArrayList<ResourceRegistry<?>> registries =
+      new CopyOnWriteArrayList<>();
+
+  private volatile long budgetBytes;
+  private final AtomicLong sizeBytes = new AtomicLong();
+  private final AtomicLong clock = new AtomicLong();
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  /**
+   * Sets the total estimated size of the resources held strongly, in bytes. Zero disables the
+   * strong tier, which is the default.
+   */
+  public void setBudgetBytes(long budgetBytes) {
+    if (budgetBytes < 0) {
+      throw new IllegalArgumentException("Parameter \"budgetBytes\" was negative.");
+    }
+
+    this.budgetBytes = budgetBytes;
+    trim();
+  }
+
+  public long getBudgetBytes() {
+    return budgetBytes;
+  }
+
+  /** Returns the total estimated size of the resources currently held strongly, in bytes. */
+  public long getSizeBytes() {
+    return sizeBytes.get();
+  }
+
+  /** Returns the number of lookups that found a loaded or loading resource. */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** Returns the number of lookups that found nothing, so that the resource had to be loaded. */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /** Returns the number of resources evicted from the strong tier to stay within the budget. */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  void addRegistry(ResourceRegistry<?> registry) {
+    registries.addIfAbsent(registry);
+  }
+
+  long tick() {
+    return clock.incrementAndGet();
+  }
+
+  void recordHit() {
+    hitCount.incrementAndGet();
+  }
+
+  void recordMiss() {
+    missCount.incrementAndGet();
+  }
+
+  void addSize(long deltaBytes) {
+    sizeBytes.addAndGet(deltaBytes);
+  }
+
+  /** Evicts the least recently used resources of all registries until the budget is met. */
+  void trim() {
+    if (sizeBytes.get() <= budgetBytes) {
+      return;
+    }
+
+    synchronized (evictionLock) {
+      while (sizeBytes.get() > budgetBytes) {
+        ResourceRegistry<?> oldestRegistry = null;
+        long oldestAccessTime = Long.MAX_VALUE;
+        for (ResourceRegistry<?> registry : registries) {
+          long accessTime = registry.getOldestStrongAccessTime();
+          if (accessTime < oldestAccessTime) {
+            oldestAccessTime = accessTime;
+            oldestRegistry = registry;
+          }
+        }
+
+        if (oldestRegistry == null) {
+          return;
+        }
+
+        if (oldestRegistry.evictStrongEntry(oldestAccessTime)) {
+          evictionCount.incrementAndGet();
+        }
+      }
+    }
+  }
+}
@@ -9,6 +9,19 @@ public interface ResourceHolder {
    */
   long reclaimReleasedResources();
 
+  /**
+   * Polls for garbage collected objects and disposes associated data until the budget is spent.
+   * The objects left are disposed by later calls, and are reported in the budget's backlog.
+   *
+   * <p>By default this ignores the budget and disposes every garbage collected object with {@link
+   * #reclaimReleasedResources()}.
+   *
+   * @return Count of resources in use.
+   */
+  default long reclaimReleasedResources(ReclaimBudget budget) {
+    return reclaimReleasedResources();
+  }
+
   /** Ignores reference count and disposes any associated resources. */
   void destroyAllResources();
 }
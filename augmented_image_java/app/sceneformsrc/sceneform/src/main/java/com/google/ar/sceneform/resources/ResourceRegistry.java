@@ -8,11 +8,16 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ResourceRegistry keeps track of resources that have been loaded and are in the process of being
  * loaded. The registry maintains only weak references and doesn't prevent resources from being
- * collected.
+ * collected, unless it is given a {@link ResourceCache} with a budget, in which case recently used
+ * resources are also held strongly until the budget is reached.
+ *
+ * <p>Loaded resources are looked up without locking. Only resources that are still loading are
+ * guarded by a lock.
  *
  * @hide
  */
@@ -21,10 +26,31 @@ import java.util.concurrent.CompletableFuture;
 public class ResourceRegistry<T> implements ResourceHolder {
   private static final String TAG = ResourceRegistry.class.getSimpleName();
 
+  /** Estimates the memory used by a resource, for the byte budget of a {@link ResourceCache}. */
+  public interface SizeEstimator<T> {
+    long getSizeInBytes(T resource);
+  }
+
+  /** A resource held strongly by the cache tier. */
+  private static class StrongEntry<T> {
+    final T resource;
+    final long sizeInBytes;
+    volatile long lastAccessTime;
+
+    StrongEntry(T resource, long sizeInBytes, long lastAccessTime) {
+      this.resource = resource;
+      this.sizeInBytes = sizeInBytes;
+      this.lastAccessTime = lastAccessTime;
+    }
+  }
+
   private final Object lock = new Object();
 
-  @GuardedBy("lock")
-  private final Map<Object, WeakReference<T>> registry = new HashMap<>();
+  private final ConcurrentHashMap<Object, WeakReference<T>> registry = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Object, StrongEntry<T>> strongRegistry =
+      new ConcurrentHashMap<>();
+  @Nullable private volatile ResourceCache cache;
+  @Nullable private volatile SizeEstimator<T> sizeEstimator;
 
   @GuardedBy("lock")
   private final Map<Object, CompletableFuture<T>> futureRegistry = new HashMap<>();
@@ -38,22 +64,81 @@ public class ResourceRegistry<T> implements ResourceHolder {
   public CompletableFuture<T> get(Object id) {
     Preconditions.checkNotNull(id, "Parameter 'id' was null.");
 
+    ResourceCache cache = this.cache;
+
+    // If the resource has already finished loading, return a completed future to that resource.
+    StrongEntry<T> strongEntry = strongRegistry.get(id);
+    if (strongEntry != null) {
+      if (cache != null) {
+        strongEntry.lastAccessTime = cache.tick();
+        cache.recordHit();
+      }
+      return CompletableFuture.completedFuture(strongEntry.resource);
+    }
+
+    WeakReference<T> reference = registry.get(id);
+    if (reference != null) {
+      T resource = reference.get();
+      if (resource != null) {
+        // Still in use after being evicted from the strong tier, so it is recent again.
+        putStrong(id, resource);
+        if (cache != null) {
+          cache.recordHit();
+        }
+        return CompletableFuture.completedFuture(resource);
+      } else {
+        registry.remove(id, reference);
+      }
+    }
+
+    // If the resource is in the process of loading, return the future directly.
+    // If the id is not registered, this will be null.
+    CompletableFuture<T> futureResource;
     synchronized (lock) {
-      // If the resource has already finished loading, return a completed future to that resource.
-      WeakReference<T> reference = registry.get(id);
-      if (reference != null) {
-        T resource = reference.get();
+      futureResource = futureRegistry.get(id);
+      if (futureResource == null) {
+        // The load may have completed since the maps above were read. Completions are published
+        // under the lock, before their future is removed, so looking again here can't miss them.
+        T resource = getLoaded(id);
         if (resource != null) {
-          return CompletableFuture.completedFuture(resource);
-        } else {
-          registry.remove(id);
+          futureResource = CompletableFuture.completedFuture(resource);
         }
       }
+    }
+
+    if (cache != null) {
+      if (futureResource != null) {
+        cache.recordHit();
+      } else {
+        cache.recordMiss();
+      }
+    }
+    return futureResource;
+  }
 
-      // If the resource is in the process of loading, return the future directly.
-      // If the id is not registered, this will be null.
-      return futureRegistry.get(id);
+  /** Returns the loaded resource registered with the id, or null if there is none. */
+  @Nullable
+  private T getLoaded(Object id) {
+    StrongEntry<T> strongEntry = strongRegistry.get(id);
+    if (strongEntry != null) {
+      return strongEntry.resource;
     }
+
+    WeakReference<T> reference = registry.get(id);
+    return reference != null ? reference.get() : null;
+  }
+
+  /**
+   * Makes the registry hold recently used resources strongly, within the budget of the given cache.
+   * The cache may be shared by several registries.
+   */
+  public void setCache(ResourceCache cache, SizeEstimator<T> sizeEstimator) {
+    Preconditions.checkNotNull(cache, "Parameter 'cache' was null.");
+    Preconditions.checkNotNull(sizeEstimator, "Parameter 'sizeEstimator' was null.");
+
+    this.sizeEstimator = sizeEstimator;
+    this.cache = cache;
+    cache.addRegistry(this);
   }
 
   /**
@@ -82,6 +167,7 @@ public class ResourceRegistry<T> implements ResourceHolder {
         // If the id was previously registered in the futureRegistry, make sure it is removed.
         futureRegistry.remove(id);
       }
+      putStrong(id, resource);
 
       return;
     }
@@ -92,6 +178,7 @@ public class ResourceRegistry<T> implements ResourceHolder {
       // If the id was previously registered in the completed registry, make sure it is removed.
       registry.remove(id);
     }
+    removeStrong(id);
 
     @SuppressWarnings({"FutureReturnValueIgnored", "unused"})
     CompletableFuture<Void> registerFuture =
@@ -103,11 +190,13 @@ public class ResourceRegistry<T> implements ResourceHolder {
                 synchronized (lock) {
                   CompletableFuture<T> futureReference = futureRegistry.get(id);
                   if (futureReference == futureResource) {
-                    futureRegistry.remove(id);
                     if (throwable == null) {
-                      // Only add a reference if there was no exception.
+                      // Only add a reference if there was no exception. It is published before
+                      // the future is removed, so that lookups always find one of them.
                       registry.put(id, new WeakReference<>(result));
+                      putStrong(id, result);
                     }
+                    futureRegistry.remove(id);
                   }
                 }
               }
@@ -135,6 +224,10 @@ public class ResourceRegistry<T> implements ResourceHolder {
 
       registry.clear();
     }
+
+    for (Object id : strongRegistry.keySet()) {
+      removeStrong(id);
+    }
   }
 
   @Override
@@ -144,4 +237,70 @@ public class ResourceRegistry<T> implements ResourceHolder {
     // counting in the other holders.
     return 0;
   }
+
+  @Override
+  public long reclaimReleasedResources(ReclaimBudget budget) {
+    return reclaimReleasedResources();
+  }
+
+  /** Returns the access time of the least recently used strong entry, or Long.MAX_VALUE. */
+  long getOldestStrongAccessTime() {
+    long oldestAccessTime = Long.MAX_VALUE;
+    for (StrongEntry<T> entry : strongRegistry.values()) {
+      oldestAccessTime = Math.min(oldestAccessTime, entry.lastAccessTime);
+    }
+    return oldestAccessTime;
+  }
+
+  /**
+   * Evicts the strong entry last accessed at the given time. Returns false if it was accessed or
+   * removed in the meantime.
+   */
+  boolean evictStrongEntry(long accessTime) {
+    for (Map.Entry<Object, StrongEntry<T>> entry : strongRegistry.entrySet()) {
+      if (entry.getValue().lastAccessTime == accessTime) {
+        return removeStrong(entry.getKey(), entry.getValue());
+      }
+    }
+    return false;
+  }
+
+  private void putStrong(Object id, T resource) {
+    ResourceCache cache = this.cache;
+    SizeEstimator<T> sizeEstimator = this.sizeEstimator;
+    if (cache == null || sizeEstimator == null || cache.getBudgetBytes() == 0) {
+      return;
+    }
+
+    // Resources larger than the whole budget would only evict everything else.
+    long sizeInBytes = sizeEstimator.getSizeInBytes(resource);
+    if (sizeInBytes > cache.getBudgetBytes()) {
+      removeStrong(id);
+      return;
+    }
+
+    StrongEntry<T> entry = new StrongEntry<>(resource, sizeInBytes, cache.tick());
+    StrongEntry<T> previousEntry = strongRegistry.put(id, entry);
+    cache.addSize(previousEntry == null ? sizeInBytes : sizeInBytes - previousEntry.sizeInBytes);
+    cache.trim();
+  }
+
+  private void removeStrong(Object id) {
+    StrongEntry<T> entry = strongRegistry.get(id);
+    if (entry != null) {
+      removeStrong(id, entry);
+    }
+  }
+
+  private boolean removeStrong(Object id, StrongEntry<T> entry) {
+    if (!strongRegistry.remove(id, entry)) {
+      return false;
+    }
+
+    ResourceCache cache = this.cache;
+    if (cache != null) {
+      cache.addSize(-entry.sizeInBytes);
+    }
+    return true;
+  }
 }
@@ -0,0 +1,464 @@
+package com.google.ar.sceneform.utilities;
+
+import android.content.Context;
+import android.support.annotation.GuardedBy;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed disk cache for remote assets, so that models loaded at every start of an app
+ * are only downloaded again when they changed.
+ *
+ * <p>Downloaded content is stored once per SHA-256 hash, and each source url points to the hash of
+ * its last download along with the ETag and Last-Modified validators of the response. A cached url
+ * is revalidated with a conditional request, and read from disk when the server answers that it
+ * didn't change, or can't be reached. Files are written to a temporary name and renamed into place,
+ * so a crash never leaves a partial entry. When the content exceeds the size cap, the least
+ * recently used content is deleted first.
+ *
+ * @hide
+ */
+public class AssetDiskCache {
+  private static final String TAG = AssetDiskCache.class.getSimpleName();
+
+  private static final String DIRECTORY_NAME = "sceneform_assets";
+  private static final String CONTENT_DIRECTORY_NAME = "content";
+  private static final String KEY_DIRECTORY_NAME = "keys";
+  private static final String TEMP_DIRECTORY_NAME = "tmp";
+  // Default cache size of 256MB.
+  private static final long DEFAULT_MAX_SIZE_BYTES = 256L << 20;
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  @Nullable private static volatile AssetDiskCache instance;
+
+  private final File contentDirectory;
+  private final File keyDirectory;
+  private final File tempDirectory;
+
+  private final Object lock = new Object();
+
+  // Content hashes in least recently used order, with their sizes. Loaded from the modification
+  // times of the files the first time the cache is used.
+  @GuardedBy("lock")
+  @Nullable
+  private LinkedHashMap<String, Long> contentSizes;
+
+  @GuardedBy("lock")
+  private long sizeBytes;
+
+  @GuardedBy("lock")
+  private long maxSizeBytes;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong bytesSaved = new AtomicLong();
+  private final AtomicLong bytesDownloaded = new AtomicLong();
+
+  /** Returns the cache shared by the app, in its cache directory. */
+  public static AssetDiskCache getInstance(Context context) {
+    Preconditions.checkNotNull(context, "Parameter \"context\" was null.");
+    AssetDiskCache result = instance;
+    if (result == null) {
+      synchronized (AssetDiskCache.class) {
+        result = instance;
+        if (result == null) {
+          result =
+              new AssetDiskCache(
+                  new File(context.getApplicationContext().getCacheDir(), DIRECTORY_NAME),
+                  DEFAULT_MAX_SIZE_BYTES);
+          instance = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @VisibleForTesting
+  public AssetDiskCache(File directory, long maxSizeBytes) {
+    Preconditions.checkNotNull(directory, "Parameter \"directory\" was null.");
+    contentDirectory = new File(directory, CONTENT_DIRECTORY_NAME);
+    keyDirectory = new File(directory, KEY_DIRECTORY_NAME);
+    tempDirectory = new File(directory, TEMP_DIRECTORY_NAME);
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  /**
+   * Returns a file with the content of the url, downloading it if it isn't cached or changed on
+   * the server. Must not be called on the UI thread.
+   *
+   * <p>The file may be deleted by a later eviction. An open stream or a mapping of it stays valid
+   * until it is closed, so callers should open it right away and fetch again if it is gone.
+   *
+   * @param requestProperty Adds connection properties to the request.
+   */
+  public File fetch(URL url, @Nullable Map<String, String> requestProperty) throws IOException {
+    Preconditions.checkNotNull(url, "Parameter \"url\" was null.");
+    synchronized (lock) {
+      // Before any download starts, since loading deletes the temporary files.
+      loadIfNeeded();
+    }
+
+    String urlString = url.toString();
+    File keyFile = new File(keyDirectory, hash(urlString.getBytes(StandardCharsets.UTF_8)));
+    @Nullable KeyEntry cachedEntry = readKeyEntry(keyFile, urlString);
+    @Nullable File cachedFile =
+        cachedEntry != null ? new File(contentDirectory, cachedEntry.contentHash) : null;
+    if (cachedFile != null && !cachedFile.isFile()) {
+      // The content was evicted.
+      cachedEntry = null;
+      cachedFile = null;
+    }
+
+    URLConnection connection = url.openConnection();
+    if (requestProperty != null) {
+      for (Map.Entry<String, String> entry : requestProperty.entrySet()) {
+        connection.addRequestProperty(entry.getKey(), entry.getValue());
+      }
+    }
+    if (cachedEntry != null) {
+      if (!cachedEntry.eTag.isEmpty()) {
+        connection.setRequestProperty("If-None-Match", cachedEntry.eTag);
+      }
+      if (!cachedEntry.lastModified.isEmpty()) {
+        connection.setRequestProperty("If-Modified-Since", cachedEntry.lastModified);
+      }
+    }
+
+    int responseCode = -1;
+    if (connection instanceof HttpURLConnection) {
+      try {
+        responseCode = ((HttpURLConnection) connection).getResponseCode();
+      } catch (IOException e) {
+        if (cachedFile == null) {
+          throw e;
+        }
+        // Keep working offline with the last known content.
+        Log.w(TAG, "Unable to revalidate " + urlString + ", using the cached content.", e);
+        return onHit(cachedFile);
+      }
+    }
+
+    if (cachedFile != null && responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+      ((HttpURLConnection) connection).disconnect();
+      return onHit(cachedFile);
+    }
+
+    if (cachedFile != null
+        && connection instanceof HttpURLConnection
+        && (responseCode < 200 || responseCode >= 300)) {
+      // The server failed to answer, keep working with the last known content.
+      Log.w(TAG, "Revalidating " + urlString + " failed with HTTP " + responseCode + ".");
+      ((HttpURLConnection) connection).disconnect();
+      return onHit(cachedFile);
+    }
+
+    File contentFile = download(connection);
+    writeKeyEntry(
+        keyFile,
+        new KeyEntry(
+            urlString,
+            contentFile.getName(),
+            nonNull(connection.getHeaderField("ETag")),
+            nonNull(connection.getHeaderField("Last-Modified"))));
+    missCount.incrementAndGet();
+    return contentFile;
+  }
+
+  /** Sets the total size of the cached content, in bytes. */
+  public void setMaxSizeBytes(long maxSizeBytes) {
+    if (maxSizeBytes < 0) {
+      throw new IllegalArgumentException("Parameter \"maxSizeBytes\" was negative.");
+    }
+
+    synchronized (lock) {
+      this.maxSizeBytes = maxSizeBytes;
+      trim(null);
+    }
+  }
+
+  public long getMaxSizeBytes() {
+    synchronized (lock) {
+      return maxSizeBytes;
+    }
+  }
+
+  /** Returns the total size of the cached content, in bytes. */
+  public long getSizeBytes() {
+    synchronized (lock) {
+      loadIfNeeded();
+      return sizeBytes;
+    }
+  }
+
+  /** Returns the number of fetches answered from disk, without downloading the content. */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** Returns the number of fetches that downloaded the content. */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /** Returns the fraction of fetches answered from disk, or zero before the first fetch. */
+  public float getHitRatio() {
+    long hits = hitCount.get();
+    long total = hits + missCount.get();
+    return total == 0 ? 0f : (float) hits / total;
+  }
+
+  /** Returns the number of bytes read from disk instead of being downloaded. */
+  public long getBytesSaved() {
+    return bytesSaved.get();
+  }
+
+  /** Returns the number of bytes downloaded into the cache. */
+  public long getBytesDownloaded() {
+    return bytesDownloaded.get();
+  }
+
+  /** Deletes every cached file. Downloads in progress are still added once complete. */
+  public void clear() {
+    synchronized (lock) {
+      deleteChildren(keyDirectory);
+      deleteChildren(contentDirectory);
+      contentSizes = new LinkedHashMap<>(16, 0.75f, true);
+      sizeBytes = 0;
+    }
+  }
+
+  private File onHit(File cachedFile) {
+    long length = cachedFile.length();
+    synchronized (lock) {
+      loadIfNeeded();
+      // Marks the content as the most recently used.
+      Preconditions.checkNotNull(contentSizes).get(cachedFile.getName());
+    }
+    // Keeps the recency across restarts.
+    cachedFile.setLastModified(System.currentTimeMillis());
+    hitCount.incrementAndGet();
+    bytesSaved.addAndGet(length);
+    return cachedFile;
+  }
+
+  /** Streams the response to a temporary file while hashing it, then moves it into place. */
+  private File download(URLConnection connection) throws IOException {
+    MessageDigest digest = newDigest();
+    ensureDirectory(tempDirectory);
+    File tempFile = new File(tempDirectory, UUID.randomUUID().toString());
+    long length = 0;
+    try {
+      try (InputStream inputStream = connection.getInputStream();
+          OutputStream outputStream = new FileOutputStream(tempFile)) {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int count;
+        while ((count = inputStream.read(buffer)) != -1) {
+          digest.update(buffer, 0, count);
+          outputStream.write(buffer, 0, count);
+          length += count;
+        }
+      }
+      bytesDownloaded.addAndGet(length);
+
+      String contentHash = toHex(digest.digest());
+      File contentFile = new File(contentDirectory, contentHash);
+      synchronized (lock) {
+        loadIfNeeded();
+        ensureDirectory(contentDirectory);
+        // Identical content downloaded from another url is already in place.
+        if (!contentFile.isFile()) {
+          rename(tempFile, contentFile);
+        }
+        LinkedHashMap<String, Long> sizes = Preconditions.checkNotNull(contentSizes);
+        if (sizes.put(contentHash, length) == null) {
+          sizeBytes += length;
+        }
+        trim(contentHash);
+      }
+      contentFile.setLastModified(System.currentTimeMillis());
+      return contentFile;
+    } finally {
+      if (tempFile.exists() && !tempFile.delete()) {
+        Log.w(TAG, "Unable to delete " + tempFile);
+      }
+    }
+  }
+
+  /** Deletes the least recently used content until the cache fits, except the one just added. */
+  @GuardedBy("lock")
+  private void trim(@Nullable String keptHash) {
+    loadIfNeeded();
+    Iterator<Map.Entry<String, Long>> iterator =
+        Preconditions.checkNotNull(contentSizes).entrySet().iterator();
+    while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+      Map.Entry<String, Long> entry = iterator.next();
+      if (entry.getKey().equals(keptHash)) {
+        continue;
+      }
+      // The key files pointing to it are dropped when they are next read.
+      new File(contentDirectory, entry.getKey()).delete();
+      sizeBytes -= entry.getValue();
+      iterator.remove();
+    }
+  }
+
+  @GuardedBy("lock")
+  private void loadIfNeeded() {
+    if (contentSizes != null) {
+      return;
+    }
+
+    contentSizes = new LinkedHashMap<>(16, 0.75f, true);
+    sizeBytes = 0;
+    // Temporary files are left over from downloads interrupted by a crash.
+    deleteChildren(tempDirectory);
+
+    File[] files = contentDirectory.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files, (lhs, rhs) -> Long.compare(lhs.lastModified(), rhs.lastModified()));
+    for (File file : files) {
+      long length = file.length();
+      contentSizes.put(file.getName(), length);
+      sizeBytes += length;
+    }
+    trim(null);
+  }
+
+  @Nullable
+  private KeyEntry readKeyEntry(File keyFile, String urlString) {
+    if (!keyFile.isFile()) {
+      return null;
+    }
+
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(keyFile), StandardCharsets.UTF_8))) {
+      String url = reader.readLine();
+      String contentHash = reader.readLine();
+      String eTag = reader.readLine();
+      String lastModified = reader.readLine();
+      // A different url with the same hash, or a file from another version, is ignored.
+      if (!urlString.equals(url) || contentHash == null || lastModified == null) {
+        return null;
+      }
+      return new KeyEntry(url, contentHash, eTag, lastModified);
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to read cache entry " + keyFile, e);
+      return null;
+    }
+  }
+
+  private void writeKeyEntry(File keyFile, KeyEntry entry) throws IOException {
+    ensureDirectory(tempDirectory);
+    ensureDirectory(keyDirectory);
+    File tempFile = new File(tempDirectory, UUID.randomUUID().toString());
+    try {
+      try (Writer writer =
+          new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+        writer.write(
+            entry.url
+                + '\n'
+                + entry.contentHash
+                + '\n'
+                + entry.eTag
+                + '\n'
+                + entry.lastModified
+                + '\n');
+      }
+      rename(tempFile, keyFile);
+    } finally {
+      if (tempFile.exists() && !tempFile.delete()) {
+        Log.w(TAG, "Unable to delete " + tempFile);
+      }
+    }
+  }
+
+  private static void rename(File from, File to) throws IOException {
+    if (!from.renameTo(to)) {
+      throw new IOException("Unable to move " + from + " to " + to);
+    }
+  }
+
+  private static void ensureDirectory(File directory) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+      throw new IOException("Unable to create directory " + directory);
+    }
+  }
+
+  private static void deleteChildren(File directory) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      file.delete();
+    }
+  }
+
+  private static String nonNull(@Nullable String value) {
+    return value == null ? "" : value;
+  }
+
+  private static String hash(byte[] bytes) {
+    MessageDigest digest = newDigest();
+    return toHex(digest.digest(bytes));
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError("SHA-256 is not available.", e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+      chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+    }
+    return new String(chars);
+  }
+
+  /** The last download of a url: the hash of its content and the validators of the response. */
+  private static class KeyEntry {
+    final String url;
+    final String contentHash;
+    final String eTag;
+    final String lastModified;
+
+    KeyEntry(String url, String contentHash, String eTag, String lastModified) {
+      this.url = url;
+      this.contentHash = contentHash;
+      this.eTag = eTag;
+      this.lastModified = lastModified;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.google.ar.sceneform.utilities;
+
+import android.support.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+
+/**
+ * Opens an asset as a stream, and may also map it into memory so that it can be read without being
+ * copied. {@link LoadHelper} creates sources of this type, which {@link
+ * SceneformBufferUtils#readAsset(Callable)} maps when possible.
+ *
+ * @hide
+ */
+public interface AssetSource extends Callable<InputStream> {
+  /**
+   * Maps the asset into memory, read-only. Returns null if the asset isn't stored uncompressed in a
+   * file, for example a compressed APK entry or a remote file, in which case it must be read
+   * through {@link #call()}.
+   */
+  @Nullable
+  ByteBuffer map() throws IOException;
+
+  /**
+   * Returns the size of the asset in bytes, or -1 if it isn't known. The size of a remote asset is
+   * only known after {@link #call()} opened it.
+   */
+  long getSizeHint();
+}
@@ -0,0 +1,310 @@
+package com.google.ar.sceneform.utilities;
+
+import android.support.annotation.GuardedBy;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.google.ar.sceneform.BuildConfig;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Pool of direct {@link ByteBuffer}s for transient data, such as geometry staged for upload to
+ * Filament or assets being read. Direct buffers are read by Filament without another copy, and
+ * reusing them avoids allocating and collecting large buffers while a scene loads or a dynamic
+ * mesh changes.
+ *
+ * <p>Buffers are pooled by size class, in powers of two from 4 KB to 64 MB. Larger buffers are
+ * allocated on demand and not pooled. A buffer returned by {@link #acquire(int)} must be given
+ * back exactly once with {@link #release(ByteBuffer)}, and not used afterwards. Buffers handed to
+ * Filament are released from the callback that Filament calls once it has consumed them.
+ *
+ * <p>In debug builds, the pool checks that released buffers were acquired from it, and logs the
+ * stack trace of the acquisition of any buffer that was garbage collected without being released.
+ *
+ * @hide
+ */
+public class BufferPool {
+  private static final String TAG = BufferPool.class.getSimpleName();
+
+  private static final int MIN_SIZE_CLASS_SHIFT = 12;
+  private static final int MAX_SIZE_CLASS_SHIFT = 26;
+  private static final int SIZE_CLASS_COUNT = MAX_SIZE_CLASS_SHIFT - MIN_SIZE_CLASS_SHIFT + 1;
+  private static final long DEFAULT_MAX_POOLED_BYTES = 32L * 1024 * 1024;
+
+  private static final BufferPool instance = new BufferPool(BuildConfig.DEBUG);
+
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private final ArrayList<ArrayDeque<ByteBuffer>> freeBuffers = new ArrayList<>(SIZE_CLASS_COUNT);
+
+  @GuardedBy("lock")
+  private long maxPooledBytes = DEFAULT_MAX_POOLED_BYTES;
+
+  @GuardedBy("lock")
+  private long pooledBytes;
+
+  @GuardedBy("lock")
+  private long acquiredBytes;
+
+  @GuardedBy("lock")
+  private long highWaterMarkBytes;
+
+  @GuardedBy("lock")
+  private long acquireCount;
+
+  @GuardedBy("lock")
+  private long reuseCount;
+
+  @GuardedBy("lock")
+  private long leakCount;
+
+  // Leak detection. Acquired buffers are tracked by weak references, grouped by identity hash code
+  // since buffers compare by content.
+  private final boolean isLeakDetectionEnabled;
+  private final ReferenceQueue<ByteBuffer> leakQueue = new ReferenceQueue<>();
+
+  @GuardedBy("lock")
+  private final HashMap<Integer, ArrayList<AcquiredReference>> acquiredReferences =
+      new HashMap<>();
+
+  public static BufferPool getInstance() {
+    return instance;
+  }
+
+  @VisibleForTesting
+  public BufferPool(boolean isLeakDetectionEnabled) {
+    this.isLeakDetectionEnabled = isLeakDetectionEnabled;
+    for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+      freeBuffers.add(new ArrayDeque<>());
+    }
+  }
+
+  /**
+   * Returns a direct buffer in native byte order, with its position at zero and its limit at the
+   * requested size. Its capacity may be larger.
+   */
+  public ByteBuffer acquire(int sizeInBytes) {
+    if (sizeInBytes < 0) {
+      throw new IllegalArgumentException("Parameter \"sizeInBytes\" was negative.");
+    }
+
+    int sizeClass = getSizeClass(sizeInBytes);
+    ByteBuffer buffer = null;
+    synchronized (lock) {
+      pollLeaks();
+      if (sizeClass >= 0) {
+        buffer = freeBuffers.get(sizeClass).pollLast();
+        if (buffer != null) {
+          pooledBytes -= buffer.capacity();
+          reuseCount++;
+        }
+      }
+    }
+
+    if (buffer == null) {
+      int capacity = sizeClass >= 0 ? 1 << (sizeClass + MIN_SIZE_CLASS_SHIFT) : sizeInBytes;
+      buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+    buffer.clear();
+    buffer.limit(sizeInBytes);
+
+    synchronized (lock) {
+      acquireCount++;
+      acquiredBytes += buffer.capacity();
+      highWaterMarkBytes = Math.max(highWaterMarkBytes, acquiredBytes);
+      if (isLeakDetectionEnabled) {
+        AcquiredReference reference = new AcquiredReference(buffer, leakQueue);
+        ArrayList<AcquiredReference> references = acquiredReferences.get(reference.key);
+        if (references == null) {
+          references = new ArrayList<>(1);
+          acquiredReferences.put(reference.key, references);
+        }
+        references.add(reference);
+      }
+    }
+    return buffer;
+  }
+
+  /**
+   * Gives back a buffer returned by {@link #acquire(int)}. It is kept for reuse if the pool isn't
+   * full.
+   *
+   * @throws IllegalStateException in debug builds, if the buffer wasn't acquired from this pool or
+   *     was already released
+   */
+  public void release(ByteBuffer buffer) {
+    Preconditions.checkNotNull(buffer, "Parameter \"buffer\" was null.");
+
+    synchronized (lock) {
+      if (isLeakDetectionEnabled && !untrack(buffer)) {
+        throw new IllegalStateException(
+            "The buffer was not acquired from this pool, or was already released.");
+      }
+
+      int capacity = buffer.capacity();
+      acquiredBytes -= capacity;
+      int sizeClass = getSizeClass(capacity);
+      boolean isPooledSize =
+          sizeClass >= 0 && capacity == 1 << (sizeClass + MIN_SIZE_CLASS_SHIFT);
+      if (isPooledSize && pooledBytes + capacity <= maxPooledBytes) {
+        freeBuffers.get(sizeClass).addLast(buffer);
+        pooledBytes += capacity;
+      }
+    }
+  }
+
+  /** Returns a callback that releases the buffer, to pass to Filament along with it. */
+  public Runnable releaseCallback(ByteBuffer buffer) {
+    return () -> release(buffer);
+  }
+
+  /** Sets how many bytes of free buffers are kept for reuse. The default is 32 MB. */
+  public void setMaxPooledBytes(long maxPooledBytes) {
+    if (maxPooledBytes < 0) {
+      throw new IllegalArgumentException("Parameter \"maxPooledBytes\" was negative.");
+    }
+
+    synchronized (lock) {
+      this.maxPooledBytes = maxPooledBytes;
+      if (pooledBytes > maxPooledBytes) {
+        clear();
+      }
+    }
+  }
+
+  /** Drops every free buffer, for example when the system is low on memory. */
+  public void clear() {
+    synchronized (lock) {
+      for (int i = 0; i < freeBuffers.size(); i++) {
+        freeBuffers.get(i).clear();
+      }
+      pooledBytes = 0;
+    }
+  }
+
+  /** Returns the capacity of the buffers that are acquired and not released yet, in bytes. */
+  public long getAcquiredBytes() {
+    synchronized (lock) {
+      return acquiredBytes;
+    }
+  }
+
+  /** Returns the largest capacity of buffers that were acquired at once, in bytes. */
+  public long getHighWaterMarkBytes() {
+    synchronized (lock) {
+      return highWaterMarkBytes;
+    }
+  }
+
+  /** Returns the capacity of the free buffers kept for reuse, in bytes. */
+  public long getPooledBytes() {
+    synchronized (lock) {
+      return pooledBytes;
+    }
+  }
+
+  public long getAcquireCount() {
+    synchronized (lock) {
+      return acquireCount;
+    }
+  }
+
+  /** Returns the number of acquisitions that reused a free buffer instead of allocating one. */
+  public long getReuseCount() {
+    synchronized (lock) {
+      return reuseCount;
+    }
+  }
+
+  /** Returns the number of buffers found garbage collected without being released. */
+  public long getLeakCount() {
+    synchronized (lock) {
+      pollLeaks();
+      return leakCount;
+    }
+  }
+
+  /** Returns the index of the smallest size class that fits the size, or -1 if none does. */
+  private static int getSizeClass(int sizeInBytes) {
+    int shift = sizeInBytes <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(sizeInBytes - 1);
+    if (shift > MAX_SIZE_CLASS_SHIFT) {
+      return -1;
+    }
+    return Math.max(0, shift - MIN_SIZE_CLASS_SHIFT);
+  }
+
+  @GuardedBy("lock")
+  private boolean untrack(ByteBuffer buffer) {
+    int key = System.identityHashCode(buffer);
+    ArrayList<AcquiredReference> references = acquiredReferences.get(key);
+    if (references == null) {
+      return false;
+    }
+
+    for (int i = 0; i < references.size(); i++) {
+      AcquiredReference reference = references.get(i);
+      if (reference.get() == buffer) {
+        // A cleared reference is never enqueued, so it isn't reported as a leak.
+        reference.clear();
+        removeReference(references, i);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @GuardedBy("lock")
+  private void pollLeaks() {
+    if (!isLeakDetectionEnabled) {
+      return;
+    }
+
+    AcquiredReference reference;
+    while ((reference = (AcquiredReference) leakQueue.poll()) != null) {
+      ArrayList<AcquiredReference> references = acquiredReferences.get(reference.key);
+      int index = references != null ? references.indexOf(reference) : -1;
+      if (index < 0) {
+        continue;
+      }
+      removeReference(references, index);
+
+      leakCount++;
+      acquiredBytes -= reference.capacity;
+      Log.e(
+          TAG,
+          "A buffer of "
+              + reference.capacity
+              + " bytes was garbage collected without being released to the pool.",
+          reference.acquireTrace);
+    }
+  }
+
+  @GuardedBy("lock")
+  private void removeReference(ArrayList<AcquiredReference> references, int index) {
+    int lastIndex = references.size() - 1;
+    AcquiredReference reference = references.get(index);
+    references.set(index, references.get(lastIndex));
+    references.remove(lastIndex);
+    if (references.isEmpty()) {
+      acquiredReferences.remove(reference.key);
+    }
+  }
+
+  private static class AcquiredReference extends WeakReference<ByteBuffer> {
+    final int key;
+    final int capacity;
+    final Throwable acquireTrace = new Throwable("Buffer acquired here");
+
+    AcquiredReference(ByteBuffer buffer, ReferenceQueue<ByteBuffer> queue) {
+      super(buffer, queue);
+      key = System.identityHashCode(buffer);
+      capacity = buffer.capacity();
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.google.ar.sceneform.utilities;
 
 import android.content.ContentResolver;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.content.res.Resources;
 import android.net.Uri;
@@ -15,6 +16,7 @@ import android.util.Log;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -22,6 +24,8 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Callable;
@@ -42,6 +46,9 @@ public class LoadHelper {
   private static final String ANDROID_ASSET = SLASH_DELIMETER + "android_asset" + SLASH_DELIMETER;
   // Default cache size of 512MB.
   private static final long DEFAULT_CACHE_SIZE_BYTES = 512 << 20;
+  // Smaller assets are read rather than mapped, since a mapping costs at least a page and a
+  // system call.
+  private static final long MIN_MAPPED_SIZE_BYTES = 64 * 1024;
 
   /** Static utility class */
   private LoadHelper() {}
@@ -73,7 +80,8 @@ public class LoadHelper {
   }
 
   /**
-   * Creates an InputStream from an Android resource ID.
+   * Creates an InputStream from an Android resource ID. The returned callable is an {@link
+   * AssetSource}, which maps the resource when it is stored uncompressed.
    *
    * @throws IllegalArgumentException for resources that can't be loaded.
    */
@@ -82,7 +90,31 @@ public class LoadHelper {
 
     String resourceType = context.getResources().getResourceTypeName(resId);
     if (resourceType.equals(RAW_RESOURCE_TYPE) || resourceType.equals(DRAWABLE_RESOURCE_TYPE)) {
-      return () -> context.getResources().openRawResource(resId);
+      Resources resources = context.getResources();
+      return new AssetSource() {
+        @Override
+        public InputStream call() {
+          return resources.openRawResource(resId);
+        }
+
+        @Nullable
+        @Override
+        public ByteBuffer map() throws IOException {
+          AssetFileDescriptor descriptor;
+          try {
+            descriptor = resources.openRawResourceFd(resId);
+          } catch (Resources.NotFoundException e) {
+            // The resource is compressed.
+            return null;
+          }
+          return mapAssetFileDescriptor(descriptor);
+        }
+
+        @Override
+        public long getSizeHint() {
+          return -1;
+        }
+      };
     } else {
       throw new IllegalArgumentException(
           "Unknown resource resourceType '"
@@ -103,13 +135,31 @@ public class LoadHelper {
   }
 
   /**
-   * Creates different InputStreams depending on the contents of the Uri.
+   * Creates different InputStreams depending on the contents of the Uri. Except for data Uri's, the
+   * returned callable is an {@link AssetSource}, which maps files and uncompressed assets.
    *
    * @param requestProperty Adds connection properties to created input stream.
    * @throws IllegalArgumentException for Uri's that can't be loaded.
    */
   public static Callable<InputStream> fromUri(
       Context context, Uri sourceUri, @Nullable Map<String, String> requestProperty) {
+    return fromUri(context, sourceUri, requestProperty, null);
+  }
+
+  /**
+   * Creates different InputStreams depending on the contents of the Uri. Remote Uri's are read
+   * through the disk cache if one is given, and mapped from it. The cached file is resolved once
+   * per returned callable, which doesn't revalidate it on later calls unless it was evicted.
+   *
+   * @param requestProperty Adds connection properties to created input stream.
+   * @param diskCache Caches the content of remote Uri's, or null to always download it.
+   * @throws IllegalArgumentException for Uri's that can't be loaded.
+   */
+  public static Callable<InputStream> fromUri(
+      Context context,
+      Uri sourceUri,
+      @Nullable Map<String, String> requestProperty,
+      @Nullable AssetDiskCache diskCache) {
     Preconditions.checkNotNull(sourceUri, "Parameter \"sourceUri\" was null.");
     Preconditions.checkNotNull(context, "Parameter \"context\" was null.");
     if (isFileAsset(sourceUri)) {
@@ -120,6 +170,8 @@ public class LoadHelper {
       return androidResourceUriToInputStreamCreator(context, sourceUri);
     } else if (isGltfDataUri(sourceUri)) {
       return dataUriInputStreamCreator(sourceUri);
+    } else if (diskCache != null) {
+      return cachedRemoteUriToInputStreamCreator(sourceUri, requestProperty, diskCache);
     }
     return remoteUriToInputStreamCreator(sourceUri, requestProperty);
   }
@@ -203,13 +255,40 @@ public class LoadHelper {
     @SuppressWarnings("nullness:argument.type.incompatible")
     String scrubbedFilename = removeAndroidAssetPath(filename);
 
-    return () -> {
-      if (assetExists(assetManager, scrubbedFilename)) {
-        // Open Android Asset if an Asset was found
-        return assetManager.open(scrubbedFilename);
-      } else {
-        // Open file from storage or other non asset location.
-        return new FileInputStream(new File(filename));
+    return new AssetSource() {
+      @Override
+      public InputStream call() throws IOException {
+        if (assetExists(assetManager, scrubbedFilename)) {
+          // Open Android Asset if an Asset was found
+          return assetManager.open(scrubbedFilename);
+        } else {
+          // Open file from storage or other non asset location.
+          return new FileInputStream(new File(filename));
+        }
+      }
+
+      @Nullable
+      @Override
+      public ByteBuffer map() throws IOException {
+        if (!assetExists(assetManager, scrubbedFilename)) {
+          try (FileInputStream inputStream = new FileInputStream(new File(filename))) {
+            return mapRegion(inputStream, 0, inputStream.getChannel().size());
+          }
+        }
+
+        AssetFileDescriptor descriptor;
+        try {
+          descriptor = assetManager.openFd(scrubbedFilename);
+        } catch (FileNotFoundException e) {
+          // The asset is compressed.
+          return null;
+        }
+        return mapAssetFileDescriptor(descriptor);
+      }
+
+      @Override
+      public long getSizeHint() {
+        return -1;
       }
     };
   }
@@ -240,7 +319,30 @@ public class LoadHelper {
     String resourceType = sourceUriPath.substring(1, lastSlashIndex);
 
     if (resourceType.equals(RAW_RESOURCE_TYPE) || resourceType.equals(DRAWABLE_RESOURCE_TYPE)) {
-      return () -> context.getContentResolver().openInputStream(sourceUri);
+      return new AssetSource() {
+        @Override
+        public InputStream call() throws IOException {
+          return context.getContentResolver().openInputStream(sourceUri);
+        }
+
+        @Nullable
+        @Override
+        public ByteBuffer map() throws IOException {
+          AssetFileDescriptor descriptor;
+          try {
+            descriptor = context.getContentResolver().openAssetFileDescriptor(sourceUri, "r");
+          } catch (FileNotFoundException e) {
+            // The resource is compressed.
+            return null;
+          }
+          return descriptor != null ? mapAssetFileDescriptor(descriptor) : null;
+        }
+
+        @Override
+        public long getSizeHint() {
+          return -1;
+        }
+      };
     } else {
       throw new IllegalArgumentException(
           "Unknown resource resourceType '"
@@ -267,7 +369,24 @@ public class LoadHelper {
           conn.addRequestProperty(entry.getKey(), entry.getValue());
         }
       }
-      return () -> conn.getInputStream();
+      return new AssetSource() {
+        @Override
+        public InputStream call() throws IOException {
+          return conn.getInputStream();
+        }
+
+        @Nullable
+        @Override
+        public ByteBuffer map() {
+          return null;
+        }
+
+        @Override
+        public long getSizeHint() {
+          // The connection is open once the stream was requested, so this doesn't connect again.
+          return conn.getContentLengthLong();
+        }
+      };
     } catch (MalformedURLException ex) {
       // This is rare. Most bad URL's get filtered out when the URL class is constructed.
       throw new IllegalArgumentException("Unable to parse url: \'" + sourceUri + "'", ex);
@@ -276,6 +395,84 @@ public class LoadHelper {
     }
   }
 
+  /**
+   * Creates an inputStream to read from remote URL through a disk cache. The content is fetched
+   * once per source and then read from the cached file, so it is only revalidated with the server
+   * again if the file was evicted. Create a new source to pick up changes made on the server.
+   *
+   * @throws IllegalArgumentException for URL's that can't be loaded.
+   */
+  private static Callable<InputStream> cachedRemoteUriToInputStreamCreator(
+      Uri sourceUri, @Nullable Map<String, String> requestProperty, AssetDiskCache diskCache) {
+    URL sourceURL;
+    try {
+      sourceURL = new URL(sourceUri.toString());
+    } catch (MalformedURLException ex) {
+      throw new IllegalArgumentException("Unable to parse url: \'" + sourceUri + "'", ex);
+    }
+
+    return new AssetSource() {
+      @Nullable private File cachedFile;
+
+      @Override
+      public InputStream call() throws IOException {
+        return new FileInputStream(getCachedFile());
+      }
+
+      @Nullable
+      @Override
+      public ByteBuffer map() throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(getCachedFile())) {
+          return mapRegion(inputStream, 0, inputStream.getChannel().size());
+        }
+      }
+
+      @Override
+      public synchronized long getSizeHint() {
+        return cachedFile != null ? cachedFile.length() : -1;
+      }
+
+      private synchronized File getCachedFile() throws IOException {
+        // Fetch again if the file was evicted since the last read.
+        if (cachedFile == null || !cachedFile.isFile()) {
+          cachedFile = diskCache.fetch(sourceURL, requestProperty);
+        }
+        return cachedFile;
+      }
+    };
+  }
+
+  /**
+   * Maps the region of a file described by a descriptor, and closes it. Returns null if the region
+   * is too small to be worth mapping.
+   */
+  @Nullable
+  private static ByteBuffer mapAssetFileDescriptor(AssetFileDescriptor descriptor)
+      throws IOException {
+    try (FileInputStream inputStream = descriptor.createInputStream()) {
+      long length = descriptor.getLength();
+      if (length == AssetFileDescriptor.UNKNOWN_LENGTH) {
+        length = inputStream.getChannel().size() - descriptor.getStartOffset();
+      }
+      return mapRegion(inputStream, descriptor.getStartOffset(), length);
+    } finally {
+      descriptor.close();
+    }
+  }
+
+  /**
+   * Maps a region of an open file read-only. The mapping stays valid after the file is closed.
+   * Returns null if the region is too small to be worth mapping.
+   */
+  @Nullable
+  private static ByteBuffer mapRegion(FileInputStream inputStream, long offset, long length)
+      throws IOException {
+    if (length < MIN_MAPPED_SIZE_BYTES) {
+      return null;
+    }
+    return inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY, offset, length);
+  }
+
   private static Uri resolve(Uri parent, Uri child) {
     try {
       URI javaParentUri = new URI(parent.toString());
@@ -8,6 +8,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionException;
 
@@ -79,27 +81,64 @@ public final class SceneformBufferUtils {
   }
 
   public static byte[] copyByteBufferToArray(ByteBuffer in) throws IOException {
-    // TODO: this method/class may be replaceable by SourceBytes
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    byte[] buffer = new byte[DEFAULT_BLOCK_SIZE];
-    int end = in.limit();
-    int bytesRead;
-    while (in.position() < end) {
-      int lastPosition = in.position();
-
-      in.get(buffer, 0, Math.min(DEFAULT_BLOCK_SIZE, end - lastPosition));
-      bytesRead = in.position() - lastPosition;
-
-      out.write(buffer, 0, bytesRead);
-    }
-    out.flush();
-    return out.toByteArray();
+    // The size is known, so the bytes are copied once into an array of the right size.
+    byte[] out = new byte[in.remaining()];
+    in.get(out);
+    return out;
   }
 
   public static ByteBuffer copyByteBuffer(ByteBuffer in) throws IOException {
     return ByteBuffer.wrap(copyByteBufferToArray(in));
   }
 
+  /**
+   * Copies the remaining bytes of a buffer into a direct buffer acquired from the pool, which the
+   * caller must release.
+   */
+  public static ByteBuffer copyToPooledBuffer(ByteBuffer in, BufferPool pool) {
+    ByteBuffer out = pool.acquire(in.remaining());
+    out.put(in);
+    out.flip();
+    return out;
+  }
+
+  /**
+   * Reads a stream into a direct buffer acquired from the pool, which the caller must release.
+   * The buffer is sized from {@link InputStream#available()}, and replaced by a larger one if that
+   * was too small.
+   */
+  public static ByteBuffer readStreamToPooledBuffer(InputStream inputStream, BufferPool pool)
+      throws IOException {
+    ByteBuffer buffer = pool.acquire(Math.max(inputStream.available(), DEFAULT_BLOCK_SIZE));
+    try {
+      ReadableByteChannel channel = Channels.newChannel(inputStream);
+      while (true) {
+        if (!buffer.hasRemaining()) {
+          int nextByte = inputStream.read();
+          if (nextByte < 0) {
+            break;
+          }
+          ByteBuffer largerBuffer = pool.acquire(buffer.limit() * 2);
+          buffer.flip();
+          largerBuffer.put(buffer);
+          largerBuffer.put((byte) nextByte);
+          pool.release(buffer);
+          buffer = largerBuffer;
+        }
+
+        if (channel.read(buffer) < 0) {
+          break;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      pool.release(buffer);
+      throw e;
+    }
+
+    buffer.flip();
+    return buffer;
+  }
+
   public static ByteBuffer inputStreamToByteBuffer(Callable<InputStream> inputStreamCreator) {
     ByteBuffer result;
     try (InputStream inputStream = inputStreamCreator.call()) {
@@ -113,6 +152,73 @@ public final class SceneformBufferUtils {
     return result;
   }
 
+  /**
+   * Reads an asset into a {@link ByteBuffer} without copying it on the heap. Assets stored
+   * uncompressed in a file, including uncompressed APK entries, are mapped read-only. Others are
+   * read in a single pass into a direct buffer, sized from the size of the asset when it is known.
+   */
+  public static ByteBuffer readAsset(Callable<InputStream> inputStreamCreator) {
+    try {
+      AssetSource assetSource = null;
+      if (inputStreamCreator instanceof AssetSource) {
+        assetSource = (AssetSource) inputStreamCreator;
+        ByteBuffer mappedBuffer = assetSource.map();
+        if (mappedBuffer != null) {
+          return mappedBuffer;
+        }
+      }
+
+      try (InputStream inputStream = inputStreamCreator.call()) {
+        long sizeHint = assetSource != null ? assetSource.getSizeHint() : -1;
+        if (sizeHint < 0) {
+          sizeHint = inputStream.available();
+        }
+        return readStreamToDirectBuffer(inputStream, sizeHint);
+      }
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  private static ByteBuffer readStreamToDirectBuffer(InputStream inputStream, long sizeHint)
+      throws IOException {
+    if (sizeHint > Integer.MAX_VALUE) {
+      throw new IOException("Asset of " + sizeHint + " bytes is too large to read.");
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.max(sizeHint, DEFAULT_BLOCK_SIZE));
+    ReadableByteChannel channel = Channels.newChannel(inputStream);
+    while (true) {
+      if (!buffer.hasRemaining()) {
+        // Only grow the buffer if the hint was too small, not when it was exact.
+        int nextByte = inputStream.read();
+        if (nextByte < 0) {
+          break;
+        }
+        ByteBuffer largerBuffer = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+        buffer.flip();
+        largerBuffer.put(buffer);
+        largerBuffer.put((byte) nextByte);
+        buffer = largerBuffer;
+      }
+
+      if (channel.read(buffer) < 0) {
+        break;
+      }
+    }
+
+    buffer.flip();
+    return buffer.limit() == buffer.capacity() ? buffer : buffer.slice();
+  }
+
+  /**
+   * Returns an {@link InputStream} that reads the remaining bytes of a buffer in place, for
+   * buffers that have no backing array such as mapped files.
+   */
+  public static InputStream byteBufferToInputStream(ByteBuffer buffer) {
+    return new ByteBufferInputStream(buffer.duplicate());
+  }
+
   public static byte[] inputStreamCallableToByteArray(Callable<InputStream> inputStreamCreator)
       throws Exception {
     try (InputStream input = inputStreamCreator.call()) {
@@ -127,4 +233,58 @@ public final class SceneformBufferUtils {
     copy(input, output);
     return output.toByteArray();
   }
+
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+
+      int readLength = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, readLength);
+      return readLength;
+    }
+
+    @Override
+    public long skip(long count) {
+      int skipLength = (int) Math.max(0, Math.min(count, buffer.remaining()));
+      buffer.position(buffer.position() + skipLength);
+      return skipLength;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+      buffer.mark();
+    }
+
+    @Override
+    public synchronized void reset() {
+      buffer.reset();
+    }
+  }
 }
@@ -48,6 +48,11 @@ public class TranslationController extends BaseTransformationController<DragGest
 
   private final Vector3 initialForwardInLocal = new Vector3();
 
+  // Scratch values reused every frame by updatePosition and updateRotation.
+  private final Vector3 localPosition = new Vector3();
+  private final Vector3 positionDifference = new Vector3();
+  private final Quaternion localRotation = new Quaternion();
+
   private EnumSet<Plane.Type> allowedPlaneTypes = EnumSet.allOf(Plane.Type.class);
 
   private static final float LERP_SPEED = 12.0f;
@@ -219,11 +224,13 @@ public class TranslationController extends BaseTransformationController<DragGest
       return;
     }
 
-    Vector3 localPosition = getTransformableNode().getLocalPosition();
+    Vector3 localPosition = this.localPosition;
+    getTransformableNode().getLocalPosition(localPosition);
     float lerpFactor = MathHelper.clamp(frameTime.getDeltaSeconds() * LERP_SPEED, 0, 1);
-    localPosition = Vector3.lerp(localPosition, desiredLocalPosition, lerpFactor);
+    Vector3.lerp(localPosition, desiredLocalPosition, lerpFactor, localPosition);
 
-    float lengthDiff = Math.abs(Vector3.subtract(desiredLocalPosition, localPosition).length());
+    Vector3.subtract(desiredLocalPosition, localPosition, positionDifference);
+    float lengthDiff = Math.abs(positionDifference.length());
     if (lengthDiff <= POSITION_LENGTH_THRESHOLD) {
       localPosition = desiredLocalPosition;
       this.desiredLocalPosition = null;
@@ -239,9 +246,10 @@ public class TranslationController extends BaseTransformationController<DragGest
       return;
     }
 
-    Quaternion localRotation = getTransformableNode().getLocalRotation();
+    Quaternion localRotation = this.localRotation;
+    getTransformableNode().getLocalRotation(localRotation);
     float lerpFactor = MathHelper.clamp(frameTime.getDeltaSeconds() * LERP_SPEED, 0, 1);
-    localRotation = Quaternion.slerp(localRotation, desiredLocalRotation, lerpFactor);
+    Quaternion.slerp(localRotation, desiredLocalRotation, lerpFactor, localRotation);
 
     float dot = Math.abs(dotQuaternion(localRotation, desiredLocalRotation));
     if (dot >= ROTATION_DOT_THRESHOLD) {
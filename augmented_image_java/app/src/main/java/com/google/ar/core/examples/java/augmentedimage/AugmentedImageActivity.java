@@ -16,6 +16,7 @@
 
 package com.google.ar.core.examples.java.augmentedimage;
 
+import android.content.DialogInterface;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
@@ -26,12 +27,12 @@ import android.util.DisplayMetrics;
 import android.util.Log;
 import android.util.Pair;
 import android.view.Display;
-import android.view.MotionEvent;
 import android.view.View;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.bumptech.glide.Glide;
@@ -50,11 +51,17 @@ import com.google.ar.core.Plane;
 import com.google.ar.core.Trackable;
 import com.google.ar.core.examples.java.augmentedimage.rendering.AugmentedImageRenderer;
 import com.google.ar.core.examples.java.common.helpers.CameraPermissionHelper;
+import com.google.ar.core.examples.java.common.helpers.DepthSettings;
 import com.google.ar.core.examples.java.common.helpers.DisplayRotationHelper;
 import com.google.ar.core.examples.java.common.helpers.FullScreenHelper;
 import com.google.ar.core.examples.java.common.helpers.SnackbarHelper;
+import com.google.ar.core.examples.java.common.helpers.TouchInputQueue;
 import com.google.ar.core.examples.java.common.helpers.TrackingStateHelper;
+import com.google.ar.core.examples.java.common.helpers.UiStateBridge;
 import com.google.ar.core.examples.java.common.rendering.BackgroundRenderer;
+import com.google.ar.core.examples.java.common.rendering.DepthTexture;
+import com.google.ar.core.examples.java.common.rendering.ObjectRenderer;
+import com.google.ar.core.examples.java.common.rendering.ShaderPreprocessor;
 import com.google.ar.core.exceptions.CameraNotAvailableException;
 import com.google.ar.core.exceptions.UnavailableApkTooOldException;
 import com.google.ar.core.exceptions.UnavailableArcoreNotInstalledException;
@@ -95,9 +102,19 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
   private DisplayRotationHelper displayRotationHelper;
   private final TrackingStateHelper trackingStateHelper = new TrackingStateHelper(this);
 
+  // UI state written by the GL thread every frame, applied on the UI thread only when it changes.
+  private UiStateBridge uiStateBridge;
+  private UiStateBridge.Slot<Integer> fitToScanVisibility;
+  private UiStateBridge.Slot<Integer> detectedImageIndex;
+
   private final BackgroundRenderer backgroundRenderer = new BackgroundRenderer();
   private final AugmentedImageRenderer augmentedImageRenderer = new AugmentedImageRenderer();
 
+  // Depth-based occlusion. A single depth texture is shared by every teapot renderer.
+  private final DepthSettings depthSettings = new DepthSettings();
+  private final DepthTexture depthTexture = new DepthTexture();
+  private boolean isDepthSupported = false;
+
   private boolean shouldConfigureSession = false;
 
   // Augmented image configuration and rendering.
@@ -110,8 +127,13 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
 
   DisplayMetrics displaymetrics = new DisplayMetrics();
   private int pickedUpTeapot = -1; //-1 if not picked up, id if true
-  private boolean putDownDisabled = false;
-  private boolean pickedUpDisabled = false;
+  // Re-enabled from timer threads.
+  private volatile boolean putDownDisabled = false;
+  private volatile boolean pickedUpDisabled = false;
+
+  // Touches are queued by the UI thread and handled on the GL thread against the current frame.
+  private final TouchInputQueue touchInputQueue = new TouchInputQueue();
+  private final TouchInputQueue.Consumer touchHandler = this::handleTouch;
 
   private Anchor[] teapotAnchors = {null, null, null, null};
   private float[] cameraPickUpRotation = new float[4];
@@ -130,32 +152,16 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
     setContentView(R.layout.activity_main);
     surfaceView = findViewById(R.id.surfaceview);
     displayRotationHelper = new DisplayRotationHelper(/*context=*/ this);
+    depthSettings.onCreate(this);
 
-    //Listener for taps
-    surfaceView.setOnTouchListener(new View.OnTouchListener() {
-      @Override
-      public boolean onTouch(View v, MotionEvent event) {
-        Log.i("TOUCH", event.getX() + " ,  " + event.getY());
-
-        //If pickup
-        if (pickedUpTeapot == -1) {
-          int teapot_touched = onTapHittingTeapotPickUp(event, globalFrameVar, globalTeapotScaleFactor);
-          if (teapot_touched != -1 && !pickedUpDisabled && !(cameraTouchingBoundingSphere(globalFrameVar, teapotAnchors, globalTeapotScaleFactor) == teapot_touched)) {
-            pickUpTeapot(teapot_touched);
-          }
-          //else do nothing, can't pick up
-        } else {
-          //we are holding a teapot
-          Pose hitPose = onTapHittingAugImagePutDown(event, globalFrameVar);
-          if (pickedUpTeapot != -1 && !putDownDisabled && hitPose != null && cameraTouchingImage(globalFrameVar) == null) {
-            //Put down the teapot
-            putDownTeapot(hitPose);
-          }
-          //Else can't do anything, we can't put down yet
-        }
-        return true;
-      }
-    });
+    // Generate every shader variant in the background, so that the GL thread only compiles.
+    ShaderPreprocessor shaderPreprocessor = ShaderPreprocessor.getInstance(this);
+    BackgroundRenderer.declareShaderVariants(shaderPreprocessor);
+    ObjectRenderer.declareShaderVariants(shaderPreprocessor);
+    shaderPreprocessor.preloadAsync();
+
+    //Listener for taps, handled on the GL thread in handleTouch
+    surfaceView.setOnTouchListener(touchInputQueue);
 
 
     // Set up renderer.
@@ -171,6 +177,17 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
             .load(Uri.parse("file:///android_asset/fit_to_scan.png"))
             .into(fitToScanView);
 
+    uiStateBridge = new UiStateBridge();
+    fitToScanVisibility = uiStateBridge.createSlot(fitToScanView::setVisibility);
+    detectedImageIndex =
+            uiStateBridge.createSlot(
+                    index -> {
+                      if (index != null) {
+                        messageSnackbarHelper.showMessage(
+                                this, String.format("Detected Image %d", index));
+                      }
+                    });
+
     installRequested = false;
   }
 
@@ -252,7 +269,30 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
     surfaceView.onResume();
     displayRotationHelper.onResume();
 
-    fitToScanView.setVisibility(View.VISIBLE);
+    fitToScanVisibility.set(View.VISIBLE);
+
+    showOcclusionDialogIfNeeded();
+  }
+
+  /**
+   * Asks the user once whether teapots should be occluded by real-world geometry. The choice is
+   * persisted by {@link DepthSettings}.
+   */
+  private void showOcclusionDialogIfNeeded() {
+    if (!isDepthSupported || !depthSettings.shouldShowDepthEnableDialog()) {
+      return; // Don't need to show dialog.
+    }
+
+    new AlertDialog.Builder(this)
+            .setTitle(R.string.options_title_with_depth)
+            .setMessage(R.string.depth_use_explanation)
+            .setPositiveButton(
+                    R.string.button_text_enable_depth,
+                    (DialogInterface dialog, int which) -> depthSettings.setUseDepthForOcclusion(true))
+            .setNegativeButton(
+                    R.string.button_text_disable_depth,
+                    (DialogInterface dialog, int which) -> depthSettings.setUseDepthForOcclusion(false))
+            .show();
   }
 
   @Override
@@ -296,8 +336,10 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
     // Prepare the rendering objects. This involves reading shaders, so may throw an IOException.
     try {
       // Create the texture and pass it to ARCore session to be filled during update().
-      backgroundRenderer.createOnGlThread(/*context=*/ this);
+      depthTexture.createOnGlThread();
+      backgroundRenderer.createOnGlThread(/*context=*/ this, depthTexture.getTextureId());
       augmentedImageRenderer.createOnGlThread(/*context=*/ this);
+      augmentedImageRenderer.setDepthTexture(depthTexture);
     } catch (IOException e) {
       Log.e(TAG, "Failed to read an asset file", e);
     }
@@ -337,6 +379,17 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
       // If frame is ready, render camera preview image to the GL surface.
       backgroundRenderer.draw(frame);
 
+      // Acquire and upload the depth image only when occlusion is in use. The upload is skipped
+      // if the depth image has not changed since the previous frame.
+      boolean useDepthForOcclusion = isDepthSupported && depthSettings.useDepthForOcclusion();
+      if (useDepthForOcclusion) {
+        depthTexture.updateOnGlThread(frame);
+      }
+      augmentedImageRenderer.setUseDepthForOcclusion(this, useDepthForOcclusion);
+
+      // Handle the touches queued since the previous frame against this frame.
+      touchInputQueue.drain(touchHandler);
+
       // Get projection matrix.
       float[] projmtx = new float[16];
       camera.getProjectionMatrix(projmtx, 0, 0.1f, 100.0f);
@@ -360,6 +413,12 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
   private void configureSession() {
     Config config = new Config(session);
     config.setFocusMode(Config.FocusMode.AUTO);
+    isDepthSupported = session.isDepthModeSupported(Config.DepthMode.AUTOMATIC);
+    if (isDepthSupported) {
+      config.setDepthMode(Config.DepthMode.AUTOMATIC);
+    } else {
+      config.setDepthMode(Config.DepthMode.DISABLED);
+    }
     if (!setupAugmentedImageDatabase(config)) {
       messageSnackbarHelper.showError(this, "Could not setup augmented image database");
     }
@@ -376,20 +435,13 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
       switch (augmentedImage.getTrackingState()) {
         case PAUSED:
           // When an image is in PAUSED state, but the camera is not PAUSED, it has been detected,
-          // but not yet tracked.
-          String text = String.format("Detected Image %d", augmentedImage.getIndex());
-          messageSnackbarHelper.showMessage(this, text);
+          // but not yet tracked. The message is only formatted and shown when the index changes.
+          detectedImageIndex.set(augmentedImage.getIndex());
           break;
 
         case TRACKING:
-          // Have to switch to UI Thread to update View.
-          this.runOnUiThread(
-                  new Runnable() {
-                    @Override
-                    public void run() {
-                      fitToScanView.setVisibility(View.GONE);
-                    }
-                  });
+          // Views are updated on the UI thread, at most once per vsync and only on change.
+          fitToScanVisibility.set(View.GONE);
 
           // Create a new anchor for newly found images.
           if (!augmentedImageMap.containsKey(augmentedImage.getIndex())) {
@@ -523,10 +575,33 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
     teapotTranslations[teapotId] = translate;
   }
 
+  //Touch handling, called on the GL thread for each queued touch
+  private void handleTouch(float x, float y, int action, long eventTimeMillis) {
+    Log.i("TOUCH", x + " ,  " + y);
+    if (teapotAnchors[0] == null) {
+      return; // No image tracked yet, nothing to touch.
+    }
+
+    //If pickup
+    if (pickedUpTeapot == -1) {
+      int teapot_touched = onTapHittingTeapotPickUp(x, y, globalFrameVar, globalTeapotScaleFactor);
+      if (teapot_touched != -1 && !pickedUpDisabled && !(cameraTouchingBoundingSphere(globalFrameVar, teapotAnchors, globalTeapotScaleFactor) == teapot_touched)) {
+        pickUpTeapot(teapot_touched);
+      }
+      //else do nothing, can't pick up
+    } else {
+      //we are holding a teapot
+      Pose hitPose = onTapHittingAugImagePutDown(x, y, globalFrameVar);
+      if (pickedUpTeapot != -1 && !putDownDisabled && hitPose != null && cameraTouchingImage(globalFrameVar) == null) {
+        //Put down the teapot
+        putDownTeapot(hitPose);
+      }
+      //Else can't do anything, we can't put down yet
+    }
+  }
+
   //Touch screen teapot pickup check
-  private int onTapHittingTeapotPickUp(MotionEvent motionEvent, Frame frame, float teapotScaleFactor) {
-    float x_pos = motionEvent.getX();
-    float y_pos = motionEvent.getY();
+  private int onTapHittingTeapotPickUp(float x_pos, float y_pos, Frame frame, float teapotScaleFactor) {
     float teapot_r = (132113.73f / 2.0f) * teapotScaleFactor * 1.1f; // increase
 
     for (HitResult hit : frame.hitTest(x_pos, y_pos)) {
@@ -552,10 +627,7 @@ public class AugmentedImageActivity extends AppCompatActivity implements GLSurfa
   }
 
   //Touch screen teapot putdown check
-  private Pose onTapHittingAugImagePutDown(MotionEvent motionEvent, Frame frame) {
-    float x_pos = motionEvent.getX();
-    float y_pos = motionEvent.getY();
-
+  private Pose onTapHittingAugImagePutDown(float x_pos, float y_pos, Frame frame) {
     for (HitResult hit : frame.hitTest(x_pos, y_pos)) {
       Trackable trackable = hit.getTrackable();
       if (trackable instanceof AugmentedImage) {
@@ -22,6 +22,7 @@ import com.google.ar.core.AugmentedImage;
 import com.google.ar.core.Frame;
 import com.google.ar.core.Pose;
 
+import com.google.ar.core.examples.java.common.rendering.DepthTexture;
 import com.google.ar.core.examples.java.common.rendering.ObjectRenderer;
 
 import java.io.IOException;
@@ -54,8 +55,13 @@ public class AugmentedImageRenderer {
   private final ObjectRenderer teapot2 = new ObjectRenderer();
   private final ObjectRenderer teapot3 = new ObjectRenderer();
 
+  private final ObjectRenderer[] teapots = {teapot0, teapot1, teapot2, teapot3};
+
   private final ObjectRenderer debugAndy0 = new ObjectRenderer();
 
+  // Depth texture shared by all teapots for occlusion, null if depth is not used.
+  private DepthTexture depthTexture;
+
   private Pose[] teapotPoses = new Pose[4];
   private float[] teapotDegrees = {0, 0, 0, 0};
 
@@ -87,6 +93,22 @@ public class AugmentedImageRenderer {
     debugAndy0.setMaterialProperties(0.0f, 3.5f, 1.0f, 6.0f);
   }
 
+  /**
+   * Specifies whether the teapots are occluded by real-world geometry, using the depth texture set
+   * with {@link #setDepthTexture(DepthTexture)}. Recompiles the teapot shaders if the value changes.
+   */
+  public void setUseDepthForOcclusion(Context context, boolean useDepthForOcclusion)
+          throws IOException {
+    for (ObjectRenderer teapot : teapots) {
+      teapot.setUseDepthForOcclusion(context, useDepthForOcclusion);
+    }
+  }
+
+  /** Sets the depth texture shared by all teapots. The texture is owned by the caller. */
+  public void setDepthTexture(DepthTexture depthTexture) {
+    this.depthTexture = depthTexture;
+  }
+
   public void draw(
           float[] viewMatrix,
           float[] projectionMatrix,
@@ -128,6 +150,15 @@ public class AugmentedImageRenderer {
                       -218310.41f * teapotScaleFactor)));
     }
 
+    if (depthTexture != null) {
+      // All teapots sample the same texture, only the handle and uv transform are passed along.
+      for (ObjectRenderer teapot : teapots) {
+        teapot.setDepthTexture(
+                depthTexture.getTextureId(), depthTexture.getWidth(), depthTexture.getHeight());
+        teapot.setUvTransformMatrix(depthTexture.getUvTransform());
+      }
+    }
+
     modelMatrix = calculateAndReturnRotationTeapot(teapotPoses[0], teapotDegrees[0], teapotScaleFactor);
     teapot0.updateModelMatrix(modelMatrix, teapotScaleFactor, teapotScaleFactor, teapotScaleFactor);
     teapot0.draw(viewMatrix, projectionMatrix, colorCorrectionRgba, tintColor);
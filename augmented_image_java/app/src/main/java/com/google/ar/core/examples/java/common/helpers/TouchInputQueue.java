@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.ar.core.examples.java.common.helpers;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.View.OnTouchListener;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes touch input from the UI thread to the render thread.
+ *
+ * <p>Unlike {@link TapHelper}, which queues {@link MotionEvent} objects, each touch is stored as a
+ * compact primitive record (x, y, action, event time) in a bounded single-producer,
+ * single-consumer ring buffer. The UI thread never blocks and never allocates; when the queue is
+ * full the touch is dropped and counted. The render thread drains all queued touches once per
+ * frame with {@link #drain(Consumer)}, so they are processed against the current frame.
+ */
+public final class TouchInputQueue implements OnTouchListener {
+  /** Receives drained touches on the render thread. */
+  public interface Consumer {
+    /**
+     * @param x The x coordinate of the touch, in view pixels.
+     * @param y The y coordinate of the touch, in view pixels.
+     * @param action The masked action of the touch, see {@link MotionEvent#getActionMasked()}.
+     * @param eventTimeMillis The time of the touch, in the {@link SystemClock#uptimeMillis()} base.
+     */
+    void onTouch(float x, float y, int action, long eventTimeMillis);
+  }
+
+  private static final int DEFAULT_CAPACITY = 64;
+
+  // Weight of the latest sample in the exponential moving average of the latency.
+  private static final float LATENCY_SMOOTHING = 0.1f;
+
+  private final int mask;
+  private final float[] xs;
+  private final float[] ys;
+  private final int[] actions;
+  private final long[] eventTimes;
+
+  // Written by the producer (UI thread) and consumer (render thread) respectively.
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  // Metrics, only updated on the render thread.
+  private volatile int maxQueueDepth;
+  private volatile float averageLatencyMillis;
+  private volatile long maxLatencyMillis;
+
+  /** Creates a queue holding up to 64 touches. */
+  public TouchInputQueue() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a queue.
+   *
+   * @param capacity The maximum number of queued touches, rounded up to a power of two.
+   */
+  public TouchInputQueue(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    mask = size - 1;
+    xs = new float[size];
+    ys = new float[size];
+    actions = new int[size];
+    eventTimes = new long[size];
+  }
+
+  @Override
+  public boolean onTouch(View view, MotionEvent motionEvent) {
+    offer(
+        motionEvent.getX(),
+        motionEvent.getY(),
+        motionEvent.getActionMasked(),
+        motionEvent.getEventTime());
+    return true;
+  }
+
+  /**
+   * Queues a touch. Must only be called from a single producer thread, typically the UI thread.
+   *
+   * @return false if the queue was full and the touch was dropped.
+   */
+  public boolean offer(float x, float y, int action, long eventTimeMillis) {
+    long t = tail.get();
+    if (t - head.get() > mask) {
+      droppedCount.incrementAndGet();
+      return false;
+    }
+    int index = (int) t & mask;
+    xs[index] = x;
+    ys[index] = y;
+    actions[index] = action;
+    eventTimes[index] = eventTimeMillis;
+    // Publishes the record to the consumer.
+    tail.lazySet(t + 1);
+    return true;
+  }
+
+  /**
+   * Passes every queued touch to the consumer, in order. Must only be called from a single consumer
+   * thread, typically the render thread once per frame.
+   *
+   * <p>Consecutive {@link MotionEvent#ACTION_MOVE} touches are coalesced into the latest one, since
+   * only the current finger position is relevant to a frame.
+   *
+   * <p>Each touch is removed from the queue before it is passed to the consumer, so a touch whose
+   * handling throws is dropped instead of being passed again by the next call.
+   *
+   * @return the number of touches passed to the consumer.
+   */
+  public int drain(Consumer consumer) {
+    long h = head.get();
+    long t = tail.get();
+    if (h == t) {
+      return 0;
+    }
+    updateMetrics((int) (t - h), eventTimes[(int) h & mask]);
+
+    int delivered = 0;
+    for (long i = h; i < t; ++i) {
+      int index = (int) i & mask;
+      int action = actions[index];
+      if (action == MotionEvent.ACTION_MOVE
+          && i + 1 < t
+          && actions[(int) (i + 1) & mask] == MotionEvent.ACTION_MOVE) {
+        head.lazySet(i + 1);
+        continue;
+      }
+      float x = xs[index];
+      float y = ys[index];
+      long eventTimeMillis = eventTimes[index];
+      // Releases the slot to the producer once it was read, before the consumer may throw.
+      head.lazySet(i + 1);
+      consumer.onTouch(x, y, action, eventTimeMillis);
+      ++delivered;
+    }
+    return delivered;
+  }
+
+  private void updateMetrics(int depth, long oldestEventTimeMillis) {
+    if (depth > maxQueueDepth) {
+      maxQueueDepth = depth;
+    }
+    long latency = SystemClock.uptimeMillis() - oldestEventTimeMillis;
+    if (latency > maxLatencyMillis) {
+      maxLatencyMillis = latency;
+    }
+    averageLatencyMillis += (latency - averageLatencyMillis) * LATENCY_SMOOTHING;
+  }
+
+  /** Returns the number of touches currently queued. */
+  public int getQueueDepth() {
+    return (int) (tail.get() - head.get());
+  }
+
+  /** Returns the largest number of touches drained at once. */
+  public int getMaxQueueDepth() {
+    return maxQueueDepth;
+  }
+
+  /** Returns the number of touches dropped because the queue was full. */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Returns the moving average of the time between the oldest touch of a batch and the frame that
+   * processed it, in milliseconds.
+   */
+  public float getAverageLatencyMillis() {
+    return averageLatencyMillis;
+  }
+
+  /** Returns the largest time between a touch and the frame that processed it, in milliseconds. */
+  public long getMaxLatencyMillis() {
+    return maxLatencyMillis;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.ar.core.examples.java.common.helpers;
+
+import android.view.Choreographer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Passes UI state from the render thread to the UI thread without flooding the main looper.
+ *
+ * <p>The render thread writes into {@link Slot}s, which only keep the latest value. Writing a value
+ * that differs from the previous one schedules a single flush on the next vsync of the UI thread.
+ * The flush applies every slot whose value changed since it was last applied. Writing the same
+ * value every frame therefore costs one atomic read and posts nothing.
+ */
+public final class UiStateBridge {
+  /** Applies a slot value to the UI. Always called on the UI thread. */
+  public interface Applier<T> {
+    void apply(T value);
+  }
+
+  /** A latest-value-wins cell written by any thread and applied on the UI thread. */
+  public final class Slot<T> {
+    private final AtomicReference<T> latest = new AtomicReference<>();
+    private final Applier<T> applier;
+
+    // Only accessed on the UI thread.
+    private T applied;
+    private boolean hasApplied = false;
+
+    private Slot(Applier<T> applier) {
+      this.applier = applier;
+    }
+
+    /** Sets the value of the slot. Safe to call from any thread. */
+    public void set(T value) {
+      T previous = latest.getAndSet(value);
+      if (!equal(previous, value)) {
+        requestFlush();
+      }
+    }
+
+    private void flush() {
+      T value = latest.get();
+      if (hasApplied && equal(applied, value)) {
+        return;
+      }
+      applied = value;
+      hasApplied = true;
+      applier.apply(value);
+    }
+  }
+
+  private final Choreographer choreographer;
+  private final List<Slot<?>> slots = new ArrayList<>();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+  private final Choreographer.FrameCallback flushCallback =
+      new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+          // Clear the flag first, so that values written during the flush schedule another one.
+          flushScheduled.set(false);
+          for (Slot<?> slot : slots) {
+            slot.flush();
+          }
+        }
+      };
+
+  /** Creates the bridge. Must be called on the UI thread. */
+  public UiStateBridge() {
+    choreographer = Choreographer.getInstance();
+  }
+
+  /**
+   * Creates a slot. Must be called on the UI thread, before the render thread starts writing into
+   * the bridge.
+   *
+   * @param applier Applies the latest value of the slot on the UI thread.
+   */
+  public <T> Slot<T> createSlot(Applier<T> applier) {
+    Slot<T> slot = new Slot<>(applier);
+    slots.add(slot);
+    return slot;
+  }
+
+  private void requestFlush() {
+    if (flushScheduled.compareAndSet(false, true)) {
+      // Choreographer accepts callbacks from any thread and runs them on the UI thread.
+      choreographer.postFrameCallback(flushCallback);
+    }
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
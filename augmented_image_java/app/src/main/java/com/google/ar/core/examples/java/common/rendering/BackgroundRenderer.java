@@ -65,6 +65,17 @@ public class BackgroundRenderer {
   private int depthTextureUniform;
   private int depthTextureId = -1;
 
+  /**
+   * Declares the shader variants used by this renderer, so that their sources can be generated
+   * ahead of time by {@link ShaderPreprocessor#preloadAsync()}.
+   */
+  public static void declareShaderVariants(ShaderPreprocessor preprocessor) {
+    preprocessor.declareVariant(CAMERA_VERTEX_SHADER_NAME);
+    preprocessor.declareVariant(CAMERA_FRAGMENT_SHADER_NAME);
+    preprocessor.declareVariant(DEPTH_VISUALIZER_VERTEX_SHADER_NAME);
+    preprocessor.declareVariant(DEPTH_VISUALIZER_FRAGMENT_SHADER_NAME);
+  }
+
   public int getTextureId() {
     return cameraTextureId;
   }
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.ar.core.examples.java.common.rendering;
+
+import android.media.Image;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.opengl.GLSurfaceView;
+import com.google.ar.core.Coordinates2d;
+import com.google.ar.core.Frame;
+import com.google.ar.core.exceptions.NotYetAvailableException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * Handles a single RG8 GPU texture containing the latest DEPTH16 depth image, shared by every
+ * renderer that performs depth-based occlusion.
+ *
+ * <p>The depth image is acquired at most once per frame and only uploaded when its timestamp
+ * changes. Rows are packed into a direct buffer that is reused between frames, optionally
+ * downsampled to half resolution to reduce upload bandwidth and texture fetch cost.
+ */
+public final class DepthTexture {
+  private static final String TAG = DepthTexture.class.getSimpleName();
+
+  private static final int BYTES_PER_DEPTH_PIXEL = 2;
+
+  private final boolean halfResolution;
+
+  private int textureId = -1;
+  private int width = -1;
+  private int height = -1;
+  private long lastDepthTimestamp = -1;
+
+  // Reused staging buffer for tightly packed (and possibly downsampled) depth rows.
+  private ByteBuffer uploadBuffer;
+
+  // Transform from screen space uvs to depth texture uvs, updated when display geometry changes.
+  private final float[] uvTransform = new float[9];
+  // Whether uvTransform was computed. The geometry-changed frame may have passed while occlusion
+  // was off and this texture wasn't updated.
+  private boolean hasUvTransform;
+  private final float[] ndcBasis = {0, 0, 1, 0, 0, 1};
+  private final float[] frameTransform = new float[6];
+
+  /** Creates a depth texture that uploads the depth image at full resolution. */
+  public DepthTexture() {
+    this(/*halfResolution=*/ false);
+  }
+
+  /**
+   * Creates a depth texture.
+   *
+   * @param halfResolution Whether to downsample the depth image by two in each dimension before
+   *     uploading it.
+   */
+  public DepthTexture(boolean halfResolution) {
+    this.halfResolution = halfResolution;
+  }
+
+  /**
+   * Allocates the GL texture. Must be called on the OpenGL thread, typically in {@link
+   * GLSurfaceView.Renderer#onSurfaceCreated(GL10, EGLConfig)}.
+   */
+  public void createOnGlThread() {
+    int[] textures = new int[1];
+    GLES20.glGenTextures(1, textures, 0);
+    textureId = textures[0];
+    GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+    GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+    GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+    GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+    GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+    GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+
+    lastDepthTimestamp = -1;
+    hasUvTransform = false;
+    width = -1;
+    height = -1;
+
+    ShaderUtil.checkGLError(TAG, "Depth texture creation");
+  }
+
+  /**
+   * Acquires the depth image of the given frame and uploads it into the texture. Does nothing if
+   * the depth image is not available yet or has not changed since the last upload.
+   *
+   * @return true if the texture contents were updated.
+   */
+  public boolean updateOnGlThread(Frame frame) {
+    if (!hasUvTransform || frame.hasDisplayGeometryChanged()) {
+      updateUvTransform(frame);
+      hasUvTransform = true;
+    }
+
+    Image depthImage;
+    try {
+      depthImage = frame.acquireDepthImage();
+    } catch (NotYetAvailableException e) {
+      // This normally means that depth data is not available yet. This is normal so we will not
+      // spam the logcat with this.
+      return false;
+    }
+
+    try {
+      long timestamp = depthImage.getTimestamp();
+      if (timestamp == lastDepthTimestamp) {
+        return false;
+      }
+      lastDepthTimestamp = timestamp;
+      upload(depthImage);
+      return true;
+    } finally {
+      depthImage.close();
+    }
+  }
+
+  private void upload(Image depthImage) {
+    Image.Plane plane = depthImage.getPlanes()[0];
+    ByteBuffer source = plane.getBuffer();
+    int rowStride = plane.getRowStride();
+    int sourceWidth = depthImage.getWidth();
+    int sourceHeight = depthImage.getHeight();
+    int step = halfResolution ? 2 : 1;
+    int targetWidth = sourceWidth / step;
+    int targetHeight = sourceHeight / step;
+
+    int requiredBytes = targetWidth * targetHeight * BYTES_PER_DEPTH_PIXEL;
+    if (uploadBuffer == null || uploadBuffer.capacity() < requiredBytes) {
+      uploadBuffer = ByteBuffer.allocateDirect(requiredBytes).order(ByteOrder.nativeOrder());
+    }
+    uploadBuffer.clear();
+
+    if (step == 1 && rowStride == sourceWidth * BYTES_PER_DEPTH_PIXEL) {
+      // Rows are already packed, copy the whole image at once.
+      source.position(0);
+      source.limit(requiredBytes);
+      uploadBuffer.put(source);
+    } else {
+      // Pixels are copied as raw byte pairs so the byte order of the DEPTH16 samples is kept.
+      for (int y = 0; y < targetHeight; ++y) {
+        int rowOffset = y * step * rowStride;
+        for (int x = 0; x < targetWidth; ++x) {
+          int offset = rowOffset + x * step * BYTES_PER_DEPTH_PIXEL;
+          uploadBuffer.put(source.get(offset));
+          uploadBuffer.put(source.get(offset + 1));
+        }
+      }
+    }
+    uploadBuffer.flip();
+
+    // Depth rows are packed tightly, which need not be 4-byte aligned.
+    GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 1);
+    GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+    if (targetWidth != width || targetHeight != height) {
+      width = targetWidth;
+      height = targetHeight;
+      GLES20.glTexImage2D(
+          GLES20.GL_TEXTURE_2D,
+          0,
+          GLES30.GL_RG8,
+          width,
+          height,
+          0,
+          GLES30.GL_RG,
+          GLES20.GL_UNSIGNED_BYTE,
+          uploadBuffer);
+    } else {
+      GLES20.glTexSubImage2D(
+          GLES20.GL_TEXTURE_2D,
+          0,
+          0,
+          0,
+          width,
+          height,
+          GLES30.GL_RG,
+          GLES20.GL_UNSIGNED_BYTE,
+          uploadBuffer);
+    }
+    GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+    GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 4);
+
+    ShaderUtil.checkGLError(TAG, "Depth texture upload");
+  }
+
+  /**
+   * Recomputes the affine transform from screen space uvs to depth texture uvs. The transform is
+   * stored as a column-major 3x3 matrix, as expected by the u_DepthUvTransform shader uniform.
+   */
+  private void updateUvTransform(Frame frame) {
+    // XY pairs of coordinates in NDC space that constitute the origin and points along the two
+    // principal axes.
+    frame.transformCoordinates2d(
+        Coordinates2d.OPENGL_NORMALIZED_DEVICE_COORDINATES,
+        ndcBasis,
+        Coordinates2d.TEXTURE_NORMALIZED,
+        frameTransform);
+
+    // Convert the transformed points into an affine transform and transpose it.
+    float ndcOriginX = frameTransform[0];
+    float ndcOriginY = frameTransform[1];
+    uvTransform[0] = frameTransform[2] - ndcOriginX;
+    uvTransform[1] = frameTransform[3] - ndcOriginY;
+    uvTransform[2] = 0;
+    uvTransform[3] = frameTransform[4] - ndcOriginX;
+    uvTransform[4] = frameTransform[5] - ndcOriginY;
+    uvTransform[5] = 0;
+    uvTransform[6] = ndcOriginX;
+    uvTransform[7] = ndcOriginY;
+    uvTransform[8] = 1;
+  }
+
+  public int getTextureId() {
+    return textureId;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /** Returns whether a depth image has been uploaded since the texture was created. */
+  public boolean hasDepth() {
+    return width > 0 && height > 0;
+  }
+
+  /**
+   * Returns the transform from screen space uvs to depth texture uvs. The returned array is owned
+   * by this object and updated in place on the first update and whenever the display geometry
+   * changes.
+   */
+  public float[] getUvTransform() {
+    return uvTransform;
+  }
+}
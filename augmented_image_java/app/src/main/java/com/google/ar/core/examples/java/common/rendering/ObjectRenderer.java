@@ -126,6 +126,19 @@ public class ObjectRenderer {
   private float[] uvTransform = null;
   private int depthTextureId;
 
+  /**
+   * Declares the shader variants used by this renderer, so that their sources can be generated
+   * ahead of time by {@link ShaderPreprocessor#preloadAsync()}.
+   */
+  public static void declareShaderVariants(ShaderPreprocessor preprocessor) {
+    preprocessor.declareVariant(VERTEX_SHADER_NAME);
+    for (int useDepthForOcclusion = 0; useDepthForOcclusion <= 1; ++useDepthForOcclusion) {
+      Map<String, Integer> defineValuesMap = new TreeMap<>();
+      defineValuesMap.put(USE_DEPTH_FOR_OCCLUSION_SHADER_FLAG, useDepthForOcclusion);
+      preprocessor.declareVariant(FRAGMENT_SHADER_NAME, defineValuesMap);
+    }
+  }
+
   /**
    * Creates and initializes OpenGL resources needed for rendering the model.
    *
@@ -236,8 +249,8 @@ public class ObjectRenderer {
    *
    * <p>This function is a no-op if the value provided is the same as what is already set. If the
    * value changes, this function will recompile and reload the shader program to either
-   * enable/disable depth-based occlusion. NOTE: recompilation of the shader is inefficient. This
-   * code could be optimized to precompile both versions of the shader.
+   * enable/disable depth-based occlusion. The sources of both versions are generated ahead of time
+   * by {@link ShaderPreprocessor}, so only the compilation happens here.
    *
    * @param context Context for loading the shader.
    * @param useDepthForOcclusion Specifies whether to use the depth texture to perform occlusion
@@ -31,12 +31,9 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /** Renders the detected AR planes. */
@@ -64,6 +61,8 @@ public class PlaneRenderer {
           * INDICES_PER_BOUNDARY_VERT
           * INITIAL_BUFFER_BOUNDARY_VERTS;
 
+  private static final int INITIAL_SORT_CAPACITY = 16;
+
   private static final float FADE_RADIUS_M = 0.25f;
   private static final float DOTS_PER_METER = 10.0f;
   private static final float EQUILATERAL_TRIANGLE_SCALE = (float) (1 / Math.sqrt(3));
@@ -87,23 +86,22 @@ public class PlaneRenderer {
   private int gridControlUniform;
   private int planeUvMatrixUniform;
 
-  private FloatBuffer vertexBuffer =
-      ByteBuffer.allocateDirect(INITIAL_VERTEX_BUFFER_SIZE_BYTES)
-          .order(ByteOrder.nativeOrder())
-          .asFloatBuffer();
-  private ShortBuffer indexBuffer =
-      ByteBuffer.allocateDirect(INITIAL_INDEX_BUFFER_SIZE_BYTES)
-          .order(ByteOrder.nativeOrder())
-          .asShortBuffer();
-
   // Temporary lists/matrices allocated here to reduce number of allocations for each frame.
-  private final float[] modelMatrix = new float[16];
   private final float[] modelViewMatrix = new float[16];
   private final float[] modelViewProjectionMatrix = new float[16];
+  private final float[] cameraView = new float[16];
   private final float[] planeAngleUvMatrix =
       new float[4]; // 2x2 rotation matrix applied to uv coords.
 
-  private final Map<Plane, Integer> planeIndexMap = new HashMap<>();
+  // Per-plane geometry, rebuilt only when the plane's boundary polygon or extents change.
+  private final Map<Plane, PlaneGeometry> planeGeometryCache = new HashMap<>();
+  private int nextPlaneIndex = 0;
+
+  // Sort scratch, grown as needed and reused between frames. sortOrder holds indices into
+  // sortPlanes/sortDistances so that sorting never allocates.
+  private PlaneGeometry[] sortPlanes = new PlaneGeometry[INITIAL_SORT_CAPACITY];
+  private float[] sortDistances = new float[INITIAL_SORT_CAPACITY];
+  private int[] sortOrder = new int[INITIAL_SORT_CAPACITY];
 
   public PlaneRenderer() {}
 
@@ -158,99 +156,161 @@ public class PlaneRenderer {
     ShaderUtil.checkGLError(TAG, "Program parameters");
   }
 
-  /** Updates the plane model transform matrix and extents. */
-  private void updatePlaneParameters(
-      float[] planeMatrix, float extentX, float extentZ, FloatBuffer boundary) {
-    System.arraycopy(planeMatrix, 0, modelMatrix, 0, 16);
-    if (boundary == null) {
-      vertexBuffer.limit(0);
-      indexBuffer.limit(0);
-      return;
+  /**
+   * Cached triangle-strip geometry of a single plane. The vertex and index buffers are regenerated
+   * only when the boundary polygon content or the plane extents change.
+   */
+  private static class PlaneGeometry {
+    final Plane plane;
+    final int planeIndex;
+    final float[] modelMatrix = new float[16];
+    final float[] normal = new float[3];
+
+    FloatBuffer vertexBuffer =
+        ByteBuffer.allocateDirect(INITIAL_VERTEX_BUFFER_SIZE_BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asFloatBuffer();
+    ShortBuffer indexBuffer =
+        ByteBuffer.allocateDirect(INITIAL_INDEX_BUFFER_SIZE_BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asShortBuffer();
+
+    boolean valid = false;
+    int polygonHash;
+    int polygonLength;
+    float extentX;
+    float extentZ;
+
+    PlaneGeometry(Plane plane, int planeIndex) {
+      this.plane = plane;
+      this.planeIndex = planeIndex;
     }
 
-    // Generate a new set of vertices and a corresponding triangle strip index set so that
-    // the plane boundary polygon has a fading edge. This is done by making a copy of the
-    // boundary polygon vertices and scaling it down around center to push it inwards. Then
-    // the index buffer is setup accordingly.
-    boundary.rewind();
-    int boundaryVertices = boundary.limit() / 2;
-    int numVertices;
-    int numIndices;
-
-    numVertices = boundaryVertices * VERTS_PER_BOUNDARY_VERT;
-    // drawn as GL_TRIANGLE_STRIP with 3n-2 triangles (n-2 for fill, 2n for perimeter).
-    numIndices = boundaryVertices * INDICES_PER_BOUNDARY_VERT;
-
-    if (vertexBuffer.capacity() < numVertices * COORDS_PER_VERTEX) {
-      int size = vertexBuffer.capacity();
-      while (size < numVertices * COORDS_PER_VERTEX) {
-        size *= 2;
+    /**
+     * Regenerates the vertex and index buffers if the boundary polygon or extents differ from the
+     * ones the cached geometry was built from.
+     *
+     * @return true if the geometry was rebuilt.
+     */
+    boolean updateIfChanged(float extentX, float extentZ, FloatBuffer boundary) {
+      int length = boundary == null ? 0 : boundary.limit();
+      int hash = boundary == null ? 0 : hashPolygon(boundary);
+      if (valid
+          && hash == polygonHash
+          && length == polygonLength
+          && extentX == this.extentX
+          && extentZ == this.extentZ) {
+        return false;
       }
-      vertexBuffer =
-          ByteBuffer.allocateDirect(BYTES_PER_FLOAT * size)
-              .order(ByteOrder.nativeOrder())
-              .asFloatBuffer();
+      valid = true;
+      polygonHash = hash;
+      polygonLength = length;
+      this.extentX = extentX;
+      this.extentZ = extentZ;
+      build(boundary);
+      return true;
     }
-    vertexBuffer.rewind();
-    vertexBuffer.limit(numVertices * COORDS_PER_VERTEX);
 
-    if (indexBuffer.capacity() < numIndices) {
-      int size = indexBuffer.capacity();
-      while (size < numIndices) {
-        size *= 2;
+    private static int hashPolygon(FloatBuffer boundary) {
+      int hash = 1;
+      for (int i = 0, n = boundary.limit(); i < n; ++i) {
+        hash = 31 * hash + Float.floatToIntBits(boundary.get(i));
       }
-      indexBuffer =
-          ByteBuffer.allocateDirect(BYTES_PER_SHORT * size)
-              .order(ByteOrder.nativeOrder())
-              .asShortBuffer();
-    }
-    indexBuffer.rewind();
-    indexBuffer.limit(numIndices);
-
-    // Note: when either dimension of the bounding box is smaller than 2*FADE_RADIUS_M we
-    // generate a bunch of 0-area triangles.  These don't get rendered though so it works
-    // out ok.
-    float xScale = Math.max((extentX - 2 * FADE_RADIUS_M) / extentX, 0.0f);
-    float zScale = Math.max((extentZ - 2 * FADE_RADIUS_M) / extentZ, 0.0f);
-
-    while (boundary.hasRemaining()) {
-      float x = boundary.get();
-      float z = boundary.get();
-      vertexBuffer.put(x);
-      vertexBuffer.put(z);
-      vertexBuffer.put(0.0f);
-      vertexBuffer.put(x * xScale);
-      vertexBuffer.put(z * zScale);
-      vertexBuffer.put(1.0f);
+      return hash;
     }
 
-    // step 1, perimeter
-    indexBuffer.put((short) ((boundaryVertices - 1) * 2));
-    for (int i = 0; i < boundaryVertices; ++i) {
-      indexBuffer.put((short) (i * 2));
-      indexBuffer.put((short) (i * 2 + 1));
-    }
-    indexBuffer.put((short) 1);
-    // This leaves us on the interior edge of the perimeter between the inset vertices
-    // for boundary verts n-1 and 0.
-
-    // step 2, interior:
-    for (int i = 1; i < boundaryVertices / 2; ++i) {
-      indexBuffer.put((short) ((boundaryVertices - 1 - i) * 2 + 1));
-      indexBuffer.put((short) (i * 2 + 1));
-    }
-    if (boundaryVertices % 2 != 0) {
-      indexBuffer.put((short) ((boundaryVertices / 2) * 2 + 1));
+    private void build(FloatBuffer boundary) {
+      if (boundary == null) {
+        vertexBuffer.limit(0);
+        indexBuffer.limit(0);
+        return;
+      }
+
+      // Generate a new set of vertices and a corresponding triangle strip index set so that
+      // the plane boundary polygon has a fading edge. This is done by making a copy of the
+      // boundary polygon vertices and scaling it down around center to push it inwards. Then
+      // the index buffer is setup accordingly.
+      boundary.rewind();
+      int boundaryVertices = boundary.limit() / 2;
+      int numVertices;
+      int numIndices;
+
+      numVertices = boundaryVertices * VERTS_PER_BOUNDARY_VERT;
+      // drawn as GL_TRIANGLE_STRIP with 3n-2 triangles (n-2 for fill, 2n for perimeter).
+      numIndices = boundaryVertices * INDICES_PER_BOUNDARY_VERT;
+
+      if (vertexBuffer.capacity() < numVertices * COORDS_PER_VERTEX) {
+        int size = vertexBuffer.capacity();
+        while (size < numVertices * COORDS_PER_VERTEX) {
+          size *= 2;
+        }
+        vertexBuffer =
+            ByteBuffer.allocateDirect(BYTES_PER_FLOAT * size)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+      }
+      vertexBuffer.rewind();
+      vertexBuffer.limit(numVertices * COORDS_PER_VERTEX);
+
+      if (indexBuffer.capacity() < numIndices) {
+        int size = indexBuffer.capacity();
+        while (size < numIndices) {
+          size *= 2;
+        }
+        indexBuffer =
+            ByteBuffer.allocateDirect(BYTES_PER_SHORT * size)
+                .order(ByteOrder.nativeOrder())
+                .asShortBuffer();
+      }
+      indexBuffer.rewind();
+      indexBuffer.limit(numIndices);
+
+      // Note: when either dimension of the bounding box is smaller than 2*FADE_RADIUS_M we
+      // generate a bunch of 0-area triangles.  These don't get rendered though so it works
+      // out ok.
+      float xScale = Math.max((extentX - 2 * FADE_RADIUS_M) / extentX, 0.0f);
+      float zScale = Math.max((extentZ - 2 * FADE_RADIUS_M) / extentZ, 0.0f);
+
+      while (boundary.hasRemaining()) {
+        float x = boundary.get();
+        float z = boundary.get();
+        vertexBuffer.put(x);
+        vertexBuffer.put(z);
+        vertexBuffer.put(0.0f);
+        vertexBuffer.put(x * xScale);
+        vertexBuffer.put(z * zScale);
+        vertexBuffer.put(1.0f);
+      }
+
+      // step 1, perimeter
+      indexBuffer.put((short) ((boundaryVertices - 1) * 2));
+      for (int i = 0; i < boundaryVertices; ++i) {
+        indexBuffer.put((short) (i * 2));
+        indexBuffer.put((short) (i * 2 + 1));
+      }
+      indexBuffer.put((short) 1);
+      // This leaves us on the interior edge of the perimeter between the inset vertices
+      // for boundary verts n-1 and 0.
+
+      // step 2, interior:
+      for (int i = 1; i < boundaryVertices / 2; ++i) {
+        indexBuffer.put((short) ((boundaryVertices - 1 - i) * 2 + 1));
+        indexBuffer.put((short) (i * 2 + 1));
+      }
+      if (boundaryVertices % 2 != 0) {
+        indexBuffer.put((short) ((boundaryVertices / 2) * 2 + 1));
+      }
     }
   }
 
-  private void draw(float[] cameraView, float[] cameraPerspective, float[] planeNormal) {
+  private void draw(PlaneGeometry geometry, float[] cameraView, float[] cameraPerspective) {
     // Build the ModelView and ModelViewProjection matrices
     // for calculating cube position and light.
-    Matrix.multiplyMM(modelViewMatrix, 0, cameraView, 0, modelMatrix, 0);
+    Matrix.multiplyMM(modelViewMatrix, 0, cameraView, 0, geometry.modelMatrix, 0);
     Matrix.multiplyMM(modelViewProjectionMatrix, 0, cameraPerspective, 0, modelViewMatrix, 0);
 
     // Set the position of the plane
+    FloatBuffer vertexBuffer = geometry.vertexBuffer;
     vertexBuffer.rewind();
     GLES20.glVertexAttribPointer(
         planeXZPositionAlphaAttribute,
@@ -261,24 +321,48 @@ public class PlaneRenderer {
         vertexBuffer);
 
     // Set the Model and ModelViewProjection matrices in the shader.
-    GLES20.glUniformMatrix4fv(planeModelUniform, 1, false, modelMatrix, 0);
+    float[] planeNormal = geometry.normal;
+    GLES20.glUniformMatrix4fv(planeModelUniform, 1, false, geometry.modelMatrix, 0);
     GLES20.glUniform3f(planeNormalUniform, planeNormal[0], planeNormal[1], planeNormal[2]);
     GLES20.glUniformMatrix4fv(
         planeModelViewProjectionUniform, 1, false, modelViewProjectionMatrix, 0);
 
+    ShortBuffer indexBuffer = geometry.indexBuffer;
     indexBuffer.rewind();
     GLES20.glDrawElements(
         GLES20.GL_TRIANGLE_STRIP, indexBuffer.limit(), GLES20.GL_UNSIGNED_SHORT, indexBuffer);
     ShaderUtil.checkGLError(TAG, "Drawing plane");
   }
 
-  static class SortablePlane {
-    final float distance;
-    final Plane plane;
+  /** Grows the sort scratch arrays so that they can hold at least {@code count} planes. */
+  private void ensureSortCapacity(int count) {
+    if (sortOrder.length >= count) {
+      return;
+    }
+    int size = sortOrder.length;
+    while (size < count) {
+      size *= 2;
+    }
+    sortPlanes = Arrays.copyOf(sortPlanes, size);
+    sortDistances = Arrays.copyOf(sortDistances, size);
+    sortOrder = new int[size];
+  }
 
-    SortablePlane(float distance, Plane plane) {
-      this.distance = distance;
-      this.plane = plane;
+  /**
+   * Sorts the first {@code count} entries of {@link #sortOrder} so that the referenced planes are
+   * ordered farthest first. Insertion sort is used since plane counts are small and the order is
+   * mostly stable between frames.
+   */
+  private void sortByDistance(int count) {
+    for (int i = 1; i < count; ++i) {
+      int index = sortOrder[i];
+      float distance = sortDistances[index];
+      int j = i - 1;
+      while (j >= 0 && sortDistances[sortOrder[j]] < distance) {
+        sortOrder[j + 1] = sortOrder[j];
+        --j;
+      }
+      sortOrder[j + 1] = index;
     }
   }
 
@@ -293,29 +377,50 @@ public class PlaneRenderer {
   public void drawPlanes(Collection<Plane> allPlanes, Pose cameraPose, float[] cameraPerspective) {
     // Planes must be sorted by distance from camera so that we draw closer planes first, and
     // they occlude the farther planes.
-    List<SortablePlane> sortedPlanes = new ArrayList<>();
+    ensureSortCapacity(allPlanes.size());
+    float cameraX = cameraPose.tx();
+    float cameraY = cameraPose.ty();
+    float cameraZ = cameraPose.tz();
+    int sortedCount = 0;
 
     for (Plane plane : allPlanes) {
-      if (plane.getTrackingState() != TrackingState.TRACKING || plane.getSubsumedBy() != null) {
+      TrackingState trackingState = plane.getTrackingState();
+      if (trackingState == TrackingState.STOPPED || plane.getSubsumedBy() != null) {
+        // The plane will never be drawn again, release its cached geometry.
+        planeGeometryCache.remove(plane);
         continue;
       }
+      if (trackingState != TrackingState.TRACKING) {
+        continue;
+      }
+
+      PlaneGeometry geometry = planeGeometryCache.get(plane);
+      if (geometry == null) {
+        // Keep the geometry cache to assign same indices to same planes.
+        geometry = new PlaneGeometry(plane, nextPlaneIndex++);
+        planeGeometryCache.put(plane, geometry);
+      }
 
-      float distance = calculateDistanceToPlane(plane.getCenterPose(), cameraPose);
+      Pose centerPose = plane.getCenterPose();
+      // Get transformed Y axis of plane's coordinate system.
+      centerPose.getTransformedAxis(1, 1.0f, geometry.normal, 0);
+      float[] normal = geometry.normal;
+      float distance =
+          (cameraX - centerPose.tx()) * normal[0]
+              + (cameraY - centerPose.ty()) * normal[1]
+              + (cameraZ - centerPose.tz()) * normal[2];
       if (distance < 0) { // Plane is back-facing.
         continue;
       }
-      sortedPlanes.add(new SortablePlane(distance, plane));
+      centerPose.toMatrix(geometry.modelMatrix, 0);
+
+      sortPlanes[sortedCount] = geometry;
+      sortDistances[sortedCount] = distance;
+      sortOrder[sortedCount] = sortedCount;
+      ++sortedCount;
     }
-    Collections.sort(
-        sortedPlanes,
-        new Comparator<SortablePlane>() {
-          @Override
-          public int compare(SortablePlane a, SortablePlane b) {
-            return Float.compare(b.distance, a.distance);
-          }
-        });
-
-    float[] cameraView = new float[16];
+    sortByDistance(sortedCount);
+
     cameraPose.inverse().toMatrix(cameraView, 0);
 
     // Disable depth write.
@@ -341,28 +446,14 @@ public class PlaneRenderer {
 
     ShaderUtil.checkGLError(TAG, "Setting up to draw planes");
 
-    for (SortablePlane sortedPlane : sortedPlanes) {
-      Plane plane = sortedPlane.plane;
-      float[] planeMatrix = new float[16];
-      plane.getCenterPose().toMatrix(planeMatrix, 0);
-
-      float[] normal = new float[3];
-      // Get transformed Y axis of plane's coordinate system.
-      plane.getCenterPose().getTransformedAxis(1, 1.0f, normal, 0);
-
-      updatePlaneParameters(
-          planeMatrix, plane.getExtentX(), plane.getExtentZ(), plane.getPolygon());
-
-      // Get plane index. Keep a map to assign same indices to same planes.
-      Integer planeIndex = planeIndexMap.get(plane);
-      if (planeIndex == null) {
-        planeIndex = planeIndexMap.size();
-        planeIndexMap.put(plane, planeIndex);
-      }
+    for (int i = 0; i < sortedCount; ++i) {
+      PlaneGeometry geometry = sortPlanes[sortOrder[i]];
+      Plane plane = geometry.plane;
+      geometry.updateIfChanged(plane.getExtentX(), plane.getExtentZ(), plane.getPolygon());
 
       // Each plane will have its own angle offset from others, to make them easier to
       // distinguish. Compute a 2x2 rotation matrix from the angle.
-      float angleRadians = planeIndex * 0.144f;
+      float angleRadians = geometry.planeIndex * 0.144f;
       float uScale = DOTS_PER_METER;
       float vScale = DOTS_PER_METER * EQUILATERAL_TRIANGLE_SCALE;
       planeAngleUvMatrix[0] = +(float) Math.cos(angleRadians) * uScale;
@@ -371,8 +462,10 @@ public class PlaneRenderer {
       planeAngleUvMatrix[3] = +(float) Math.cos(angleRadians) * vScale;
       GLES20.glUniformMatrix2fv(planeUvMatrixUniform, 1, false, planeAngleUvMatrix, 0);
 
-      draw(cameraView, cameraPerspective, normal);
+      draw(geometry, cameraView, cameraPerspective);
     }
+    // Don't keep planes alive through the scratch array.
+    Arrays.fill(sortPlanes, 0, sortedCount, null);
 
     // Clean up the state we set
     GLES20.glDisableVertexAttribArray(planeXZPositionAlphaAttribute);
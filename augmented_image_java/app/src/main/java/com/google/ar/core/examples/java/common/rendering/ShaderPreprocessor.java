@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.ar.core.examples.java.common.rendering;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.util.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Loads shader sources from assets, resolves {@code #include} directives and prepends {@code
+ * #define} values.
+ *
+ * <p>Each asset is read and expanded once. Expanded sources and every generated variant (a source
+ * combined with a set of define values) are cached, so that creating a program on the GL thread
+ * only has to compile. Variants declared with {@link #declareVariant(String, Map)} can be generated
+ * ahead of time on a background thread with {@link #preloadAsync()}.
+ */
+public final class ShaderPreprocessor {
+  private static final String TAG = ShaderPreprocessor.class.getSimpleName();
+
+  private static final String INCLUDE_DIRECTIVE = "#include";
+
+  private static ShaderPreprocessor instance;
+
+  private final AssetManager assets;
+
+  // All caches are guarded by this.
+  private final Map<String, String> expandedSources = new HashMap<>();
+  private final Map<String, List<String>> includeGraph = new HashMap<>();
+  private final Map<String, String> variants = new HashMap<>();
+  private final Map<String, Set<Map<String, Integer>>> declaredVariants = new TreeMap<>();
+
+  /** Returns the preprocessor shared by all renderers of the application. */
+  public static synchronized ShaderPreprocessor getInstance(Context context) {
+    if (instance == null) {
+      instance = new ShaderPreprocessor(context.getApplicationContext().getAssets());
+    }
+    return instance;
+  }
+
+  private ShaderPreprocessor(AssetManager assets) {
+    this.assets = assets;
+  }
+
+  /**
+   * Declares a variant of a shader that will be needed, so that it can be generated ahead of time
+   * by {@link #preloadAsync()}.
+   *
+   * @param filename The asset name of the shader.
+   * @param defineValuesMap The #define values of the variant, may be empty.
+   */
+  public synchronized void declareVariant(String filename, Map<String, Integer> defineValuesMap) {
+    // Declaring the same variant again, e.g. when the activity is recreated, is a no-op.
+    Set<Map<String, Integer>> fileVariants = declaredVariants.get(filename);
+    if (fileVariants == null) {
+      fileVariants = new LinkedHashSet<>();
+      declaredVariants.put(filename, fileVariants);
+    }
+    fileVariants.add(new TreeMap<>(defineValuesMap));
+  }
+
+  /** Overload of declareVariant for a shader used without additional #define values. */
+  public void declareVariant(String filename) {
+    declareVariant(filename, Collections.<String, Integer>emptyMap());
+  }
+
+  /**
+   * Generates all declared variants on a background thread. Variants requested before they are
+   * ready are generated on the calling thread instead, waiting for no more than the file being
+   * expanded.
+   */
+  public void preloadAsync() {
+    new Thread(this::preloadDeclaredVariants, TAG).start();
+  }
+
+  private void preloadDeclaredVariants() {
+    List<String> filenames;
+    synchronized (this) {
+      filenames = new ArrayList<>(declaredVariants.keySet());
+    }
+    for (String filename : filenames) {
+      List<Map<String, Integer>> fileVariants;
+      synchronized (this) {
+        fileVariants = new ArrayList<>(declaredVariants.get(filename));
+      }
+      for (Map<String, Integer> defineValuesMap : fileVariants) {
+        try {
+          getVariant(filename, defineValuesMap);
+        } catch (IOException e) {
+          Log.e(TAG, "Failed to preprocess shader " + filename, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the source of a shader with all includes resolved and the given #define values
+   * prepended.
+   *
+   * @param filename The asset name of the shader.
+   * @param defineValuesMap The #define values to add to the top of the shader source code.
+   * @throws IOException If the shader or one of its includes cannot be read, or includes form a
+   *     cycle.
+   */
+  public synchronized String getVariant(String filename, Map<String, Integer> defineValuesMap)
+      throws IOException {
+    StringBuilder defines = new StringBuilder();
+    for (Map.Entry<String, Integer> entry : sorted(defineValuesMap).entrySet()) {
+      defines
+          .append("#define ")
+          .append(entry.getKey())
+          .append(' ')
+          .append(entry.getValue())
+          .append('\n');
+    }
+    String key = filename + '\n' + defines;
+
+    String variant = variants.get(key);
+    if (variant == null) {
+      String source = getExpandedSource(filename);
+      variant = defines.length() == 0 ? source : defines.append(source).toString();
+      variants.put(key, variant);
+    }
+    return variant;
+  }
+
+  /**
+   * Returns the transitive set of files included by the given shader, in include order. The shader
+   * is expanded first if needed.
+   */
+  public synchronized Set<String> getDependencies(String filename) throws IOException {
+    getExpandedSource(filename);
+    Set<String> dependencies = new LinkedHashSet<>();
+    collectDependencies(filename, dependencies);
+    return dependencies;
+  }
+
+  private void collectDependencies(String filename, Set<String> dependencies) {
+    List<String> includes = includeGraph.get(filename);
+    if (includes == null) {
+      return;
+    }
+    for (String include : includes) {
+      if (dependencies.add(include)) {
+        collectDependencies(include, dependencies);
+      }
+    }
+  }
+
+  private String getExpandedSource(String filename) throws IOException {
+    return expand(filename, new LinkedHashSet<String>());
+  }
+
+  /**
+   * Expands a shader file, resolving its includes recursively.
+   *
+   * @param filename The asset name of the shader.
+   * @param includeStack The files currently being expanded, used to detect include cycles.
+   */
+  private String expand(String filename, LinkedHashSet<String> includeStack) throws IOException {
+    String cached = expandedSources.get(filename);
+    if (cached != null) {
+      return cached;
+    }
+    if (!includeStack.add(filename)) {
+      StringBuilder cycle = new StringBuilder("Shader include cycle: ");
+      for (String file : includeStack) {
+        cycle.append(file).append(" -> ");
+      }
+      throw new IOException(cycle.append(filename).toString());
+    }
+
+    String text = readAsset(filename);
+    List<String> includes = new ArrayList<>();
+    StringBuilder sb = new StringBuilder(text.length() + 1);
+    int lineStart = 0;
+    int length = text.length();
+    while (lineStart < length) {
+      int lineEnd = text.indexOf('\n', lineStart);
+      if (lineEnd < 0) {
+        lineEnd = length;
+      }
+      // Strip the carriage return of CRLF line endings, as BufferedReader.readLine() would.
+      int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+      if (text.startsWith(INCLUDE_DIRECTIVE, lineStart)) {
+        String includeFilename = parseIncludeFilename(text, lineStart, contentEnd);
+        includes.add(includeFilename);
+        sb.append(expand(includeFilename, includeStack));
+      } else {
+        sb.append(text, lineStart, contentEnd).append('\n');
+      }
+      lineStart = lineEnd + 1;
+    }
+
+    includeStack.remove(filename);
+    includeGraph.put(filename, includes);
+    String expanded = sb.toString();
+    expandedSources.put(filename, expanded);
+    return expanded;
+  }
+
+  private static String parseIncludeFilename(String text, int lineStart, int lineEnd)
+      throws IOException {
+    int start = lineStart + INCLUDE_DIRECTIVE.length();
+    while (start < lineEnd && Character.isWhitespace(text.charAt(start))) {
+      start++;
+    }
+    int end = start;
+    while (end < lineEnd && !Character.isWhitespace(text.charAt(end))) {
+      end++;
+    }
+    String includeFilename = text.substring(start, end).replace("\"", "");
+    if (includeFilename.isEmpty()) {
+      throw new IOException("Malformed #include: " + text.substring(lineStart, lineEnd));
+    }
+    return includeFilename;
+  }
+
+  private String readAsset(String filename) throws IOException {
+    try (InputStream inputStream = assets.open(filename)) {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream(inputStream.available());
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, read);
+      }
+      return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static Map<String, Integer> sorted(Map<String, Integer> defineValuesMap) {
+    return defineValuesMap instanceof TreeMap ? defineValuesMap : new TreeMap<>(defineValuesMap);
+  }
+}
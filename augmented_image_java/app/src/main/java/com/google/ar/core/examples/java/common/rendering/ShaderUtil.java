@@ -18,12 +18,9 @@ package com.google.ar.core.examples.java.common.rendering;
 import android.content.Context;
 import android.opengl.GLES20;
 import android.util.Log;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.Collections;
 import java.util.Map;
-import java.util.TreeMap;
 
 /** Shader helper functions. */
 public class ShaderUtil {
@@ -38,15 +35,9 @@ public class ShaderUtil {
   public static int loadGLShader(
       String tag, Context context, int type, String filename, Map<String, Integer> defineValuesMap)
       throws IOException {
-    // Load shader source code.
-    String code = readShaderFileFromAssets(context, filename);
-
-    // Prepend any #define values specified during this run.
-    String defines = "";
-    for (Map.Entry<String, Integer> entry : defineValuesMap.entrySet()) {
-      defines += "#define " + entry.getKey() + " " + entry.getValue() + "\n";
-    }
-    code = defines + code;
+    // Load shader source code with any #define values specified during this run. The expanded
+    // source is cached, and usually already generated in the background.
+    String code = ShaderPreprocessor.getInstance(context).getVariant(filename, defineValuesMap);
 
     // Compiles shader code.
     int shader = GLES20.glCreateShader(type);
@@ -74,8 +65,8 @@ public class ShaderUtil {
   /** Overload of loadGLShader that assumes no additional #define values to add. */
   public static int loadGLShader(String tag, Context context, int type, String filename)
       throws IOException {
-    Map<String, Integer> emptyDefineValuesMap = new TreeMap<>();
-    return loadGLShader(tag, context, type, filename, emptyDefineValuesMap);
+    return loadGLShader(
+        tag, context, type, filename, Collections.<String, Integer>emptyMap());
   }
 
   /**
@@ -96,33 +87,4 @@ public class ShaderUtil {
       throw new RuntimeException(label + ": glError " + lastError);
     }
   }
-
-  /**
-   * Converts a raw shader file into a string.
-   *
-   * @param filename The filename of the shader file about to be turned into a shader.
-   * @return The context of the text file, or null in case of error.
-   */
-  private static String readShaderFileFromAssets(Context context, String filename)
-      throws IOException {
-    try (InputStream inputStream = context.getAssets().open(filename);
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-      StringBuilder sb = new StringBuilder();
-      String line;
-      while ((line = reader.readLine()) != null) {
-        String[] tokens = line.split(" ", -1);
-        if (tokens[0].equals("#include")) {
-          String includeFilename = tokens[1];
-          includeFilename = includeFilename.replace("\"", "");
-          if (includeFilename.equals(filename)) {
-            throw new IOException("Do not include the calling file.");
-          }
-          sb.append(readShaderFileFromAssets(context, includeFilename));
-        } else {
-          sb.append(line).append("\n");
-        }
-      }
-      return sb.toString();
-    }
-  }
 }